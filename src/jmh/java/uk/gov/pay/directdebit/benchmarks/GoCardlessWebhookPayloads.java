@@ -0,0 +1,21 @@
+package uk.gov.pay.directdebit.benchmarks;
+
+import java.util.StringJoiner;
+
+public class GoCardlessWebhookPayloads {
+
+    private GoCardlessWebhookPayloads() {
+    }
+
+    public static String aWebhookWithPaymentConfirmedEvents(int numberOfEvents) {
+        var events = new StringJoiner(",", "{\"events\":[", "]}");
+        for (int i = 0; i < numberOfEvents; i++) {
+            events.add("{\"id\":\"EV" + i + "\",\"created_at\":\"2019-07-24T18:18:49.576Z\",\"resource_type\":\"payments\"," +
+                    "\"action\":\"confirmed\",\"links\":{\"payment\":\"PM" + i + "\",\"organisation\":\"OR00003V8M32F0\"}," +
+                    "\"details\":{\"origin\":\"gocardless\",\"cause\":\"payment_confirmed\",\"description\":\"Enough time has passed " +
+                    "since the payment was submitted for the banks to return an error, so this payment is now confirmed.\"}," +
+                    "\"metadata\":{}}");
+        }
+        return events.toString();
+    }
+}
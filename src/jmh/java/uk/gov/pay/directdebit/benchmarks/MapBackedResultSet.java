@@ -0,0 +1,38 @@
+package uk.gov.pay.directdebit.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Map;
+
+/**
+ * A single-row {@link ResultSet} whose column values come from a map, so row mappers can be benchmarked without a database.
+ * Only the getters that take a column label are supported.
+ */
+public class MapBackedResultSet {
+
+    private MapBackedResultSet() {
+    }
+
+    public static ResultSet aResultSetWithColumns(Map<String, Object> columns) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (args == null || args.length != 1 || !(args[0] instanceof String)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Object value = columns.get(args[0]);
+                    switch (method.getName()) {
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getBoolean":
+                            return value != null && (Boolean) value;
+                        case "getString":
+                        case "getTimestamp":
+                        case "getDate":
+                        case "getObject":
+                            return value;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.pay.directdebit.events.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GovUkPayEventStateGraphBenchmark {
+
+    private GovUkPayEventStateGraph govUkPayEventStateGraph;
+    private GovUkPayEventType[] eventTypes;
+
+    @Setup
+    public void setUp() {
+        govUkPayEventStateGraph = new GovUkPayEventStateGraph();
+        eventTypes = GovUkPayEventType.values();
+    }
+
+    @Benchmark
+    public void isValidTransitionForEveryPairOfEventTypes(Blackhole blackhole) {
+        for (GovUkPayEventType from : eventTypes) {
+            for (GovUkPayEventType to : eventTypes) {
+                blackhole.consume(govUkPayEventStateGraph.isValidTransition(from, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.pay.directdebit.mandate.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payers.fixtures.PayerFixture.aPayerFixture;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MandateResponseSerialisationBenchmark {
+
+    private ObjectWriter objectWriter;
+    private Mandate mandate;
+    private List<Map<String, Object>> dataLinks;
+    private MandateResponse mandateResponse;
+
+    @Setup
+    public void setUp() {
+        objectWriter = Jackson.newObjectMapper().writer();
+        mandate = aMandateFixture()
+                .withPayerFixture(aPayerFixture())
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("MD000JWCBM6ABD"))
+                .toEntity();
+        String mandateUrl = "https://connector.example.com/v1/api/accounts/" + mandate.getGatewayAccount().getExternalId()
+                + "/mandates/" + mandate.getExternalId();
+        dataLinks = List.of(
+                Map.of("rel", "self", "method", "GET", "href", URI.create(mandateUrl)),
+                Map.of("rel", "next_url", "method", "GET", "href", URI.create("https://frontend.example.com/secure/token")),
+                Map.of("rel", "payments", "method", "GET", "href", URI.create(mandateUrl + "/payments")));
+        mandateResponse = new MandateResponse(mandate, dataLinks);
+    }
+
+    @Benchmark
+    public String serialise() throws JsonProcessingException {
+        return objectWriter.writeValueAsString(mandateResponse);
+    }
+
+    @Benchmark
+    public String createAndSerialise() throws JsonProcessingException {
+        return objectWriter.writeValueAsString(new MandateResponse(mandate, dataLinks));
+    }
+}
@@ -0,0 +1,54 @@
+package uk.gov.pay.directdebit.mandate.services.gocardless;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_ACTIVE;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_CANCELLED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_CUSTOMER_APPROVAL_GRANTED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_EXPIRED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_FAILED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_REINSTATED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_REPLACED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_MANDATE_SUBMITTED;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.mapGoCardlessEventToMandateState;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GoCardlessEventToMandateStateMapperBenchmark {
+
+    private GoCardlessEvent[] events;
+
+    @Setup
+    public void setUp() {
+        events = Stream.of(ACTION_MANDATE_SUBMITTED, ACTION_MANDATE_ACTIVE, ACTION_MANDATE_FAILED, ACTION_MANDATE_CANCELLED,
+                ACTION_MANDATE_EXPIRED, ACTION_MANDATE_REINSTATED, ACTION_MANDATE_REPLACED, ACTION_MANDATE_CUSTOMER_APPROVAL_GRANTED)
+                .map(action -> aGoCardlessEventFixture().withAction(action).toEntity())
+                .toArray(GoCardlessEvent[]::new);
+    }
+
+    @Benchmark
+    public void mapEveryMandateAction(Blackhole blackhole) {
+        for (GoCardlessEvent event : events) {
+            blackhole.consume(mapGoCardlessEventToMandateState(event));
+        }
+    }
+}
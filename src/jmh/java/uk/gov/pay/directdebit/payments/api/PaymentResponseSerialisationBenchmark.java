@@ -0,0 +1,56 @@
+package uk.gov.pay.directdebit.payments.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payers.fixtures.PayerFixture.aPayerFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentResponseSerialisationBenchmark {
+
+    private ObjectWriter objectWriter;
+    private Payment payment;
+    private PaymentResponse paymentResponse;
+
+    @Setup
+    public void setUp() {
+        objectWriter = Jackson.newObjectMapper().writer();
+        payment = aPaymentFixture()
+                .withMandateFixture(aMandateFixture().withPayerFixture(aPayerFixture()))
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("PM000JWCBM6ABD"))
+                .toEntity();
+        paymentResponse = PaymentResponse.from(payment);
+    }
+
+    @Benchmark
+    public String serialise() throws JsonProcessingException {
+        return objectWriter.writeValueAsString(paymentResponse);
+    }
+
+    @Benchmark
+    public String createAndSerialise() throws JsonProcessingException {
+        return objectWriter.writeValueAsString(PaymentResponse.from(payment));
+    }
+}
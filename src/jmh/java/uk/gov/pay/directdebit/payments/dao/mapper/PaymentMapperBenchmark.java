@@ -0,0 +1,90 @@
+package uk.gov.pay.directdebit.payments.dao.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.directdebit.benchmarks.MapBackedResultSet.aResultSetWithColumns;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentMapperBenchmark {
+
+    private PaymentMapper paymentMapper;
+    private ResultSet paymentWithMandateAndPayerRow;
+
+    @Setup
+    public void setUp() {
+        paymentMapper = new PaymentMapper();
+
+        Timestamp createdDate = Timestamp.from(Instant.parse("2019-07-24T18:18:49.576Z"));
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("payment_id", 1L);
+        columns.put("payment_amount", 1000L);
+        columns.put("payment_state", "PAID_OUT");
+        columns.put("payment_state_details", "payment_paid_out");
+        columns.put("payment_state_details_description", "The payment has been paid out by GoCardless");
+        columns.put("payment_external_id", "q4ek2uqg0q2k5p1lq4n7e4rb9f");
+        columns.put("payment_reference", "payment-reference");
+        columns.put("payment_description", "A payment description");
+        columns.put("payment_created_date", createdDate);
+        columns.put("payment_charge_date", Date.valueOf(LocalDate.parse("2019-07-29")));
+        columns.put("payment_provider_id", "PM000JWCBM6ABD");
+        columns.put("gateway_account_id", 1L);
+        columns.put("gateway_account_external_id", "b3cf2e7d3a9e4ee3bc3a0c1c2e4c0d3a");
+        columns.put("gateway_account_payment_provider", "GOCARDLESS");
+        columns.put("gateway_account_type", "TEST");
+        columns.put("gateway_account_description", "A gateway account");
+        columns.put("gateway_account_analytics_id", "analytics-id");
+        columns.put("gateway_account_access_token", "access-token");
+        columns.put("gateway_account_organisation", "OR00003V8M32F0");
+        columns.put("payer_id", 1L);
+        columns.put("payer_mandate_id", 1L);
+        columns.put("payer_external_id", "k4ek2uqg0q2k5p1lq4n7e4rb9f");
+        columns.put("payer_name", "J. Doe");
+        columns.put("payer_email", "j.doe@example.com");
+        columns.put("payer_bank_account_number_last_two_digits", "78");
+        columns.put("payer_bank_account_requires_authorisation", false);
+        columns.put("payer_bank_account_number", "12345678");
+        columns.put("payer_bank_account_sort_code", "123456");
+        columns.put("payer_bank_name", "A bank");
+        columns.put("payer_created_date", createdDate);
+        columns.put("mandate_id", 1L);
+        columns.put("mandate_external_id", "jcu1emks6ncq0epr8q6el6la3v");
+        columns.put("mandate_return_url", "https://example.com/return");
+        columns.put("mandate_state", "ACTIVE");
+        columns.put("mandate_state_details", "mandate_activated");
+        columns.put("mandate_state_details_description", "The time window after submission for the banks to refuse a mandate has ended");
+        columns.put("mandate_mandate_reference", "GOVUKPAY-ABCDEF");
+        columns.put("mandate_service_reference", "service-reference");
+        columns.put("mandate_created_date", createdDate);
+        paymentWithMandateAndPayerRow = aResultSetWithColumns(columns);
+    }
+
+    @Benchmark
+    public Payment mapPaymentWithMandateAndPayer() throws SQLException {
+        return paymentMapper.map(paymentWithMandateAndPayerRow, null);
+    }
+}
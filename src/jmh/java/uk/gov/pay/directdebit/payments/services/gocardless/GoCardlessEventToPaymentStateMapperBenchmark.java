@@ -0,0 +1,58 @@
+package uk.gov.pay.directdebit.payments.services.gocardless;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CANCELLED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CHARGEBACK_CANCELLED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CHARGEBACK_SETTLED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CHARGED_BACK;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CONFIRMED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_CUSTOMER_APPROVAL_DENIED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_FAILED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_LATE_FAILURE_SETTLED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_PAID_OUT;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_RESUBMISSION_REQUESTED;
+import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.ACTION_PAYMENT_SUBMITTED;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.mapGoCardlessEventToPaymentState;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GoCardlessEventToPaymentStateMapperBenchmark {
+
+    private GoCardlessEvent[] events;
+
+    @Setup
+    public void setUp() {
+        events = Stream.of(ACTION_PAYMENT_SUBMITTED, ACTION_PAYMENT_FAILED, ACTION_PAYMENT_PAID_OUT, ACTION_PAYMENT_CUSTOMER_APPROVAL_DENIED,
+                ACTION_PAYMENT_CONFIRMED, ACTION_PAYMENT_CANCELLED, ACTION_PAYMENT_CHARGED_BACK, ACTION_PAYMENT_CHARGEBACK_SETTLED,
+                ACTION_PAYMENT_CHARGEBACK_CANCELLED, ACTION_PAYMENT_LATE_FAILURE_SETTLED, ACTION_PAYMENT_RESUBMISSION_REQUESTED)
+                .map(action -> aGoCardlessEventFixture().withAction(action).toEntity())
+                .toArray(GoCardlessEvent[]::new);
+    }
+
+    @Benchmark
+    public void mapEveryPaymentAction(Blackhole blackhole) {
+        for (GoCardlessEvent event : events) {
+            blackhole.consume(mapGoCardlessEventToPaymentState(event));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package uk.gov.pay.directdebit.webhook.gocardless.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.aWebhookWithPaymentConfirmedEvents;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GoCardlessWebhookParserBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int numberOfEvents;
+
+    private String stringPayload;
+    private byte[] bytesPayload;
+    private GoCardlessWebhookParser parser;
+
+    @Setup
+    public void setUp() {
+        stringPayload = aWebhookWithPaymentConfirmedEvents(numberOfEvents);
+        bytesPayload = stringPayload.getBytes(UTF_8);
+        parser = new GoCardlessWebhookParser(new ObjectMapper());
+    }
+
+    @Benchmark
+    public List<GoCardlessEvent> parseString() {
+        return parser.parse(stringPayload);
+    }
+
+    @Benchmark
+    public List<GoCardlessEvent> parseBytes() {
+        return parser.parse(bytesPayload);
+    }
+}
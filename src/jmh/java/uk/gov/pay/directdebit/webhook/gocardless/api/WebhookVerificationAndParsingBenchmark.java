@@ -0,0 +1,81 @@
+package uk.gov.pay.directdebit.webhook.gocardless.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.pay.directdebit.webhook.gocardless.support.GoCardlessWebhookSignatureCalculator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.aWebhookWithPaymentConfirmedEvents;
+
+/**
+ * Compares handling a webhook as a String, with a new Mac per request and a parse that re-serialises every event,
+ * against verifying and parsing the raw request bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WebhookVerificationAndParsingBenchmark {
+
+    private static final String WEBHOOK_SECRET = "webhook-secret";
+
+    @Param({"1", "10", "100", "1000"})
+    private int numberOfEvents;
+
+    private byte[] body;
+    private ObjectMapper objectMapper;
+    private GoCardlessWebhookSignatureCalculator calculator;
+    private GoCardlessWebhookParser parser;
+
+    @Setup
+    public void setUp() {
+        body = aWebhookWithPaymentConfirmedEvents(numberOfEvents).getBytes(UTF_8);
+        objectMapper = new ObjectMapper();
+        calculator = new GoCardlessWebhookSignatureCalculator(WEBHOOK_SECRET);
+        parser = new GoCardlessWebhookParser(objectMapper);
+    }
+
+    @Benchmark
+    public void stringBodyWithNewMacPerRequest(Blackhole blackhole) throws Exception {
+        String stringBody = new String(body, UTF_8);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(WEBHOOK_SECRET.getBytes(UTF_8), "HmacSHA256"));
+        blackhole.consume(base16().lowerCase().encode(mac.doFinal(stringBody.getBytes(UTF_8))));
+
+        JsonNode webhookJson = objectMapper.readTree(stringBody);
+        for (JsonNode eventNode : webhookJson.get("events")) {
+            blackhole.consume(eventNode.toString());
+            blackhole.consume(eventNode.get("id").asText());
+            blackhole.consume(eventNode.get("action").asText());
+            blackhole.consume(ZonedDateTime.parse(eventNode.get("created_at").asText()));
+            blackhole.consume(eventNode.get("links").get("organisation").asText());
+        }
+    }
+
+    @Benchmark
+    public void rawBytesWithCachedMac(Blackhole blackhole) {
+        blackhole.consume(calculator.calculate(body));
+        blackhole.consume(parser.parse(body));
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.pay.directdebit.webhook.gocardless.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.aWebhookWithPaymentConfirmedEvents;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GoCardlessWebhookSignatureCalculatorBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int numberOfEvents;
+
+    private String stringBody;
+    private byte[] bytesBody;
+    private GoCardlessWebhookSignatureCalculator calculator;
+
+    @Setup
+    public void setUp() {
+        stringBody = aWebhookWithPaymentConfirmedEvents(numberOfEvents);
+        bytesBody = stringBody.getBytes(UTF_8);
+        calculator = new GoCardlessWebhookSignatureCalculator("webhook-secret");
+    }
+
+    @Benchmark
+    public String calculateFromString() {
+        return calculator.calculate(stringBody);
+    }
+
+    @Benchmark
+    public String calculateFromBytes() {
+        return calculator.calculate(bytesBody);
+    }
+}
@@ -9,7 +9,6 @@ import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.db.DataSourceFactory;
-import io.dropwizard.jdbi3.JdbiFactory;
 import io.dropwizard.jdbi3.bundles.JdbiExceptionsBundle;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
@@ -20,6 +19,7 @@ import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.DirectDebitModule;
 import uk.gov.pay.directdebit.app.config.GraphiteConfig;
 import uk.gov.pay.directdebit.app.healthcheck.Ping;
+import uk.gov.pay.directdebit.common.dao.InstrumentedJdbiFactory;
 import uk.gov.pay.directdebit.common.exception.BadRequestExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.ConflictExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.GoCardlessAccountAlreadyConnectedExceptionMapper;
@@ -37,16 +37,24 @@ import uk.gov.pay.directdebit.filters.LoggingMDCResponseFilter;
 import uk.gov.pay.directdebit.gatewayaccounts.GatewayAccountParamConverterProvider;
 import uk.gov.pay.directdebit.gatewayaccounts.resources.GatewayAccountResource;
 import uk.gov.pay.directdebit.healthcheck.resources.HealthCheckResource;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
 import uk.gov.pay.directdebit.mandate.resources.MandateResource;
+import uk.gov.pay.directdebit.mandate.services.MandateSubmissionService;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.services.EmailOutboxDispatcher;
 import uk.gov.pay.directdebit.partnerapp.resources.GoCardlessAppConnectAccountStateResource;
 import uk.gov.pay.directdebit.partnerapp.resources.GoCardlessAppConnectAccountTokenResource;
 import uk.gov.pay.directdebit.payers.resources.PayerResource;
 import uk.gov.pay.directdebit.payments.resources.PaymentResource;
 import uk.gov.pay.directdebit.payments.resources.PaymentSearchResource;
+import uk.gov.pay.directdebit.tasks.config.MandateExpiryConfig;
 import uk.gov.pay.directdebit.tasks.resources.ExpireResource;
+import uk.gov.pay.directdebit.tasks.services.ExpireService;
 import uk.gov.pay.directdebit.tokens.resources.SecurityTokensResource;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
 import uk.gov.pay.directdebit.webhook.gocardless.exception.InvalidWebhookExceptionMapper;
 import uk.gov.pay.directdebit.webhook.gocardless.resources.WebhookGoCardlessResource;
+import uk.gov.pay.directdebit.webhook.gocardless.services.GoCardlessEventQueueWorker;
 import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource;
 import uk.gov.service.payments.commons.utils.metrics.DatabaseMetricsService;
 import uk.gov.service.payments.logging.GovUkPayDropwizardRequestJsonLogLayoutFactory;
@@ -54,6 +62,7 @@ import uk.gov.service.payments.logging.LoggingFilter;
 import uk.gov.service.payments.logging.LogstashConsoleAppenderFactory;
 
 import java.net.ProxySelector;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.EnumSet.of;
@@ -102,7 +111,7 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
             ProxySelector.setDefault(customInetSocketAddressProxySelector);
         }
 
-        final Jdbi jdbi = new JdbiFactory().build(environment, configuration.getDataSourceFactory(), "postgresql");
+        final Jdbi jdbi = new InstrumentedJdbiFactory(environment.metrics()).build(environment, configuration.getDataSourceFactory(), "postgresql");
         final Injector injector = Guice.createInjector(new DirectDebitModule(configuration, environment, jdbi));
 
         environment.jersey().register(injector.getInstance(LoggingMDCRequestFilter.class));
@@ -137,6 +146,91 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
         environment.jersey().register(new MandateStateInvalidExceptionMapper());
         environment.jersey().register(new GoCardlessAccountAlreadyConnectedExceptionMapper());
         initialiseMetrics(configuration, environment);
+        initialiseGoCardlessEventQueueWorkers(configuration, environment, injector);
+        initialiseEmailOutboxDispatcher(configuration, environment, injector);
+        initialiseMandateResubmission(configuration, environment, injector);
+        initialiseMandateExpiry(configuration, environment, injector);
+    }
+
+    private void initialiseMandateExpiry(DirectDebitConfig configuration, Environment environment, Injector injector) {
+        MandateExpiryConfig mandateExpiryConfig = configuration.getMandateExpiryConfig();
+        if (!mandateExpiryConfig.isScheduled()) {
+            return;
+        }
+
+        ExpireService expireService = injector.getInstance(ExpireService.class);
+        ScheduledExecutorService executorService = environment
+                .lifecycle()
+                .scheduledExecutorService("mandate-expiry-scheduler-%d")
+                .threads(1)
+                .build();
+
+        long intervalInMillis = mandateExpiryConfig.getInterval().toMilliseconds();
+        executorService.scheduleWithFixedDelay(expireService::expireMandatesOnSchedule,
+                intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void initialiseMandateResubmission(DirectDebitConfig configuration, Environment environment, Injector injector) {
+        // runs even when mandates are confirmed synchronously, so mandates left waiting for a payment provider id
+        // after asynchronous confirmation has been switched off are still created
+        MandateConfirmationConfig mandateConfirmationConfig = configuration.getMandateConfirmationConfig();
+        MandateSubmissionService mandateSubmissionService = injector.getInstance(MandateSubmissionService.class);
+        ScheduledExecutorService executorService = environment
+                .lifecycle()
+                .scheduledExecutorService("mandate-resubmission-%d")
+                .threads(1)
+                .build();
+
+        long resubmitIntervalInMillis = mandateConfirmationConfig.getResubmitInterval().toMilliseconds();
+        executorService.scheduleWithFixedDelay(mandateSubmissionService::resubmitStalledMandates,
+                resubmitIntervalInMillis, resubmitIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void initialiseEmailOutboxDispatcher(DirectDebitConfig configuration, Environment environment, Injector injector) {
+        EmailOutboxConfig emailOutboxConfig = configuration.getEmailOutboxConfig();
+        EmailOutboxDispatcher dispatcher = injector.getInstance(EmailOutboxDispatcher.class);
+        ScheduledExecutorService executorService = environment
+                .lifecycle()
+                .scheduledExecutorService("email-outbox-dispatcher-%d")
+                .threads(1)
+                .build();
+
+        long pollIntervalInMillis = emailOutboxConfig.getPollInterval().toMilliseconds();
+        if (emailOutboxConfig.isAsynchronous()) {
+            executorService.scheduleWithFixedDelay(dispatcher::dispatchQueuedEmails, 0, pollIntervalInMillis, TimeUnit.MILLISECONDS);
+        } else {
+            // emails queued before the outbox was switched off are still sent; nothing new is queued, so the
+            // dispatcher stops once the outbox is empty
+            executorService.execute(() -> drainEmailOutbox(dispatcher, executorService, pollIntervalInMillis));
+        }
+    }
+
+    private static void drainEmailOutbox(EmailOutboxDispatcher dispatcher, ScheduledExecutorService executorService,
+                                         long pollIntervalInMillis) {
+        dispatcher.dispatchQueuedEmails();
+        if (dispatcher.hasQueuedEmails()) {
+            executorService.schedule(() -> drainEmailOutbox(dispatcher, executorService, pollIntervalInMillis),
+                    pollIntervalInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void initialiseGoCardlessEventQueueWorkers(DirectDebitConfig configuration, Environment environment, Injector injector) {
+        WebhookProcessingConfig webhookProcessingConfig = configuration.getWebhookProcessingConfig();
+        if (webhookProcessingConfig.getWorkerThreads() == 0) {
+            return;
+        }
+
+        GoCardlessEventQueueWorker worker = injector.getInstance(GoCardlessEventQueueWorker.class);
+        ScheduledExecutorService executorService = environment
+                .lifecycle()
+                .scheduledExecutorService("gocardless-event-queue-worker-%d")
+                .threads(webhookProcessingConfig.getWorkerThreads())
+                .build();
+
+        long pollIntervalInMillis = webhookProcessingConfig.getPollInterval().toMilliseconds();
+        for (int i = 0; i < webhookProcessingConfig.getWorkerThreads(); i++) {
+            executorService.scheduleWithFixedDelay(worker::processQueuedEvents, 0, pollIntervalInMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void initialiseMetrics(DirectDebitConfig configuration, Environment environment) {
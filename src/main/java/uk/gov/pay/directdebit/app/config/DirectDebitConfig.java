@@ -4,7 +4,14 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.JerseyClientConfiguration;
 import io.dropwizard.db.DataSourceFactory;
+import uk.gov.pay.directdebit.gatewayaccounts.config.GatewayAccountCacheConfig;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.payments.config.BulkCollectConfig;
+import uk.gov.pay.directdebit.tasks.config.MandateExpiryConfig;
 import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessFactory;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
+import uk.gov.pay.directdebit.webhook.sandbox.config.SandboxPayoutConfig;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -36,6 +43,38 @@ public class DirectDebitConfig extends Configuration {
     @NotNull
     private GoCardlessAppConnectConfig goCardlessAppConnectConfig;
 
+    @Valid
+    @NotNull
+    private WebhookProcessingConfig webhookProcessingConfig;
+
+    @Valid
+    @NotNull
+    private GatewayAccountCacheConfig gatewayAccountCacheConfig;
+
+    @Valid
+    @NotNull
+    private SunNameCacheConfig sunNameCacheConfig;
+
+    @Valid
+    @NotNull
+    private EmailOutboxConfig emailOutboxConfig;
+
+    @Valid
+    @NotNull
+    private BulkCollectConfig bulkCollectConfig;
+
+    @Valid
+    @NotNull
+    private MandateConfirmationConfig mandateConfirmationConfig;
+
+    @Valid
+    @NotNull
+    private MandateExpiryConfig mandateExpiryConfig;
+
+    @Valid
+    @NotNull
+    private SandboxPayoutConfig sandboxPayoutConfig;
+
     @JsonProperty("adminusers")
     public AdminUsersConfig getAdminUsersConfig() {
         return adminUsersConfig;
@@ -54,6 +93,46 @@ public class DirectDebitConfig extends Configuration {
         return goCardless;
     }
 
+    @JsonProperty("webhookProcessing")
+    public WebhookProcessingConfig getWebhookProcessingConfig() {
+        return webhookProcessingConfig;
+    }
+
+    @JsonProperty("gatewayAccountCache")
+    public GatewayAccountCacheConfig getGatewayAccountCacheConfig() {
+        return gatewayAccountCacheConfig;
+    }
+
+    @JsonProperty("sunNameCache")
+    public SunNameCacheConfig getSunNameCacheConfig() {
+        return sunNameCacheConfig;
+    }
+
+    @JsonProperty("emailOutbox")
+    public EmailOutboxConfig getEmailOutboxConfig() {
+        return emailOutboxConfig;
+    }
+
+    @JsonProperty("bulkCollect")
+    public BulkCollectConfig getBulkCollectConfig() {
+        return bulkCollectConfig;
+    }
+
+    @JsonProperty("mandateConfirmation")
+    public MandateConfirmationConfig getMandateConfirmationConfig() {
+        return mandateConfirmationConfig;
+    }
+
+    @JsonProperty("mandateExpiry")
+    public MandateExpiryConfig getMandateExpiryConfig() {
+        return mandateExpiryConfig;
+    }
+
+    @JsonProperty("sandboxPayout")
+    public SandboxPayoutConfig getSandboxPayoutConfig() {
+        return sandboxPayoutConfig;
+    }
+
     public LinksConfig getLinks() {
         return links;
     }
@@ -1,29 +1,53 @@
 package uk.gov.pay.directdebit.app.config;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.matcher.Matchers;
 import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
+import uk.gov.pay.directdebit.common.dao.Transactional;
+import uk.gov.pay.directdebit.common.dao.TransactionalInterceptor;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
+import uk.gov.pay.directdebit.events.dao.GoCardlessEventQueueDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
 import uk.gov.pay.directdebit.events.dao.SandboxEventDao;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventStateGraph;
+import uk.gov.pay.directdebit.gatewayaccounts.dao.CachingGatewayAccountDao;
 import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
+import uk.gov.pay.directdebit.mandate.dao.MandateExpiryDao;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.mandate.services.MandateSubmissionService;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
 import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
 import uk.gov.pay.directdebit.notifications.clients.ClientFactory;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
+import uk.gov.pay.directdebit.notifications.services.EmailOutboxDispatcher;
 import uk.gov.pay.directdebit.partnerapp.client.GoCardlessAppConnectClient;
 import uk.gov.pay.directdebit.partnerapp.dao.GoCardlessAppConnectAccountTokenDao;
 import uk.gov.pay.directdebit.payers.dao.GoCardlessCustomerDao;
 import uk.gov.pay.directdebit.payers.dao.PayerDao;
 import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.dao.PaymentViewDao;
+import uk.gov.pay.directdebit.payments.dao.SandboxPayoutDao;
+import uk.gov.pay.directdebit.payments.services.BulkCollectService;
+import uk.gov.pay.directdebit.payments.services.PaymentService;
+import uk.gov.pay.directdebit.tasks.services.ExpireService;
 import uk.gov.pay.directdebit.tokens.dao.TokenDao;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
+import uk.gov.pay.directdebit.webhook.gocardless.services.GoCardlessEventPartitioner;
 import uk.gov.pay.directdebit.webhook.gocardless.support.GoCardlessWebhookSignatureCalculator;
+import uk.gov.pay.directdebit.webhook.sandbox.services.SandboxPayoutService;
+
+import javax.inject.Named;
+import java.util.concurrent.ExecutorService;
 
 public class DirectDebitModule extends AbstractModule {
 
@@ -42,13 +66,23 @@ public class DirectDebitModule extends AbstractModule {
     protected void configure() {
         bind(DirectDebitConfig.class).toInstance(configuration);
         bind(Environment.class).toInstance(environment);
+        bind(MetricRegistry.class).toInstance(environment.metrics());
+        bindInterceptor(Matchers.any(), Matchers.annotatedWith(Transactional.class),
+                new TransactionalInterceptor(jdbi, environment.metrics()));
     }
 
 
     @Provides
     @Singleton
     public GoCardlessClientFactory provideGoCardlessClientFactory() {
-        return new GoCardlessClientFactory(configuration);
+        return new GoCardlessClientFactory(configuration, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public GoCardlessSunNameCache provideGoCardlessSunNameCache(GoCardlessClientFactory goCardlessClientFactory) {
+        return new GoCardlessSunNameCache(goCardlessClientFactory, configuration.getSunNameCacheConfig(), environment.metrics(),
+                environment.lifecycle().executorService("sun-name-cache-refresh-%d").minThreads(1).maxThreads(1).build());
     }
 
     @Provides
@@ -67,6 +101,64 @@ public class DirectDebitModule extends AbstractModule {
                 clientFactory.createWithDropwizardClient("adminusers"));
     }
 
+    @Provides
+    @Singleton
+    public EmailOutboxConfig provideEmailOutboxConfig() {
+        return configuration.getEmailOutboxConfig();
+    }
+
+    @Provides
+    @Singleton
+    public EmailOutboxDispatcher provideEmailOutboxDispatcher(EmailOutboxDao emailOutboxDao, AdminUsersClient adminUsersClient) {
+        EmailOutboxConfig emailOutboxConfig = configuration.getEmailOutboxConfig();
+        return new EmailOutboxDispatcher(emailOutboxDao, adminUsersClient, emailOutboxConfig,
+                environment.lifecycle().executorService("email-outbox-sender-%d")
+                        .minThreads(emailOutboxConfig.getSenderThreads())
+                        .maxThreads(emailOutboxConfig.getSenderThreads())
+                        .build(),
+                environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public BulkCollectService provideBulkCollectService(MandateQueryService mandateQueryService, PaymentService paymentService) {
+        int submitThreads = configuration.getBulkCollectConfig().getSubmitThreads();
+        return new BulkCollectService(mandateQueryService, paymentService, configuration.getBulkCollectConfig(),
+                environment.lifecycle().executorService("bulk-collect-submit-%d")
+                        .minThreads(submitThreads)
+                        .maxThreads(submitThreads)
+                        .build());
+    }
+
+    @Provides
+    @Singleton
+    @Named(MandateSubmissionService.SUBMIT_EXECUTOR_SERVICE)
+    public ExecutorService provideMandateSubmissionExecutorService() {
+        int submitThreads = configuration.getMandateConfirmationConfig().getSubmitThreads();
+        return environment.lifecycle().executorService("mandate-submission-%d")
+                .minThreads(submitThreads)
+                .maxThreads(submitThreads)
+                .build();
+    }
+
+    @Provides
+    @Singleton
+    public ExpireService provideExpireService(MandateExpiryDao mandateExpiryDao, GovUkPayEventStateGraph govUkPayEventStateGraph) {
+        int threads = configuration.getMandateExpiryConfig().getThreads();
+        return new ExpireService(mandateExpiryDao, govUkPayEventStateGraph, configuration.getMandateExpiryConfig(),
+                environment.lifecycle().executorService("mandate-expiry-%d")
+                        .minThreads(threads)
+                        .maxThreads(threads)
+                        .build(),
+                environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public SandboxPayoutService provideSandboxPayoutService(SandboxPayoutDao sandboxPayoutDao) {
+        return new SandboxPayoutService(sandboxPayoutDao, configuration.getSandboxPayoutConfig(), environment.metrics());
+    }
+
     @Provides
     @Singleton
     public GoCardlessWebhookSignatureCalculator provideGoCardlessWebhookSignatureCalculator() {
@@ -76,6 +168,25 @@ public class DirectDebitModule extends AbstractModule {
         return new GoCardlessWebhookSignatureCalculator(configuration.getGoCardless().getWebhookSecret());
     }
 
+    @Provides
+    @Singleton
+    public WebhookProcessingConfig provideWebhookProcessingConfig() {
+        return configuration.getWebhookProcessingConfig();
+    }
+
+    @Provides
+    @Singleton
+    public GoCardlessEventPartitioner provideGoCardlessEventPartitioner() {
+        int maxParallelism = Math.max(1, Math.min(configuration.getWebhookProcessingConfig().getMaxParallelism(),
+                configuration.getDataSourceFactory().getMaxSize() / 2));
+        return new GoCardlessEventPartitioner(
+                environment.lifecycle().executorService("gocardless-event-partition-%d")
+                        .minThreads(maxParallelism)
+                        .maxThreads(maxParallelism)
+                        .build(),
+                environment.metrics());
+    }
+
     @Provides
     @Singleton
     public ObjectMapper provideObjectMapper() {
@@ -97,7 +208,8 @@ public class DirectDebitModule extends AbstractModule {
     @Provides
     @Singleton
     public GatewayAccountDao provideGatewayAccountDao() {
-        return jdbi.onDemand(GatewayAccountDao.class);
+        return new CachingGatewayAccountDao(jdbi.onDemand(GatewayAccountDao.class),
+                configuration.getGatewayAccountCacheConfig(), environment.metrics());
     }
 
     @Provides
@@ -124,6 +236,18 @@ public class DirectDebitModule extends AbstractModule {
         return jdbi.onDemand(GoCardlessEventDao.class);
     }
 
+    @Provides
+    @Singleton
+    public GoCardlessEventQueueDao provideGoCardlessEventQueueDao() {
+        return jdbi.onDemand(GoCardlessEventQueueDao.class);
+    }
+
+    @Provides
+    @Singleton
+    public EmailOutboxDao provideEmailOutboxDao() {
+        return jdbi.onDemand(EmailOutboxDao.class);
+    }
+
     @Provides
     @Singleton
     public SandboxEventDao provideSandboxEventDao(){
@@ -142,6 +266,18 @@ public class DirectDebitModule extends AbstractModule {
         return jdbi.onDemand(GoCardlessAppConnectAccountTokenDao.class);
     }
     
+    @Provides
+    @Singleton
+    public MandateExpiryDao provideMandateExpiryDao() {
+        return new MandateExpiryDao(jdbi);
+    }
+
+    @Provides
+    @Singleton
+    public SandboxPayoutDao provideSandboxPayoutDao() {
+        return new SandboxPayoutDao(jdbi);
+    }
+
     @Provides
     @Singleton
     public MandateSearchDao provideMandateSearchDao() {
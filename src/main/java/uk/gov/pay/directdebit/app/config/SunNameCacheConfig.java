@@ -0,0 +1,46 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SunNameCacheConfig extends Configuration {
+
+    @JsonProperty
+    @Min(1)
+    private long maximumSize = 1000;
+
+    // once a SUN name is this old, the next lookup still returns it but reloads it from GoCardless in the background
+    @JsonProperty
+    @NotNull
+    private Duration refreshAfterWrite = Duration.minutes(10);
+
+    // a SUN name that has not been refreshed for this long is discarded and the next lookup waits for GoCardless
+    @JsonProperty
+    @NotNull
+    private Duration expireAfterWrite = Duration.days(1);
+
+    // after a lookup fails, lookups for the same access token fail straight away for this long instead of calling GoCardless
+    @JsonProperty
+    @NotNull
+    private Duration failureBackoff = Duration.seconds(30);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public Duration getFailureBackoff() {
+        return failureBackoff;
+    }
+}
@@ -1,34 +1,105 @@
 package uk.gov.pay.directdebit.common.clients;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.GoCardlessClient;
-import com.google.common.collect.Maps;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hashing;
+import com.squareup.okhttp.ConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.common.exception.NoAccessTokenException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessClientCacheConfig;
 import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessFactory;
 
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps a GoCardless client for each access token in use. The number of clients is bounded and clients that have not
+ * been used for a while are evicted, so access tokens that have been rotated or revoked do not keep theirs. The SDK
+ * cannot be given an HTTP client, but every client it builds uses OkHttp's shared keep-alive connection pool, so all
+ * access tokens reuse the same connections to GoCardless and an evicted client has no connections of its own to close.
+ * Evicting a client only unregisters the latency metric for its access token, once no other client for the same
+ * access token is live.
+ */
 public class GoCardlessClientFactory {
 
-    private final Map<PaymentProviderAccessToken, GoCardlessClientFacade> clients;
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessClientFactory.class);
+    private static final String METRICS_PREFIX = "gocardless-client";
+
+    private final LoadingCache<PaymentProviderAccessToken, GoCardlessClientFacade> clients;
     private final DirectDebitConfig configuration;
+    private final MetricRegistry metricRegistry;
+    private final Semaphore concurrentRequests;
+    private final ConcurrentMap<String, Integer> liveClientsByFingerprint = new ConcurrentHashMap<>();
 
-    public GoCardlessClientFactory(DirectDebitConfig configuration) {
+    public GoCardlessClientFactory(DirectDebitConfig configuration, MetricRegistry metricRegistry) {
         this.configuration = configuration;
-        this.clients = Maps.newConcurrentMap();
+        this.metricRegistry = metricRegistry;
+        int maxConcurrentRequests = configuration.getGoCardless().getRequestConfig().getMaxConcurrentRequests();
+        this.concurrentRequests = new Semaphore(maxConcurrentRequests);
+        GoCardlessClientCacheConfig clientCacheConfig = configuration.getGoCardless().getClientCacheConfig();
+        this.clients = CacheBuilder.newBuilder()
+                .maximumSize(clientCacheConfig.getMaximumSize())
+                .expireAfterAccess(clientCacheConfig.getExpireAfterAccess().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .removalListener(this::unregisterMetrics)
+                .build(CacheLoader.from(this::createClient));
+
+        ConnectionPool connectionPool = ConnectionPool.getDefault();
+        metricRegistry.register(METRICS_PREFIX + ".clients.live", (Gauge<Long>) () -> {
+            clients.cleanUp();
+            return clients.size();
+        });
+        metricRegistry.register(METRICS_PREFIX + ".requests.utilisation", (Gauge<Double>) () ->
+                (double) (maxConcurrentRequests - concurrentRequests.availablePermits()) / maxConcurrentRequests);
+        metricRegistry.register(METRICS_PREFIX + ".connections.total", (Gauge<Integer>) connectionPool::getConnectionCount);
+        metricRegistry.register(METRICS_PREFIX + ".connections.idle", (Gauge<Integer>) connectionPool::getIdleConnectionCount);
     }
 
     public GoCardlessClientFacade getClientFor(Optional<PaymentProviderAccessToken> maybeAccessToken) {
         PaymentProviderAccessToken accessToken = maybeAccessToken
                 .orElseThrow(() -> new NoAccessTokenException("No access token"));
-        return clients.computeIfAbsent(accessToken, token -> {
-            GoCardlessClientWrapper clientWrapper = new GoCardlessClientWrapper(createGoCardlessClient(token));
-            return new GoCardlessClientFacade(clientWrapper);
+        return clients.getUnchecked(accessToken);
+    }
+
+    private GoCardlessClientFacade createClient(PaymentProviderAccessToken accessToken) {
+        String fingerprint = fingerprintOf(accessToken);
+        liveClientsByFingerprint.merge(fingerprint, 1, Integer::sum);
+        GoCardlessRequestExecutor requestExecutor = new GoCardlessRequestExecutor(
+                configuration.getGoCardless().getRequestConfig(), concurrentRequests, metricRegistry, fingerprint);
+        GoCardlessClientWrapper clientWrapper = new GoCardlessClientWrapper(createGoCardlessClient(accessToken), requestExecutor);
+        return new GoCardlessClientFacade(clientWrapper);
+    }
+
+    private void unregisterMetrics(RemovalNotification<PaymentProviderAccessToken, GoCardlessClientFacade> removal) {
+        String fingerprint = fingerprintOf(removal.getKey());
+        LOGGER.info("Evicted the GoCardless client for access token {} ({})", fingerprint, removal.getCause());
+        // the removal of an expired client is reported after a new client for the same access token has been loaded,
+        // and the new client shares its timer
+        liveClientsByFingerprint.computeIfPresent(fingerprint, (ignored, liveClients) -> {
+            if (liveClients > 1) {
+                return liveClients - 1;
+            }
+            metricRegistry.remove(GoCardlessRequestExecutor.accessTokenLatencyMetricName(fingerprint));
+            return null;
         });
     }
 
+    static String fingerprintOf(PaymentProviderAccessToken accessToken) {
+        return Hashing.sha256().hashString(accessToken.toString(), UTF_8).toString().substring(0, 12);
+    }
+
     private GoCardlessClient createGoCardlessClient(PaymentProviderAccessToken accessToken) {
         GoCardlessFactory goCardlessFactory = configuration.getGoCardless();
         GoCardlessClient.Builder builder = GoCardlessClient.newBuilder(accessToken.toString());
@@ -19,24 +19,26 @@ import uk.gov.pay.directdebit.payments.model.Payment;
 public class GoCardlessClientWrapper {
 
     private com.gocardless.GoCardlessClient goCardlessClient;
+    private final GoCardlessRequestExecutor requestExecutor;
 
-    public GoCardlessClientWrapper(com.gocardless.GoCardlessClient goCardlessClient) {
+    public GoCardlessClientWrapper(com.gocardless.GoCardlessClient goCardlessClient, GoCardlessRequestExecutor requestExecutor) {
         this.goCardlessClient = goCardlessClient;
+        this.requestExecutor = requestExecutor;
     }
 
     public Customer createCustomer(MandateExternalId mandateExternalId, Payer payer) {
-        return goCardlessClient.customers()
+        return requestExecutor.execute("create-customer", () -> goCardlessClient.customers()
                 .create()
                 .withEmail(payer.getEmail())
                 .withGivenName(payer.getName())
                 .withFamilyName(payer.getName())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .execute());
     }
 
     public CustomerBankAccount createCustomerBankAccount(MandateExternalId mandateExternalId, GoCardlessCustomer customer,
                                                          String accountHolderName, SortCode sortCode, AccountNumber accountNumber) {
-        return goCardlessClient.customerBankAccounts()
+        return requestExecutor.execute("create-customer-bank-account", () -> goCardlessClient.customerBankAccounts()
                 .create()
                 .withAccountHolderName(accountHolderName)
                 .withAccountNumber(accountNumber.toString())
@@ -44,36 +46,36 @@ public class GoCardlessClientWrapper {
                 .withCountryCode("GB")
                 .withLinksCustomer(customer.getCustomerId())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .execute());
     }
 
     public Mandate createMandate(MandateExternalId mandateExternalId, GoCardlessCustomer customer) {
-        return goCardlessClient.mandates()
+        return requestExecutor.execute("create-mandate", () -> goCardlessClient.mandates()
                 .create()
                 .withLinksCustomerBankAccount(customer.getCustomerBankAccountId())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .execute());
     }
 
     public com.gocardless.resources.Payment createPayment(Payment payment, GoCardlessMandateId goCardlessMandateId) {
-        return goCardlessClient.payments()
+        return requestExecutor.execute("create-payment", () -> goCardlessClient.payments()
                 .create()
                 .withAmount(Math.toIntExact(payment.getAmount()))
                 .withCurrency(PaymentService.PaymentCreateRequest.Currency.GBP)
                 .withLinksMandate(goCardlessMandateId.toString())
                 .withIdempotencyKey(payment.getExternalId())
-                .execute();
+                .execute());
     }
 
     public BankDetailsLookup validate(BankAccountDetails bankAccountDetails) {
-        return goCardlessClient.bankDetailsLookups().create()
+        return requestExecutor.execute("bank-details-lookup", () -> goCardlessClient.bankDetailsLookups().create()
                 .withAccountNumber(bankAccountDetails.getAccountNumber().toString())
                 .withBranchCode(bankAccountDetails.getSortCode().toString())
                 .withCountryCode("GB")
-                .execute();
+                .execute());
     }
 
     public Creditor getCreditor() {
-        return goCardlessClient.creditors().all().execute().iterator().next();
+        return requestExecutor.execute("get-creditor", () -> goCardlessClient.creditors().all().execute().iterator().next());
     }
 }
@@ -0,0 +1,122 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.gocardless.GoCardlessException;
+import com.gocardless.errors.GoCardlessApiException;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessRequestConfig;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Sends the requests for one GoCardless access token. Requests are throttled by a token bucket for the access token
+ * and by a limit on the number of requests in flight that is shared by all access tokens; a request that cannot get
+ * a token or one of those slots within the configured timeout fails rather than blocking its thread indefinitely. The SDK already
+ * retries network failures and server errors three times, 500ms apart, for every request that is safe to resend, so
+ * only rate limited requests are retried here, after a jittered backoff; each attempt builds the request again, so
+ * creations are retried with the same idempotency key. The latency of each attempt, including any retries made by the
+ * SDK, is recorded for the operation and for the access token, which is identified in metric names by a fingerprint
+ * so the token itself is never exposed.
+ */
+public class GoCardlessRequestExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessRequestExecutor.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final RateLimiter rateLimiter;
+    private final Semaphore concurrentRequests;
+    private final GoCardlessRequestConfig requestConfig;
+    private final MetricRegistry metricRegistry;
+    private final Timer accessTokenLatencyTimer;
+
+    public GoCardlessRequestExecutor(GoCardlessRequestConfig requestConfig, Semaphore concurrentRequests,
+                                     MetricRegistry metricRegistry, String accessTokenFingerprint) {
+        this.rateLimiter = RateLimiter.create(requestConfig.getRequestsPerSecondPerAccessToken());
+        this.concurrentRequests = concurrentRequests;
+        this.requestConfig = requestConfig;
+        this.metricRegistry = metricRegistry;
+        this.accessTokenLatencyTimer = metricRegistry.timer(accessTokenLatencyMetricName(accessTokenFingerprint));
+    }
+
+    static String accessTokenLatencyMetricName(String accessTokenFingerprint) {
+        return MetricRegistry.name("gocardless-client", "access-tokens", accessTokenFingerprint, "latency");
+    }
+
+    public <T> T execute(String operation, Supplier<T> request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeOnce(operation, request);
+            } catch (GoCardlessException e) {
+                if (attempt >= requestConfig.getMaxAttempts() || !isRetryable(e)) {
+                    metricRegistry.meter(metricName(operation, "failures")).mark();
+                    throw e;
+                }
+                long backoffInMillis = backoffInMillisFor(attempt);
+                LOGGER.warn("GoCardless {} request failed on attempt {}, retrying in {}ms: {}",
+                        operation, attempt, backoffInMillis, e.getMessage());
+                metricRegistry.meter(metricName(operation, "retries")).mark();
+                waitBeforeRetrying(backoffInMillis, e);
+            }
+        }
+    }
+
+    private <T> T executeOnce(String operation, Supplier<T> request) {
+        long timeoutInMillis = requestConfig.getConcurrentRequestTimeout().toMilliseconds();
+        if (!rateLimiter.tryAcquire(timeoutInMillis, TimeUnit.MILLISECONDS)) {
+            throw timedOutWaitingToSend(operation, timeoutInMillis);
+        }
+        try {
+            if (!concurrentRequests.tryAcquire(timeoutInMillis, TimeUnit.MILLISECONDS)) {
+                throw timedOutWaitingToSend(operation, timeoutInMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while waiting to send a GoCardless " + operation + " request", e);
+        }
+        try (Timer.Context ignored = metricRegistry.timer(metricName(operation, "latency")).time();
+             Timer.Context ignoredForAccessToken = accessTokenLatencyTimer.time()) {
+            return request.get();
+        } finally {
+            concurrentRequests.release();
+        }
+    }
+
+    private InternalServerErrorException timedOutWaitingToSend(String operation, long timeoutInMillis) {
+        metricRegistry.meter(metricName(operation, "concurrency-timeouts")).mark();
+        return new InternalServerErrorException(format("Timed out after %dms waiting to send a GoCardless %s request",
+                timeoutInMillis, operation));
+    }
+
+    private static boolean isRetryable(GoCardlessException e) {
+        return e instanceof GoCardlessApiException && ((GoCardlessApiException) e).getCode() == TOO_MANY_REQUESTS;
+    }
+
+    private long backoffInMillisFor(int attempt) {
+        long initialBackoffInMillis = requestConfig.getInitialBackoff().toMilliseconds();
+        long maxBackoffInMillis = requestConfig.getMaxBackoff().toMilliseconds();
+        long ceilingInMillis = Math.min(maxBackoffInMillis, initialBackoffInMillis << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceilingInMillis + 1);
+    }
+
+    private static void waitBeforeRetrying(long backoffInMillis, GoCardlessException failure) {
+        try {
+            Thread.sleep(backoffInMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private static String metricName(String operation, String name) {
+        return MetricRegistry.name("gocardless-client", operation, name);
+    }
+}
@@ -0,0 +1,30 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.jdbi3.JdbiFactory;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Builds a {@link Jdbi} that times every connection it checks out of the pool, so the number of checkouts and how long
+ * they wait for a free connection are reported as the database.connection-checkouts timer.
+ */
+public class InstrumentedJdbiFactory extends JdbiFactory {
+
+    private final MetricRegistry metricRegistry;
+
+    public InstrumentedJdbiFactory(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    protected Jdbi newInstance(ManagedDataSource dataSource) {
+        Timer checkouts = metricRegistry.timer("database.connection-checkouts");
+        return Jdbi.create(() -> {
+            try (Timer.Context ignored = checkouts.time()) {
+                return dataSource.getConnection();
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method as a single unit of work: every DAO call it makes, directly or through other services,
+ * shares one connection and one transaction, which is rolled back if the method throws. Calls to other
+ * {@code @Transactional} methods join the unit of work that is already open. A unit of work that loses a race to
+ * update a mandate or payment is rolled back and run again, so it must not have effects outside the database.
+ * <p>
+ * Only applies to public methods of classes that Guice creates through a public constructor.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Transactional {
+}
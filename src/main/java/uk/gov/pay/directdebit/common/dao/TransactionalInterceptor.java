@@ -0,0 +1,82 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs {@link Transactional} methods inside {@link Jdbi#inTransaction}. Jdbi binds the transaction's handle to the
+ * thread, so on-demand DAOs and {@link Jdbi#withHandle} calls made by the method use it rather than checking out
+ * connections of their own. A unit of work that fails with a {@link ConcurrentUpdateException} is retried a bounded
+ * number of times in a fresh transaction.
+ */
+public class TransactionalInterceptor implements MethodInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalInterceptor.class);
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ThreadLocal<Boolean> inUnitOfWork = ThreadLocal.withInitial(() -> false);
+
+    private final Jdbi jdbi;
+    private final MetricRegistry metricRegistry;
+
+    public TransactionalInterceptor(Jdbi jdbi, MetricRegistry metricRegistry) {
+        this.jdbi = jdbi;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (inUnitOfWork.get()) {
+            return invocation.proceed();
+        }
+
+        Method method = invocation.getMethod();
+        Timer timer = metricRegistry.timer(name("unit-of-work", method.getDeclaringClass().getSimpleName(), method.getName()));
+        inUnitOfWork.set(true);
+        try (Timer.Context ignored = timer.time()) {
+            return inTransactionRetryingConflicts(invocation);
+        } catch (Exception | Error e) {
+            metricRegistry.meter("unit-of-work.rollbacks").mark();
+            throw e;
+        } finally {
+            inUnitOfWork.remove();
+        }
+    }
+
+    private Object inTransactionRetryingConflicts(MethodInvocation invocation) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return jdbi.inTransaction(handle -> proceed(invocation));
+            } catch (ConcurrentUpdateException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                metricRegistry.meter("unit-of-work.conflicts").mark();
+                LOGGER.info("Retrying {} after a concurrent update (attempt {} of {}): {}",
+                        invocation.getMethod().getName(), attempt + 1, MAX_ATTEMPTS, e.getMessage());
+            }
+        }
+    }
+
+    private static Object proceed(MethodInvocation invocation) throws Exception {
+        try {
+            return invocation.proceed();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gov.pay.directdebit.common.exception;
+
+/**
+ * Thrown when a mandate or payment was changed by someone else between being read and being updated. The unit of work
+ * it was thrown from is retried; if it still conflicts it is reported as a conflict.
+ */
+public class ConcurrentUpdateException extends ConflictException {
+
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.pay.directdebit.common.exception.validation;
+
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class SearchCursorValidator implements ConstraintValidator<ValidSearchCursor, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext constraintValidatorContext) {
+        if (value == null) {
+            return true;
+        }
+
+        try {
+            SearchCursor.decode(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
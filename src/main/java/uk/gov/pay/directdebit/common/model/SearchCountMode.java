@@ -0,0 +1,21 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.Locale;
+
+/**
+ * How the total number of matching results is worked out for a search
+ */
+public enum SearchCountMode {
+    EXACT,
+    ESTIMATED,
+    NONE;
+
+    public static SearchCountMode fromString(String countMode) {
+        return valueOf(countMode.toUpperCase(Locale.ENGLISH));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An opaque position in search results that are ordered by descending id, so that a page can be fetched by seeking
+ * past the last row of the previous one instead of skipping an ever-growing offset
+ */
+public class SearchCursor {
+
+    private final long id;
+
+    private SearchCursor(long id) {
+        this.id = id;
+    }
+
+    public static SearchCursor of(long id) {
+        return new SearchCursor(id);
+    }
+
+    public static SearchCursor decode(String encodedCursor) {
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(encodedCursor), UTF_8));
+            if (id < 1) {
+                throw new IllegalArgumentException("Search cursor must identify a positive id");
+            }
+            return new SearchCursor(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Search cursor is not valid", e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(UTF_8));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        SearchCursor that = (SearchCursor) o;
+
+        return id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,71 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * One page of search results ordered by descending id, with the cursors to reach the pages either side of it
+ */
+public class SearchPage<T> {
+
+    private final List<T> results;
+    private final SearchCursor previousCursor;
+    private final SearchCursor nextCursor;
+
+    private SearchPage(List<T> results, SearchCursor previousCursor, SearchCursor nextCursor) {
+        this.results = results;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of one more than the display size, in the order the query returned
+     * them: ascending id when seeking before a cursor, descending id otherwise
+     */
+    public static <R, T> SearchPage<T> fromRows(List<R> rows, ToLongFunction<R> idOf, Function<R, T> resultOf,
+                                                SearchParams searchParams) {
+        int displaySize = searchParams.getDisplaySize();
+        boolean moreRowsBeyondPage = rows.size() > displaySize;
+        List<R> pageRows = new ArrayList<>(rows.subList(0, Math.min(rows.size(), displaySize)));
+
+        SearchCursor previousCursor = null;
+        SearchCursor nextCursor = null;
+
+        if (searchParams.getBefore().isPresent()) {
+            Collections.reverse(pageRows);
+            if (moreRowsBeyondPage) {
+                previousCursor = SearchCursor.of(idOf.applyAsLong(pageRows.get(0)));
+            }
+            if (!pageRows.isEmpty()) {
+                nextCursor = SearchCursor.of(idOf.applyAsLong(pageRows.get(pageRows.size() - 1)));
+            }
+        } else {
+            if (searchParams.getAfter().isPresent() && !pageRows.isEmpty()) {
+                previousCursor = SearchCursor.of(idOf.applyAsLong(pageRows.get(0)));
+            }
+            if (moreRowsBeyondPage) {
+                nextCursor = SearchCursor.of(idOf.applyAsLong(pageRows.get(pageRows.size() - 1)));
+            }
+        }
+
+        return new SearchPage<>(pageRows.stream().map(resultOf).collect(Collectors.toUnmodifiableList()),
+                previousCursor, nextCursor);
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public Optional<SearchCursor> getPreviousCursor() {
+        return Optional.ofNullable(previousCursor);
+    }
+
+    public Optional<SearchCursor> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+}
@@ -1,20 +1,29 @@
 package uk.gov.pay.directdebit.common.model;
 
+import uk.gov.pay.directdebit.common.exception.validation.ValidSearchCursor;
 import uk.gov.service.payments.commons.validation.ValidDate;
 
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.QueryParam;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public abstract class SearchParams {
 
     protected static final String FROM_DATE_KEY = "from_date";
     protected static final String TO_DATE_KEY = "to_date";
-    protected static final String PAGE_KEY = "page";
+    public static final String PAGE_KEY = "page";
     protected static final String DISPLAY_SIZE_KEY = "display_size";
+    public static final String AFTER_KEY = "after";
+    public static final String BEFORE_KEY = "before";
+    protected static final String INCLUDE_TOTAL_KEY = "include_total";
+    protected static final String MATCH_KEY = "match";
 
     @QueryParam(FROM_DATE_KEY)
     @ValidDate(message = "Invalid attribute value: from_date. Must be a valid date")
@@ -35,6 +44,22 @@ public abstract class SearchParams {
     @Max(value = 500, message = "Invalid attribute value: display_size. Must be less than or equal to {value}")
     protected Integer displaySize = 500;
 
+    @QueryParam(AFTER_KEY)
+    @ValidSearchCursor(message = "Invalid attribute value: after. Must be a cursor from a previous search response")
+    protected String after;
+
+    @QueryParam(BEFORE_KEY)
+    @ValidSearchCursor(message = "Invalid attribute value: before. Must be a cursor from a previous search response")
+    protected String before;
+
+    @QueryParam(INCLUDE_TOTAL_KEY)
+    @DefaultValue("true")
+    protected Boolean includeTotal = true;
+
+    @QueryParam(MATCH_KEY)
+    @Pattern(regexp = "contains|prefix", message = "Invalid attribute value: match. Must be contains or prefix")
+    protected String match;
+
     public abstract String buildQueryParamString();
 
     public Optional<ZonedDateTime> getFromDate() {
@@ -57,6 +82,57 @@ public abstract class SearchParams {
         return page == 1 ? 0 : (page - 1) * displaySize;
     }
 
+    public Optional<SearchCursor> getAfter() {
+        return Optional.ofNullable(after).map(SearchCursor::decode);
+    }
+
+    public Optional<SearchCursor> getBefore() {
+        return Optional.ofNullable(before).map(SearchCursor::decode);
+    }
+
+    public boolean isIncludeTotal() {
+        return includeTotal;
+    }
+
+    public TextMatch getTextMatch() {
+        return match == null ? TextMatch.CONTAINS : TextMatch.fromString(match);
+    }
+
+    /**
+     * Cursor pagination is used when the client has followed a cursor link or has opted out of the total count, which
+     * is needed to work out the last page number
+     */
+    public boolean isCursorPaginated() {
+        return after != null || before != null || !includeTotal;
+    }
+
+    @AssertTrue(message = "Invalid attribute value: before. Cannot be used together with after")
+    public boolean isAtMostOneCursor() {
+        return after == null || before == null;
+    }
+
+    protected List<String> cursorQueryParams() {
+        var paramsList = new ArrayList<String>();
+
+        if (after != null) {
+            paramsList.add(formatQueryParam(AFTER_KEY, after));
+        }
+
+        if (before != null) {
+            paramsList.add(formatQueryParam(BEFORE_KEY, before));
+        }
+
+        if (!includeTotal) {
+            paramsList.add(formatQueryParam(INCLUDE_TOTAL_KEY, includeTotal.toString()));
+        }
+
+        return paramsList;
+    }
+
+    protected Optional<String> matchQueryParam() {
+        return Optional.ofNullable(match).map(value -> formatQueryParam(MATCH_KEY, value));
+    }
+
     protected String appendQueryParam(String name, String value) {
         return "&" + formatQueryParam(name, value);
     }
@@ -19,6 +19,8 @@ public class SearchResponse<T> {
     private final String gatewayExternalId;
     @JsonProperty("total")
     private final Integer total;
+    @JsonProperty("total_is_estimate")
+    private final Boolean totalIsEstimate;
     @JsonProperty("count")
     private final Integer count;
     @JsonProperty("page")
@@ -29,8 +31,14 @@ public class SearchResponse<T> {
     private final LinksForSearchResult linksForSearchResult;
 
     public SearchResponse(String gatewayExternalId, Integer total, Integer page, List<T> results, LinksForSearchResult linksForSearchResult) {
+        this(gatewayExternalId, total, false, page, results, linksForSearchResult);
+    }
+
+    public SearchResponse(String gatewayExternalId, Integer total, boolean totalIsEstimate, Integer page, List<T> results,
+                          LinksForSearchResult linksForSearchResult) {
         this.gatewayExternalId = gatewayExternalId;
         this.total = total;
+        this.totalIsEstimate = totalIsEstimate ? Boolean.TRUE : null;
         this.count = results.size();
         this.page = page;
         this.results = results;
@@ -43,6 +51,8 @@ public class SearchResponse<T> {
 
     public Integer getTotal() { return total; }
 
+    public boolean isTotalEstimate() { return totalIsEstimate != null; }
+
     public Integer getCount() { return count; }
 
     public Integer getPage() { return page; }
@@ -63,6 +73,7 @@ public class SearchResponse<T> {
         return count.equals(that.count) &&
                 Objects.equals(gatewayExternalId, that.gatewayExternalId) &&
                 Objects.equals(total, that.total) &&
+                Objects.equals(totalIsEstimate, that.totalIsEstimate) &&
                 Objects.equals(page, that.page) &&
                 Objects.equals(results, that.results) &&
                 Objects.equals(linksForSearchResult, that.linksForSearchResult);
@@ -70,7 +81,7 @@ public class SearchResponse<T> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(gatewayExternalId, total, count, page, results, linksForSearchResult);
+        return Objects.hash(gatewayExternalId, total, totalIsEstimate, count, page, results, linksForSearchResult);
     }
 
     @Override
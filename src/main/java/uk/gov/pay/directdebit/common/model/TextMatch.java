@@ -0,0 +1,32 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.Locale;
+
+/**
+ * How free-text search filters such as reference, name and email are matched against stored values, ignoring case
+ */
+public enum TextMatch {
+    CONTAINS {
+        @Override
+        public String toLikePattern(String term) {
+            return "%" + term + "%";
+        }
+    },
+    PREFIX {
+        @Override
+        public String toLikePattern(String term) {
+            return term + "%";
+        }
+    };
+
+    public abstract String toLikePattern(String term);
+
+    public static TextMatch fromString(String textMatch) {
+        return valueOf(textMatch.toUpperCase(Locale.ENGLISH));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+}
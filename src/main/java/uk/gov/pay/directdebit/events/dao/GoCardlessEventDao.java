@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.events.dao;
 
+import org.jdbi.v3.sqlobject.CreateSqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
@@ -8,6 +9,8 @@ import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 import uk.gov.pay.directdebit.events.dao.mapper.GoCardlessEventMapper;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GoCardlessEventIdArgumentFactory;
@@ -22,6 +25,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
+
 @RegisterArgumentFactory(GoCardlessEventIdArgumentFactory.class)
 @RegisterArgumentFactory(GoCardlessMandateIdArgumentFactory.class)
 @RegisterArgumentFactory(GoCardlessPaymentIdArgumentFactory.class)
@@ -29,7 +34,7 @@ import java.util.Set;
 @RegisterRowMapper(GoCardlessEventMapper.class)
 public interface GoCardlessEventDao {
     
-    @SqlBatch("INSERT INTO gocardless_events(" +
+    String INSERT_EVENT = "INSERT INTO gocardless_events(" +
             " event_id," +
             " action," +
             " resource_type," +
@@ -70,10 +75,67 @@ public interface GoCardlessEventDao {
             " :linksPreviousCustomerBankAccount," +
             " :linksRefund," +
             " :linksSubscription," +
-            " :createdAt)")
+            " :createdAt)";
+
+    @SqlBatch(INSERT_EVENT)
     @GetGeneratedKeys
     Long insert(@BindBean() List<GoCardlessEvent> events);
 
+    // returns only the events that were actually inserted, events we have already received are skipped
+    @SqlBatch(INSERT_EVENT + " ON CONFLICT (event_id, links_organisation) DO NOTHING")
+    @GetGeneratedKeys
+    List<GoCardlessEvent> insertIfNotExists(@BindBean() List<GoCardlessEvent> events);
+
+    @CreateSqlObject
+    GoCardlessEventQueueDao eventQueue();
+
+    /**
+     * Inserts the events we have not already received and, in the same transaction, records any of them that are now
+     * the latest event able to change the state of their mandate or payment.
+     */
+    @Transaction
+    default List<GoCardlessEvent> insertIfNotExistsAndUpdateLatestApplicableEvents(List<GoCardlessEvent> events,
+                                                                                  Set<String> applicableMandateActions,
+                                                                                  Set<String> applicablePaymentActions) {
+        List<GoCardlessEvent> insertedEvents = insertIfNotExists(events);
+        if (!insertedEvents.isEmpty()) {
+            List<Long> insertedEventIds = insertedEvents.stream().map(GoCardlessEvent::getId).collect(toList());
+            updateLatestApplicableEventsForMandates(insertedEventIds, applicableMandateActions);
+            updateLatestApplicableEventsForPayments(insertedEventIds, applicablePaymentActions);
+        }
+        return insertedEvents;
+    }
+
+    @Transaction
+    default List<GoCardlessEvent> insertIfNotExistsAndEnqueue(List<GoCardlessEvent> events,
+                                                              Set<String> applicableMandateActions,
+                                                              Set<String> applicablePaymentActions) {
+        List<GoCardlessEvent> insertedEvents = insertIfNotExistsAndUpdateLatestApplicableEvents(
+                events, applicableMandateActions, applicablePaymentActions);
+        if (!insertedEvents.isEmpty()) {
+            eventQueue().enqueue(insertedEvents.stream().map(GoCardlessEvent::getId).collect(toList()));
+        }
+        return insertedEvents;
+    }
+
+    /**
+     * Like {@link #insertIfNotExistsAndEnqueue}, but the events are enqueued already claimed for claimTimeoutInSeconds
+     * by the caller, who is about to handle them. Any the caller does not remove from the queue are handled by the
+     * queue workers once the claim expires, so they are not lost when GoCardless resends them as duplicates.
+     */
+    @Transaction
+    default List<GoCardlessEvent> insertIfNotExistsAndEnqueueClaimed(List<GoCardlessEvent> events,
+                                                                     Set<String> applicableMandateActions,
+                                                                     Set<String> applicablePaymentActions,
+                                                                     long claimTimeoutInSeconds) {
+        List<GoCardlessEvent> insertedEvents = insertIfNotExistsAndUpdateLatestApplicableEvents(
+                events, applicableMandateActions, applicablePaymentActions);
+        if (!insertedEvents.isEmpty()) {
+            eventQueue().enqueueClaimed(insertedEvents.stream().map(GoCardlessEvent::getId).collect(toList()), claimTimeoutInSeconds);
+        }
+        return insertedEvents;
+    }
+
     @SqlQuery("SELECT id, " +
             "event_id, " +
             "action, " +
@@ -94,48 +156,153 @@ public interface GoCardlessEventDao {
             "links_previous_customer_bank_account, " +
             "links_refund, " +
             "links_subscription, " +
-            "json, " +
-            "event_id " +
+            "json " +
+            "FROM gocardless_events " +
+            "WHERE id IN (<ids>) " +
+            "ORDER BY id")
+    List<GoCardlessEvent> findByIds(@BindList("ids") List<Long> ids);
+
+    @SqlUpdate("INSERT INTO latest_gocardless_mandate_events(links_mandate, links_organisation, gocardless_event_id, created_at) " +
+            "SELECT DISTINCT ON (links_mandate, links_organisation) links_mandate, links_organisation, id, created_at " +
             "FROM gocardless_events " +
-            "WHERE links_mandate = :goCardlessMandateId " +
-            "AND links_organisation = :goCardlessOrganisationId " +
+            "WHERE id IN (<eventIds>) " +
+            "AND links_mandate IS NOT NULL " +
             "AND action IN (<applicableActions>) " +
-            "ORDER BY created_at DESC " +
-            "LIMIT 1")
-    Optional<GoCardlessEvent> findLatestApplicableEventForMandate(@Bind("goCardlessMandateId") GoCardlessMandateId goCardlessMandateId,
-                                                                  @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId,
-                                                                  @BindList("applicableActions") Set<String> applicableActions);
+            "ORDER BY links_mandate, links_organisation, created_at DESC, id DESC " +
+            "ON CONFLICT (links_mandate, links_organisation) DO UPDATE " +
+            "SET gocardless_event_id = excluded.gocardless_event_id, created_at = excluded.created_at " +
+            "WHERE (latest_gocardless_mandate_events.created_at, latest_gocardless_mandate_events.gocardless_event_id) " +
+            "< (excluded.created_at, excluded.gocardless_event_id)")
+    void updateLatestApplicableEventsForMandates(@BindList("eventIds") List<Long> eventIds,
+                                                  @BindList("applicableActions") Set<String> applicableActions);
 
-    @SqlQuery("SELECT id, " +
-            "event_id, " +
-            "action, " +
-            "created_at, " +
-            "details_cause, " +
-            "details_description, " +
-            "details_origin, " +
-            "details_reason_code, " +
-            "details_scheme, " +
-            "resource_type," +
-            "links_mandate, " +
-            "links_new_customer_bank_account, " +
-            "links_new_mandate, " +
-            "links_organisation, " +
-            "links_parent_event, " +
-            "links_payment, " +
-            "links_payout, " +
-            "links_previous_customer_bank_account, " +
-            "links_refund, " +
-            "links_subscription, " +
-            "json, " +
-            "event_id " +
+    @SqlUpdate("INSERT INTO latest_gocardless_payment_events(links_payment, links_organisation, gocardless_event_id, created_at) " +
+            "SELECT DISTINCT ON (links_payment, links_organisation) links_payment, links_organisation, id, created_at " +
             "FROM gocardless_events " +
-            "WHERE links_payment = :goCardlessPaymentId " +
-            "AND links_organisation = :goCardlessOrganisationId " +
+            "WHERE id IN (<eventIds>) " +
+            "AND links_payment IS NOT NULL " +
             "AND action IN (<applicableActions>) " +
-            "ORDER BY created_at DESC " +
-            "LIMIT 1")
+            "ORDER BY links_payment, links_organisation, created_at DESC, id DESC " +
+            "ON CONFLICT (links_payment, links_organisation) DO UPDATE " +
+            "SET gocardless_event_id = excluded.gocardless_event_id, created_at = excluded.created_at " +
+            "WHERE (latest_gocardless_payment_events.created_at, latest_gocardless_payment_events.gocardless_event_id) " +
+            "< (excluded.created_at, excluded.gocardless_event_id)")
+    void updateLatestApplicableEventsForPayments(@BindList("eventIds") List<Long> eventIds,
+                                                  @BindList("applicableActions") Set<String> applicableActions);
+
+    @SqlQuery("SELECT " +
+            "gocardless_events.id, " +
+            "gocardless_events.event_id, " +
+            "gocardless_events.action, " +
+            "gocardless_events.created_at, " +
+            "gocardless_events.details_cause, " +
+            "gocardless_events.details_description, " +
+            "gocardless_events.details_origin, " +
+            "gocardless_events.details_reason_code, " +
+            "gocardless_events.details_scheme, " +
+            "gocardless_events.resource_type, " +
+            "gocardless_events.links_mandate, " +
+            "gocardless_events.links_new_customer_bank_account, " +
+            "gocardless_events.links_new_mandate, " +
+            "gocardless_events.links_organisation, " +
+            "gocardless_events.links_parent_event, " +
+            "gocardless_events.links_payment, " +
+            "gocardless_events.links_payout, " +
+            "gocardless_events.links_previous_customer_bank_account, " +
+            "gocardless_events.links_refund, " +
+            "gocardless_events.links_subscription, " +
+            "gocardless_events.json " +
+            "FROM latest_gocardless_mandate_events " +
+            "JOIN gocardless_events ON gocardless_events.id = latest_gocardless_mandate_events.gocardless_event_id " +
+            "WHERE latest_gocardless_mandate_events.links_mandate = :goCardlessMandateId " +
+            "AND latest_gocardless_mandate_events.links_organisation = :goCardlessOrganisationId")
+    Optional<GoCardlessEvent> findLatestApplicableEventForMandate(@Bind("goCardlessMandateId") GoCardlessMandateId goCardlessMandateId,
+                                                                  @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
+
+    @SqlQuery("SELECT " +
+            "gocardless_events.id, " +
+            "gocardless_events.event_id, " +
+            "gocardless_events.action, " +
+            "gocardless_events.created_at, " +
+            "gocardless_events.details_cause, " +
+            "gocardless_events.details_description, " +
+            "gocardless_events.details_origin, " +
+            "gocardless_events.details_reason_code, " +
+            "gocardless_events.details_scheme, " +
+            "gocardless_events.resource_type, " +
+            "gocardless_events.links_mandate, " +
+            "gocardless_events.links_new_customer_bank_account, " +
+            "gocardless_events.links_new_mandate, " +
+            "gocardless_events.links_organisation, " +
+            "gocardless_events.links_parent_event, " +
+            "gocardless_events.links_payment, " +
+            "gocardless_events.links_payout, " +
+            "gocardless_events.links_previous_customer_bank_account, " +
+            "gocardless_events.links_refund, " +
+            "gocardless_events.links_subscription, " +
+            "gocardless_events.json " +
+            "FROM latest_gocardless_payment_events " +
+            "JOIN gocardless_events ON gocardless_events.id = latest_gocardless_payment_events.gocardless_event_id " +
+            "WHERE latest_gocardless_payment_events.links_payment = :goCardlessPaymentId " +
+            "AND latest_gocardless_payment_events.links_organisation = :goCardlessOrganisationId")
     Optional<GoCardlessEvent> findLatestApplicableEventForPayment(@Bind("goCardlessPaymentId") GoCardlessPaymentId goCardlessPaymentId,
-                                                                  @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId,
-                                                                  @BindList("applicableActions") Set<String> applicableActions);
+                                                                  @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
+
+    @SqlQuery("SELECT " +
+            "gocardless_events.id, " +
+            "gocardless_events.event_id, " +
+            "gocardless_events.action, " +
+            "gocardless_events.created_at, " +
+            "gocardless_events.details_cause, " +
+            "gocardless_events.details_description, " +
+            "gocardless_events.details_origin, " +
+            "gocardless_events.details_reason_code, " +
+            "gocardless_events.details_scheme, " +
+            "gocardless_events.resource_type, " +
+            "gocardless_events.links_mandate, " +
+            "gocardless_events.links_new_customer_bank_account, " +
+            "gocardless_events.links_new_mandate, " +
+            "gocardless_events.links_organisation, " +
+            "gocardless_events.links_parent_event, " +
+            "gocardless_events.links_payment, " +
+            "gocardless_events.links_payout, " +
+            "gocardless_events.links_previous_customer_bank_account, " +
+            "gocardless_events.links_refund, " +
+            "gocardless_events.links_subscription, " +
+            "gocardless_events.json " +
+            "FROM latest_gocardless_mandate_events " +
+            "JOIN gocardless_events ON gocardless_events.id = latest_gocardless_mandate_events.gocardless_event_id " +
+            "WHERE (latest_gocardless_mandate_events.links_mandate, latest_gocardless_mandate_events.links_organisation) " +
+            "IN (SELECT * FROM unnest(:goCardlessMandateIds, :goCardlessOrganisationIds))")
+    List<GoCardlessEvent> findLatestApplicableEventsForMandates(@Bind("goCardlessMandateIds") String[] goCardlessMandateIds,
+                                                               @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds);
 
+    @SqlQuery("SELECT " +
+            "gocardless_events.id, " +
+            "gocardless_events.event_id, " +
+            "gocardless_events.action, " +
+            "gocardless_events.created_at, " +
+            "gocardless_events.details_cause, " +
+            "gocardless_events.details_description, " +
+            "gocardless_events.details_origin, " +
+            "gocardless_events.details_reason_code, " +
+            "gocardless_events.details_scheme, " +
+            "gocardless_events.resource_type, " +
+            "gocardless_events.links_mandate, " +
+            "gocardless_events.links_new_customer_bank_account, " +
+            "gocardless_events.links_new_mandate, " +
+            "gocardless_events.links_organisation, " +
+            "gocardless_events.links_parent_event, " +
+            "gocardless_events.links_payment, " +
+            "gocardless_events.links_payout, " +
+            "gocardless_events.links_previous_customer_bank_account, " +
+            "gocardless_events.links_refund, " +
+            "gocardless_events.links_subscription, " +
+            "gocardless_events.json " +
+            "FROM latest_gocardless_payment_events " +
+            "JOIN gocardless_events ON gocardless_events.id = latest_gocardless_payment_events.gocardless_event_id " +
+            "WHERE (latest_gocardless_payment_events.links_payment, latest_gocardless_payment_events.links_organisation) " +
+            "IN (SELECT * FROM unnest(:goCardlessPaymentIds, :goCardlessOrganisationIds))")
+    List<GoCardlessEvent> findLatestApplicableEventsForPayments(@Bind("goCardlessPaymentIds") String[] goCardlessPaymentIds,
+                                                               @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds);
 }
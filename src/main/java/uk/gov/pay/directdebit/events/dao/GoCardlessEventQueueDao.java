@@ -0,0 +1,49 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+import java.util.List;
+
+public interface GoCardlessEventQueueDao {
+
+    @SqlBatch("INSERT INTO gocardless_event_queue(gocardless_event_id) VALUES (:goCardlessEventId)")
+    void enqueue(@Bind("goCardlessEventId") List<Long> goCardlessEventIds);
+
+    @SqlBatch("INSERT INTO gocardless_event_queue(gocardless_event_id, claimed_until, attempts) " +
+            "VALUES (:goCardlessEventId, now() + (:claimTimeoutInSeconds * interval '1 second'), 1)")
+    void enqueueClaimed(@Bind("goCardlessEventId") List<Long> goCardlessEventIds,
+                        @Bind("claimTimeoutInSeconds") long claimTimeoutInSeconds);
+
+    @SqlQuery("UPDATE gocardless_event_queue " +
+            "SET claimed_until = now() + (:claimTimeoutInSeconds * interval '1 second'), " +
+            "attempts = attempts + 1 " +
+            "WHERE id IN (" +
+            " SELECT id FROM gocardless_event_queue " +
+            " WHERE (claimed_until IS NULL OR claimed_until < now()) " +
+            " AND attempts < :maxAttempts " +
+            " ORDER BY id " +
+            " LIMIT :batchSize " +
+            " FOR UPDATE SKIP LOCKED) " +
+            "RETURNING gocardless_event_id")
+    List<Long> claim(@Bind("batchSize") int batchSize,
+                     @Bind("claimTimeoutInSeconds") long claimTimeoutInSeconds,
+                     @Bind("maxAttempts") int maxAttempts);
+
+    @SqlUpdate("DELETE FROM gocardless_event_queue WHERE gocardless_event_id IN (<goCardlessEventIds>)")
+    int remove(@BindList("goCardlessEventIds") List<Long> goCardlessEventIds);
+
+    @SqlQuery("SELECT count(*) FROM gocardless_event_queue WHERE attempts < :maxAttempts")
+    long countQueuedEvents(@Bind("maxAttempts") int maxAttempts);
+
+    @SqlQuery("SELECT count(*) FROM gocardless_event_queue WHERE attempts >= :maxAttempts")
+    long countExhaustedEvents(@Bind("maxAttempts") int maxAttempts);
+
+    @SqlQuery("SELECT COALESCE(CAST(EXTRACT(EPOCH FROM now() - min(enqueued_at)) * 1000 AS BIGINT), 0) " +
+            "FROM gocardless_event_queue " +
+            "WHERE attempts < :maxAttempts")
+    long findLagInMilliseconds(@Bind("maxAttempts") int maxAttempts);
+}
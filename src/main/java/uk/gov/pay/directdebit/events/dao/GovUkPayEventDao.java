@@ -5,12 +5,15 @@ import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 import uk.gov.pay.directdebit.events.dao.mapper.GovUkPayEventMapper;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,6 +25,12 @@ public interface GovUkPayEventDao {
             " :resourceType, :eventType)")
     @GetGeneratedKeys
     Long insert(@BindBean GovUkPayEvent govUkPayEvent);
+
+    @SqlBatch("INSERT INTO govukpay_events(mandate_id," +
+            " payment_id, event_date, resource_type, event_type) VALUES (:mandateId, :paymentId, :eventDate," +
+            " :resourceType, :eventType)")
+    @GetGeneratedKeys("id")
+    List<Long> insertAll(@BindBean List<GovUkPayEvent> govUkPayEvents);
     
     @SqlQuery("SELECT id, " +
             "mandate_id, " +
@@ -31,24 +40,10 @@ public interface GovUkPayEventDao {
             "event_type " +
             "FROM govukpay_events " +
             "WHERE mandate_id = :mandateId " +
-            "ORDER BY event_date DESC " +
+            "ORDER BY event_date DESC, id DESC " +
             "LIMIT 1")
     Optional<GovUkPayEvent> findLatestEventForMandate(@Bind("mandateId") Long mandateId);
 
-    @SqlQuery("SELECT id, " +
-            "mandate_id, " +
-            "payment_id, " +
-            "event_date, " +
-            "resource_type, " +
-            "event_type " +
-            "FROM govukpay_events " +
-            "WHERE mandate_id = :mandateId " +
-            "AND event_type IN (<applicableEventTypes>) " +
-            "ORDER BY event_date DESC " +
-            "LIMIT 1")
-    Optional<GovUkPayEvent> findLatestApplicableEventForMandate(@Bind("mandateId") Long mandateId,
-                                                                @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
-
     @SqlQuery("SELECT id, " +
             "mandate_id, " +
             "payment_id, " +
@@ -57,21 +52,117 @@ public interface GovUkPayEventDao {
             "event_type " +
             "FROM govukpay_events " +
             "WHERE payment_id = :paymentId " +
-            "ORDER BY event_date DESC " +
+            "ORDER BY event_date DESC, id DESC " +
             "LIMIT 1")
     Optional<GovUkPayEvent> findLatestEventForPayment(@Bind("paymentId") Long paymentId);
 
-    @SqlQuery("SELECT id, " +
-            "mandate_id, " +
-            "payment_id, " +
-            "event_date, " +
-            "resource_type, " +
-            "event_type " +
+    @SqlUpdate("INSERT INTO latest_govukpay_mandate_events(mandate_id, govukpay_event_id, event_date) " +
+            "SELECT mandate_id, id, event_date " +
             "FROM govukpay_events " +
-            "WHERE payment_id = :paymentId " +
+            "WHERE id = :eventId " +
+            "AND mandate_id IS NOT NULL " +
             "AND event_type IN (<applicableEventTypes>) " +
-            "ORDER BY event_date DESC " +
-            "LIMIT 1")
-    Optional<GovUkPayEvent> findLatestApplicableEventForPayment(@Bind("paymentId") Long paymentId,
-                                                                @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+            "ON CONFLICT (mandate_id) DO UPDATE " +
+            "SET govukpay_event_id = excluded.govukpay_event_id, event_date = excluded.event_date " +
+            "WHERE (latest_govukpay_mandate_events.event_date, latest_govukpay_mandate_events.govukpay_event_id) " +
+            "< (excluded.event_date, excluded.govukpay_event_id)")
+    void updateLatestApplicableEventForMandate(@Bind("eventId") Long eventId,
+                                               @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+
+    @Transaction
+    default Long insertAndUpdateLatestApplicableEventForMandate(GovUkPayEvent govUkPayEvent, Set<GovUkPayEventType> applicableEventTypes) {
+        Long eventId = insert(govUkPayEvent);
+        updateLatestApplicableEventForMandate(eventId, applicableEventTypes);
+        return eventId;
+    }
+
+    @SqlUpdate("INSERT INTO latest_govukpay_payment_events(payment_id, govukpay_event_id, event_date) " +
+            "SELECT payment_id, id, event_date " +
+            "FROM govukpay_events " +
+            "WHERE id = :eventId " +
+            "AND payment_id IS NOT NULL " +
+            "AND event_type IN (<applicableEventTypes>) " +
+            "ON CONFLICT (payment_id) DO UPDATE " +
+            "SET govukpay_event_id = excluded.govukpay_event_id, event_date = excluded.event_date " +
+            "WHERE (latest_govukpay_payment_events.event_date, latest_govukpay_payment_events.govukpay_event_id) " +
+            "< (excluded.event_date, excluded.govukpay_event_id)")
+    void updateLatestApplicableEventForPayment(@Bind("eventId") Long eventId,
+                                               @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+
+    @SqlUpdate("INSERT INTO latest_govukpay_payment_events(payment_id, govukpay_event_id, event_date) " +
+            "SELECT payment_id, id, event_date " +
+            "FROM govukpay_events " +
+            "WHERE id IN (<eventIds>) " +
+            "AND payment_id IS NOT NULL " +
+            "AND event_type IN (<applicableEventTypes>) " +
+            "ON CONFLICT (payment_id) DO UPDATE " +
+            "SET govukpay_event_id = excluded.govukpay_event_id, event_date = excluded.event_date " +
+            "WHERE (latest_govukpay_payment_events.event_date, latest_govukpay_payment_events.govukpay_event_id) " +
+            "< (excluded.event_date, excluded.govukpay_event_id)")
+    void updateLatestApplicableEventsForPayments(@BindList("eventIds") List<Long> eventIds,
+                                                 @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+
+    @Transaction
+    default Long insertAndUpdateLatestApplicableEventForPayment(GovUkPayEvent govUkPayEvent, Set<GovUkPayEventType> applicableEventTypes) {
+        Long eventId = insert(govUkPayEvent);
+        updateLatestApplicableEventForPayment(eventId, applicableEventTypes);
+        return eventId;
+    }
+
+    // each event must be for a different payment, as one statement cannot update the same latest event row twice
+    @Transaction
+    default List<Long> insertAllAndUpdateLatestApplicableEventsForPayments(List<GovUkPayEvent> govUkPayEvents,
+                                                                          Set<GovUkPayEventType> applicableEventTypes) {
+        List<Long> eventIds = insertAll(govUkPayEvents);
+        updateLatestApplicableEventsForPayments(eventIds, applicableEventTypes);
+        return eventIds;
+    }
+
+    @SqlQuery("SELECT " +
+            "govukpay_events.id, " +
+            "govukpay_events.mandate_id, " +
+            "govukpay_events.payment_id, " +
+            "govukpay_events.event_date, " +
+            "govukpay_events.resource_type, " +
+            "govukpay_events.event_type " +
+            "FROM latest_govukpay_mandate_events " +
+            "JOIN govukpay_events ON govukpay_events.id = latest_govukpay_mandate_events.govukpay_event_id " +
+            "WHERE latest_govukpay_mandate_events.mandate_id = :mandateId")
+    Optional<GovUkPayEvent> findLatestApplicableEventForMandate(@Bind("mandateId") Long mandateId);
+
+    @SqlQuery("SELECT " +
+            "govukpay_events.id, " +
+            "govukpay_events.mandate_id, " +
+            "govukpay_events.payment_id, " +
+            "govukpay_events.event_date, " +
+            "govukpay_events.resource_type, " +
+            "govukpay_events.event_type " +
+            "FROM latest_govukpay_payment_events " +
+            "JOIN govukpay_events ON govukpay_events.id = latest_govukpay_payment_events.govukpay_event_id " +
+            "WHERE latest_govukpay_payment_events.payment_id = :paymentId")
+    Optional<GovUkPayEvent> findLatestApplicableEventForPayment(@Bind("paymentId") Long paymentId);
+
+    @SqlQuery("SELECT " +
+            "govukpay_events.id, " +
+            "govukpay_events.mandate_id, " +
+            "govukpay_events.payment_id, " +
+            "govukpay_events.event_date, " +
+            "govukpay_events.resource_type, " +
+            "govukpay_events.event_type " +
+            "FROM latest_govukpay_mandate_events " +
+            "JOIN govukpay_events ON govukpay_events.id = latest_govukpay_mandate_events.govukpay_event_id " +
+            "WHERE latest_govukpay_mandate_events.mandate_id IN (<mandateIds>)")
+    List<GovUkPayEvent> findLatestApplicableEventsForMandates(@BindList("mandateIds") List<Long> mandateIds);
+
+    @SqlQuery("SELECT " +
+            "govukpay_events.id, " +
+            "govukpay_events.mandate_id, " +
+            "govukpay_events.payment_id, " +
+            "govukpay_events.event_date, " +
+            "govukpay_events.resource_type, " +
+            "govukpay_events.event_type " +
+            "FROM latest_govukpay_payment_events " +
+            "JOIN govukpay_events ON govukpay_events.id = latest_govukpay_payment_events.govukpay_event_id " +
+            "WHERE latest_govukpay_payment_events.payment_id IN (<paymentIds>)")
+    List<GovUkPayEvent> findLatestApplicableEventsForPayments(@BindList("paymentIds") List<Long> paymentIds);
 }
@@ -8,6 +8,7 @@ import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 import uk.gov.pay.directdebit.events.dao.mapper.SandboxEventMapper;
 import uk.gov.pay.directdebit.events.model.SandboxEvent;
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateIdArgumentFactory;
@@ -27,17 +28,35 @@ public interface SandboxEventDao {
     @GetGeneratedKeys
     Long insert(@BindBean SandboxEvent sandboxEvent);
 
-    @SqlQuery("SELECT id, " +
-            "created_at, " +
-            "mandate_id, " +
-            "payment_id, " +
-            "event_action, " +
-            "event_cause " +
+    @SqlUpdate("INSERT INTO latest_sandbox_payment_events(payment_id, sandbox_event_id, created_at) " +
+            "SELECT payment_id, id, created_at " +
             "FROM sandbox_events " +
-            "WHERE payment_id = :paymentId " +
+            "WHERE id = :eventId " +
+            "AND payment_id IS NOT NULL " +
             "AND event_action IN (<applicableActions>) " +
-            "ORDER BY created_at DESC " +
-            "LIMIT 1")
-    Optional<SandboxEvent> findLatestApplicableEventForPayment(@Bind("paymentId") SandboxPaymentId sandboxPaymentId,
-                                                               @BindList("applicableActions") Set<String> applicableActions);
+            "ON CONFLICT (payment_id) DO UPDATE " +
+            "SET sandbox_event_id = excluded.sandbox_event_id, created_at = excluded.created_at " +
+            "WHERE (latest_sandbox_payment_events.created_at, latest_sandbox_payment_events.sandbox_event_id) " +
+            "< (excluded.created_at, excluded.sandbox_event_id)")
+    void updateLatestApplicableEventForPayment(@Bind("eventId") Long eventId,
+                                               @BindList("applicableActions") Set<String> applicableActions);
+
+    @Transaction
+    default Long insertAndUpdateLatestApplicableEventForPayment(SandboxEvent sandboxEvent, Set<String> applicableActions) {
+        Long eventId = insert(sandboxEvent);
+        updateLatestApplicableEventForPayment(eventId, applicableActions);
+        return eventId;
+    }
+
+    @SqlQuery("SELECT " +
+            "sandbox_events.id, " +
+            "sandbox_events.created_at, " +
+            "sandbox_events.mandate_id, " +
+            "sandbox_events.payment_id, " +
+            "sandbox_events.event_action, " +
+            "sandbox_events.event_cause " +
+            "FROM latest_sandbox_payment_events " +
+            "JOIN sandbox_events ON sandbox_events.id = latest_sandbox_payment_events.sandbox_event_id " +
+            "WHERE latest_sandbox_payment_events.payment_id = :paymentId")
+    Optional<SandboxEvent> findLatestApplicableEventForPayment(@Bind("paymentId") SandboxPaymentId sandboxPaymentId);
 }
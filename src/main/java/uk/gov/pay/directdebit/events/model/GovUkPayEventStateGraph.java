@@ -4,6 +4,8 @@ import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.ImmutableGraph;
 import com.google.common.graph.MutableGraph;
 
+import java.util.Set;
+
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_ERROR_SUBMITTING_TO_PROVIDER;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_SUBMITTED_TO_PROVIDER;
@@ -34,6 +36,7 @@ public class GovUkPayEventStateGraph {
         graph.putEdge(MANDATE_TOKEN_EXCHANGED, MANDATE_USER_SETUP_EXPIRED);
         graph.putEdge(MANDATE_TOKEN_EXCHANGED, MANDATE_UNEXPECTED_ERROR);
         graph.putEdge(MANDATE_TOKEN_EXCHANGED, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+        graph.putEdge(MANDATE_SUBMITTED_TO_PROVIDER, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
 
         graph.addNode(PAYMENT_CREATED);
         graph.putEdge(PAYMENT_CREATED, PAYMENT_SUBMITTED);
@@ -48,4 +51,8 @@ public class GovUkPayEventStateGraph {
     public boolean isValidStartValue(GovUkPayEventType eventType) {
         return graph.predecessors(eventType).isEmpty();
     }
+
+    public Set<GovUkPayEventType> getEventTypesThatCanBeFollowedBy(GovUkPayEventType eventType) {
+        return graph.predecessors(eventType);
+    }
 }
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.events.services;
 
+import io.dropwizard.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
@@ -8,6 +9,10 @@ import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import javax.inject.Inject;
 import java.util.List;
 
+import static java.lang.String.format;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+
 public class GoCardlessEventService {
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessEventService.class);
 
@@ -18,8 +23,35 @@ public class GoCardlessEventService {
         this.goCardlessEventDao = goCardlessEventDao;
     }
 
-    public void storeEvents(List<GoCardlessEvent> event) {
-        goCardlessEventDao.insert(event);
+    public List<GoCardlessEvent> storeEvents(List<GoCardlessEvent> events) {
+        return logDuplicates(events, goCardlessEventDao.insertIfNotExistsAndUpdateLatestApplicableEvents(
+                events, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE));
+    }
+
+    public List<GoCardlessEvent> storeAndEnqueueEvents(List<GoCardlessEvent> events) {
+        return logDuplicates(events, goCardlessEventDao.insertIfNotExistsAndEnqueue(
+                events, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE));
+    }
+
+    public List<GoCardlessEvent> storeAndClaimEvents(List<GoCardlessEvent> events, Duration claimTimeout) {
+        return logDuplicates(events, goCardlessEventDao.insertIfNotExistsAndEnqueueClaimed(
+                events, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE,
+                claimTimeout.toSeconds()));
+    }
+
+    private List<GoCardlessEvent> logDuplicates(List<GoCardlessEvent> receivedEvents, List<GoCardlessEvent> newEvents) {
+        if (newEvents.size() < receivedEvents.size()) {
+            LOGGER.info(format("Ignored %d of %d GoCardless events because they had already been received",
+                    receivedEvents.size() - newEvents.size(), receivedEvents.size()));
+        }
+        return newEvents;
+    }
+
+    public List<GoCardlessEvent> findEvents(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return goCardlessEventDao.findByIds(ids);
     }
 
 }
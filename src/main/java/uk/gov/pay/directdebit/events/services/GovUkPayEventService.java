@@ -2,17 +2,27 @@ package uk.gov.pay.directdebit.events.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.dao.Transactional;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
 import uk.gov.pay.directdebit.events.exception.InvalidGovUkPayEventInsertionException;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventStateGraph;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.mandate.dao.MandateDao;
+import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
+import uk.gov.pay.directdebit.payments.dao.PaymentDao;
+import uk.gov.pay.directdebit.payments.exception.PaymentNotFoundException;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.services.PaymentStateUpdater;
 
 import javax.inject.Inject;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
 
 
 public class GovUkPayEventService {
@@ -22,40 +32,75 @@ public class GovUkPayEventService {
     private final GovUkPayEventStateGraph govUkPayEventStateGraph;
     private final MandateStateUpdater mandateStateUpdater;
     private final PaymentStateUpdater paymentStateUpdater;
+    private final MandateDao mandateDao;
+    private final PaymentDao paymentDao;
 
     @Inject
     public GovUkPayEventService(GovUkPayEventDao govUkPayEventDao,
                                 GovUkPayEventStateGraph govUkPayEventStateGraph,
                                 MandateStateUpdater mandateStateUpdater,
-                                PaymentStateUpdater paymentStateUpdater) {
+                                PaymentStateUpdater paymentStateUpdater,
+                                MandateDao mandateDao,
+                                PaymentDao paymentDao) {
         this.govUkPayEventDao = govUkPayEventDao;
         this.govUkPayEventStateGraph = govUkPayEventStateGraph;
         this.mandateStateUpdater = mandateStateUpdater;
         this.paymentStateUpdater = paymentStateUpdater;
+        this.mandateDao = mandateDao;
+        this.paymentDao = paymentDao;
     }
 
+    /**
+     * Re-reads the mandate first, so its state is updated against the version read in this unit of work. If another
+     * update gets there first, the unit of work is retried and validates the event against that update's event.
+     */
+    @Transactional
     public Mandate storeEventAndUpdateStateForMandate(Mandate mandate, GovUkPayEventType eventType) {
-        var event = new GovUkPayEvent(mandate, eventType);
-        govUkPayEventDao.findLatestEventForMandate(mandate.getId())
+        Mandate currentMandate = mandateDao.findById(mandate.getId())
+                .orElseThrow(() -> new MandateNotFoundException(mandate.getExternalId()));
+        var event = new GovUkPayEvent(currentMandate, eventType);
+        govUkPayEventDao.findLatestEventForMandate(currentMandate.getId())
                 .ifPresentOrElse(latestEvent -> validateEventTransition(event, latestEvent),
                         () -> validateInitialEvent(event));
 
-        govUkPayEventDao.insert(event);
-        LOGGER.info("Inserted GOV.UK Pay event of type {} for mandate {}", eventType, mandate.getExternalId());
+        govUkPayEventDao.insertAndUpdateLatestApplicableEventForMandate(event, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+        LOGGER.info("Inserted GOV.UK Pay event of type {} for mandate {}", eventType, currentMandate.getExternalId());
 
-        return mandateStateUpdater.updateStateIfNecessary(mandate);
+        return mandateStateUpdater.updateStateIfNecessary(currentMandate);
     }
 
+    /**
+     * The payment is re-read first, as for {@link #storeEventAndUpdateStateForMandate}
+     */
+    @Transactional
     public Payment storeEventAndUpdateStateForPayment(Payment payment, GovUkPayEventType eventType) {
-        var event = new GovUkPayEvent(payment, eventType);
-        govUkPayEventDao.findLatestEventForPayment(payment.getId())
+        Payment currentPayment = paymentDao.findById(payment.getId())
+                .orElseThrow(() -> new PaymentNotFoundException(payment.getExternalId()));
+        var event = new GovUkPayEvent(currentPayment, eventType);
+        govUkPayEventDao.findLatestEventForPayment(currentPayment.getId())
                 .ifPresentOrElse(latestEvent -> validateEventTransition(event, latestEvent),
                         () -> validateInitialEvent(event));
 
-        govUkPayEventDao.insert(event);
-        LOGGER.info("Inserted GOV.UK Pay event of type {} for payment {}", eventType, payment.getExternalId());
+        govUkPayEventDao.insertAndUpdateLatestApplicableEventForPayment(event, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+        LOGGER.info("Inserted GOV.UK Pay event of type {} for payment {}", eventType, currentPayment.getExternalId());
+
+        return paymentStateUpdater.updateStateIfNecessary(currentPayment);
+    }
+
+    /**
+     * Stores the first event for each of a batch of payments that have only just been inserted, so have no events yet
+     */
+    @Transactional
+    public List<Payment> storeInitialEventsAndUpdateStatesForPayments(List<Payment> payments, GovUkPayEventType eventType) {
+        List<GovUkPayEvent> events = payments.stream()
+                .map(payment -> new GovUkPayEvent(payment, eventType))
+                .collect(toList());
+        events.forEach(this::validateInitialEvent);
+
+        govUkPayEventDao.insertAllAndUpdateLatestApplicableEventsForPayments(events, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+        LOGGER.info("Inserted GOV.UK Pay events of type {} for {} payments", eventType, payments.size());
 
-        return paymentStateUpdater.updateStateIfNecessary(payment);
+        return paymentStateUpdater.updateStatesIfNecessary(payments);
     }
 
     private void validateInitialEvent(GovUkPayEvent event) {
@@ -8,6 +8,8 @@ import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
 
 import javax.inject.Inject;
 
+import static uk.gov.pay.directdebit.payments.services.sandbox.SandboxEventToPaymentStateMapper.SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+
 public class SandboxEventService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SandboxEventService.class);
@@ -19,7 +21,7 @@ public class SandboxEventService {
     }
 
     public void insertEvent(SandboxEvent sandboxEvent) {
-        sandBoxEventDao.insert(sandboxEvent);
+        sandBoxEventDao.insertAndUpdateLatestApplicableEventForPayment(sandboxEvent, SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE);
         LOGGER.info("Inserted Sandbox event with mandate id {} ",
                 sandboxEvent.getMandateId()
                         .map(SandboxMandateId::toString)
@@ -0,0 +1,29 @@
+package uk.gov.pay.directdebit.gatewayaccounts.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class GatewayAccountCacheConfig extends Configuration {
+
+    // a maximum size of 0 turns the cache off
+    @JsonProperty
+    @Min(0)
+    private long maximumSize = 1000;
+
+    // changes made by other instances of the connector are only seen once the cached account expires
+    @JsonProperty
+    @NotNull
+    private Duration expireAfterWrite = Duration.seconds(30);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.pay.directdebit.gatewayaccounts.dao;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import uk.gov.pay.directdebit.gatewayaccounts.config.GatewayAccountCacheConfig;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps recently used gateway accounts in memory, by id and by external id, so that the several lookups made while
+ * handling a single API request do not each go to the database. Accounts that are not found are never cached, so a
+ * newly created account can be found straight away. An account is evicted before and after it is updated through this
+ * instance, and an account loaded while any update was in progress is not cached, so a load that read the old row
+ * cannot put it back after the update. Updates made through other instances of the connector are only seen once the
+ * cached account expires.
+ */
+public class CachingGatewayAccountDao implements GatewayAccountDao {
+
+    private static final String METRICS_PREFIX = "gateway-account-cache";
+
+    private final GatewayAccountDao gatewayAccountDao;
+    private final Cache<Long, GatewayAccount> accountsById;
+    private final Cache<String, GatewayAccount> accountsByExternalId;
+    private final Counter hits;
+    private final Counter misses;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingGatewayAccountDao(GatewayAccountDao gatewayAccountDao,
+                                    GatewayAccountCacheConfig gatewayAccountCacheConfig,
+                                    MetricRegistry metricRegistry) {
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.accountsById = buildCache(gatewayAccountCacheConfig);
+        this.accountsByExternalId = buildCache(gatewayAccountCacheConfig);
+        this.hits = metricRegistry.counter(METRICS_PREFIX + ".hits");
+        this.misses = metricRegistry.counter(METRICS_PREFIX + ".misses");
+    }
+
+    private static <K> Cache<K, GatewayAccount> buildCache(GatewayAccountCacheConfig gatewayAccountCacheConfig) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(gatewayAccountCacheConfig.getMaximumSize())
+                .expireAfterWrite(gatewayAccountCacheConfig.getExpireAfterWrite().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public Optional<GatewayAccount> findById(Long id) {
+        return findCachedOrLoad(accountsById.getIfPresent(id), () -> gatewayAccountDao.findById(id));
+    }
+
+    @Override
+    public Optional<GatewayAccount> findByExternalId(String externalId) {
+        return findCachedOrLoad(accountsByExternalId.getIfPresent(externalId), () -> gatewayAccountDao.findByExternalId(externalId));
+    }
+
+    private Optional<GatewayAccount> findCachedOrLoad(GatewayAccount cachedGatewayAccount, Supplier<Optional<GatewayAccount>> loader) {
+        if (cachedGatewayAccount != null) {
+            hits.inc();
+            return Optional.of(cachedGatewayAccount);
+        }
+
+        misses.inc();
+        long invalidationsBeforeLoad = invalidations.get();
+        Optional<GatewayAccount> gatewayAccount = loader.get();
+        gatewayAccount.filter(account -> invalidations.get() == invalidationsBeforeLoad).ifPresent(account -> {
+            accountsById.put(account.getId(), account);
+            accountsByExternalId.put(account.getExternalId(), account);
+        });
+        return gatewayAccount;
+    }
+
+    @Override
+    public List<GatewayAccount> findAll() {
+        return gatewayAccountDao.findAll();
+    }
+
+    @Override
+    public Long insert(GatewayAccount gatewayAccount) {
+        return gatewayAccountDao.insert(gatewayAccount);
+    }
+
+    @Override
+    public List<GatewayAccount> find(List<String> externalAccountIds) {
+        return gatewayAccountDao.find(externalAccountIds);
+    }
+
+    @Override
+    public int updateAccessTokenAndOrganisation(String externalId, PaymentProviderAccessToken accessToken,
+                                                GoCardlessOrganisationId organisation) {
+        invalidate(externalId);
+        try {
+            return gatewayAccountDao.updateAccessTokenAndOrganisation(externalId, accessToken, organisation);
+        } finally {
+            invalidate(externalId);
+        }
+    }
+
+    @Override
+    public boolean existsWithOrganisation(GoCardlessOrganisationId organisation) {
+        return gatewayAccountDao.existsWithOrganisation(organisation);
+    }
+
+    private void invalidate(String externalId) {
+        invalidations.incrementAndGet();
+        accountsByExternalId.invalidate(externalId);
+        accountsById.asMap().values().removeIf(account -> externalId.equals(account.getExternalId()));
+    }
+}
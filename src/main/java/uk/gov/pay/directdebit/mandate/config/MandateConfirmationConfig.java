@@ -0,0 +1,56 @@
+package uk.gov.pay.directdebit.mandate.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class MandateConfirmationConfig extends Configuration {
+
+    // if true, the payer only waits for their bank account to be set up with the payment provider; the mandate is
+    // created with the payment provider and the confirmation email sent after the confirm request has returned. Until
+    // then the mandate has no payment provider id, so payments cannot be collected from it
+    @JsonProperty
+    private boolean asynchronous = false;
+
+    // the maximum number of mandates being created with the payment provider at the same time
+    @JsonProperty
+    @Min(1)
+    private int submitThreads = 4;
+
+    // mandates still waiting for a payment provider id this long after being confirmed are submitted again, which
+    // picks up those left behind by a restart
+    @JsonProperty
+    @NotNull
+    private Duration resubmitAfter = Duration.minutes(5);
+
+    @JsonProperty
+    @NotNull
+    private Duration resubmitInterval = Duration.minutes(1);
+
+    @JsonProperty
+    @Min(1)
+    private int resubmitBatchSize = 50;
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public int getSubmitThreads() {
+        return submitThreads;
+    }
+
+    public Duration getResubmitAfter() {
+        return resubmitAfter;
+    }
+
+    public Duration getResubmitInterval() {
+        return resubmitInterval;
+    }
+
+    public int getResubmitBatchSize() {
+        return resubmitBatchSize;
+    }
+}
@@ -6,6 +6,7 @@ import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import uk.gov.pay.directdebit.events.model.GoCardlessOrganisationIdArgumentFactory;
@@ -21,6 +22,7 @@ import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalIdArgumentFactory;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -67,6 +69,7 @@ public interface MandateDao {
             "  m.state_details AS mandate_state_details," +
             "  m.state_details_description AS mandate_state_details_description," +
             "  m.created_date AS mandate_created_date," +
+            "  m.version AS mandate_version," +
             "  m.description AS mandate_description," +
             "  m.payment_provider_id AS mandate_payment_provider_id," +
             "  g.id AS gateway_account_id," +
@@ -106,11 +109,21 @@ public interface MandateDao {
     Optional<Mandate> findByExternalIdAndGatewayAccountExternalId(@Bind("mandateExternalId") MandateExternalId mandateExternalId,
                                                                   @Bind("gatewayAccountExternalId") String gatewayAccountExternalId);
 
+    @SqlQuery(query + "WHERE m.external_id IN (<mandateExternalIds>) AND g.external_id = :gatewayAccountExternalId")
+    List<Mandate> findByExternalIdsAndGatewayAccountExternalId(@BindList("mandateExternalIds") Collection<MandateExternalId> mandateExternalIds,
+                                                               @Bind("gatewayAccountExternalId") String gatewayAccountExternalId);
+
     @SqlQuery(query + "WHERE m.payment_provider_id = :paymentProviderMandateId AND g.organisation = :goCardlessOrganisationId AND g.payment_provider = :provider")
     Optional<Mandate> findByPaymentProviderMandateIdAndOrganisation(@Bind("provider") PaymentProvider paymentProvider,
                                                                     @Bind("paymentProviderMandateId") PaymentProviderMandateId paymentProviderMandateId,
                                                                     @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
 
+    @SqlQuery(query + "WHERE (m.payment_provider_id, g.organisation) IN (SELECT * FROM unnest(:paymentProviderMandateIds, :organisationIds)) " +
+            "AND g.payment_provider = :provider")
+    List<Mandate> findByPaymentProviderMandateIdsAndOrganisations(@Bind("provider") PaymentProvider paymentProvider,
+                                                                  @Bind("paymentProviderMandateIds") String[] paymentProviderMandateIds,
+                                                                  @Bind("organisationIds") String[] organisationIds);
+
     @SqlQuery(query + "WHERE m.payment_provider_id = :paymentProviderMandateId AND g.organisation IS NULL AND g.payment_provider = :provider")
     Optional<Mandate> findByPaymentProviderMandateId(@Bind("provider") PaymentProvider paymentProvider,
                                                      @Bind("paymentProviderMandateId") PaymentProviderMandateId paymentProviderMandateId);
@@ -118,16 +131,36 @@ public interface MandateDao {
     @SqlQuery(query + "WHERE m.state IN (<states>) AND m.created_date < :maxDateTime")
     List<Mandate> findAllMandatesBySetOfStatesAndMaxCreationTime(@BindList("states") Set<MandateState> states, @Bind("maxDateTime") ZonedDateTime maxDateTime);
 
-    @SqlUpdate("UPDATE mandates m SET state = :state WHERE m.id = :id")
+    @SqlQuery(query + "WHERE m.state = 'SUBMITTED_TO_PROVIDER' AND m.payment_provider_id IS NULL " +
+            "AND (SELECT max(e.event_date) FROM govukpay_events e " +
+            "WHERE e.mandate_id = m.id AND e.event_type = 'MANDATE_SUBMITTED_TO_PROVIDER') < :submittedBefore " +
+            "ORDER BY m.id LIMIT :limit")
+    List<Mandate> findMandatesAwaitingPaymentProviderId(@Bind("submittedBefore") ZonedDateTime submittedBefore,
+                                                        @Bind("limit") int limit);
+
+    @SqlUpdate("UPDATE mandates m SET state = :state, version = version + 1 WHERE m.id = :id")
     int updateState(@Bind("id") Long id, @Bind("state") MandateState mandateState);
 
-    @SqlUpdate("UPDATE mandates SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
-            "WHERE id = :id")
+    @SqlUpdate("UPDATE mandates SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = version + 1 WHERE id = :id AND version = :version")
     int updateStateAndDetails(@Bind("id") Long id,
+                              @Bind("version") int version,
                               @Bind("state") MandateState mandateState,
                               @Bind("stateDetails") String details,
                               @Bind("stateDetailsDescription") String detailsDescription);
 
+    @SqlBatch("UPDATE mandates SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = version + 1 WHERE id = :id AND version = :version")
+    int[] updateStatesAndDetails(@Bind("id") List<Long> ids,
+                                 @Bind("version") List<Integer> versions,
+                                 @Bind("state") List<MandateState> mandateStates,
+                                 @Bind("stateDetails") List<String> details,
+                                 @Bind("stateDetailsDescription") List<String> detailsDescriptions);
+
     @SqlUpdate("UPDATE mandates m SET mandate_reference = :mandateBankStatementReference, payment_provider_id = :paymentProviderMandateId WHERE m.id = :id")
     int updateReferenceAndPaymentProviderId(@BindBean Mandate mandate);
+
+    @SqlUpdate("UPDATE mandates m SET mandate_reference = :mandateBankStatementReference, payment_provider_id = :paymentProviderMandateId " +
+            "WHERE m.id = :id AND m.payment_provider_id IS NULL")
+    int updateReferenceAndPaymentProviderIdIfNotSet(@BindBean Mandate mandate);
 }
@@ -0,0 +1,85 @@
+package uk.gov.pay.directdebit.mandate.dao;
+
+import org.jdbi.v3.core.Jdbi;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.mandate.model.MandateIdAndExternalId;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+
+import javax.inject.Inject;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+public class MandateExpiryDao {
+
+    // locks the next chunk of mandates that can be expired, skipping any that another transaction has locked, then
+    // inserts their expiry events, makes those their latest applicable events and updates their states
+    private static final String EXPIRE_NEXT_CHUNK = "WITH expirable_mandates AS (" +
+            "  SELECT m.id FROM mandates m" +
+            "  WHERE m.state IN (<expirableStates>)" +
+            "  AND m.created_date < :maxCreatedDate" +
+            "  AND m.id > :afterId" +
+            "  AND (SELECT e.event_type FROM govukpay_events e WHERE e.mandate_id = m.id" +
+            "       ORDER BY e.event_date DESC, e.id DESC LIMIT 1) IN (<eventTypesThatCanBeExpired>)" +
+            "  ORDER BY m.id" +
+            "  LIMIT :chunkSize" +
+            "  FOR UPDATE SKIP LOCKED" +
+            "), expiry_events AS (" +
+            "  INSERT INTO govukpay_events(mandate_id, event_date, resource_type, event_type)" +
+            "  SELECT id, CAST(:eventDate AS TIMESTAMP WITH TIME ZONE), :resourceType, :expiryEventType FROM expirable_mandates" +
+            "  RETURNING id, mandate_id, event_date" +
+            "), latest_expiry_events AS (" +
+            "  INSERT INTO latest_govukpay_mandate_events(mandate_id, govukpay_event_id, event_date)" +
+            "  SELECT mandate_id, id, event_date FROM expiry_events" +
+            "  ON CONFLICT (mandate_id) DO UPDATE" +
+            "  SET govukpay_event_id = excluded.govukpay_event_id, event_date = excluded.event_date" +
+            "  WHERE (latest_govukpay_mandate_events.event_date, latest_govukpay_mandate_events.govukpay_event_id)" +
+            "  < (excluded.event_date, excluded.govukpay_event_id)" +
+            "), expired_mandates AS (" +
+            "  UPDATE mandates m SET state = :expiredState, state_details = NULL, state_details_description = NULL," +
+            "  version = m.version + 1" +
+            "  FROM expirable_mandates" +
+            "  WHERE m.id = expirable_mandates.id" +
+            "  RETURNING m.id, m.external_id" +
+            ") " +
+            "SELECT id, external_id FROM expired_mandates ORDER BY id";
+
+    private final Jdbi jdbi;
+
+    @Inject
+    public MandateExpiryDao(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Expires up to chunkSize mandates with ids greater than afterId in a single statement, without loading the
+     * mandates. The expiry event must be one that changes the mandate's state to expiredState. Mandates locked by
+     * another node's expiry run are left to that run.
+     *
+     * @return the expired mandates in ascending id order
+     */
+    public List<MandateIdAndExternalId> expireNextChunk(Set<MandateState> expirableStates,
+                                                        Set<GovUkPayEventType> eventTypesThatCanBeExpired,
+                                                        ZonedDateTime maxCreatedDate,
+                                                        long afterId,
+                                                        int chunkSize,
+                                                        GovUkPayEventType expiryEventType,
+                                                        MandateState expiredState) {
+        return jdbi.withHandle(handle -> handle.createQuery(EXPIRE_NEXT_CHUNK)
+                .bindList("expirableStates", List.copyOf(expirableStates))
+                .bindList("eventTypesThatCanBeExpired", List.copyOf(eventTypesThatCanBeExpired))
+                .bind("maxCreatedDate", maxCreatedDate)
+                .bind("afterId", afterId)
+                .bind("chunkSize", chunkSize)
+                .bind("eventDate", ZonedDateTime.now(ZoneOffset.UTC))
+                .bind("resourceType", GovUkPayEvent.ResourceType.MANDATE)
+                .bind("expiryEventType", expiryEventType)
+                .bind("expiredState", expiredState)
+                .map((resultSet, context) -> new MandateIdAndExternalId(resultSet.getLong("id"),
+                        MandateExternalId.valueOf(resultSet.getString("external_id"))))
+                .list());
+    }
+}
@@ -2,6 +2,7 @@ package uk.gov.pay.directdebit.mandate.dao;
 
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.mandate.dao.mapper.MandateMapper;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
@@ -10,8 +11,13 @@ import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MandateSearchDao {
+
+    private static final Pattern PLANNER_ROW_ESTIMATE = Pattern.compile("rows=(\\d+)");
     
     private final Jdbi jdbi;
 
@@ -29,6 +35,16 @@ public class MandateSearchDao {
         });
     }
 
+    public SearchPage<Mandate> searchPage(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
+        return jdbi.withHandle(handle -> {
+            var sqlQueryAndParameters = createSqlQuery(mandateSearchParams, gatewayAccountExternalId, SearchMode.SELECT_PAGE);
+
+            Query query = handle.createQuery(sqlQueryAndParameters.query);
+            List<Mandate> rows = bindQuery(query, sqlQueryAndParameters).map(new MandateMapper()).list();
+            return SearchPage.fromRows(rows, Mandate::getId, Function.identity(), mandateSearchParams);
+        });
+    }
+
     public int countTotalMatchingMandates(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
         return jdbi.withHandle(handle -> {
             var sqlQueryAndParameters = createSqlQuery(mandateSearchParams, gatewayAccountExternalId, SearchMode.COUNT);
@@ -38,6 +54,25 @@ public class MandateSearchDao {
         });
     }
 
+    /**
+     * Returns the planner's estimate of the number of matching mandates, which is read from the statistics rather than
+     * by visiting every matching row, so it is cheap but can be some way out
+     */
+    public int estimateTotalMatchingMandates(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
+        return jdbi.withHandle(handle -> {
+            var sqlQueryAndParameters = createSqlQuery(mandateSearchParams, gatewayAccountExternalId, SearchMode.ESTIMATE);
+
+            Query query = handle.createQuery("EXPLAIN " + sqlQueryAndParameters.query);
+            String topPlanNode = bindQuery(query, sqlQueryAndParameters).mapTo(String.class).first();
+
+            Matcher matcher = PLANNER_ROW_ESTIMATE.matcher(topPlanNode);
+            if (!matcher.find()) {
+                throw new IllegalStateException("Could not find row estimate in query plan: " + topPlanNode);
+            }
+            return (int) Math.min(Long.parseLong(matcher.group(1)), Integer.MAX_VALUE);
+        });
+    }
+
     private Query bindQuery(Query query, SqlStatementAndParameters sqlStatementAndParameters) {
         if (sqlStatementAndParameters.parameters.containsKey("states")) {
             @SuppressWarnings("unchecked")
@@ -54,6 +89,8 @@ public class MandateSearchDao {
         var sql = new StringBuilder(2048);
         if (searchMode.equals(SearchMode.COUNT)) {
             sql.append("SELECT COUNT(*) ");
+        } else if (searchMode.equals(SearchMode.ESTIMATE)) {
+            sql.append("SELECT DISTINCT m.id ");
         } else {
             sql.append("SELECT DISTINCT" +
                     "  m.id AS mandate_id," +
@@ -67,6 +104,7 @@ public class MandateSearchDao {
                     "  m.state_details AS mandate_state_details," +
                     "  m.state_details_description AS mandate_state_details_description," +
                     "  m.created_date AS mandate_created_date," +
+                    "  m.version AS mandate_version," +
                     "  m.payment_provider_id AS mandate_payment_provider_id," +
                     "  g.id AS gateway_account_id," +
                     "  g.external_id AS gateway_account_external_id," +
@@ -99,22 +137,22 @@ public class MandateSearchDao {
         
         params.getServiceReference().filter(s -> !s.isBlank()).ifPresent(serviceReference -> {
             sql.append(" AND m.service_reference ILIKE :serviceReference");
-            sqlParams.put("serviceReference", "%" + serviceReference + "%");
+            sqlParams.put("serviceReference", params.getTextMatch().toLikePattern(serviceReference));
         });
 
         params.getMandateBankStatementReference().filter(s -> !s.toString().isBlank()).ifPresent(bankStatementRef -> {
             sql.append(" AND m.mandate_reference ILIKE :mandateRef");
-            sqlParams.put("mandateRef", "%" + bankStatementRef.toString() + "%");
+            sqlParams.put("mandateRef", params.getTextMatch().toLikePattern(bankStatementRef.toString()));
         });
 
         params.getName().filter(s -> !s.isBlank()).ifPresent(name -> {
             sql.append(" AND p.name ILIKE :name");
-            sqlParams.put("name", "%" + name + "%");
+            sqlParams.put("name", params.getTextMatch().toLikePattern(name));
         });
 
         params.getEmail().filter(s -> !s.isBlank()).ifPresent(email -> {
             sql.append(" AND p.email ILIKE :email");
-            sqlParams.put("email", "%" + email + "%");
+            sqlParams.put("email", params.getTextMatch().toLikePattern(email));
         });
 
         if (!params.getInternalStates().isEmpty()) {
@@ -138,9 +176,32 @@ public class MandateSearchDao {
             sqlParams.put("offset", params.getOffset());
         }
 
+        if (searchMode.equals(SearchMode.SELECT_PAGE)) {
+            appendSeekAndLimit(params, sql, sqlParams);
+        }
+
         return new SqlStatementAndParameters(sql.toString(), sqlParams);
     }
     
+    private void appendSeekAndLimit(MandateSearchParams params, StringBuilder sql, Map<String, Object> sqlParams) {
+        var after = params.getAfter();
+        var before = params.getBefore();
+
+        if (after.isPresent()) {
+            sql.append(" AND m.id < :afterId ORDER BY m.id DESC");
+            sqlParams.put("afterId", after.get().getId());
+        } else if (before.isPresent()) {
+            sql.append(" AND m.id > :beforeId ORDER BY m.id ASC");
+            sqlParams.put("beforeId", before.get().getId());
+        } else {
+            sql.append(" ORDER BY m.id DESC OFFSET :offset");
+            sqlParams.put("offset", params.getOffset());
+        }
+
+        sql.append(" LIMIT :limit");
+        sqlParams.put("limit", params.getDisplaySize() + 1);
+    }
+
     private static class SqlStatementAndParameters {
         private final String query;
         private final Map<String, Object> parameters;
@@ -151,5 +212,5 @@ public class MandateSearchDao {
         }
     }
     
-    private enum SearchMode {COUNT, SELECT}
+    private enum SearchMode {COUNT, ESTIMATE, SELECT, SELECT_PAGE}
 }
@@ -37,6 +37,7 @@ public class MandateMapper implements RowMapper<Mandate> {
     private static final String MANDATE_SERVICE_REFERENCE_COLUMN = "mandate_service_reference";
     private static final String RETURN_URL_COLUMN = "mandate_return_url";
     private static final String CREATED_DATE_COLUMN = "mandate_created_date";
+    private static final String VERSION_COLUMN = "mandate_version";
     private static final String GATEWAY_ACCOUNT_ID_COLUMN = "gateway_account_id";
     private static final String GATEWAY_ACCOUNT_EXTERNAL_ID_COLUMN = "gateway_account_external_id";
     private static final String GATEWAY_ACCOUNT_PAYMENT_PROVIDER_COLUMN = "gateway_account_payment_provider";
@@ -100,7 +101,8 @@ public class MandateMapper implements RowMapper<Mandate> {
                 .withState(MandateState.valueOf(resultSet.getString(STATE_COLUMN)))
                 .withReturnUrl(resultSet.getString(RETURN_URL_COLUMN))
                 .withCreatedDate(ZonedDateTime.ofInstant(resultSet.getTimestamp(CREATED_DATE_COLUMN).toInstant(), ZoneOffset.UTC))
-                .withPayer(payer);
+                .withPayer(payer)
+                .withVersion(resultSet.getInt(VERSION_COLUMN));
 
         Optional.ofNullable(resultSet.getString(DESCRIPTION_COLUMN))
                 .ifPresent(mandateBuilder::withDescription);
@@ -22,6 +22,7 @@ public class Mandate {
     private final ZonedDateTime createdDate;
     private final Payer payer;
     private final PaymentProviderMandateId paymentProviderMandateId;
+    private final int version;
 
     private Mandate(MandateBuilder builder) {
         this.id = builder.id;
@@ -37,6 +38,7 @@ public class Mandate {
         this.description = builder.description;
         this.stateDetails = builder.stateDetails;
         this.stateDetailsDescription = builder.stateDetailsDescription;
+        this.version = builder.version;
     }
 
     public Optional<String> getDescription() {
@@ -90,6 +92,15 @@ public class Mandate {
     public Optional<PaymentProviderMandateId> getPaymentProviderMandateId() {
         return Optional.ofNullable(paymentProviderMandateId);
     }
+
+    /**
+     * The version of the mandate's row when it was read, which state updates compare against so that they do not
+     * overwrite a change made since then
+     */
+    public int getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -136,6 +147,7 @@ public class Mandate {
         private Payer payer;
         private PaymentProviderMandateId paymentProviderId;
         private String description;
+        private int version;
 
         private MandateBuilder() {
         }
@@ -158,7 +170,8 @@ public class Mandate {
             .withCreatedDate(mandate.createdDate)
             .withPayer(mandate.payer)
             .withPaymentProviderId(mandate.paymentProviderMandateId)
-            .withDescription(mandate.description);
+            .withDescription(mandate.description)
+            .withVersion(mandate.version);
         }
 
         public MandateBuilder withId(Long id) {
@@ -226,6 +239,11 @@ public class Mandate {
             return this;
         }
 
+        public MandateBuilder withVersion(int version) {
+            this.version = version;
+            return this;
+        }
+
         public Mandate build() {
             return new Mandate(this);
         }
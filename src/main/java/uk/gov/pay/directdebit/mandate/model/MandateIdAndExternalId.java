@@ -0,0 +1,22 @@
+package uk.gov.pay.directdebit.mandate.model;
+
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+
+public class MandateIdAndExternalId {
+
+    private final Long id;
+    private final MandateExternalId externalId;
+
+    public MandateIdAndExternalId(Long id, MandateExternalId externalId) {
+        this.id = id;
+        this.externalId = externalId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MandateExternalId getExternalId() {
+        return externalId;
+    }
+}
@@ -1,10 +1,14 @@
 package uk.gov.pay.directdebit.mandate.params;
 
 import uk.gov.pay.directdebit.common.exception.validation.ValidExternalMandateState;
+import uk.gov.pay.directdebit.common.model.SearchCountMode;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.common.model.SearchParams;
+import uk.gov.pay.directdebit.common.model.TextMatch;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.QueryParam;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
@@ -19,6 +23,7 @@ public class MandateSearchParams extends SearchParams {
     private static final String BANK_STATEMENT_REFERENCE_KEY = "bank_statement_reference";
     private static final String NAME_KEY = "name";
     private static final String EMAIL_KEY = "email";
+    private static final String COUNT_KEY = "count";
 
     @QueryParam(REFERENCE_KEY)
     private String serviceReference;
@@ -36,6 +41,10 @@ public class MandateSearchParams extends SearchParams {
     @QueryParam(EMAIL_KEY)
     private String email;
 
+    @QueryParam(COUNT_KEY)
+    @Pattern(regexp = "exact|estimated|none", message = "Invalid attribute value: count. Must be one of exact, estimated or none")
+    private String count;
+
     public MandateSearchParams() {
         super();
     }
@@ -51,6 +60,11 @@ public class MandateSearchParams extends SearchParams {
         this.toDate = builder.toDate;
         this.page = builder.page;
         this.displaySize = builder.displaySize;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.includeTotal = builder.includeTotal;
+        this.count = builder.count;
+        this.match = builder.match;
     }
 
     public Optional<String> getServiceReference() {
@@ -89,6 +103,21 @@ public class MandateSearchParams extends SearchParams {
         return displaySize;
     }
 
+    /**
+     * An explicit count takes precedence over include_total, which only chooses between an exact count and none
+     */
+    public SearchCountMode getCountMode() {
+        if (count != null) {
+            return SearchCountMode.fromString(count);
+        }
+        return includeTotal ? SearchCountMode.EXACT : SearchCountMode.NONE;
+    }
+
+    @Override
+    public boolean isCursorPaginated() {
+        return after != null || before != null || getCountMode() != SearchCountMode.EXACT;
+    }
+
     public List<MandateState> getInternalStates() {
         return Arrays.stream(MandateState.values())
                 .filter(state -> state.toExternal().getState().equals(this.externalMandateState))
@@ -130,6 +159,14 @@ public class MandateSearchParams extends SearchParams {
             query.append(appendQueryParam(TO_DATE_KEY, toDate));
         }
 
+        matchQueryParam().ifPresent(matchQueryParam -> query.append("&").append(matchQueryParam));
+
+        cursorQueryParams().forEach(cursorQueryParam -> query.append("&").append(cursorQueryParam));
+
+        if (count != null) {
+            query.append(appendQueryParam(COUNT_KEY, count));
+        }
+
         return query.toString();
     }
 
@@ -143,6 +180,11 @@ public class MandateSearchParams extends SearchParams {
         private String toDate;
         private Integer page = 1;
         private Integer displaySize = 500;
+        private String after;
+        private String before;
+        private Boolean includeTotal = true;
+        private String count;
+        private String match;
 
         public static MandateSearchParamsBuilder aMandateSearchParams() {
             return new MandateSearchParamsBuilder();
@@ -193,6 +235,31 @@ public class MandateSearchParams extends SearchParams {
             return this;
         }
 
+        public MandateSearchParamsBuilder withAfter(SearchCursor after) {
+            this.after = after.encode();
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withBefore(SearchCursor before) {
+            this.before = before.encode();
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withIncludeTotal(Boolean includeTotal) {
+            this.includeTotal = includeTotal;
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withCount(SearchCountMode count) {
+            this.count = count.toString();
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withMatch(TextMatch match) {
+            this.match = match.toString();
+            return this;
+        }
+
         public MandateSearchParams build() {
             return new MandateSearchParams(this);
         }
@@ -68,13 +68,19 @@ public class MandateResource {
                 .map(mandate -> mandateService.populateGetMandateResponse(mandate, uriInfo))
                 .collect(Collectors.toList());
 
-        LinksForSearchResult linksForSearchResult =
-                new LinksForSearchResult(mandateSearchParams, uriInfo, results.getTotalMatchingMandates(), gatewayAccount.getExternalId());
+        LinksForSearchResult linksForSearchResult = results.getSearchPage()
+                .map(searchPage -> new LinksForSearchResult(mandateSearchParams, uriInfo, searchPage, gatewayAccount.getExternalId()))
+                .orElseGet(() -> new LinksForSearchResult(mandateSearchParams, uriInfo, results.getTotalMatchingMandates(), gatewayAccount.getExternalId()));
+
+        Integer page = mandateSearchParams.getAfter().isPresent() || mandateSearchParams.getBefore().isPresent()
+                ? null
+                : mandateSearchParams.getPage();
 
         return new SearchResponse<>(
                 gatewayAccount.getExternalId(),
                 results.getTotalMatchingMandates(),
-                mandateSearchParams.getPage(),
+                results.isTotalEstimated(),
+                page,
                 mandateResponses,
                 linksForSearchResult
         );
@@ -26,6 +26,7 @@ import static uk.gov.pay.directdebit.mandate.model.MandateState.USER_SETUP_CANCE
 import static uk.gov.pay.directdebit.mandate.model.MandateState.USER_SETUP_EXPIRED;
 
 public class GovUkPayEventToMandateStateMapper {
+    // keys added here must also be backfilled into latest_govukpay_mandate_events by a migration, see LatestApplicableEventsMigrationTest
     private static final Map<GovUkPayEventType, MandateState> GOV_UK_PAY_EVENT_TYPE_TO_MANDATE_STATE = Map.of(
             MANDATE_CREATED, CREATED,
             MANDATE_TOKEN_EXCHANGED, AWAITING_DIRECT_DEBIT_DETAILS,
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
@@ -12,6 +13,7 @@ import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 
 import javax.inject.Inject;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -37,12 +39,30 @@ public class MandateQueryService {
                 .orElseThrow(() -> new MandateNotFoundException(mandateExternalId, gatewayAccountExternalId));
     }
 
+    public List<Mandate> findByExternalIdsAndGatewayAccountExternalId(Collection<MandateExternalId> mandateExternalIds,
+                                                                     String gatewayAccountExternalId) {
+        if (mandateExternalIds.isEmpty()) {
+            return List.of();
+        }
+        return mandateDao.findByExternalIdsAndGatewayAccountExternalId(mandateExternalIds, gatewayAccountExternalId);
+    }
+
     public Mandate findByGoCardlessMandateIdAndOrganisationId(
             GoCardlessMandateId goCardlessMandateId,
             GoCardlessOrganisationId organisationId) {
         return mandateDao.findByPaymentProviderMandateIdAndOrganisation(GOCARDLESS, goCardlessMandateId, organisationId)
                 .orElseThrow(() -> new MandateNotFoundException(goCardlessMandateId, organisationId));
     }
+
+    public List<Mandate> findByGoCardlessMandateIdsAndOrganisationIds(
+            List<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds) {
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return List.of();
+        }
+        return mandateDao.findByPaymentProviderMandateIdsAndOrganisations(GOCARDLESS,
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new));
+    }
     
     public Mandate findBySandboxMandateId(SandboxMandateId sandboxMandateId) {
         return mandateDao.findByPaymentProviderMandateId(PaymentProvider.SANDBOX, sandboxMandateId)
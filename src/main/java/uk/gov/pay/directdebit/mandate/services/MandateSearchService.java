@@ -1,5 +1,7 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import uk.gov.pay.directdebit.common.model.SearchCountMode;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
@@ -7,6 +9,7 @@ import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
 import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 public class MandateSearchService {
 
@@ -18,28 +21,65 @@ public class MandateSearchService {
     }
 
     public MandateSearchResults search(MandateSearchParams params, String gatewayAccountExternalId) {
+        if (params.isCursorPaginated()) {
+            return searchPage(params, gatewayAccountExternalId);
+        }
+
         int totalMatchingMandates = mandateSearchDao.countTotalMatchingMandates(params, gatewayAccountExternalId);
         List<Mandate> mandatesForRequestedPage =
                 totalMatchingMandates > 0 ? mandateSearchDao.search(params, gatewayAccountExternalId) : Collections.emptyList();
 
-        return new MandateSearchResults(totalMatchingMandates, mandatesForRequestedPage);
+        return new MandateSearchResults(totalMatchingMandates, false, mandatesForRequestedPage, null);
+    }
+
+    private MandateSearchResults searchPage(MandateSearchParams params, String gatewayAccountExternalId) {
+        SearchPage<Mandate> searchPage = mandateSearchDao.searchPage(params, gatewayAccountExternalId);
+
+        SearchCountMode countMode = params.getCountMode();
+        Integer totalMatchingMandates;
+        switch (countMode) {
+            case EXACT:
+                totalMatchingMandates = mandateSearchDao.countTotalMatchingMandates(params, gatewayAccountExternalId);
+                break;
+            case ESTIMATED:
+                totalMatchingMandates = mandateSearchDao.estimateTotalMatchingMandates(params, gatewayAccountExternalId);
+                break;
+            default:
+                totalMatchingMandates = null;
+        }
+
+        return new MandateSearchResults(totalMatchingMandates, countMode == SearchCountMode.ESTIMATED,
+                searchPage.getResults(), searchPage);
     }
 
     public static class MandateSearchResults {
-        private final int totalMatchingMandates;
+        private final Integer totalMatchingMandates;
+        private final boolean totalEstimated;
         private final List<Mandate> mandatesForRequestedPage;
+        private final SearchPage<Mandate> searchPage;
 
-        MandateSearchResults(int totalMatchingMandates, List<Mandate> mandatesForRequestedPage) {
+        MandateSearchResults(Integer totalMatchingMandates, boolean totalEstimated, List<Mandate> mandatesForRequestedPage,
+                             SearchPage<Mandate> searchPage) {
             this.totalMatchingMandates = totalMatchingMandates;
+            this.totalEstimated = totalEstimated;
             this.mandatesForRequestedPage = mandatesForRequestedPage;
+            this.searchPage = searchPage;
         }
 
-        public int getTotalMatchingMandates() {
+        public Integer getTotalMatchingMandates() {
             return totalMatchingMandates;
         }
 
+        public boolean isTotalEstimated() {
+            return totalEstimated;
+        }
+
         public List<Mandate> getMandatesForRequestedPage() {
             return mandatesForRequestedPage;
         }
+
+        public Optional<SearchPage<Mandate>> getSearchPage() {
+            return Optional.ofNullable(searchPage);
+        }
     }
 }
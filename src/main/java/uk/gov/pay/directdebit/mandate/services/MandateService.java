@@ -1,11 +1,16 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.LinksConfig;
+import uk.gov.pay.directdebit.common.dao.Transactional;
 import uk.gov.pay.directdebit.common.exception.UnlinkedGCMerchantAccountException;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.common.util.RandomIdGenerator;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
@@ -15,6 +20,7 @@ import uk.gov.pay.directdebit.mandate.api.ConfirmMandateRequest;
 import uk.gov.pay.directdebit.mandate.api.CreateMandateRequest;
 import uk.gov.pay.directdebit.mandate.api.DirectDebitInfoFrontendResponse;
 import uk.gov.pay.directdebit.mandate.api.MandateResponse;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
@@ -22,6 +28,7 @@ import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankReference;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
 import uk.gov.pay.directdebit.payers.model.BankAccountDetails;
 import uk.gov.pay.directdebit.payments.exception.CreateCustomerBankAccountFailedException;
@@ -42,6 +49,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.POST;
@@ -70,8 +78,13 @@ public class MandateService {
     private final TokenService tokenService;
     private final PaymentProviderFactory paymentProviderFactory;
     private final UserNotificationService userNotificationService;
+    private final SunService sunService;
     private final GovUkPayEventService govUkPayEventService;
     private final PaymentQueryService paymentQueryService;
+    private final MandateSubmissionService mandateSubmissionService;
+    private final MandateConfirmationConfig mandateConfirmationConfig;
+    private final EmailOutboxConfig emailOutboxConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public MandateService(DirectDebitConfig directDebitConfig,
@@ -80,18 +93,27 @@ public class MandateService {
                           TokenService tokenService,
                           PaymentProviderFactory paymentProviderFactory,
                           UserNotificationService userNotificationService,
+                          SunService sunService,
                           GovUkPayEventService govUkPayEventService,
-                          PaymentQueryService paymentQueryService) {
+                          PaymentQueryService paymentQueryService,
+                          MandateSubmissionService mandateSubmissionService,
+                          MetricRegistry metricRegistry) {
         this.gatewayAccountDao = gatewayAccountDao;
         this.tokenService = tokenService;
         this.mandateDao = mandateDao;
         this.linksConfig = directDebitConfig.getLinks();
         this.paymentProviderFactory = paymentProviderFactory;
         this.userNotificationService = userNotificationService;
+        this.sunService = sunService;
         this.govUkPayEventService = govUkPayEventService;
         this.paymentQueryService = paymentQueryService;
+        this.mandateSubmissionService = mandateSubmissionService;
+        this.mandateConfirmationConfig = directDebitConfig.getMandateConfirmationConfig();
+        this.emailOutboxConfig = directDebitConfig.getEmailOutboxConfig();
+        this.metricRegistry = metricRegistry;
     }
 
+    @Transactional
     public Mandate createMandate(CreateMandateRequest createRequest, String accountExternalId) {
         return gatewayAccountDao.findByExternalId(accountExternalId)
                 .map(gatewayAccount -> {
@@ -124,12 +146,14 @@ public class MandateService {
                 });
     }
 
+    @Transactional
     public MandateResponse createMandate(CreateMandateRequest createMandateRequest, String accountExternalId, UriInfo uriInfo) {
         Mandate mandate = createMandate(createMandateRequest, accountExternalId);
         List<Map<String, Object>> dataLinks = createLinks(mandate, accountExternalId, uriInfo);
         return new MandateResponse(mandate, dataLinks);
     }
 
+    @Transactional
     public TokenExchangeDetails getMandateFor(String token) {
         return mandateDao
                 .findByTokenId(token)
@@ -172,19 +196,51 @@ public class MandateService {
                 .orElseThrow(() -> new MandateNotFoundException(id.toString()));
     }
 
+    @Transactional
     public void changePaymentMethodFor(MandateExternalId mandateExternalId) {
         Mandate mandate = findByExternalId(mandateExternalId);
         govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_USER_SETUP_CANCELLED_NOT_ELIGIBLE);
     }
 
+    @Transactional
     public void cancelMandateCreation(MandateExternalId mandateExternalId) {
         Mandate mandate = findByExternalId(mandateExternalId);
         govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_USER_SETUP_CANCELLED);
     }
 
     public void confirm(GatewayAccount gatewayAccount, Mandate mandate, ConfirmMandateRequest confirmDetailsRequest) {
+        if (mandateConfirmationConfig.isAsynchronous()) {
+            submitBankAccountDetails(gatewayAccount, mandate, confirmDetailsRequest);
+        } else {
+            confirmWithPaymentProvider(gatewayAccount, mandate, confirmDetailsRequest);
+        }
+    }
+
+    private void submitBankAccountDetails(GatewayAccount gatewayAccount, Mandate mandate, ConfirmMandateRequest confirmDetailsRequest) {
+        try (Timer.Context ignored = metricRegistry.timer("mandate-confirmation.submit-bank-account-details").time()) {
+            paymentProviderFactory
+                    .getCommandServiceFor(gatewayAccount.getPaymentProvider())
+                    .submitBankAccountDetails(
+                            mandate,
+                            new BankAccountDetails(
+                                    confirmDetailsRequest.getAccountNumber(),
+                                    confirmDetailsRequest.getSortCode())
+                    );
+        } catch (PayerNotFoundException e) {
+            govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_UNEXPECTED_ERROR);
+            throw e;
+        } catch (CreateCustomerFailedException | CreateCustomerBankAccountFailedException e) {
+            govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+            throw e;
+        }
+
+        Mandate submittedMandate = govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_SUBMITTED_TO_PROVIDER);
+        mandateSubmissionService.submitAsynchronously(submittedMandate);
+    }
+
+    private void confirmWithPaymentProvider(GatewayAccount gatewayAccount, Mandate mandate, ConfirmMandateRequest confirmDetailsRequest) {
         PaymentProviderMandateIdAndBankReference paymentProviderMandateIdAndBankReference;
-        try {
+        try (Timer.Context ignored = metricRegistry.timer("mandate-confirmation.confirm-with-provider").time()) {
             paymentProviderMandateIdAndBankReference = paymentProviderFactory
                     .getCommandServiceFor(gatewayAccount.getPaymentProvider())
                     .confirmMandate(
@@ -207,11 +263,34 @@ public class MandateService {
                 .withPaymentProviderId(paymentProviderMandateIdAndBankReference.getPaymentProviderMandateId())
                 .build();
 
+        Optional<SunName> sunName = sunService.getSunNameFor(updatedMandate);
+        recordConfirmation(updatedMandate, sunName);
+        if (!emailOutboxConfig.isAsynchronous()) {
+            sendMandateCreatedEmail(updatedMandate, sunName);
+        }
+    }
+
+    /**
+     * Records a mandate the payment provider has created as a single unit of work, so its provider id and bank
+     * statement reference, its email in the outbox and its submitted event are committed together. The caller looks
+     * up the SUN name for the email beforehand, as that can take a request to the payment provider, and sends an
+     * email that is not written to the outbox once the unit of work has committed.
+     */
+    @Transactional
+    public void recordConfirmation(Mandate updatedMandate, Optional<SunName> sunName) {
         mandateDao.updateReferenceAndPaymentProviderId(updatedMandate);
-        userNotificationService.sendMandateCreatedEmailFor(updatedMandate);
+        if (emailOutboxConfig.isAsynchronous()) {
+            sendMandateCreatedEmail(updatedMandate, sunName);
+        }
         govUkPayEventService.storeEventAndUpdateStateForMandate(updatedMandate, MANDATE_SUBMITTED_TO_PROVIDER);
     }
 
+    private void sendMandateCreatedEmail(Mandate mandate, Optional<SunName> sunName) {
+        try (Timer.Context ignored = metricRegistry.timer("mandate-confirmation.send-email").time()) {
+            userNotificationService.sendMandateCreatedEmailFor(mandate, sunName);
+        }
+    }
+
     private List<Map<String, Object>> createLinks(Mandate mandate, String accountExternalId, UriInfo uriInfo) {
         List<Map<String, Object>> dataLinks = new ArrayList<>();
 
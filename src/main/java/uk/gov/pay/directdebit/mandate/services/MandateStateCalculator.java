@@ -4,8 +4,20 @@ import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface MandateStateCalculator {
     Optional<DirectDebitStateWithDetails<MandateState>> calculate(Mandate mandate);
+
+    /**
+     * @return the calculated states keyed by mandate id, mandates with no applicable events are left out
+     */
+    default Map<Long, DirectDebitStateWithDetails<MandateState>> calculate(List<Mandate> mandates) {
+        Map<Long, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        mandates.forEach(mandate -> calculate(mandate).ifPresent(state -> states.put(mandate.getId(), state)));
+        return states;
+    }
 }
@@ -2,15 +2,21 @@ package uk.gov.pay.directdebit.mandate.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.InvalidPaymentProviderException;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessMandateStateCalculator;
 import uk.gov.pay.directdebit.mandate.services.sandbox.SandboxMandateStateCalculator;
 
 import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
-import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
+import static java.util.stream.Collectors.groupingBy;
 
 public class MandateStateUpdater {
 
@@ -40,14 +46,33 @@ public class MandateStateUpdater {
                 });
     }
 
+    public List<Mandate> updateStatesIfNecessary(List<Mandate> mandates) {
+        Map<Long, DirectDebitStateWithDetails<MandateState>> statesAndDetails = new HashMap<>();
+        mandates.stream()
+                .collect(groupingBy(mandate -> mandate.getGatewayAccount().getPaymentProvider()))
+                .forEach((paymentProvider, mandatesForProvider) ->
+                        statesAndDetails.putAll(getStateCalculator(paymentProvider).calculate(mandatesForProvider)));
+
+        mandates.stream()
+                .filter(mandate -> !statesAndDetails.containsKey(mandate.getId()))
+                .forEach(mandate -> LOGGER.info(format("Asked to update the status for mandate %s but there appear to be " +
+                        "no events stored that require it to be updated", mandate.getExternalId())));
+
+        return mandateUpdateService.updateStates(mandates, statesAndDetails);
+    }
+
     private MandateStateCalculator getStateCalculator(Mandate mandate) {
-        switch (mandate.getGatewayAccount().getPaymentProvider()){
+        return getStateCalculator(mandate.getGatewayAccount().getPaymentProvider());
+    }
+
+    private MandateStateCalculator getStateCalculator(PaymentProvider paymentProvider) {
+        switch (paymentProvider){
             case SANDBOX:
                 return sandboxMandateStateCalculator;
             case GOCARDLESS:
                 return goCardlessMandateStateCalculator;
             default:
-                throw new InvalidPaymentProviderException(mandate.getGatewayAccount().getPaymentProvider().toString());
+                throw new InvalidPaymentProviderException(paymentProvider.toString());
         }
     }
 }
@@ -0,0 +1,161 @@
+package uk.gov.pay.directdebit.mandate.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
+import uk.gov.pay.directdebit.common.dao.Transactional;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
+import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
+import uk.gov.pay.directdebit.mandate.dao.MandateDao;
+import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankReference;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
+import uk.gov.pay.directdebit.payments.exception.CreateMandateFailedException;
+import uk.gov.pay.directdebit.payments.model.PaymentProviderFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_ERROR_SUBMITTING_TO_PROVIDER;
+import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.fromMandate;
+
+/**
+ * Finishes confirming mandates whose bank account details have been submitted to the payment provider: creates the
+ * mandate with the payment provider, records its id and bank statement reference and sends the payer the
+ * confirmation email. This happens after the payer's confirm request has returned.
+ */
+public class MandateSubmissionService {
+
+    public static final String SUBMIT_EXECUTOR_SERVICE = "mandate-submission";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MandateSubmissionService.class);
+
+    private final PaymentProviderFactory paymentProviderFactory;
+    private final MandateDao mandateDao;
+    private final UserNotificationService userNotificationService;
+    private final SunService sunService;
+    private final GovUkPayEventService govUkPayEventService;
+    private final MandateConfirmationConfig mandateConfirmationConfig;
+    private final EmailOutboxConfig emailOutboxConfig;
+    private final ExecutorService submitExecutorService;
+    private final MetricRegistry metricRegistry;
+
+    @Inject
+    public MandateSubmissionService(PaymentProviderFactory paymentProviderFactory,
+                                    MandateDao mandateDao,
+                                    UserNotificationService userNotificationService,
+                                    SunService sunService,
+                                    GovUkPayEventService govUkPayEventService,
+                                    DirectDebitConfig directDebitConfig,
+                                    @Named(SUBMIT_EXECUTOR_SERVICE) ExecutorService submitExecutorService,
+                                    MetricRegistry metricRegistry) {
+        this.paymentProviderFactory = paymentProviderFactory;
+        this.mandateDao = mandateDao;
+        this.userNotificationService = userNotificationService;
+        this.sunService = sunService;
+        this.govUkPayEventService = govUkPayEventService;
+        this.mandateConfirmationConfig = directDebitConfig.getMandateConfirmationConfig();
+        this.emailOutboxConfig = directDebitConfig.getEmailOutboxConfig();
+        this.submitExecutorService = submitExecutorService;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public void submitAsynchronously(Mandate mandate) {
+        try {
+            submitExecutorService.execute(() -> submitSafely(mandate));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Could not start creating mandate {} with the payment provider, it will be resubmitted later",
+                    mandate.getExternalId());
+        }
+    }
+
+    public void resubmitStalledMandates() {
+        ZonedDateTime submittedBefore = ZonedDateTime.now(ZoneOffset.UTC)
+                .minus(mandateConfirmationConfig.getResubmitAfter().toMilliseconds(), ChronoUnit.MILLIS);
+        List<Mandate> stalledMandates;
+        try {
+            stalledMandates = mandateDao.findMandatesAwaitingPaymentProviderId(submittedBefore,
+                    mandateConfirmationConfig.getResubmitBatchSize());
+        } catch (Exception e) {
+            LOGGER.error("Failed to find mandates waiting to be created with the payment provider", e);
+            return;
+        }
+        if (!stalledMandates.isEmpty()) {
+            LOGGER.info("Resubmitting {} mandates still waiting to be created with the payment provider", stalledMandates.size());
+        }
+        stalledMandates.forEach(this::submitSafely);
+    }
+
+    public void submit(Mandate mandate) {
+        PaymentProviderMandateIdAndBankReference paymentProviderMandateIdAndBankReference;
+        try (Timer.Context ignored = metricRegistry.timer("mandate-confirmation.create-provider-mandate").time()) {
+            paymentProviderMandateIdAndBankReference = paymentProviderFactory
+                    .getCommandServiceFor(mandate.getGatewayAccount().getPaymentProvider())
+                    .createMandate(mandate);
+        } catch (PayerNotFoundException | CreateMandateFailedException e) {
+            govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+            throw e;
+        }
+
+        Mandate updatedMandate = fromMandate(mandate)
+                .withMandateBankStatementReference(paymentProviderMandateIdAndBankReference.getMandateBankStatementReference())
+                .withPaymentProviderId(paymentProviderMandateIdAndBankReference.getPaymentProviderMandateId())
+                .build();
+
+        Optional<SunName> sunName = sunService.getSunNameFor(updatedMandate);
+        // another submission of the same mandate got here first and has already sent the email
+        if (!recordCreation(updatedMandate, sunName)) {
+            LOGGER.info("Mandate {} has already been created with the payment provider", mandate.getExternalId());
+            return;
+        }
+
+        if (!emailOutboxConfig.isAsynchronous()) {
+            sendMandateCreatedEmail(updatedMandate, sunName);
+        }
+    }
+
+    /**
+     * Records the payment provider's mandate id and bank statement reference unless another submission of the mandate
+     * already has, and queues the confirmation email in the same unit of work when emails go through the outbox. The
+     * SUN name for the email is looked up by the caller, outside the unit of work. Returns false if the mandate had
+     * already been recorded as created.
+     */
+    @Transactional
+    public boolean recordCreation(Mandate createdMandate, Optional<SunName> sunName) {
+        if (mandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdMandate) == 0) {
+            return false;
+        }
+
+        if (emailOutboxConfig.isAsynchronous()) {
+            sendMandateCreatedEmail(createdMandate, sunName);
+        }
+        return true;
+    }
+
+    private void sendMandateCreatedEmail(Mandate createdMandate, Optional<SunName> sunName) {
+        try (Timer.Context ignored = metricRegistry.timer("mandate-confirmation.send-email").time()) {
+            userNotificationService.sendMandateCreatedEmailFor(createdMandate, sunName);
+        }
+    }
+
+    private void submitSafely(Mandate mandate) {
+        try {
+            submit(mandate);
+        } catch (Exception e) {
+            LOGGER.error(String.format("Failed to create mandate %s with the payment provider", mandate.getExternalId()), e);
+        }
+    }
+}
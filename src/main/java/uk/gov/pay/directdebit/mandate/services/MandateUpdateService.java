@@ -2,14 +2,19 @@ package uk.gov.pay.directdebit.mandate.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
 import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 
 public class MandateUpdateService {
 
@@ -27,18 +32,69 @@ public class MandateUpdateService {
         String details = stateAndDetails.getDetails().orElse(null);
         String description = stateAndDetails.getDetailsDescription().orElse(null);
         
-        mandateDao.updateStateAndDetails(mandate.getId(),
+        int numberOfUpdatedMandates = mandateDao.updateStateAndDetails(mandate.getId(),
+                mandate.getVersion(),
                 stateAndDetails.getState(),
                 details,
                 description);
 
+        if (numberOfUpdatedMandates == 0) {
+            throw concurrentUpdateOf(mandate);
+        }
+
         LOGGER.info(format("Updated status of mandate %s to %s", mandate.getExternalId(), stateAndDetails.getState()));
 
         return Mandate.MandateBuilder.fromMandate(mandate)
                 .withState(stateAndDetails.getState())
                 .withStateDetails(details)
                 .withStateDetailsDescription(description)
+                .withVersion(mandate.getVersion() + 1)
                 .build();
     }
-    
+
+    public List<Mandate> updateStates(List<Mandate> mandates, Map<Long, DirectDebitStateWithDetails<MandateState>> statesAndDetails) {
+        List<Mandate> mandatesToUpdate = mandates.stream()
+                .filter(mandate -> statesAndDetails.containsKey(mandate.getId()))
+                .collect(toList());
+
+        if (mandatesToUpdate.isEmpty()) {
+            return mandates;
+        }
+
+        List<DirectDebitStateWithDetails<MandateState>> newStates = mandatesToUpdate.stream()
+                .map(mandate -> statesAndDetails.get(mandate.getId()))
+                .collect(toList());
+
+        int[] numbersOfUpdatedMandates = mandateDao.updateStatesAndDetails(
+                mandatesToUpdate.stream().map(Mandate::getId).collect(toList()),
+                mandatesToUpdate.stream().map(Mandate::getVersion).collect(toList()),
+                newStates.stream().map(DirectDebitStateWithDetails::getState).collect(toList()),
+                newStates.stream().map(stateAndDetails -> stateAndDetails.getDetails().orElse(null)).collect(toList()),
+                newStates.stream().map(stateAndDetails -> stateAndDetails.getDetailsDescription().orElse(null)).collect(toList()));
+
+        for (int i = 0; i < numbersOfUpdatedMandates.length; i++) {
+            if (numbersOfUpdatedMandates[i] == 0) {
+                throw concurrentUpdateOf(mandatesToUpdate.get(i));
+            }
+        }
+
+        return mandates.stream()
+                .map(mandate -> Optional.ofNullable(statesAndDetails.get(mandate.getId()))
+                        .map(stateAndDetails -> {
+                            LOGGER.info(format("Updated status of mandate %s to %s", mandate.getExternalId(), stateAndDetails.getState()));
+                            return Mandate.MandateBuilder.fromMandate(mandate)
+                                    .withState(stateAndDetails.getState())
+                                    .withStateDetails(stateAndDetails.getDetails().orElse(null))
+                                    .withStateDetailsDescription(stateAndDetails.getDetailsDescription().orElse(null))
+                                    .withVersion(mandate.getVersion() + 1)
+                                    .build();
+                        })
+                        .orElse(mandate))
+                .collect(toList());
+    }
+
+    private static ConcurrentUpdateException concurrentUpdateOf(Mandate mandate) {
+        return new ConcurrentUpdateException(format("Mandate %s was updated concurrently (expected version %d)",
+                mandate.getExternalId(), mandate.getVersion()));
+    }
 }
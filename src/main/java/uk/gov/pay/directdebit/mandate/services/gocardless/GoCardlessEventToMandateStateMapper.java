@@ -20,7 +20,8 @@ import static uk.gov.pay.directdebit.mandate.model.MandateState.EXPIRED;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.FAILED;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.SUBMITTED_TO_BANK;
 
-class GoCardlessEventToMandateStateMapper {
+public class GoCardlessEventToMandateStateMapper {
+    // keys added here must also be backfilled into latest_gocardless_mandate_events by a migration, see LatestApplicableEventsMigrationTest
     private static final Map<String, MandateState> GOCARDLESS_ACTION_TO_MANDATE_STATE = Map.of(
             ACTION_MANDATE_SUBMITTED, SUBMITTED_TO_BANK,
             ACTION_MANDATE_ACTIVE, ACTIVE,
@@ -30,7 +31,7 @@ class GoCardlessEventToMandateStateMapper {
             ACTION_MANDATE_REINSTATED, ACTIVE
     );
 
-    static final Set<String> GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE = GOCARDLESS_ACTION_TO_MANDATE_STATE.keySet();
+    public static final Set<String> GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE = GOCARDLESS_ACTION_TO_MANDATE_STATE.keySet();
 
     static Optional<DirectDebitStateWithDetails<MandateState>> mapGoCardlessEventToMandateState(GoCardlessEvent goCardlessEvent) {
         return Optional.ofNullable(GOCARDLESS_ACTION_TO_MANDATE_STATE.get(goCardlessEvent.getAction()))
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.mandate.services.gocardless;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
@@ -15,13 +16,17 @@ import uk.gov.pay.directdebit.mandate.services.MandateStateCalculator;
 
 import javax.inject.Inject;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
-import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.mapGovUkPayEventToMandateState;
-import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
 import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.mapGoCardlessEventToMandateState;
 
 public class GoCardlessMandateStateCalculator implements MandateStateCalculator {
@@ -36,30 +41,80 @@ public class GoCardlessMandateStateCalculator implements MandateStateCalculator
     }
 
     public Optional<DirectDebitStateWithDetails<MandateState>> calculate(Mandate mandate) {
-        Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getLatestApplicableGoCardlessEvent(mandate);
+        Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getGoCardlessMandateIdAndOrganisationId(mandate)
+                .flatMap(goCardlessMandateIdAndOrganisationId -> goCardlessEventDao.findLatestApplicableEventForMandate(
+                        goCardlessMandateIdAndOrganisationId.getLeft(),
+                        goCardlessMandateIdAndOrganisationId.getRight()));
 
         Optional<GovUkPayEvent> latestApplicableGovUkPayEvent
-                = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+                = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId());
 
-        return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+        return calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent);
+    }
+
+    @Override
+    public Map<Long, DirectDebitStateWithDetails<MandateState>> calculate(List<Mandate> mandates) {
+        if (mandates.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, GoCardlessEvent> latestApplicableGoCardlessEvents =
+                getLatestApplicableGoCardlessEvents(mandates);
+
+        List<Long> mandateIds = mandates.stream().map(Mandate::getId).collect(toList());
+        Map<Long, GovUkPayEvent> latestApplicableGovUkPayEvents = govUkPayEventDao
+                .findLatestApplicableEventsForMandates(mandateIds)
+                .stream()
+                .collect(toMap(govUkPayEvent -> govUkPayEvent.getMandateId().orElseThrow(), identity()));
+
+        Map<Long, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        for (Mandate mandate : mandates) {
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getGoCardlessMandateIdAndOrganisationId(mandate)
+                    .map(latestApplicableGoCardlessEvents::get);
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent = Optional.ofNullable(latestApplicableGovUkPayEvents.get(mandate.getId()));
+
+            calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                    .ifPresent(state -> states.put(mandate.getId(), state));
+        }
+        return states;
+    }
+
+    private Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, GoCardlessEvent> getLatestApplicableGoCardlessEvents(List<Mandate> mandates) {
+        List<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds = mandates.stream()
+                .map(this::getGoCardlessMandateIdAndOrganisationId)
                 .flatMap(Optional::stream)
-                .max(Comparator.comparing(Event::getTimestamp))
-                .flatMap(this::mapEventToState);
+                .distinct()
+                .collect(toList());
+
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return goCardlessEventDao.findLatestApplicableEventsForMandates(
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new))
+                .stream()
+                .collect(toMap(event -> Pair.of(event.getLinksMandate().orElseThrow(), event.getLinksOrganisation()), identity()));
     }
 
-    private Optional<GoCardlessEvent> getLatestApplicableGoCardlessEvent(Mandate mandate) {
+    private Optional<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> getGoCardlessMandateIdAndOrganisationId(Mandate mandate) {
         return mandate.getPaymentProviderMandateId()
-                .flatMap(paymentProviderMandateId -> {
+                .map(paymentProviderMandateId -> {
                     GoCardlessOrganisationId goCardlessOrganisationId = mandate.getGatewayAccount().getOrganisation()
                             .orElseThrow(() -> new GatewayAccountMissingOrganisationIdException(mandate.getGatewayAccount()));
 
-                    return goCardlessEventDao.findLatestApplicableEventForMandate(
-                            (GoCardlessMandateId) paymentProviderMandateId,
-                            goCardlessOrganisationId,
-                            GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE);
+                    return Pair.of((GoCardlessMandateId) paymentProviderMandateId, goCardlessOrganisationId);
                 });
     }
 
+    private Optional<DirectDebitStateWithDetails<MandateState>> calculateFromLatestEvents(Optional<GoCardlessEvent> latestApplicableGoCardlessEvent,
+                                                                                          Optional<GovUkPayEvent> latestApplicableGovUkPayEvent) {
+        return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                .flatMap(Optional::stream)
+                .max(Comparator.comparing(Event::getTimestamp))
+                .flatMap(this::mapEventToState);
+    }
+
     private Optional<DirectDebitStateWithDetails<MandateState>> mapEventToState(Event event) {
         if (event instanceof GoCardlessEvent) {
             return mapGoCardlessEventToMandateState((GoCardlessEvent) event);
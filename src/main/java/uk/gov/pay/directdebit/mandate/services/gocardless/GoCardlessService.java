@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFacade;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
 import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.common.exception.NoAccessTokenException;
 import uk.gov.pay.directdebit.common.model.subtype.SunName;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
@@ -36,13 +37,16 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
 
     private final GoCardlessClientFactory goCardlessClientFactory;
     private final GoCardlessCustomerDao goCardlessCustomerDao;
+    private final GoCardlessSunNameCache goCardlessSunNameCache;
 
     @Inject
     public GoCardlessService(
             GoCardlessClientFactory goCardlessClientFactory,
-            GoCardlessCustomerDao goCardlessCustomerDao) {
+            GoCardlessCustomerDao goCardlessCustomerDao,
+            GoCardlessSunNameCache goCardlessSunNameCache) {
         this.goCardlessClientFactory = goCardlessClientFactory;
         this.goCardlessCustomerDao = goCardlessCustomerDao;
+        this.goCardlessSunNameCache = goCardlessSunNameCache;
     }
 
     @Override
@@ -58,6 +62,26 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
         return createMandate(mandate, goCardlessCustomerWithBankAccount);
     }
 
+    @Override
+    public void submitBankAccountDetails(Mandate mandate, BankAccountDetails bankAccountDetails) {
+        LOGGER.info("Submitting direct debit details, on demand mandate with id: {}", mandate.getExternalId());
+        GoCardlessCustomer goCardlessCustomer = createCustomer(mandate);
+        createCustomerBankAccount(mandate, goCardlessCustomer, bankAccountDetails);
+        persist(goCardlessCustomer);
+    }
+
+    @Override
+    public PaymentProviderMandateIdAndBankReference createMandate(Mandate mandate) {
+        MandateExternalId mandateExternalId = mandate.getExternalId();
+        Payer payer = mandate.getPayer().orElseThrow(() -> new PayerNotFoundException(mandateExternalId));
+        GoCardlessCustomer goCardlessCustomer = goCardlessCustomerDao.findByPayerId(payer.getId())
+                .orElseThrow(() -> {
+                    LOGGER.error("No GoCardless customer found to create a mandate for, mandate id: {}", mandateExternalId);
+                    return new CreateMandateFailedException(mandateExternalId.toString());
+                });
+        return createMandate(mandate, goCardlessCustomer);
+    }
+
     @Override
     public PaymentProviderPaymentIdAndChargeDate collect(Payment payment, GoCardlessMandateId goCardlessMandateId) {
         try {
@@ -96,9 +120,9 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
 
     @Override
     public Optional<SunName> getSunName(Mandate mandate) {
-        LOGGER.info("Attempting to call GoCardless to retrieve service user name from creditor for mandate with id: {}", mandate.getExternalId());
         try {
-            return goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken()).getSunName();
+            return goCardlessSunNameCache.getSunNameFor(mandate.getGatewayAccount().getAccessToken()
+                    .orElseThrow(() -> new NoAccessTokenException("No access token")));
         } catch (Exception exc) {
             LOGGER.error("Exception while retrieving service user name from GoCardless, message: {}", exc.getMessage());
             return Optional.empty();
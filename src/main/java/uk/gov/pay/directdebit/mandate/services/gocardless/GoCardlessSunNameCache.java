@@ -0,0 +1,84 @@
+package uk.gov.pay.directdebit.mandate.services.gocardless;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.app.config.SunNameCacheConfig;
+import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the service user number name of the creditor behind each GoCardless access token, so that sending an email
+ * does not need a round trip to GoCardless. A creditor without a BACS SUN name is remembered too, so it is not looked
+ * up again for every email. Stale names are reloaded in the background while the old name carries on being used; if
+ * a reload fails the old name is kept. If a first lookup fails, the failure is remembered for a short backoff and
+ * rethrown to lookups for the same access token without calling GoCardless, so an outage does not add a slow failing
+ * call to every email; the first lookup after the backoff tries again.
+ */
+public class GoCardlessSunNameCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessSunNameCache.class);
+    private static final String METRICS_PREFIX = "sun-name-cache";
+
+    private final GoCardlessClientFactory goCardlessClientFactory;
+    private final LoadingCache<PaymentProviderAccessToken, Optional<SunName>> sunNames;
+    private final Cache<PaymentProviderAccessToken, RuntimeException> recentFailures;
+    private final Timer loadTimer;
+    private final Meter skippedLoads;
+
+    public GoCardlessSunNameCache(GoCardlessClientFactory goCardlessClientFactory,
+                                  SunNameCacheConfig sunNameCacheConfig,
+                                  MetricRegistry metricRegistry,
+                                  Executor refreshExecutor) {
+        this.goCardlessClientFactory = goCardlessClientFactory;
+        this.loadTimer = metricRegistry.timer(METRICS_PREFIX + ".load");
+        this.skippedLoads = metricRegistry.meter(METRICS_PREFIX + ".skipped-loads");
+        this.sunNames = CacheBuilder.newBuilder()
+                .maximumSize(sunNameCacheConfig.getMaximumSize())
+                .refreshAfterWrite(sunNameCacheConfig.getRefreshAfterWrite().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .expireAfterWrite(sunNameCacheConfig.getExpireAfterWrite().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build(CacheLoader.asyncReloading(CacheLoader.from(this::load), refreshExecutor));
+        this.recentFailures = CacheBuilder.newBuilder()
+                .maximumSize(sunNameCacheConfig.getMaximumSize())
+                .expireAfterWrite(sunNameCacheConfig.getFailureBackoff().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .build();
+        metricRegistry.register(METRICS_PREFIX + ".hits", (Gauge<Long>) () -> sunNames.stats().hitCount());
+        metricRegistry.register(METRICS_PREFIX + ".misses", (Gauge<Long>) () -> sunNames.stats().missCount());
+    }
+
+    public Optional<SunName> getSunNameFor(PaymentProviderAccessToken accessToken) {
+        RuntimeException recentFailure = recentFailures.getIfPresent(accessToken);
+        if (recentFailure != null) {
+            skippedLoads.mark();
+            throw recentFailure;
+        }
+        try {
+            return sunNames.getUnchecked(accessToken);
+        } catch (UncheckedExecutionException e) {
+            RuntimeException failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            recentFailures.put(accessToken, failure);
+            throw failure;
+        }
+    }
+
+    private Optional<SunName> load(PaymentProviderAccessToken accessToken) {
+        LOGGER.info("Attempting to call GoCardless to retrieve service user name from creditor");
+        try (Timer.Context ignored = loadTimer.time()) {
+            return goCardlessClientFactory.getClientFor(Optional.of(accessToken)).getSunName();
+        }
+    }
+}
@@ -8,9 +8,12 @@ import uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper
 import uk.gov.pay.directdebit.mandate.services.MandateStateCalculator;
 
 import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
+import static java.util.stream.Collectors.toList;
 
 public class SandboxMandateStateCalculator implements MandateStateCalculator {
     private final GovUkPayEventDao govUkPayEventDao;
@@ -21,7 +24,21 @@ public class SandboxMandateStateCalculator implements MandateStateCalculator {
     }
 
     public Optional<DirectDebitStateWithDetails<MandateState>> calculate(Mandate mandate) {
-        return govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE)
+        return govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId())
                 .flatMap(GovUkPayEventToMandateStateMapper::mapGovUkPayEventToMandateState);
     }
+
+    @Override
+    public Map<Long, DirectDebitStateWithDetails<MandateState>> calculate(List<Mandate> mandates) {
+        if (mandates.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Long> mandateIds = mandates.stream().map(Mandate::getId).collect(toList());
+        Map<Long, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        govUkPayEventDao.findLatestApplicableEventsForMandates(mandateIds)
+                .forEach(govUkPayEvent -> GovUkPayEventToMandateStateMapper.mapGovUkPayEventToMandateState(govUkPayEvent)
+                        .ifPresent(state -> states.put(govUkPayEvent.getMandateId().orElseThrow(), state)));
+        return states;
+    }
 }
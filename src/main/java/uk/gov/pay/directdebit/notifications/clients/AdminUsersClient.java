@@ -34,6 +34,15 @@ public class AdminUsersClient {
                 gatewayAccountExternalId);
         String email = mandate.getPayer().orElseThrow(() -> new PayerNotFoundException(mandate.getExternalId())).getEmail();
         var emailPayloadRequest = new EmailPayloadRequest(email, gatewayAccountExternalId, template, personalisation);
+        if (!sendEmail(emailPayloadRequest)) {
+            LOGGER.error("Failed to send {} email for mandate id {} for gateway account id {}",
+                    template.toString(),
+                    mandate.getExternalId(),
+                    gatewayAccountExternalId);
+        }
+    }
+
+    public boolean sendEmail(EmailPayloadRequest emailPayloadRequest) {
         try {
             Response response = client.target(config.getAdminUsersUrl())
                     .path("/v1/emails/send")
@@ -42,15 +51,13 @@ public class AdminUsersClient {
             if (response.getStatus() != 200) {
                 LOGGER.error("Sending email failed with status {} and response {}", response.getStatus(),
                         response.readEntity(String.class));
-            } else {
-                response.close();
+                return false;
             }
+            response.close();
+            return true;
         } catch (Exception exc) {
-            LOGGER.error("Failed to send {} email for mandate id {} for gateway account id {}",
-                    template.toString(),
-                    mandate.getExternalId(),
-                    gatewayAccountExternalId,
-                    exc);
+            LOGGER.error("Failed to call adminusers to send email", exc);
+            return false;
         }
     }
 }
@@ -0,0 +1,79 @@
+package uk.gov.pay.directdebit.notifications.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class EmailOutboxConfig extends Configuration {
+
+    // if true, emails are written to the outbox and sent to adminusers by the dispatcher instead of during the request
+    @JsonProperty
+    private boolean asynchronous = true;
+
+    // the maximum number of emails being sent to adminusers at the same time
+    @JsonProperty
+    @Min(1)
+    private int senderThreads = 4;
+
+    @JsonProperty
+    @Min(1)
+    private int batchSize = 50;
+
+    // emails that fail this many times stay in the outbox but are no longer sent
+    @JsonProperty
+    @Min(1)
+    private int maxAttempts = 10;
+
+    @JsonProperty
+    @NotNull
+    private Duration pollInterval = Duration.seconds(1);
+
+    // how long the dispatcher has to send a claimed batch before it is made available again
+    @JsonProperty
+    @NotNull
+    private Duration claimTimeout = Duration.minutes(5);
+
+    // the delay before retrying a failed email, doubled after each further failure up to maxBackoff
+    @JsonProperty
+    @NotNull
+    private Duration initialBackoff = Duration.seconds(30);
+
+    @JsonProperty
+    @NotNull
+    private Duration maxBackoff = Duration.hours(1);
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public Duration getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.pay.directdebit.notifications.dao;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import uk.gov.pay.directdebit.notifications.dao.mapper.QueuedEmailMapper;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+
+import java.util.List;
+
+@RegisterRowMapper(QueuedEmailMapper.class)
+public interface EmailOutboxDao {
+
+    @SqlUpdate("INSERT INTO email_outbox(template, address, gateway_account_external_id, mandate_external_id, personalisation) " +
+            "VALUES (:template, :address, :gatewayAccountExternalId, :mandateExternalId, CAST(:personalisationJson AS jsonb))")
+    void enqueue(@BindBean QueuedEmail queuedEmail);
+
+    @SqlQuery("UPDATE email_outbox " +
+            "SET claimed_until = now() + (:claimTimeoutInSeconds * interval '1 second'), " +
+            "attempts = attempts + 1 " +
+            "WHERE id IN (" +
+            " SELECT id FROM email_outbox " +
+            " WHERE next_attempt_at <= now() " +
+            " AND (claimed_until IS NULL OR claimed_until < now()) " +
+            " AND attempts < :maxAttempts " +
+            " ORDER BY next_attempt_at, id " +
+            " LIMIT :batchSize " +
+            " FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, template, address, gateway_account_external_id, mandate_external_id, personalisation")
+    List<QueuedEmail> claim(@Bind("batchSize") int batchSize,
+                            @Bind("claimTimeoutInSeconds") long claimTimeoutInSeconds,
+                            @Bind("maxAttempts") int maxAttempts);
+
+    @SqlUpdate("DELETE FROM email_outbox WHERE id IN (<ids>)")
+    int remove(@BindList("ids") List<Long> ids);
+
+    // the delay doubles with each attempt: initialBackoff after the first failure, 2 * initialBackoff after the second...
+    @SqlUpdate("UPDATE email_outbox " +
+            "SET claimed_until = NULL, " +
+            "next_attempt_at = now() + LEAST(:initialBackoffInMillis * power(2, attempts - 1), :maxBackoffInMillis) * interval '1 millisecond' " +
+            "WHERE id IN (<ids>)")
+    int scheduleRetry(@BindList("ids") List<Long> ids,
+                      @Bind("initialBackoffInMillis") long initialBackoffInMillis,
+                      @Bind("maxBackoffInMillis") long maxBackoffInMillis);
+
+    @SqlQuery("SELECT count(*) FROM email_outbox WHERE attempts < :maxAttempts")
+    long countQueuedEmails(@Bind("maxAttempts") int maxAttempts);
+
+    @SqlQuery("SELECT count(*) FROM email_outbox WHERE attempts >= :maxAttempts")
+    long countExhaustedEmails(@Bind("maxAttempts") int maxAttempts);
+
+    @SqlQuery("SELECT COALESCE(CAST(EXTRACT(EPOCH FROM now() - min(enqueued_at)) * 1000 AS BIGINT), 0) " +
+            "FROM email_outbox " +
+            "WHERE attempts < :maxAttempts")
+    long findLagInMilliseconds(@Bind("maxAttempts") int maxAttempts);
+}
@@ -0,0 +1,38 @@
+package uk.gov.pay.directdebit.notifications.dao.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+public class QueuedEmailMapper implements RowMapper<QueuedEmail> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> PERSONALISATION_TYPE = new TypeReference<>() {};
+
+    @Override
+    public QueuedEmail map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
+        return new QueuedEmail(
+                resultSet.getLong("id"),
+                EmailTemplate.valueOf(resultSet.getString("template")),
+                resultSet.getString("address"),
+                resultSet.getString("gateway_account_external_id"),
+                resultSet.getString("mandate_external_id"),
+                readPersonalisation(resultSet.getString("personalisation")));
+    }
+
+    private static Map<String, String> readPersonalisation(String json) throws SQLException {
+        try {
+            return OBJECT_MAPPER.readValue(json, PERSONALISATION_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Email personalisation is not valid JSON", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.pay.directdebit.notifications.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.notifications.api.EmailPayloadRequest;
+import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+
+import java.util.Map;
+
+public class QueuedEmail {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Long id;
+    private final EmailTemplate template;
+    private final String address;
+    private final String gatewayAccountExternalId;
+    private final String mandateExternalId;
+    private final Map<String, String> personalisation;
+
+    public QueuedEmail(Long id, EmailTemplate template, String address, String gatewayAccountExternalId,
+                       String mandateExternalId, Map<String, String> personalisation) {
+        this.id = id;
+        this.template = template;
+        this.address = address;
+        this.gatewayAccountExternalId = gatewayAccountExternalId;
+        this.mandateExternalId = mandateExternalId;
+        this.personalisation = personalisation;
+    }
+
+    public static QueuedEmail of(EmailTemplate template, Mandate mandate, Map<String, String> personalisation) {
+        String address = mandate.getPayer().orElseThrow(() -> new PayerNotFoundException(mandate.getExternalId())).getEmail();
+        return new QueuedEmail(null, template, address, mandate.getGatewayAccount().getExternalId(),
+                mandate.getExternalId().toString(), personalisation);
+    }
+
+    public EmailPayloadRequest toEmailPayloadRequest() {
+        return new EmailPayloadRequest(address, gatewayAccountExternalId, template, personalisation);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EmailTemplate getTemplate() {
+        return template;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getGatewayAccountExternalId() {
+        return gatewayAccountExternalId;
+    }
+
+    public String getMandateExternalId() {
+        return mandateExternalId;
+    }
+
+    public Map<String, String> getPersonalisation() {
+        return personalisation;
+    }
+
+    public String getPersonalisationJson() {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(personalisation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email personalisation cannot be written as JSON", e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package uk.gov.pay.directdebit.notifications.services;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+public class EmailOutboxDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private static final String METRICS_PREFIX = "email-outbox";
+    private static final long GAUGE_CACHE_SECONDS = 5;
+
+    private final EmailOutboxDao emailOutboxDao;
+    private final AdminUsersClient adminUsersClient;
+    private final EmailOutboxConfig emailOutboxConfig;
+    private final ExecutorService senderExecutorService;
+    private final Timer sendTimer;
+    private final Meter failedEmailsMeter;
+
+    public EmailOutboxDispatcher(EmailOutboxDao emailOutboxDao,
+                                 AdminUsersClient adminUsersClient,
+                                 EmailOutboxConfig emailOutboxConfig,
+                                 ExecutorService senderExecutorService,
+                                 MetricRegistry metricRegistry) {
+        this.emailOutboxDao = emailOutboxDao;
+        this.adminUsersClient = adminUsersClient;
+        this.emailOutboxConfig = emailOutboxConfig;
+        this.senderExecutorService = senderExecutorService;
+        this.sendTimer = metricRegistry.timer(METRICS_PREFIX + ".send");
+        this.failedEmailsMeter = metricRegistry.meter(METRICS_PREFIX + ".failed-emails");
+        registerOutboxGauges(metricRegistry);
+    }
+
+    public void dispatchQueuedEmails() {
+        try {
+            List<QueuedEmail> claimedEmails;
+            do {
+                claimedEmails = emailOutboxDao.claim(
+                        emailOutboxConfig.getBatchSize(),
+                        emailOutboxConfig.getClaimTimeout().toSeconds(),
+                        emailOutboxConfig.getMaxAttempts());
+                if (!claimedEmails.isEmpty()) {
+                    dispatchClaimedEmails(claimedEmails);
+                }
+            } while (claimedEmails.size() == emailOutboxConfig.getBatchSize());
+        } catch (RuntimeException e) {
+            // an exception escaping a scheduled task would stop it being scheduled again
+            LOGGER.error("Failed to dispatch queued emails", e);
+        }
+    }
+
+    /**
+     * Whether any emails are waiting to be sent, including those waiting to be retried. Errs on the side of true if
+     * the outbox cannot be read, so that queued emails are not left behind.
+     */
+    public boolean hasQueuedEmails() {
+        try {
+            return emailOutboxDao.countQueuedEmails(emailOutboxConfig.getMaxAttempts()) > 0;
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to count queued emails", e);
+            return true;
+        }
+    }
+
+    private void dispatchClaimedEmails(List<QueuedEmail> claimedEmails) {
+        List<Future<Boolean>> results = claimedEmails.stream()
+                .map(email -> senderExecutorService.submit(() -> send(email)))
+                .collect(toList());
+
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (int i = 0; i < claimedEmails.size(); i++) {
+            QueuedEmail email = claimedEmails.get(i);
+            if (wasSent(results.get(i), email)) {
+                sentIds.add(email.getId());
+            } else {
+                failedIds.add(email.getId());
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            emailOutboxDao.remove(sentIds);
+        }
+        if (!failedIds.isEmpty()) {
+            failedEmailsMeter.mark(failedIds.size());
+            emailOutboxDao.scheduleRetry(failedIds,
+                    emailOutboxConfig.getInitialBackoff().toMilliseconds(),
+                    emailOutboxConfig.getMaxBackoff().toMilliseconds());
+        }
+    }
+
+    private boolean send(QueuedEmail email) {
+        LOGGER.info("Calling adminusers to send {} email for mandate id {} for gateway account id {}",
+                email.getTemplate(), email.getMandateExternalId(), email.getGatewayAccountExternalId());
+        try (Timer.Context ignored = sendTimer.time()) {
+            return adminUsersClient.sendEmail(email.toEmailPayloadRequest());
+        }
+    }
+
+    private static boolean wasSent(Future<Boolean> result, QueuedEmail email) {
+        try {
+            if (result.get()) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Unexpected error sending queued email " + email.getId(), e.getCause());
+        }
+        LOGGER.warn("Failed to send {} email for mandate id {} for gateway account id {}, it will be retried",
+                email.getTemplate(), email.getMandateExternalId(), email.getGatewayAccountExternalId());
+        return false;
+    }
+
+    private void registerOutboxGauges(MetricRegistry metricRegistry) {
+        int maxAttempts = emailOutboxConfig.getMaxAttempts();
+        metricRegistry.register(METRICS_PREFIX + ".depth", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return emailOutboxDao.countQueuedEmails(maxAttempts);
+            }
+        });
+        metricRegistry.register(METRICS_PREFIX + ".lag-in-milliseconds", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return emailOutboxDao.findLagInMilliseconds(maxAttempts);
+            }
+        });
+        metricRegistry.register(METRICS_PREFIX + ".exhausted", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return emailOutboxDao.countExhaustedEmails(maxAttempts);
+            }
+        });
+    }
+}
@@ -5,11 +5,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.common.model.subtype.SunName;
-import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
 import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
 import javax.inject.Inject;
@@ -32,13 +34,16 @@ public class UserNotificationService {
     private AdminUsersClient adminUsersClient;
     private final DirectDebitConfig directDebitConfig;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private final SunService sunService;
+    private final EmailOutboxDao emailOutboxDao;
+    private final EmailOutboxConfig emailOutboxConfig;
 
     @Inject
-    public UserNotificationService(AdminUsersClient adminUsersClient, DirectDebitConfig directDebitConfig, SunService sunService) {
+    public UserNotificationService(AdminUsersClient adminUsersClient, DirectDebitConfig directDebitConfig,
+                                   EmailOutboxDao emailOutboxDao, EmailOutboxConfig emailOutboxConfig) {
         this.adminUsersClient = adminUsersClient;
         this.directDebitConfig = directDebitConfig;
-        this.sunService = sunService;
+        this.emailOutboxDao = emailOutboxDao;
+        this.emailOutboxConfig = emailOutboxConfig;
     }
 
     public void sendMandateFailedEmailFor(Mandate mandate) {
@@ -48,13 +53,16 @@ public class UserNotificationService {
         // which will throw an exception if it’s null.
         String mandateReference = mandate.getMandateBankStatementReference().get().toString();
         String directDebitGuaranteeUrl = directDebitConfig.getLinks().getDirectDebitGuaranteeUrl();
-        adminUsersClient.sendEmail(EmailTemplate.MANDATE_FAILED, mandate,
+        sendEmail(EmailTemplate.MANDATE_FAILED, mandate,
                 Map.of(MANDATE_REFERENCE_KEY, mandateReference, DD_GUARANTEE_KEY, directDebitGuaranteeUrl));
     }
 
-    public void sendMandateCreatedEmailFor(Mandate mandate) {
+    /**
+     * The SUN name is looked up by the caller, as it can take a request to the payment provider that should not be
+     * made while a unit of work holds a database connection.
+     */
+    public void sendMandateCreatedEmailFor(Mandate mandate, Optional<SunName> sunName) {
         EmailTemplate template = EmailTemplate.ON_DEMAND_MANDATE_CREATED;
-        Optional<SunName> sunName = sunService.getSunNameFor(mandate);
         if (sunName.isEmpty()) {
             logMissingSunName(template, mandate);
             return;
@@ -65,11 +73,11 @@ public class UserNotificationService {
                         () -> new PayerNotFoundException(mandate.getExternalId())).getAccountNumberLastTwoDigits(),
                 STATEMENT_NAME_KEY, sunName.get().toString(),
                 DD_GUARANTEE_KEY, directDebitConfig.getLinks().getDirectDebitGuaranteeUrl());
-        adminUsersClient.sendEmail(template, mandate, personalisation);
+        sendEmail(template, mandate, personalisation);
     }
 
     public void sendMandateCancelledEmailFor(Mandate mandate) {
-        adminUsersClient.sendEmail(EmailTemplate.MANDATE_CANCELLED, mandate,
+        sendEmail(EmailTemplate.MANDATE_CANCELLED, mandate,
                 ImmutableMap.of(
                         MANDATE_REFERENCE_KEY, mandate.getMandateBankStatementReference().get().toString(),
                         DD_GUARANTEE_KEY, directDebitConfig.getLinks().getDirectDebitGuaranteeUrl()
@@ -77,13 +85,15 @@ public class UserNotificationService {
         );
     }
 
-    public void sendPaymentConfirmedEmailFor(Payment payment) {
-        sendPaymentConfirmedEmailFor(EmailTemplate.ON_DEMAND_PAYMENT_CONFIRMED, payment);
+    /**
+     * The SUN name is looked up by the caller, as for {@link #sendMandateCreatedEmailFor(Mandate, Optional)}.
+     */
+    public void sendPaymentConfirmedEmailFor(Payment payment, Optional<SunName> sunName) {
+        sendPaymentConfirmedEmailFor(EmailTemplate.ON_DEMAND_PAYMENT_CONFIRMED, payment, sunName);
     }
 
-    private void sendPaymentConfirmedEmailFor(EmailTemplate template, Payment payment) {
+    private void sendPaymentConfirmedEmailFor(EmailTemplate template, Payment payment, Optional<SunName> sunName) {
         Mandate mandate = payment.getMandate();
-        Optional<SunName> sunName = sunService.getSunNameFor(mandate);
         if (!sunName.isPresent()) {
             logMissingSunName(template, mandate);
             return;
@@ -99,16 +109,24 @@ public class UserNotificationService {
                         () -> new PayerNotFoundException(mandate.getExternalId())).getAccountNumberLastTwoDigits(),
                 STATEMENT_NAME_KEY, sunName.get().toString(),
                 DD_GUARANTEE_KEY, directDebitConfig.getLinks().getDirectDebitGuaranteeUrl());
-        adminUsersClient.sendEmail(template, mandate, personalisation);
+        sendEmail(template, mandate, personalisation);
     }
 
     public void sendPaymentFailedEmailFor(Payment payment) {
-        adminUsersClient.sendEmail(EmailTemplate.PAYMENT_FAILED, payment.getMandate(),
+        sendEmail(EmailTemplate.PAYMENT_FAILED, payment.getMandate(),
                 ImmutableMap.of(
                         DD_GUARANTEE_KEY, directDebitConfig.getLinks().getDirectDebitGuaranteeUrl()
                 ));
     }
 
+    private void sendEmail(EmailTemplate template, Mandate mandate, Map<String, String> personalisation) {
+        if (emailOutboxConfig.isAsynchronous()) {
+            emailOutboxDao.enqueue(QueuedEmail.of(template, mandate, personalisation));
+        } else {
+            adminUsersClient.sendEmail(template, mandate, personalisation);
+        }
+    }
+
     private static String formatToPounds(long amountInPence) {
         return BigDecimal.valueOf(amountInPence, 2).toString();
     }
@@ -0,0 +1,89 @@
+package uk.gov.pay.directdebit.payments.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.common.exception.ConflictException;
+import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.common.exception.NotFoundException;
+import uk.gov.pay.directdebit.common.model.ErrorResponse;
+import uk.gov.pay.directdebit.mandate.exception.MandateStateInvalidException;
+import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.service.payments.commons.model.ErrorIdentifier;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_CONFLICT;
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+
+/**
+ * The outcome of one request in a bulk collection, with the status and body the single collect endpoint would have
+ * responded with. The index is the position of the request in the bulk request.
+ */
+@JsonInclude(Include.NON_NULL)
+public class BulkCollectResult {
+
+    @JsonProperty("index")
+    private final int index;
+
+    @JsonProperty("status")
+    private final int status;
+
+    @JsonProperty("payment")
+    private final PaymentResponse payment;
+
+    @JsonProperty("error")
+    private final ErrorResponse error;
+
+    private BulkCollectResult(int index, int status, PaymentResponse payment, ErrorResponse error) {
+        this.index = index;
+        this.status = status;
+        this.payment = payment;
+        this.error = error;
+    }
+
+    public static BulkCollectResult collected(int index, Payment payment) {
+        return new BulkCollectResult(index, SC_CREATED, PaymentResponse.from(payment), null);
+    }
+
+    public static BulkCollectResult failed(int index, RuntimeException exception) {
+        if (exception instanceof NotFoundException) {
+            return failed(index, SC_NOT_FOUND, ((NotFoundException) exception).getErrorIdentifier(), exception.getMessage());
+        }
+        if (exception instanceof BadRequestException) {
+            return failed(index, SC_BAD_REQUEST, ErrorIdentifier.GENERIC, exception.getMessage());
+        }
+        if (exception instanceof ConflictException) {
+            return failed(index, SC_CONFLICT, ErrorIdentifier.GENERIC, exception.getMessage());
+        }
+        if (exception instanceof MandateStateInvalidException) {
+            return failed(index, SC_INTERNAL_SERVER_ERROR, ErrorIdentifier.MANDATE_STATE_INVALID, exception.getMessage());
+        }
+        if (exception instanceof InternalServerErrorException) {
+            return failed(index, SC_INTERNAL_SERVER_ERROR, ErrorIdentifier.GENERIC, exception.getMessage());
+        }
+        return failed(index, SC_INTERNAL_SERVER_ERROR, ErrorIdentifier.GENERIC, "Failed to collect payment");
+    }
+
+    private static BulkCollectResult failed(int index, int status, ErrorIdentifier errorIdentifier, String message) {
+        return new BulkCollectResult(index, status, null, new ErrorResponse(errorIdentifier, message));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public PaymentResponse getPayment() {
+        return payment;
+    }
+
+    public ErrorResponse getError() {
+        return error;
+    }
+}
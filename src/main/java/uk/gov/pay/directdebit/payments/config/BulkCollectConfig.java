@@ -0,0 +1,45 @@
+package uk.gov.pay.directdebit.payments.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+public class BulkCollectConfig extends Configuration {
+
+    @JsonProperty
+    @Min(1)
+    private int maxRequests = 1000;
+
+    // the number of payments inserted, with their events, in one round trip to the database
+    @JsonProperty
+    @Min(1)
+    private int batchSize = 100;
+
+    // the maximum number of payments being submitted to the payment provider at the same time, shared by all bulk requests
+    @JsonProperty
+    @Min(1)
+    private int submitThreads = 8;
+
+    // GoCardless limits the number of API calls per organisation, so bulk submissions for one organisation are throttled
+    @JsonProperty
+    @DecimalMin("0.1")
+    private double submissionsPerSecondPerOrganisation = 10;
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getSubmitThreads() {
+        return submitThreads;
+    }
+
+    public double getSubmissionsPerSecondPerOrganisation() {
+        return submissionsPerSecondPerOrganisation;
+    }
+}
@@ -6,6 +6,7 @@ import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import uk.gov.pay.directdebit.events.model.GoCardlessOrganisationIdArgumentFactory;
@@ -43,6 +44,7 @@ public interface PaymentDao {
             "  p.created_date AS payment_created_date," +
             "  p.payment_provider_id AS payment_provider_id," +
             "  p.charge_date AS payment_charge_date," +
+            "  p.version AS payment_version," +
             "  m.id AS mandate_id," +
             "  m.external_id AS mandate_external_id," +
             "  m.mandate_reference AS mandate_mandate_reference," +
@@ -53,6 +55,7 @@ public interface PaymentDao {
             "  m.state_details AS mandate_state_details," +
             "  m.state_details_description AS mandate_state_details_description," +
             "  m.created_date AS mandate_created_date," +
+            "  m.version AS mandate_version," +
             "  g.id AS gateway_account_id," +
             "  g.external_id AS gateway_account_external_id," +
             "  g.payment_provider AS gateway_account_payment_provider," +
@@ -89,7 +92,7 @@ public interface PaymentDao {
     @SqlQuery(joinQuery + " WHERE m.external_id = :mandateExternalId")
     List<Payment> findAllByMandateExternalId(@Bind("mandateExternalId") MandateExternalId mandateExternalId);
 
-    @SqlUpdate("UPDATE payments p SET state = :state WHERE p.id = :id")
+    @SqlUpdate("UPDATE payments p SET state = :state, version = p.version + 1 WHERE p.id = :id")
     int updateState(@Bind("id") Long id, @Bind("state") PaymentState paymentState);
 
     @SqlUpdate("UPDATE payments SET payment_provider_id = :providerId, charge_date = :chargeDate WHERE id = :id")
@@ -100,6 +103,11 @@ public interface PaymentDao {
     @GetGeneratedKeys
     Long insert(@BindBean Payment payment);
 
+    @SqlBatch("INSERT INTO payments(mandate_id, external_id, amount, state, description, reference, created_date, payment_provider_id, charge_date)" +
+            "VALUES (:mandate.id, :externalId, :amount, :state, :description, :reference, :createdDate, :providerId, :chargeDate)")
+    @GetGeneratedKeys("id")
+    List<Long> insertAll(@BindBean List<Payment> payments);
+
     @SqlQuery(joinQuery + " WHERE p.state IN (<states>) AND p.created_date < :maxDateTime")
     List<Payment> findAllPaymentsBySetOfStatesAndCreationTime(@BindList("states") Set<PaymentState> states, @Bind("maxDateTime") ZonedDateTime maxDateTime);
     
@@ -108,13 +116,23 @@ public interface PaymentDao {
                                                                @Bind("providerId") PaymentProviderPaymentId providerId,
                                                                @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
 
+    @SqlQuery(joinQuery + " WHERE (p.payment_provider_id, g.organisation) IN (SELECT * FROM unnest(:providerIds, :organisationIds))" +
+            " AND g.payment_provider = :provider")
+    List<Payment> findPaymentsByProviderIdsAndOrganisationIds(@Bind("provider") PaymentProvider paymentProvider,
+                                                              @Bind("providerIds") String[] providerIds,
+                                                              @Bind("organisationIds") String[] organisationIds);
+
     @SqlQuery(joinQuery + " WHERE p.payment_provider_id = :providerId AND g.organisation IS NULL AND g.payment_provider = :provider")
     Optional<Payment> findPaymentByProviderId(@Bind("provider") PaymentProvider paymentProvider,
                                                                @Bind("providerId") PaymentProviderPaymentId providerId);
 
-    @SqlUpdate("UPDATE payments p SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
+    String updateStateByProviderIdAndOrganisationIdQuery = "UPDATE payments p SET state = :state, " +
+            "state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = p.version + 1 " +
             "FROM mandates m, gateway_accounts g WHERE p.payment_provider_id = :providerPaymentId " +
-            "AND m.id = p.mandate_id AND g.id = m.gateway_account_id AND g.organisation = :goCardlessOrganisationId AND g.payment_provider = :provider")
+            "AND m.id = p.mandate_id AND g.id = m.gateway_account_id AND g.organisation = :goCardlessOrganisationId AND g.payment_provider = :provider";
+
+    @SqlUpdate(updateStateByProviderIdAndOrganisationIdQuery)
     int updateStateByProviderIdAndOrganisationId(@Bind("provider") PaymentProvider paymentProvider,
                                                                @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId,
                                                                @Bind("providerPaymentId") PaymentProviderPaymentId paymentProviderPaymentId,
@@ -122,7 +140,8 @@ public interface PaymentDao {
                                                                @Bind("stateDetails") String details,
                                                                @Bind("stateDetailsDescription") String detailsDescription);
 
-    @SqlUpdate("UPDATE payments p SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
+    @SqlUpdate("UPDATE payments p SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = p.version + 1 " +
             "FROM mandates m, gateway_accounts g WHERE p.payment_provider_id = :providerPaymentId " +
             "AND m.id = p.mandate_id AND g.id = m.gateway_account_id AND g.organisation IS NULL AND g.payment_provider = :provider")
     int updateStateByProviderId(@Bind("provider") PaymentProvider paymentProvider, @Bind("providerPaymentId") PaymentProviderPaymentId paymentProviderPaymentId,
@@ -130,10 +149,19 @@ public interface PaymentDao {
                                                                @Bind("stateDetails") String details,
                                                                @Bind("stateDetailsDescription") String detailsDescription);
 
-    @SqlUpdate("UPDATE payments SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
-            "WHERE id = :id")
+    @SqlUpdate("UPDATE payments SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = version + 1 WHERE id = :id AND version = :version")
     int updateStateAndDetails(@Bind("id") Long id,
+                              @Bind("version") int version,
                               @Bind("state") PaymentState paymentState,
                               @Bind("stateDetails") String details,
                               @Bind("stateDetailsDescription") String detailsDescription);
+
+    @SqlBatch("UPDATE payments SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription, " +
+            "version = version + 1 WHERE id = :id AND version = :version")
+    int[] updateStatesAndDetails(@Bind("id") List<Long> ids,
+                                 @Bind("version") List<Integer> versions,
+                                 @Bind("state") List<PaymentState> paymentStates,
+                                 @Bind("stateDetails") List<String> details,
+                                 @Bind("stateDetailsDescription") List<String> detailsDescriptions);
 }
@@ -2,6 +2,7 @@ package uk.gov.pay.directdebit.payments.dao;
 
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.dao.mapper.PaymentResponseMapper;
 import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
@@ -28,6 +29,19 @@ public class PaymentViewDao {
         });
     }
 
+    public SearchPage<PaymentResponse> searchPaymentViewPage(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
+        return jdbi.withHandle(handle -> {
+            var sqlStatementAndParameters = createSqlQuery(searchParams, gatewayAccountExternalId, SearchMode.SELECT_PAGE);
+            var paymentResponseMapper = new PaymentResponseMapper();
+
+            Query query = handle.createQuery(sqlStatementAndParameters.query);
+            List<PaymentViewRow> rows = bindQuery(query, sqlStatementAndParameters)
+                    .map((rs, ctx) -> new PaymentViewRow(rs.getLong("payment_id"), paymentResponseMapper.map(rs, ctx)))
+                    .list();
+            return SearchPage.fromRows(rows, row -> row.id, row -> row.paymentResponse, searchParams);
+        });
+    }
+
     public Integer getPaymentViewCount(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
         return jdbi.withHandle(handle -> {
             var sqlStatementAndParameters = createSqlQuery(searchParams, gatewayAccountExternalId, SearchMode.COUNT);
@@ -86,7 +100,7 @@ public class PaymentViewDao {
         
         params.getReference().filter(s -> !s.isBlank()).ifPresent(reference -> {
             sql.append(" AND p.reference ILIKE :reference");
-            sqlParams.put("reference", "%" + reference + "%");
+            sqlParams.put("reference", params.getTextMatch().toLikePattern(reference));
         });
         
         params.getAmount().ifPresent(amount -> {
@@ -114,10 +128,43 @@ public class PaymentViewDao {
             sqlParams.put("limit", params.getDisplaySize());
             sqlParams.put("offset", params.getOffset());
         }
+
+        if (searchMode.equals(SearchMode.SELECT_PAGE)) {
+            appendSeekAndLimit(params, sql, sqlParams);
+        }
         
         return new SqlStatementAndParameters(sql.toString(), sqlParams);
     }
     
+    private void appendSeekAndLimit(PaymentViewSearchParams params, StringBuilder sql, Map<String, Object> sqlParams) {
+        var after = params.getAfter();
+        var before = params.getBefore();
+
+        if (after.isPresent()) {
+            sql.append(" AND p.id < :afterId ORDER BY p.id DESC");
+            sqlParams.put("afterId", after.get().getId());
+        } else if (before.isPresent()) {
+            sql.append(" AND p.id > :beforeId ORDER BY p.id ASC");
+            sqlParams.put("beforeId", before.get().getId());
+        } else {
+            sql.append(" ORDER BY p.id DESC OFFSET :offset");
+            sqlParams.put("offset", params.getOffset());
+        }
+
+        sql.append(" LIMIT :limit");
+        sqlParams.put("limit", params.getDisplaySize() + 1);
+    }
+
+    private static class PaymentViewRow {
+        private final long id;
+        private final PaymentResponse paymentResponse;
+
+        PaymentViewRow(long id, PaymentResponse paymentResponse) {
+            this.id = id;
+            this.paymentResponse = paymentResponse;
+        }
+    }
+
     private static class SqlStatementAndParameters {
         private final String query;
         private final Map<String, Object> parameters;
@@ -128,5 +175,5 @@ public class PaymentViewDao {
         }
     }
 
-    private enum SearchMode {COUNT, SELECT}
+    private enum SearchMode {COUNT, SELECT, SELECT_PAGE}
 }
@@ -0,0 +1,94 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.jdbi.v3.core.Jdbi;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
+import uk.gov.pay.directdebit.payments.model.PaymentState;
+
+import javax.inject.Inject;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public class SandboxPayoutDao {
+
+    // locks the next chunk of submitted sandbox payments, skipping any that another transaction has locked, picks
+    // which of them fail, then inserts their sandbox events, makes those their latest applicable events and updates
+    // their states to match
+    private static final String PAY_OUT_NEXT_CHUNK = "WITH payouts AS (" +
+            "  SELECT p.id, p.external_id, p.mandate_id," +
+            "  CASE WHEN random() < :failureRate THEN :failedAction ELSE :paidOutAction END AS event_action" +
+            "  FROM payments p" +
+            "  JOIN mandates m ON m.id = p.mandate_id" +
+            "  JOIN gateway_accounts g ON g.id = m.gateway_account_id" +
+            "  WHERE p.state = :submittedState" +
+            "  AND g.payment_provider = :paymentProvider" +
+            "  AND p.created_date < :maxCreatedDate" +
+            "  AND p.id > :afterId" +
+            "  ORDER BY p.id" +
+            "  LIMIT :chunkSize" +
+            "  FOR UPDATE OF p SKIP LOCKED" +
+            "), payout_events AS (" +
+            "  INSERT INTO sandbox_events(created_at, mandate_id, payment_id, event_action, event_cause)" +
+            "  SELECT CAST(:createdAt AS TIMESTAMP WITH TIME ZONE), CAST(mandate_id AS VARCHAR), external_id, event_action," +
+            "  CASE WHEN event_action = :failedAction THEN :failedCause ELSE :paidOutCause END" +
+            "  FROM payouts" +
+            "  RETURNING id, payment_id, created_at" +
+            "), latest_payout_events AS (" +
+            "  INSERT INTO latest_sandbox_payment_events(payment_id, sandbox_event_id, created_at)" +
+            "  SELECT payment_id, id, created_at FROM payout_events" +
+            "  ON CONFLICT (payment_id) DO UPDATE" +
+            "  SET sandbox_event_id = excluded.sandbox_event_id, created_at = excluded.created_at" +
+            "  WHERE (latest_sandbox_payment_events.created_at, latest_sandbox_payment_events.sandbox_event_id)" +
+            "  < (excluded.created_at, excluded.sandbox_event_id)" +
+            "), updated_payments AS (" +
+            "  UPDATE payments p" +
+            "  SET state = CASE WHEN payouts.event_action = :failedAction THEN :failedState ELSE :paidOutState END," +
+            "  state_details = NULL, state_details_description = NULL, version = p.version + 1" +
+            "  FROM payouts" +
+            "  WHERE p.id = payouts.id" +
+            "  RETURNING p.id" +
+            ") " +
+            "SELECT id FROM updated_payments ORDER BY id";
+
+    private final Jdbi jdbi;
+
+    @Inject
+    public SandboxPayoutDao(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Pays out, or fails, up to chunkSize submitted sandbox payments with ids greater than afterId in a single
+     * statement, without loading the payments. Each payment fails with probability failureRate. The states must be the
+     * ones the sandbox events' actions map to.
+     *
+     * @return the ids of the payments paid out or failed in ascending order
+     */
+    public List<Long> payOutNextChunk(ZonedDateTime maxCreatedDate,
+                                     long afterId,
+                                     int chunkSize,
+                                     double failureRate,
+                                     String paidOutAction,
+                                     String paidOutCause,
+                                     PaymentState paidOutState,
+                                     String failedAction,
+                                     String failedCause,
+                                     PaymentState failedState) {
+        return jdbi.withHandle(handle -> handle.createQuery(PAY_OUT_NEXT_CHUNK)
+                .bind("submittedState", PaymentState.SUBMITTED_TO_PROVIDER)
+                .bind("paymentProvider", PaymentProvider.SANDBOX)
+                .bind("maxCreatedDate", maxCreatedDate)
+                .bind("afterId", afterId)
+                .bind("chunkSize", chunkSize)
+                .bind("failureRate", failureRate)
+                .bind("createdAt", ZonedDateTime.now(ZoneOffset.UTC))
+                .bind("paidOutAction", paidOutAction)
+                .bind("paidOutCause", paidOutCause)
+                .bind("paidOutState", paidOutState)
+                .bind("failedAction", failedAction)
+                .bind("failedCause", failedCause)
+                .bind("failedState", failedState)
+                .mapTo(Long.class)
+                .list());
+    }
+}
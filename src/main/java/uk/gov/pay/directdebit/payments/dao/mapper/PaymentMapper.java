@@ -40,6 +40,7 @@ public class PaymentMapper implements RowMapper<Payment> {
     private static final String PAYMENT_CREATED_DATE_COLUMN = "payment_created_date";
     private static final String PAYMENT_CHARGE_DATE_COLUMN = "payment_charge_date";
     private static final String PAYMENT_PAYMENT_PROVIDER_ID_COLUMN = "payment_provider_id";
+    private static final String PAYMENT_VERSION_COLUMN = "payment_version";
     private static final String GATEWAY_ACCOUNT_ID_COLUMN = "gateway_account_id";
     private static final String GATEWAY_ACCOUNT_EXTERNAL_ID_COLUMN = "gateway_account_external_id";
     private static final String GATEWAY_ACCOUNT_PAYMENT_PROVIDER_COLUMN = "gateway_account_payment_provider";
@@ -68,6 +69,7 @@ public class PaymentMapper implements RowMapper<Payment> {
     private static final String MANDATE_MANDATE_REFERENCE_COLUMN = "mandate_mandate_reference";
     private static final String MANDATE_SERVICE_REFERENCE_COLUMN = "mandate_service_reference";
     private static final String MANDATE_CREATED_DATE_COLUMN = "mandate_created_date";
+    private static final String MANDATE_VERSION_COLUMN = "mandate_version";
 
     @Override
     public Payment map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
@@ -115,6 +117,7 @@ public class PaymentMapper implements RowMapper<Payment> {
                 .withReturnUrl(resultSet.getString(MANDATE_RETURN_URL_COLUMN))
                 .withCreatedDate(ZonedDateTime.ofInstant(resultSet.getTimestamp(MANDATE_CREATED_DATE_COLUMN).toInstant(), ZoneOffset.UTC))
                 .withPayer(payer)
+                .withVersion(resultSet.getInt(MANDATE_VERSION_COLUMN))
                 .build();
 
         var paymentBuilder = aPayment()
@@ -125,7 +128,8 @@ public class PaymentMapper implements RowMapper<Payment> {
                 .withDescription(resultSet.getString(PAYMENT_DESCRIPTION_COLUMN))
                 .withReference(resultSet.getString(PAYMENT_REFERENCE_COLUMN))
                 .withMandate(mandate)
-                .withCreatedDate(ZonedDateTime.ofInstant(resultSet.getTimestamp(PAYMENT_CREATED_DATE_COLUMN).toInstant(), ZoneOffset.UTC));
+                .withCreatedDate(ZonedDateTime.ofInstant(resultSet.getTimestamp(PAYMENT_CREATED_DATE_COLUMN).toInstant(), ZoneOffset.UTC))
+                .withVersion(resultSet.getInt(PAYMENT_VERSION_COLUMN));
 
         Optional.ofNullable(resultSet.getString(PAYMENT_PAYMENT_PROVIDER_ID_COLUMN))
                 .map(paymentProviderId -> resolvePaymentProviderPaymentId(gatewayAccount.getPaymentProvider(), paymentProviderId))
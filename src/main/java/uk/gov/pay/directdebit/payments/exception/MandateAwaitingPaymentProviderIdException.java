@@ -0,0 +1,14 @@
+package uk.gov.pay.directdebit.payments.exception;
+
+import uk.gov.pay.directdebit.common.exception.ConflictException;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+
+import static java.lang.String.format;
+
+public class MandateAwaitingPaymentProviderIdException extends ConflictException {
+
+    public MandateAwaitingPaymentProviderIdException(MandateExternalId mandateExternalId) {
+        super(format("Mandate with external ID %s is still being created with the payment provider, try again later",
+                mandateExternalId));
+    }
+}
@@ -13,6 +13,14 @@ public interface DirectDebitPaymentProviderCommandService<T extends PaymentProvi
 
     PaymentProviderMandateIdAndBankReference confirmMandate(Mandate mandate, BankAccountDetails bankAccountDetails);
 
+    /**
+     * The part of {@link #confirmMandate} that needs the payer's bank account details. Followed later by
+     * {@link #createMandate}, together they do the same as {@link #confirmMandate}.
+     */
+    void submitBankAccountDetails(Mandate mandate, BankAccountDetails bankAccountDetails);
+
+    PaymentProviderMandateIdAndBankReference createMandate(Mandate mandate);
+
     PaymentProviderPaymentIdAndChargeDate collect(Payment payment, T paymentProviderMandateId);
 
     BankAccountValidationResponse validate(Mandate mandate, BankAccountDetails bankAccountDetails);
@@ -2,13 +2,18 @@ package uk.gov.pay.directdebit.payments.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchParams;
 import uk.gov.pay.directdebit.payments.links.PaginationLink;
 
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include;
+import static uk.gov.pay.directdebit.common.model.SearchParams.AFTER_KEY;
+import static uk.gov.pay.directdebit.common.model.SearchParams.BEFORE_KEY;
+import static uk.gov.pay.directdebit.common.model.SearchParams.PAGE_KEY;
 
 @JsonInclude(Include.NON_NULL)
 public class LinksForSearchResult {
@@ -45,6 +50,18 @@ public class LinksForSearchResult {
         buildLinks();
     }
 
+    public LinksForSearchResult(SearchParams searchParams, UriInfo uriInfo, SearchPage<?> searchPage, String gatewayAccountExternalId) {
+        this.uriInfo = uriInfo;
+        this.totalCount = null;
+        this.searchParams = searchParams;
+        this.queryForSelfLink = searchParams.buildQueryParamString();
+        this.pageNumberForSelfLink = searchParams.getPage();
+        this.lastPageNumber = null;
+        this.previousPageNumber = pageNumberForSelfLink - 1;
+        this.gatewayAccountExternalId = gatewayAccountExternalId;
+        buildCursorLinks(searchPage);
+    }
+
     public PaginationLink getSelfLink() { return selfLink; }
 
     public PaginationLink getFirstLink() { return firstLink; }
@@ -69,6 +86,23 @@ public class LinksForSearchResult {
         }
     }
 
+    private void buildCursorLinks(SearchPage<?> searchPage) {
+        boolean seekingFromCursor = searchParams.getAfter().isPresent() || searchParams.getBefore().isPresent();
+
+        selfLink = createLinkWithQueryOf(queryForSelfLink);
+        firstLink = createLinkWithUriOf(uriWithoutCursor().replaceQueryParam(PAGE_KEY, 1));
+
+        searchPage.getPreviousCursor().ifPresent(cursor -> prevLink = createLinkWithUriOf(
+                uriWithoutCursor().replaceQueryParam(PAGE_KEY).replaceQueryParam(BEFORE_KEY, cursor.encode())));
+
+        if (!seekingFromCursor && notOnFirstPage()) {
+            prevLink = createLinkWithQueryOf(queryWithPageNumberOf(previousPageNumber));
+        }
+
+        searchPage.getNextCursor().ifPresent(cursor -> nextLink = createLinkWithUriOf(
+                uriWithoutCursor().replaceQueryParam(PAGE_KEY).replaceQueryParam(AFTER_KEY, cursor.encode())));
+    }
+
     private boolean notOnFirstPage() {
         return pageNumberForSelfLink > 1;
     }
@@ -93,6 +127,18 @@ public class LinksForSearchResult {
         return PaginationLink.ofValue(uriWithParams(query).toString());
     }
 
+    private PaginationLink createLinkWithUriOf(UriBuilder uriBuilder) {
+        return PaginationLink.ofValue(uriBuilder.build(gatewayAccountExternalId).toString());
+    }
+
+    private UriBuilder uriWithoutCursor() {
+        return uriInfo.getBaseUriBuilder()
+                .path(uriInfo.getPath())
+                .replaceQuery(queryForSelfLink)
+                .replaceQueryParam(AFTER_KEY)
+                .replaceQueryParam(BEFORE_KEY);
+    }
+
     private URI uriWithParams(String params) {
         return uriInfo.getBaseUriBuilder()
                 .path(uriInfo.getPath())
@@ -21,6 +21,7 @@ public class Payment {
     private final ZonedDateTime createdDate;
     private final Mandate mandate;
     private final LocalDate chargeDate;
+    private final int version;
 
     private Payment(PaymentBuilder builder) {
         this.id = builder.id;
@@ -35,6 +36,7 @@ public class Payment {
         this.mandate = Objects.requireNonNull(builder.mandate);
         this.providerId = builder.providerId;
         this.chargeDate = builder.chargeDate;
+        this.version = builder.version;
     }
 
     public Long getId() {
@@ -85,6 +87,14 @@ public class Payment {
         return Optional.ofNullable(chargeDate);
     }
 
+    /**
+     * The version of the payment's row when it was read, which state updates compare against so that they do not
+     * overwrite a change made since then
+     */
+    public int getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -130,6 +140,7 @@ public class Payment {
                 ", createdDate=" + createdDate +
                 ", mandate=" + mandate +
                 ", chargeDate=" + chargeDate +
+                ", version=" + version +
                 '}';
     }
 
@@ -146,6 +157,7 @@ public class Payment {
         private ZonedDateTime createdDate;
         private Mandate mandate;
         private LocalDate chargeDate;
+        private int version;
 
         private PaymentBuilder() {
         }
@@ -163,7 +175,8 @@ public class Payment {
                     .withId(payment.getId())
                     .withMandate(payment.getMandate())
                     .withReference(payment.getReference())
-                    .withState(payment.getState());
+                    .withState(payment.getState())
+                    .withVersion(payment.getVersion());
 
             payment.getChargeDate().ifPresent(builder::withChargeDate);
             payment.getProviderId().ifPresent(builder::withProviderId);
@@ -231,6 +244,11 @@ public class Payment {
             return this;
         }
 
+        public PaymentBuilder withVersion(int version) {
+            this.version = version;
+            return this;
+        }
+
         public Payment build() {
             return new Payment(this);
         }
@@ -1,7 +1,9 @@
 package uk.gov.pay.directdebit.payments.params;
 
 import uk.gov.pay.directdebit.common.exception.validation.ValidExternalPaymentState;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.common.model.SearchParams;
+import uk.gov.pay.directdebit.common.model.TextMatch;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import javax.ws.rs.QueryParam;
@@ -47,6 +49,10 @@ public class PaymentViewSearchParams extends SearchParams {
         this.amount = builder.amount;
         this.mandateId = builder.mandateId;
         this.state = builder.state;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.includeTotal = builder.includeTotal;
+        this.match = builder.match;
     }
 
     public Optional<String> getReference() {
@@ -82,6 +88,8 @@ public class PaymentViewSearchParams extends SearchParams {
             paramsList.add(formatQueryParam(REFERENCE_KEY, reference));
         }
 
+        matchQueryParam().ifPresent(paramsList::add);
+
         if (amount != null) {
             paramsList.add(formatQueryParam(AMOUNT_KEY, amount.toString()));
         }
@@ -100,6 +108,7 @@ public class PaymentViewSearchParams extends SearchParams {
 
         paramsList.add(formatQueryParam(PAGE_KEY, page.toString()));
         paramsList.add(formatQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        paramsList.addAll(cursorQueryParams());
 
         return String.join("&", paramsList);
     }
@@ -113,6 +122,10 @@ public class PaymentViewSearchParams extends SearchParams {
         private Long amount;
         private String mandateId;
         private String state;
+        private String after;
+        private String before;
+        private Boolean includeTotal = true;
+        private String match;
 
         public static PaymentViewSearchParamsBuilder aPaymentViewSearchParams() {
             return new PaymentViewSearchParamsBuilder();
@@ -158,6 +171,26 @@ public class PaymentViewSearchParams extends SearchParams {
             return this;
         }
 
+        public PaymentViewSearchParamsBuilder withAfter(SearchCursor after) {
+            this.after = after.encode();
+            return this;
+        }
+
+        public PaymentViewSearchParamsBuilder withBefore(SearchCursor before) {
+            this.before = before.encode();
+            return this;
+        }
+
+        public PaymentViewSearchParamsBuilder withIncludeTotal(Boolean includeTotal) {
+            this.includeTotal = includeTotal;
+            return this;
+        }
+
+        public PaymentViewSearchParamsBuilder withMatch(TextMatch match) {
+            this.match = match.toString();
+            return this;
+        }
+
         public PaymentViewSearchParams build() {
             return new PaymentViewSearchParams(this);
         }
@@ -1,25 +1,45 @@
 package uk.gov.pay.directdebit.payments.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.payments.api.BulkCollectResult;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequestValidator;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.services.BulkCollectService;
 import uk.gov.pay.directdebit.payments.services.CollectService;
 import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
 
 import javax.inject.Inject;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.apache.http.HttpStatus.SC_CREATED;
 
@@ -27,17 +47,26 @@ import static org.apache.http.HttpStatus.SC_CREATED;
 public class PaymentResource {
     //has to be /charges unless we change public api
     public static final String CHARGE_API_PATH = "/v1/api/accounts/{accountId}/charges/{paymentExternalId}"; // TODO rename to /payments instead of /charges
+    public static final String BULK_COLLECT_API_PATH = "/v1/api/accounts/{accountId}/charges/collect/bulk";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PaymentResource.class);
 
+    private static final TypeReference<Map<String, String>> COLLECT_PAYMENT_REQUEST_TYPE = new TypeReference<>() {};
+
     private final PaymentQueryService paymentQueryService;
     private final CollectService collectService;
+    private final BulkCollectService bulkCollectService;
+    private final ObjectMapper objectMapper;
     private final CollectPaymentRequestValidator collectPaymentRequestValidator = new CollectPaymentRequestValidator();
 
     @Inject
-    public PaymentResource(PaymentQueryService paymentQueryService, CollectService collectService) {
+    public PaymentResource(PaymentQueryService paymentQueryService, CollectService collectService,
+                           BulkCollectService bulkCollectService, ObjectMapper objectMapper) {
         this.paymentQueryService = paymentQueryService;
         this.collectService = collectService;
+        this.bulkCollectService = bulkCollectService;
+        this.objectMapper = objectMapper;
     }
 
     @GET
@@ -60,4 +89,60 @@ public class PaymentResource {
         PaymentResponse response = PaymentResponse.from(paymentToCollect);
         return Response.status(SC_CREATED).entity(response).build();
     }
+
+    @POST
+    @Path(BULK_COLLECT_API_PATH)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_NDJSON)
+    @Timed
+    public Response collectPaymentsFromMandates(@PathParam("accountId") GatewayAccount gatewayAccount,
+                                                List<Map<String, String>> collectPaymentRequestMaps) {
+        return bulkCollect(gatewayAccount, Optional.ofNullable(collectPaymentRequestMaps).orElse(List.of()));
+    }
+
+    @POST
+    @Path(BULK_COLLECT_API_PATH)
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(APPLICATION_NDJSON)
+    @Timed
+    public Response collectPaymentsFromMandatesAsNdjson(@PathParam("accountId") GatewayAccount gatewayAccount,
+                                                        InputStream collectPaymentRequestLines) throws IOException {
+        List<Map<String, String>> collectPaymentRequestMaps = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(collectPaymentRequestLines, UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                collectPaymentRequestMaps.add(objectMapper.readValue(line, COLLECT_PAYMENT_REQUEST_TYPE));
+            } catch (JsonProcessingException e) {
+                throw new BadRequestException(format("Collect payment request %d is not valid JSON", collectPaymentRequestMaps.size()));
+            }
+            bulkCollectService.checkNumberOfRequests(collectPaymentRequestMaps.size());
+        }
+        return bulkCollect(gatewayAccount, collectPaymentRequestMaps);
+    }
+
+    private Response bulkCollect(GatewayAccount gatewayAccount, List<Map<String, String>> collectPaymentRequestMaps) {
+        LOGGER.info("Received bulk collect payments from mandates request");
+        bulkCollectService.checkNumberOfRequests(collectPaymentRequestMaps.size());
+        StreamingOutput results = output -> {
+            Writer writer = new OutputStreamWriter(output, UTF_8);
+            bulkCollectService.collect(gatewayAccount, collectPaymentRequestMaps, result -> writeLine(writer, result));
+            writer.flush();
+        };
+        return Response.ok(results, APPLICATION_NDJSON).build();
+    }
+
+    // results are flushed one at a time so that the caller sees them as soon as each payment is collected
+    private void writeLine(Writer writer, BulkCollectResult result) {
+        try {
+            writer.write(objectMapper.writeValueAsString(result));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,269 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.common.model.ErrorResponse;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.payments.api.BulkCollectResult;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequestValidator;
+import uk.gov.pay.directdebit.payments.api.PaymentResponse;
+import uk.gov.pay.directdebit.payments.config.BulkCollectConfig;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Collects payments for many mandates of one gateway account. Mandates are looked up in one query and payments are
+ * created in batches, then submitted to the payment provider concurrently, throttled per organisation. Each request's
+ * result is passed on as soon as it is known, so results are not in request order. If a result cannot be passed on,
+ * no more batches are created and the results of the payments already submitted are logged instead.
+ */
+public class BulkCollectService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkCollectService.class);
+
+    private final CollectPaymentRequestValidator collectPaymentRequestValidator = new CollectPaymentRequestValidator();
+    private final MandateQueryService mandateQueryService;
+    private final PaymentService paymentService;
+    private final BulkCollectConfig bulkCollectConfig;
+    private final ExecutorService submitExecutorService;
+    private final LoadingCache<String, RateLimiter> rateLimitersByOrganisation;
+
+    public BulkCollectService(MandateQueryService mandateQueryService,
+                              PaymentService paymentService,
+                              BulkCollectConfig bulkCollectConfig,
+                              ExecutorService submitExecutorService) {
+        this.mandateQueryService = mandateQueryService;
+        this.paymentService = paymentService;
+        this.bulkCollectConfig = bulkCollectConfig;
+        this.submitExecutorService = submitExecutorService;
+        this.rateLimitersByOrganisation = CacheBuilder.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(CacheLoader.from(() -> RateLimiter.create(bulkCollectConfig.getSubmissionsPerSecondPerOrganisation())));
+    }
+
+    public void checkNumberOfRequests(int numberOfRequests) {
+        if (numberOfRequests < 1 || numberOfRequests > bulkCollectConfig.getMaxRequests()) {
+            throw new BadRequestException(format("A bulk collection must contain between 1 and %d requests",
+                    bulkCollectConfig.getMaxRequests()));
+        }
+    }
+
+    public void collect(GatewayAccount gatewayAccount, List<Map<String, String>> collectPaymentRequestMaps,
+                        Consumer<BulkCollectResult> resultConsumer) {
+        LOGGER.info("Collecting {} payments in bulk for gateway account {}", collectPaymentRequestMaps.size(),
+                gatewayAccount.getExternalId());
+        ResultDelivery results = new ResultDelivery(resultConsumer);
+
+        List<IndexedRequest> validRequests = validate(collectPaymentRequestMaps, results);
+        List<CollectableRequest> collectableRequests = findCollectableMandates(gatewayAccount, validRequests, results);
+        if (collectableRequests.isEmpty()) {
+            return;
+        }
+
+        RateLimiter rateLimiter = rateLimitersByOrganisation.getUnchecked(organisationKeyFor(gatewayAccount));
+        CompletionService<BulkCollectResult> submissions = new ExecutorCompletionService<>(submitExecutorService);
+        int pendingSubmissions = 0;
+        int remainingRequests = collectableRequests.size();
+
+        try {
+            for (List<CollectableRequest> batch : Lists.partition(collectableRequests, bulkCollectConfig.getBatchSize())) {
+                if (results.isUndeliverable()) {
+                    LOGGER.warn("Not collecting the remaining {} payments in bulk for gateway account {} because their " +
+                            "results cannot be passed on", remainingRequests, gatewayAccount.getExternalId());
+                    break;
+                }
+                remainingRequests -= batch.size();
+
+                List<Payment> payments;
+                try {
+                    payments = paymentService.createPayments(batch.stream()
+                            .map(collectable -> Pair.of(collectable.request, collectable.mandate))
+                            .collect(toList()));
+                } catch (RuntimeException e) {
+                    LOGGER.error(format("Failed to create a batch of %d payments", batch.size()), e);
+                    batch.forEach(collectable -> results.accept(BulkCollectResult.failed(collectable.index, e)));
+                    continue;
+                }
+
+                for (int i = 0; i < batch.size(); i++) {
+                    CollectableRequest collectable = batch.get(i);
+                    Payment payment = payments.get(i);
+                    // waiting for the organisation's permit here, rather than in the submission, keeps the shared
+                    // submit threads free for other organisations
+                    rateLimiter.acquire();
+                    submissions.submit(() -> submitToProvider(collectable, payment));
+                    pendingSubmissions++;
+                }
+
+                // pass on the submissions that have already finished while the next batch is created
+                Future<BulkCollectResult> completed;
+                while ((completed = submissions.poll()) != null) {
+                    results.accept(resultOf(completed));
+                    pendingSubmissions--;
+                }
+            }
+
+            for (; pendingSubmissions > 0; pendingSubmissions--) {
+                results.accept(resultOf(submissions.take()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for {} bulk payment submissions", pendingSubmissions);
+        }
+    }
+
+    private List<IndexedRequest> validate(List<Map<String, String>> collectPaymentRequestMaps,
+                                          Consumer<BulkCollectResult> resultConsumer) {
+        List<IndexedRequest> validRequests = new ArrayList<>();
+        for (int index = 0; index < collectPaymentRequestMaps.size(); index++) {
+            Map<String, String> collectPaymentRequestMap = Optional.ofNullable(collectPaymentRequestMaps.get(index)).orElse(Map.of());
+            try {
+                collectPaymentRequestValidator.validate(collectPaymentRequestMap);
+                validRequests.add(new IndexedRequest(index, CollectPaymentRequest.of(collectPaymentRequestMap)));
+            } catch (BadRequestException e) {
+                resultConsumer.accept(BulkCollectResult.failed(index, e));
+            }
+        }
+        return validRequests;
+    }
+
+    private List<CollectableRequest> findCollectableMandates(GatewayAccount gatewayAccount, List<IndexedRequest> validRequests,
+                                                             Consumer<BulkCollectResult> resultConsumer) {
+        Map<MandateExternalId, Mandate> mandatesByExternalId = mandateQueryService
+                .findByExternalIdsAndGatewayAccountExternalId(
+                        validRequests.stream().map(indexed -> indexed.request.getMandateExternalId()).collect(toSet()),
+                        gatewayAccount.getExternalId())
+                .stream()
+                .collect(toMap(Mandate::getExternalId, Function.identity()));
+
+        List<CollectableRequest> collectableRequests = new ArrayList<>();
+        for (IndexedRequest indexed : validRequests) {
+            MandateExternalId mandateExternalId = indexed.request.getMandateExternalId();
+            Mandate mandate = mandatesByExternalId.get(mandateExternalId);
+            try {
+                if (mandate == null) {
+                    throw new MandateNotFoundException(mandateExternalId, gatewayAccount.getExternalId());
+                }
+                PaymentProviderMandateId paymentProviderMandateId = CollectService.checkPaymentsCanBeCollectedFrom(mandate);
+                collectableRequests.add(new CollectableRequest(indexed.index, indexed.request, mandate, paymentProviderMandateId));
+            } catch (RuntimeException e) {
+                resultConsumer.accept(BulkCollectResult.failed(indexed.index, e));
+            }
+        }
+        return collectableRequests;
+    }
+
+    private BulkCollectResult submitToProvider(CollectableRequest collectable, Payment payment) {
+        try {
+            return BulkCollectResult.collected(collectable.index,
+                    paymentService.submitPaymentToProvider(payment, collectable.paymentProviderMandateId));
+        } catch (RuntimeException e) {
+            LOGGER.error(format("Failed to submit payment %s to the payment provider", payment.getExternalId()), e);
+            return BulkCollectResult.failed(collectable.index, e);
+        }
+    }
+
+    private static BulkCollectResult resultOf(Future<BulkCollectResult> completed) throws InterruptedException {
+        try {
+            return completed.get();
+        } catch (ExecutionException e) {
+            // submitToProvider turns every RuntimeException into a failed result, so only an Error can get here
+            throw new IllegalStateException("Bulk payment submission failed unexpectedly", e.getCause());
+        }
+    }
+
+    private static String organisationKeyFor(GatewayAccount gatewayAccount) {
+        return gatewayAccount.getOrganisation()
+                .map(Object::toString)
+                .orElseGet(gatewayAccount::getExternalId);
+    }
+
+    /**
+     * Passes results on until passing one on fails, usually because the caller has disconnected, then logs the rest so
+     * the outcome of every payment already submitted is still recorded.
+     */
+    private static class ResultDelivery implements Consumer<BulkCollectResult> {
+        private final Consumer<BulkCollectResult> resultConsumer;
+        private boolean undeliverable;
+
+        private ResultDelivery(Consumer<BulkCollectResult> resultConsumer) {
+            this.resultConsumer = resultConsumer;
+        }
+
+        @Override
+        public void accept(BulkCollectResult result) {
+            if (!undeliverable) {
+                try {
+                    resultConsumer.accept(result);
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to pass on the results of a bulk collection", e);
+                    undeliverable = true;
+                }
+            }
+            LOGGER.info("Result of bulk collect request {} could not be passed on: status {}, payment {}, error {}",
+                    result.getIndex(), result.getStatus(),
+                    Optional.ofNullable(result.getPayment()).map(PaymentResponse::getPaymentExternalId).orElse(null),
+                    Optional.ofNullable(result.getError()).map(ErrorResponse::getMessages).orElse(null));
+        }
+
+        private boolean isUndeliverable() {
+            return undeliverable;
+        }
+    }
+
+    private static class IndexedRequest {
+        private final int index;
+        private final CollectPaymentRequest request;
+
+        private IndexedRequest(int index, CollectPaymentRequest request) {
+            this.index = index;
+            this.request = request;
+        }
+    }
+
+    private static class CollectableRequest {
+        private final int index;
+        private final CollectPaymentRequest request;
+        private final Mandate mandate;
+        private final PaymentProviderMandateId paymentProviderMandateId;
+
+        private CollectableRequest(int index, CollectPaymentRequest request, Mandate mandate,
+                                   PaymentProviderMandateId paymentProviderMandateId) {
+            this.index = index;
+            this.request = request;
+            this.mandate = mandate;
+            this.paymentProviderMandateId = paymentProviderMandateId;
+        }
+    }
+}
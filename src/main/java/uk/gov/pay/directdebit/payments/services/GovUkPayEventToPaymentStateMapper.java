@@ -14,6 +14,7 @@ import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_ERRO
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_SUBMITTED;
 
 public class GovUkPayEventToPaymentStateMapper {
+    // keys added here must also be backfilled into latest_govukpay_payment_events by a migration, see LatestApplicableEventsMigrationTest
     private static final Map<GovUkPayEventType, PaymentState> GOV_UK_PAY_EVENT_TYPE_TO_PAYMENT_STATE = Map.of(
             PAYMENT_CREATED, PaymentState.CREATED,
             PAYMENT_SUBMITTED, PaymentState.SUBMITTED_TO_PROVIDER,
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
@@ -36,6 +37,16 @@ public class PaymentQueryService {
         return paymentDao.findPaymentByProviderIdAndOrganisationId(GOCARDLESS, goCardlessPaymentId, goCardlessOrganisationId);
     }
 
+    public List<Payment> findByGoCardlessPaymentIdsAndOrganisationIds(
+            List<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds) {
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return List.of();
+        }
+        return paymentDao.findPaymentsByProviderIdsAndOrganisationIds(GOCARDLESS,
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new));
+    }
+
     public Optional<Payment> findBySandboxPaymentId(SandboxPaymentId sandboxPaymentId) {
         return paymentDao.findPaymentByProviderId(SANDBOX, sandboxPaymentId);
     }
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.dao.PaymentViewDao;
@@ -22,6 +23,10 @@ public class PaymentSearchService {
     }
 
     public SearchResponse<PaymentResponse> getPaymentSearchResponse(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
+        if (searchParams.isCursorPaginated()) {
+            return getCursorPaginatedPaymentSearchResponse(searchParams, gatewayAccountExternalId);
+        }
+
         int totalMatchingPayments = paymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId);
 
         List<PaymentResponse> paymentsForRequestedPage = 
@@ -39,6 +44,28 @@ public class PaymentSearchService {
                 linksForSearchResult);
     }
 
+    private SearchResponse<PaymentResponse> getCursorPaginatedPaymentSearchResponse(PaymentViewSearchParams searchParams,
+                                                                                    String gatewayAccountExternalId) {
+        SearchPage<PaymentResponse> searchPage = paymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId);
+
+        Integer totalMatchingPayments = searchParams.isIncludeTotal()
+                ? paymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)
+                : null;
+
+        Integer page = searchParams.getAfter().isPresent() || searchParams.getBefore().isPresent()
+                ? null
+                : searchParams.getPage();
+
+        LinksForSearchResult linksForSearchResult = new LinksForSearchResult(
+                searchParams, uriInfo, searchPage, gatewayAccountExternalId);
+
+        return new SearchResponse<>(gatewayAccountExternalId,
+                totalMatchingPayments,
+                page,
+                searchPage.getResults(),
+                linksForSearchResult);
+    }
+
     public PaymentSearchService withUriInfo(UriInfo uriInfo) {
         this.uriInfo = uriInfo;
         return this;
@@ -1,12 +1,18 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.dao.Transactional;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.common.util.RandomIdGenerator;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
 import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.exception.CreatePaymentFailedException;
 import uk.gov.pay.directdebit.payments.model.Payment;
@@ -18,7 +24,11 @@ import uk.gov.service.payments.logging.LoggingKeys;
 import javax.inject.Inject;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static java.util.stream.Collectors.toList;
 import static net.logstash.logback.argument.StructuredArguments.kv;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_CREATED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_ERROR_SUBMITTING_TO_PROVIDER;
@@ -31,21 +41,28 @@ public class PaymentService {
     private static final Logger LOGGER = LoggerFactory.getLogger(PaymentService.class);
     private final PaymentDao paymentDao;
     private final UserNotificationService userNotificationService;
+    private final SunService sunService;
     private final PaymentProviderFactory paymentProviderFactory;
     private final GovUkPayEventService govUkPayEventService;
+    private final EmailOutboxConfig emailOutboxConfig;
 
     @Inject
     public PaymentService(PaymentDao paymentDao,
                           UserNotificationService userNotificationService,
+                          SunService sunService,
                           PaymentProviderFactory paymentProviderFactory,
-                          GovUkPayEventService govUkPayEventService) {
+                          GovUkPayEventService govUkPayEventService,
+                          EmailOutboxConfig emailOutboxConfig) {
         this.paymentDao = paymentDao;
         this.userNotificationService = userNotificationService;
+        this.sunService = sunService;
         this.paymentProviderFactory = paymentProviderFactory;
         this.govUkPayEventService = govUkPayEventService;
+        this.emailOutboxConfig = emailOutboxConfig;
     }
 
-    Payment createPayment(long amount, String description, String reference, Mandate mandate) {
+    @Transactional
+    public Payment createPayment(long amount, String description, String reference, Mandate mandate) {
         LOGGER.info("Creating payment for mandate {}", kv(LoggingKeys.MANDATE_EXTERNAL_ID, mandate.getExternalId()));
         Payment payment = aPayment()
                 .withExternalId(RandomIdGenerator.newId())
@@ -63,6 +80,29 @@ public class PaymentService {
         return govUkPayEventService.storeEventAndUpdateStateForPayment(insertedPayment, PAYMENT_CREATED);
     }
 
+    @Transactional
+    public List<Payment> createPayments(List<Pair<CollectPaymentRequest, Mandate>> requestsAndMandates) {
+        ZonedDateTime createdDate = ZonedDateTime.now(ZoneOffset.UTC);
+        List<Payment> payments = requestsAndMandates.stream()
+                .map(requestAndMandate -> aPayment()
+                        .withExternalId(RandomIdGenerator.newId())
+                        .withAmount(requestAndMandate.getLeft().getAmount())
+                        .withState(PaymentState.CREATED)
+                        .withDescription(requestAndMandate.getLeft().getDescription())
+                        .withReference(requestAndMandate.getLeft().getReference())
+                        .withMandate(requestAndMandate.getRight())
+                        .withCreatedDate(createdDate)
+                        .build())
+                .collect(toList());
+        List<Long> ids = paymentDao.insertAll(payments);
+
+        List<Payment> insertedPayments = IntStream.range(0, payments.size())
+                .mapToObj(i -> fromPayment(payments.get(i)).withId(ids.get(i)).build())
+                .collect(toList());
+        LOGGER.info("Created {} payments", insertedPayments.size());
+        return govUkPayEventService.storeInitialEventsAndUpdateStatesForPayments(insertedPayments, PAYMENT_CREATED);
+    }
+
     Payment submitPaymentToProvider(Payment payment, PaymentProviderMandateId paymentProviderMandateId) {
         PaymentProviderPaymentIdAndChargeDate providerIdAndChargeDate;
         try {
@@ -79,9 +119,26 @@ public class PaymentService {
                 .withChargeDate(providerIdAndChargeDate.getChargeDate())
                 .build();
 
-        paymentDao.updateProviderIdAndChargeDate(submittedPayment);
+        Optional<SunName> sunName = sunService.getSunNameFor(submittedPayment.getMandate());
+        Payment updatedPayment = recordSubmission(submittedPayment, sunName);
+        if (!emailOutboxConfig.isAsynchronous()) {
+            userNotificationService.sendPaymentConfirmedEmailFor(submittedPayment, sunName);
+        }
+        return updatedPayment;
+    }
 
-        userNotificationService.sendPaymentConfirmedEmailFor(submittedPayment);
+    /**
+     * Records a payment the payment provider has accepted as a single unit of work, so its provider id, its email in
+     * the outbox and its submitted event are committed together. The caller looks up the SUN name for the email
+     * beforehand, as that can take a request to the payment provider, and sends an email that is not written to the
+     * outbox once the unit of work has committed.
+     */
+    @Transactional
+    public Payment recordSubmission(Payment submittedPayment, Optional<SunName> sunName) {
+        paymentDao.updateProviderIdAndChargeDate(submittedPayment);
+        if (emailOutboxConfig.isAsynchronous()) {
+            userNotificationService.sendPaymentConfirmedEmailFor(submittedPayment, sunName);
+        }
         return govUkPayEventService.storeEventAndUpdateStateForPayment(submittedPayment, PAYMENT_SUBMITTED);
     }
 }
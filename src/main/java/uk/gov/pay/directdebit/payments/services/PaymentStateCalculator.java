@@ -4,8 +4,20 @@ import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface PaymentStateCalculator {
     Optional<DirectDebitStateWithDetails<PaymentState>> calculate(Payment payment);
+
+    /**
+     * @return the calculated states keyed by payment id, payments with no applicable events are left out
+     */
+    default Map<Long, DirectDebitStateWithDetails<PaymentState>> calculate(List<Payment> payments) {
+        Map<Long, DirectDebitStateWithDetails<PaymentState>> states = new HashMap<>();
+        payments.forEach(payment -> calculate(payment).ifPresent(state -> states.put(payment.getId(), state)));
+        return states;
+    }
 }
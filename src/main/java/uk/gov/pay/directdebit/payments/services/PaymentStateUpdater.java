@@ -2,14 +2,21 @@ package uk.gov.pay.directdebit.payments.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.InvalidPaymentProviderException;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessPaymentStateCalculator;
 import uk.gov.pay.directdebit.payments.services.sandbox.SandboxPaymentStateCalculator;
 
 import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
 
 public class PaymentStateUpdater {
 
@@ -39,14 +46,33 @@ public class PaymentStateUpdater {
                 });
     }
     
+    public List<Payment> updateStatesIfNecessary(List<Payment> payments) {
+        Map<Long, DirectDebitStateWithDetails<PaymentState>> statesAndDetails = new HashMap<>();
+        payments.stream()
+                .collect(groupingBy(payment -> payment.getMandate().getGatewayAccount().getPaymentProvider()))
+                .forEach((paymentProvider, paymentsForProvider) ->
+                        statesAndDetails.putAll(getStateCalculator(paymentProvider).calculate(paymentsForProvider)));
+
+        payments.stream()
+                .filter(payment -> !statesAndDetails.containsKey(payment.getId()))
+                .forEach(payment -> LOGGER.info(format("Asked to update the status for payment %s but there appear to be " +
+                        "no events stored that require it to be updated", payment.getExternalId())));
+
+        return paymentUpdateService.updateStates(payments, statesAndDetails);
+    }
+
     private PaymentStateCalculator getStateCalculator(Payment payment) {
-        switch (payment.getMandate().getGatewayAccount().getPaymentProvider()) {
+        return getStateCalculator(payment.getMandate().getGatewayAccount().getPaymentProvider());
+    }
+
+    private PaymentStateCalculator getStateCalculator(PaymentProvider paymentProvider) {
+        switch (paymentProvider) {
             case SANDBOX:
                 return sandboxPaymentStateCalculator;
             case GOCARDLESS:
                 return goCardlessPaymentStateCalculator;
             default:
-                throw new InvalidPaymentProviderException(payment.getMandate().getGatewayAccount().getPaymentProvider().toString());
+                throw new InvalidPaymentProviderException(paymentProvider.toString());
         }
     }
 
@@ -2,14 +2,19 @@ package uk.gov.pay.directdebit.payments.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 
 public class PaymentUpdateService {
 
@@ -26,18 +31,69 @@ public class PaymentUpdateService {
         String details = stateAndDetails.getDetails().orElse(null);
         String description = stateAndDetails.getDetailsDescription().orElse(null);
         
-        paymentDao.updateStateAndDetails(payment.getId(),
+        int numberOfUpdatedPayments = paymentDao.updateStateAndDetails(payment.getId(),
+                payment.getVersion(),
                 stateAndDetails.getState(),
                 details,
                 description);
 
+        if (numberOfUpdatedPayments == 0) {
+            throw concurrentUpdateOf(payment);
+        }
+
         LOGGER.info(format("Updated status of payment %s to %s", payment.getExternalId(), stateAndDetails.getState()));
         
         return Payment.PaymentBuilder.fromPayment(payment)
                 .withState(stateAndDetails.getState())
                 .withStateDetails(details)
                 .withStateDetailsDescription(description)
+                .withVersion(payment.getVersion() + 1)
                 .build();
     }
 
+    public List<Payment> updateStates(List<Payment> payments, Map<Long, DirectDebitStateWithDetails<PaymentState>> statesAndDetails) {
+        List<Payment> paymentsToUpdate = payments.stream()
+                .filter(payment -> statesAndDetails.containsKey(payment.getId()))
+                .collect(toList());
+
+        if (paymentsToUpdate.isEmpty()) {
+            return payments;
+        }
+
+        List<DirectDebitStateWithDetails<PaymentState>> newStates = paymentsToUpdate.stream()
+                .map(payment -> statesAndDetails.get(payment.getId()))
+                .collect(toList());
+
+        int[] numbersOfUpdatedPayments = paymentDao.updateStatesAndDetails(
+                paymentsToUpdate.stream().map(Payment::getId).collect(toList()),
+                paymentsToUpdate.stream().map(Payment::getVersion).collect(toList()),
+                newStates.stream().map(DirectDebitStateWithDetails::getState).collect(toList()),
+                newStates.stream().map(stateAndDetails -> stateAndDetails.getDetails().orElse(null)).collect(toList()),
+                newStates.stream().map(stateAndDetails -> stateAndDetails.getDetailsDescription().orElse(null)).collect(toList()));
+
+        for (int i = 0; i < numbersOfUpdatedPayments.length; i++) {
+            if (numbersOfUpdatedPayments[i] == 0) {
+                throw concurrentUpdateOf(paymentsToUpdate.get(i));
+            }
+        }
+
+        return payments.stream()
+                .map(payment -> Optional.ofNullable(statesAndDetails.get(payment.getId()))
+                        .map(stateAndDetails -> {
+                            LOGGER.info(format("Updated status of payment %s to %s", payment.getExternalId(), stateAndDetails.getState()));
+                            return Payment.PaymentBuilder.fromPayment(payment)
+                                    .withState(stateAndDetails.getState())
+                                    .withStateDetails(stateAndDetails.getDetails().orElse(null))
+                                    .withStateDetailsDescription(stateAndDetails.getDetailsDescription().orElse(null))
+                                    .withVersion(payment.getVersion() + 1)
+                                    .build();
+                        })
+                        .orElse(payment))
+                .collect(toList());
+    }
+
+    private static ConcurrentUpdateException concurrentUpdateOf(Payment payment) {
+        return new ConcurrentUpdateException(format("Payment %s was updated concurrently (expected version %d)",
+                payment.getExternalId(), payment.getVersion()));
+    }
 }
@@ -27,6 +27,16 @@ public class SandboxService implements DirectDebitPaymentProvider, DirectDebitPa
     @Override
     public PaymentProviderMandateIdAndBankReference confirmMandate(Mandate mandate, BankAccountDetails bankAccountDetails) {
         LOGGER.info("Confirming on demand mandate for sandbox, mandate with id: {}", mandate.getExternalId());
+        return createMandate(mandate);
+    }
+
+    @Override
+    public void submitBankAccountDetails(Mandate mandate, BankAccountDetails bankAccountDetails) {
+        LOGGER.info("Submitting bank account details for sandbox, mandate with id: {}", mandate.getExternalId());
+    }
+
+    @Override
+    public PaymentProviderMandateIdAndBankReference createMandate(Mandate mandate) {
         return new PaymentProviderMandateIdAndBankReference(
                 SandboxMandateId.valueOf(mandate.getExternalId().toString()),
                 MandateBankStatementReference.valueOf(RandomStringUtils.randomAlphanumeric(18)));
@@ -27,6 +27,7 @@ import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
 import static uk.gov.pay.directdebit.payments.model.PaymentState.SUBMITTED_TO_BANK;
 
 public class GoCardlessEventToPaymentStateMapper {
+    // keys added here must also be backfilled into latest_gocardless_payment_events by a migration, see LatestApplicableEventsMigrationTest
     private static final Map<String, PaymentState> GOCARDLESS_ACTION_TO_PAYMENT_STATE = Map.of(
             ACTION_PAYMENT_SUBMITTED, SUBMITTED_TO_BANK,
             ACTION_PAYMENT_FAILED, FAILED,
@@ -40,7 +41,7 @@ public class GoCardlessEventToPaymentStateMapper {
             ACTION_PAYMENT_CHARGEBACK_SETTLED, INDEMNITY_CLAIM
     );
 
-    static final Set<String> GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE = GOCARDLESS_ACTION_TO_PAYMENT_STATE.keySet();
+    public static final Set<String> GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE = GOCARDLESS_ACTION_TO_PAYMENT_STATE.keySet();
 
     static Optional<DirectDebitStateWithDetails<PaymentState>> mapGoCardlessEventToPaymentState(GoCardlessEvent goCardlessEvent) {
         return Optional.ofNullable(GOCARDLESS_ACTION_TO_PAYMENT_STATE.get(goCardlessEvent.getAction()))
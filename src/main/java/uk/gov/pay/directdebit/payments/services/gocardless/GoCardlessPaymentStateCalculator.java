@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services.gocardless;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
@@ -15,13 +16,17 @@ import uk.gov.pay.directdebit.payments.services.PaymentStateCalculator;
 
 import javax.inject.Inject;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
-import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.mapGovUkPayEventToPaymentState;
-import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
 import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.mapGoCardlessEventToPaymentState;
 
 public class GoCardlessPaymentStateCalculator implements PaymentStateCalculator {
@@ -37,30 +42,80 @@ public class GoCardlessPaymentStateCalculator implements PaymentStateCalculator
     }
 
     public Optional<DirectDebitStateWithDetails<PaymentState>> calculate(Payment payment) {
-        Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getLatestApplicableGoCardlessEvent(payment);
+        Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getGoCardlessPaymentIdAndOrganisationId(payment)
+                .flatMap(goCardlessPaymentIdAndOrganisationId -> goCardlessEventDao.findLatestApplicableEventForPayment(
+                        goCardlessPaymentIdAndOrganisationId.getLeft(),
+                        goCardlessPaymentIdAndOrganisationId.getRight()));
 
         Optional<GovUkPayEvent> latestApplicableGovUkPayEvent
-                = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+                = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId());
 
-        return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+        return calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent);
+    }
+
+    @Override
+    public Map<Long, DirectDebitStateWithDetails<PaymentState>> calculate(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, GoCardlessEvent> latestApplicableGoCardlessEvents =
+                getLatestApplicableGoCardlessEvents(payments);
+
+        List<Long> paymentIds = payments.stream().map(Payment::getId).collect(toList());
+        Map<Long, GovUkPayEvent> latestApplicableGovUkPayEvents = govUkPayEventDao
+                .findLatestApplicableEventsForPayments(paymentIds)
+                .stream()
+                .collect(toMap(govUkPayEvent -> govUkPayEvent.getPaymentId().orElseThrow(), identity()));
+
+        Map<Long, DirectDebitStateWithDetails<PaymentState>> states = new HashMap<>();
+        for (Payment payment : payments) {
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getGoCardlessPaymentIdAndOrganisationId(payment)
+                    .map(latestApplicableGoCardlessEvents::get);
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent = Optional.ofNullable(latestApplicableGovUkPayEvents.get(payment.getId()));
+
+            calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                    .ifPresent(state -> states.put(payment.getId(), state));
+        }
+        return states;
+    }
+
+    private Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, GoCardlessEvent> getLatestApplicableGoCardlessEvents(List<Payment> payments) {
+        List<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds = payments.stream()
+                .map(this::getGoCardlessPaymentIdAndOrganisationId)
                 .flatMap(Optional::stream)
-                .max(Comparator.comparing(Event::getTimestamp))
-                .flatMap(this::mapEventToState);
+                .distinct()
+                .collect(toList());
+
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return goCardlessEventDao.findLatestApplicableEventsForPayments(
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new))
+                .stream()
+                .collect(toMap(event -> Pair.of(event.getLinksPayment().orElseThrow(), event.getLinksOrganisation()), identity()));
     }
 
-    private Optional<GoCardlessEvent> getLatestApplicableGoCardlessEvent(Payment payment) {
+    private Optional<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> getGoCardlessPaymentIdAndOrganisationId(Payment payment) {
         return payment.getProviderId()
-                .flatMap(providerId -> {
+                .map(providerId -> {
                     GoCardlessOrganisationId goCardlessOrganisationId = payment.getMandate().getGatewayAccount().getOrganisation()
                             .orElseThrow(() -> new GatewayAccountMissingOrganisationIdException(payment.getMandate().getGatewayAccount()));
 
-                    return goCardlessEventDao.findLatestApplicableEventForPayment(
-                            (GoCardlessPaymentId) providerId,
-                            goCardlessOrganisationId,
-                            GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE);
+                    return Pair.of((GoCardlessPaymentId) providerId, goCardlessOrganisationId);
                 });
     }
 
+    private Optional<DirectDebitStateWithDetails<PaymentState>> calculateFromLatestEvents(Optional<GoCardlessEvent> latestApplicableGoCardlessEvent,
+                                                                                          Optional<GovUkPayEvent> latestApplicableGovUkPayEvent) {
+        return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                .flatMap(Optional::stream)
+                .max(Comparator.comparing(Event::getTimestamp))
+                .flatMap(this::mapEventToState);
+    }
+
     private Optional<DirectDebitStateWithDetails<PaymentState>> mapEventToState(Event event) {
         if (event instanceof GoCardlessEvent) {
             return mapGoCardlessEventToPaymentState((GoCardlessEvent) event);
@@ -8,12 +8,17 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static uk.gov.pay.directdebit.payments.model.PaymentState.FAILED;
 import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
 
 public class SandboxEventToPaymentStateMapper {
-    private static final Map<String, PaymentState> SANDBOX_ACTION_TO_PAYMENT_STATE = Map.of("PAID_OUT", PAID_OUT);
+    // keys added here must also be backfilled into latest_sandbox_payment_events by a migration, see LatestApplicableEventsMigrationTest
+    private static final Map<String, PaymentState> SANDBOX_ACTION_TO_PAYMENT_STATE = Map.of(
+            "PAID_OUT", PAID_OUT,
+            "FAILED", FAILED
+    );
 
-    static final Set<String> SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE = SANDBOX_ACTION_TO_PAYMENT_STATE.keySet();
+    public static final Set<String> SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE = SANDBOX_ACTION_TO_PAYMENT_STATE.keySet();
 
     public static Optional<DirectDebitStateWithDetails<PaymentState>> mapSandboxEventToPaymentState(SandboxEvent sandboxEvent) {
         return Optional.ofNullable(SANDBOX_ACTION_TO_PAYMENT_STATE.get(sandboxEvent.getEventAction()))
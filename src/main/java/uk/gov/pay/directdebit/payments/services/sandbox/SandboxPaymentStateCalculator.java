@@ -17,9 +17,7 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
-import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
 import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.mapGovUkPayEventToPaymentState;
-import static uk.gov.pay.directdebit.payments.services.sandbox.SandboxEventToPaymentStateMapper.SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
 import static uk.gov.pay.directdebit.payments.services.sandbox.SandboxEventToPaymentStateMapper.mapSandboxEventToPaymentState;
 
 public class SandboxPaymentStateCalculator implements PaymentStateCalculator {
@@ -38,7 +36,7 @@ public class SandboxPaymentStateCalculator implements PaymentStateCalculator {
         Optional<SandboxEvent> latestApplicableSandboxEvent = getLatestApplicableSandboxEvent(payment);
 
         Optional<GovUkPayEvent> latestApplicableGovUkPayEvent
-                = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+                = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId());
 
         return Stream.of(latestApplicableSandboxEvent, latestApplicableGovUkPayEvent)
                 .flatMap(Optional::stream)
@@ -48,9 +46,7 @@ public class SandboxPaymentStateCalculator implements PaymentStateCalculator {
 
     private Optional<SandboxEvent> getLatestApplicableSandboxEvent(Payment payment) {
         return payment.getProviderId().flatMap(providerId ->
-                sandboxEventDao.findLatestApplicableEventForPayment(
-                        (SandboxPaymentId) providerId,
-                        SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE));
+                sandboxEventDao.findLatestApplicableEventForPayment((SandboxPaymentId) providerId));
     }
 
     private Optional<DirectDebitStateWithDetails<PaymentState>> mapEventToState(Event event) {
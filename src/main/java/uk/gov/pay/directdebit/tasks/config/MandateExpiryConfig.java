@@ -0,0 +1,45 @@
+package uk.gov.pay.directdebit.tasks.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class MandateExpiryConfig extends Configuration {
+
+    // if true, expired mandates are swept up periodically as well as when the expiry task endpoint is called
+    @JsonProperty
+    private boolean scheduled = true;
+
+    @JsonProperty
+    @NotNull
+    private Duration interval = Duration.minutes(5);
+
+    // the number of mandates expired in each transaction
+    @JsonProperty
+    @Min(1)
+    private int chunkSize = 500;
+
+    // the number of chunks expired at the same time in each run
+    @JsonProperty
+    @Min(1)
+    private int threads = 4;
+
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+}
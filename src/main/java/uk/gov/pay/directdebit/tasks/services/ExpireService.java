@@ -1,49 +1,121 @@
 package uk.gov.pay.directdebit.tasks.services;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventStateGraph;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
-import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
-import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.dao.MandateExpiryDao;
+import uk.gov.pay.directdebit.mandate.model.MandateIdAndExternalId;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
-import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.tasks.config.MandateExpiryConfig;
 
-import javax.inject.Inject;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import static java.util.stream.Collectors.joining;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.AWAITING_DIRECT_DEBIT_DETAILS;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.USER_SETUP_EXPIRED;
 
+/**
+ * Expires mandates that the payer has not finished setting up. Mandates are expired in chunks by several workers at
+ * once; each chunk is locked, given its expiry events and states in a single statement, without loading the mandates.
+ * Locked mandates are skipped, so runs on different nodes never expire the same mandate.
+ */
 public class ExpireService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ExpireService.class);
 
-    private final MandateQueryService mandateQueryService;
-    private final GovUkPayEventService govUkPayEventService;
-
     private static final long MIN_EXPIRY_AGE_MINUTES = 90L;
     private static final Set<MandateState> EXPIRABLE_STATES = Set.of(MandateState.CREATED, AWAITING_DIRECT_DEBIT_DETAILS);
 
-    @Inject
-    ExpireService(MandateQueryService mandateQueryService,
-                  GovUkPayEventService govUkPayEventService) {
-        this.mandateQueryService = mandateQueryService;
-        this.govUkPayEventService = govUkPayEventService;
+    private final MandateExpiryDao mandateExpiryDao;
+    private final Set<GovUkPayEventType> eventTypesThatCanBeExpired;
+    private final MandateExpiryConfig mandateExpiryConfig;
+    private final ExecutorService expiryExecutorService;
+    private final MetricRegistry metricRegistry;
+
+    public ExpireService(MandateExpiryDao mandateExpiryDao,
+                         GovUkPayEventStateGraph govUkPayEventStateGraph,
+                         MandateExpiryConfig mandateExpiryConfig,
+                         ExecutorService expiryExecutorService,
+                         MetricRegistry metricRegistry) {
+        this.mandateExpiryDao = mandateExpiryDao;
+        this.eventTypesThatCanBeExpired = govUkPayEventStateGraph.getEventTypesThatCanBeFollowedBy(MANDATE_USER_SETUP_EXPIRED);
+        this.mandateExpiryConfig = mandateExpiryConfig;
+        this.expiryExecutorService = expiryExecutorService;
+        this.metricRegistry = metricRegistry;
     }
 
     public int expireMandates() {
         LOGGER.info("Starting expire mandates process.");
-        List<Mandate> mandatesToExpire = getMandatesForExpiration();
-        for (Mandate mandate : mandatesToExpire) {
-            govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
-            LOGGER.info("Expired mandate " + mandate.getId());
+        ZonedDateTime cutOffTime = ZonedDateTime.now().minusMinutes(MIN_EXPIRY_AGE_MINUTES);
+
+        try (Timer.Context ignored = metricRegistry.timer("mandate-expiry.run").time()) {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int i = 0; i < mandateExpiryConfig.getThreads(); i++) {
+                workers.add(expiryExecutorService.submit(() -> expireChunks(cutOffTime)));
+            }
+
+            int numberOfExpiredMandates = 0;
+            RuntimeException failure = null;
+            for (Future<Integer> worker : workers) {
+                try {
+                    numberOfExpiredMandates += worker.get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Failed to expire mandates", e.getCause());
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException("Mandate expiry failed unexpectedly", e.getCause());
+                }
+            }
+
+            metricRegistry.histogram("mandate-expiry.expired-per-run").update(numberOfExpiredMandates);
+            LOGGER.info("Expired {} mandates", numberOfExpiredMandates);
+            if (failure != null) {
+                metricRegistry.meter("mandate-expiry.failures").mark();
+                throw failure;
+            }
+            return numberOfExpiredMandates;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for mandates to be expired", e);
         }
-        return mandatesToExpire.size();
     }
 
-    private List<Mandate> getMandatesForExpiration() {
-        ZonedDateTime cutOffTime = ZonedDateTime.now().minusMinutes(MIN_EXPIRY_AGE_MINUTES);
-        return mandateQueryService.findAllMandatesBySetOfStatesAndMaxCreationTime(EXPIRABLE_STATES, cutOffTime);
+    public void expireMandatesOnSchedule() {
+        try {
+            expireMandates();
+        } catch (Exception e) {
+            LOGGER.error("Scheduled mandate expiry failed", e);
+        }
+    }
+
+    private int expireChunks(ZonedDateTime cutOffTime) {
+        int numberOfExpiredMandates = 0;
+        long afterId = 0L;
+        List<MandateIdAndExternalId> expiredMandates;
+        do {
+            expiredMandates = mandateExpiryDao.expireNextChunk(EXPIRABLE_STATES, eventTypesThatCanBeExpired, cutOffTime,
+                    afterId, mandateExpiryConfig.getChunkSize(), MANDATE_USER_SETUP_EXPIRED, USER_SETUP_EXPIRED);
+            if (!expiredMandates.isEmpty()) {
+                afterId = expiredMandates.get(expiredMandates.size() - 1).getId();
+                numberOfExpiredMandates += expiredMandates.size();
+                metricRegistry.meter("mandate-expiry.expired").mark(expiredMandates.size());
+                LOGGER.info("Expired mandates " + expiredMandates.stream()
+                        .map(MandateIdAndExternalId::getExternalId)
+                        .map(MandateExternalId::toString)
+                        .collect(joining(", ")));
+            }
+        } while (expiredMandates.size() == mandateExpiryConfig.getChunkSize());
+        return numberOfExpiredMandates;
     }
 }
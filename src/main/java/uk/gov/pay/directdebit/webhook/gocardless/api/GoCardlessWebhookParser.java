@@ -1,5 +1,7 @@
 package uk.gov.pay.directdebit.webhook.gocardless.api;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -14,11 +16,13 @@ import uk.gov.pay.directdebit.events.model.GoCardlessResourceType;
 import uk.gov.pay.directdebit.webhook.gocardless.exception.WebhookParserException;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.GoCardlessEventBuilder.aGoCardlessEvent;
 
 public class GoCardlessWebhookParser {
@@ -33,83 +37,138 @@ public class GoCardlessWebhookParser {
 
     public List<GoCardlessEvent> parse(String webhookPayload) {
         try {
-            List<GoCardlessEvent> events = new ArrayList<>();
-            JsonNode webhookJson = objectMapper.readTree(webhookPayload);
-            JsonNode eventsPayload = webhookJson.get("events");
-            for (JsonNode eventNode : eventsPayload) {
-                JsonNode detailsNode = eventNode.get("details");
-                JsonNode linksNode = eventNode.get("links");
-                GoCardlessEventBuilder goCardlessEventBuilder = aGoCardlessEvent()
-                        .withGoCardlessEventId(GoCardlessEventId.valueOf(eventNode.get("id").asText()))
-                        .withAction(eventNode.get("action").asText())
-                        .withJson(eventNode.toString())
-                        .withCreatedAt(ZonedDateTime.parse(eventNode.get("created_at").asText()))
-                        .withLinksOrganisation(GoCardlessOrganisationId.valueOf(linksNode.get("organisation").asText()));
-
-                if (detailsNode.has("cause")) {
-                    goCardlessEventBuilder.withDetailsCause(detailsNode.get("cause").asText());
-                }
-                if (detailsNode.has("description")) {
-                    goCardlessEventBuilder.withDetailsDescription(detailsNode.get("description").asText());
-                }
-                if (detailsNode.has("origin")) {
-                    goCardlessEventBuilder.withDetailsOrigin(detailsNode.get("origin").asText());
-                }
-                if (detailsNode.has("reason_code")) {
-                    goCardlessEventBuilder.withDetailsReasonCode(detailsNode.get("reason_code").asText());
-                }
-                if (detailsNode.has("scheme")) {
-                    goCardlessEventBuilder.withDetailsScheme(detailsNode.get("scheme").asText());
+            return parse(webhookPayload.getBytes(UTF_8));
+        } catch (Exception exc) {
+            throw new WebhookParserException("Failed to parse webhooks, body: " + webhookPayload);
+        }
+    }
 
+    /**
+     * Reads the webhook one event at a time, so only the event being parsed is held as a tree.
+     * The json stored for each event is its raw bytes from the payload rather than a re-serialised copy.
+     */
+    public List<GoCardlessEvent> parse(byte[] webhookPayload) {
+        try (JsonParser jsonParser = objectMapper.getFactory().createParser(webhookPayload)) {
+            return parse(jsonParser, webhookPayload);
+        } catch (IOException exc) {
+            throw new WebhookParserException("Failed to parse webhooks: " + exc.getMessage());
+        }
+    }
+
+    private List<GoCardlessEvent> parse(JsonParser jsonParser, byte[] webhookPayload) {
+        try {
+            if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+                throw new WebhookParserException("Failed to parse webhooks, expected a JSON object");
+            }
+
+            List<GoCardlessEvent> events = null;
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                JsonToken valueToken = jsonParser.nextToken();
+                if ("events".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    events = parseEvents(jsonParser, webhookPayload);
+                } else {
+                    jsonParser.skipChildren();
                 }
-                if (linksNode.has("mandate")) {
-                    goCardlessEventBuilder.withLinksMandate(GoCardlessMandateId.valueOf(linksNode.get("mandate").asText()));
-                }
-                if (linksNode.has("new_customer_bank_account")) {
-                    goCardlessEventBuilder
-                            .withLinksNewCustomerBankAccount(linksNode.get("new_customer_bank_account").asText());
-                }
-                if (linksNode.has("new_mandate")) {
-                    goCardlessEventBuilder.withLinksNewMandate(GoCardlessMandateId.valueOf(linksNode.get("new_mandate").asText()));
-                }
-                if (linksNode.has("parent_event")) {
-                    goCardlessEventBuilder.withLinksParentEvent(linksNode.get("parent_event").asText());
-                }
-                if (linksNode.has("payment")) {
-                    goCardlessEventBuilder.withLinksPayment(GoCardlessPaymentId.valueOf(linksNode.get("payment").asText()));
-                }
-                if (linksNode.has("payout")) {
-                    goCardlessEventBuilder.withLinksPayout(linksNode.get("payout").asText());
-                }
-                if (linksNode.has("previous_customer_bank_account")) {
-                    goCardlessEventBuilder
-                            .withLinksPreviousCustomerBankAccount(
-                                    linksNode.get("previous_customer_bank_account").asText());
-                }
-                if (linksNode.has("refund")) {
-                    goCardlessEventBuilder.withLinksRefund(linksNode.get("refund").asText());
-                }
-                if (linksNode.has("subscription")) {
-                    goCardlessEventBuilder.withLinksSubscription(linksNode.get("subscription").asText());
-                }
-                
-                GoCardlessResourceType handledGoCardlessResourceType =
-                        GoCardlessResourceType.fromString(eventNode.get("resource_type").asText());
-                goCardlessEventBuilder.withResourceType(handledGoCardlessResourceType);
-                extractResourceIdFrom(eventNode, handledGoCardlessResourceType)
-                        .ifPresent(goCardlessEventBuilder::withResourceId);
-                GoCardlessEvent event = goCardlessEventBuilder.build();
-                events.add(event);
-                
-                LOGGER.info("Successfully parsed gocardless webhook, event resource type: {}, action: {}, resource id {}",
-                        event.getResourceType(),
-                        event.getAction(),
-                        event.getResourceId());
+            }
+
+            if (events == null) {
+                throw new WebhookParserException("Failed to parse webhooks, no events found");
             }
             return events;
+        } catch (WebhookParserException exc) {
+            throw exc;
         } catch (Exception exc) {
-            throw new WebhookParserException("Failed to parse webhooks, body: " + webhookPayload);
+            throw new WebhookParserException("Failed to parse webhooks: " + exc.getMessage());
+        }
+    }
+
+    private List<GoCardlessEvent> parseEvents(JsonParser jsonParser, byte[] webhookPayload) throws IOException {
+        List<GoCardlessEvent> events = new ArrayList<>();
+        while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+            long eventStartOffset = jsonParser.getTokenLocation().getByteOffset();
+
+            JsonNode eventNode = objectMapper.readTree(jsonParser);
+
+            long eventEndOffset = jsonParser.getCurrentLocation().getByteOffset();
+            String json = eventStartOffset >= 0 && eventEndOffset >= 0
+                    ? new String(webhookPayload, (int) eventStartOffset, (int) (eventEndOffset - eventStartOffset), UTF_8)
+                    : eventNode.toString();
+
+            GoCardlessEvent event = toGoCardlessEvent(eventNode, json);
+            events.add(event);
+
+            LOGGER.info("Successfully parsed gocardless webhook, event resource type: {}, action: {}, resource id {}",
+                    event.getResourceType(),
+                    event.getAction(),
+                    event.getResourceId());
+        }
+        return events;
+    }
+
+    private GoCardlessEvent toGoCardlessEvent(JsonNode eventNode, String json) {
+        JsonNode detailsNode = eventNode.get("details");
+        JsonNode linksNode = eventNode.get("links");
+        GoCardlessEventBuilder goCardlessEventBuilder = aGoCardlessEvent()
+                .withGoCardlessEventId(GoCardlessEventId.valueOf(eventNode.get("id").asText()))
+                .withAction(eventNode.get("action").asText())
+                .withJson(json)
+                .withCreatedAt(ZonedDateTime.parse(eventNode.get("created_at").asText()))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf(linksNode.get("organisation").asText()));
+
+        if (detailsNode.has("cause")) {
+            goCardlessEventBuilder.withDetailsCause(detailsNode.get("cause").asText());
+        }
+        if (detailsNode.has("description")) {
+            goCardlessEventBuilder.withDetailsDescription(detailsNode.get("description").asText());
+        }
+        if (detailsNode.has("origin")) {
+            goCardlessEventBuilder.withDetailsOrigin(detailsNode.get("origin").asText());
+        }
+        if (detailsNode.has("reason_code")) {
+            goCardlessEventBuilder.withDetailsReasonCode(detailsNode.get("reason_code").asText());
+        }
+        if (detailsNode.has("scheme")) {
+            goCardlessEventBuilder.withDetailsScheme(detailsNode.get("scheme").asText());
+
+        }
+        if (linksNode.has("mandate")) {
+            goCardlessEventBuilder.withLinksMandate(GoCardlessMandateId.valueOf(linksNode.get("mandate").asText()));
+        }
+        if (linksNode.has("new_customer_bank_account")) {
+            goCardlessEventBuilder
+                    .withLinksNewCustomerBankAccount(linksNode.get("new_customer_bank_account").asText());
+        }
+        if (linksNode.has("new_mandate")) {
+            goCardlessEventBuilder.withLinksNewMandate(GoCardlessMandateId.valueOf(linksNode.get("new_mandate").asText()));
+        }
+        if (linksNode.has("parent_event")) {
+            goCardlessEventBuilder.withLinksParentEvent(linksNode.get("parent_event").asText());
+        }
+        if (linksNode.has("payment")) {
+            goCardlessEventBuilder.withLinksPayment(GoCardlessPaymentId.valueOf(linksNode.get("payment").asText()));
+        }
+        if (linksNode.has("payout")) {
+            goCardlessEventBuilder.withLinksPayout(linksNode.get("payout").asText());
+        }
+        if (linksNode.has("previous_customer_bank_account")) {
+            goCardlessEventBuilder
+                    .withLinksPreviousCustomerBankAccount(
+                            linksNode.get("previous_customer_bank_account").asText());
+        }
+        if (linksNode.has("refund")) {
+            goCardlessEventBuilder.withLinksRefund(linksNode.get("refund").asText());
+        }
+        if (linksNode.has("subscription")) {
+            goCardlessEventBuilder.withLinksSubscription(linksNode.get("subscription").asText());
         }
+        
+        GoCardlessResourceType handledGoCardlessResourceType =
+                GoCardlessResourceType.fromString(eventNode.get("resource_type").asText());
+        goCardlessEventBuilder.withResourceType(handledGoCardlessResourceType);
+        extractResourceIdFrom(eventNode, handledGoCardlessResourceType)
+                .ifPresent(goCardlessEventBuilder::withResourceId);
+        return goCardlessEventBuilder.build();
     }
 
     private Optional<String> extractResourceIdFrom(JsonNode jsonNode, GoCardlessResourceType goCardlessResourceType) {
@@ -0,0 +1,29 @@
+package uk.gov.pay.directdebit.webhook.gocardless.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class GoCardlessClientCacheConfig extends Configuration {
+
+    // the maximum number of access tokens to keep a GoCardless client for; the least recently used is evicted first
+    @JsonProperty
+    @Min(1)
+    private long maximumSize = 500;
+
+    // a client that has not been used for this long is evicted, so rotated access tokens do not keep theirs forever
+    @JsonProperty
+    @NotNull
+    private Duration expireAfterAccess = Duration.hours(1);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+}
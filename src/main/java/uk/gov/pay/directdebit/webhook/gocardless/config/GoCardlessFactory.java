@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.gocardless.GoCardlessClient;
 import io.dropwizard.Configuration;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 public class GoCardlessFactory extends Configuration {
@@ -19,6 +20,16 @@ public class GoCardlessFactory extends Configuration {
     @NotNull
     private GoCardlessClient.Environment environment;
 
+    @Valid
+    @NotNull
+    @JsonProperty("requests")
+    private GoCardlessRequestConfig requestConfig = new GoCardlessRequestConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("clients")
+    private GoCardlessClientCacheConfig clientCacheConfig = new GoCardlessClientCacheConfig();
+
     public Boolean isCallingStubs() {
         return clientUrl != null;
     }
@@ -35,4 +46,12 @@ public class GoCardlessFactory extends Configuration {
         return environment;
     }
 
+    public GoCardlessRequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    public GoCardlessClientCacheConfig getClientCacheConfig() {
+        return clientCacheConfig;
+    }
+
 }
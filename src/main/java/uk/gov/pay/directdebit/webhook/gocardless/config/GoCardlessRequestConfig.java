@@ -0,0 +1,66 @@
+package uk.gov.pay.directdebit.webhook.gocardless.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class GoCardlessRequestConfig extends Configuration {
+
+    // GoCardless allows 1000 requests a minute for each organisation, so stay a little below that for each access token
+    @JsonProperty
+    @DecimalMin("0.1")
+    private double requestsPerSecondPerAccessToken = 15;
+
+    // the maximum number of requests in flight to GoCardless at the same time, across all access tokens
+    @JsonProperty
+    @Min(1)
+    private int maxConcurrentRequests = 20;
+
+    // how long a request waits for one of those slots before it fails
+    @JsonProperty
+    @NotNull
+    private Duration concurrentRequestTimeout = Duration.seconds(10);
+
+    // rate limited (429) requests are tried this many times in total; the SDK itself retries server errors (5xx) and
+    // network failures three times, 500ms apart, for requests that are safe to resend
+    @JsonProperty
+    @Min(1)
+    private int maxAttempts = 3;
+
+    // retries wait a random time up to this delay, doubled after each further failure up to maxBackoff
+    @JsonProperty
+    @NotNull
+    private Duration initialBackoff = Duration.milliseconds(200);
+
+    @JsonProperty
+    @NotNull
+    private Duration maxBackoff = Duration.seconds(5);
+
+    public double getRequestsPerSecondPerAccessToken() {
+        return requestsPerSecondPerAccessToken;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public Duration getConcurrentRequestTimeout() {
+        return concurrentRequestTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.pay.directdebit.webhook.gocardless.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class WebhookProcessingConfig extends Configuration {
+
+    // if true, the webhook resource only stores and enqueues the events; state updates and emails are done by the queue workers
+    @JsonProperty
+    private boolean asynchronous = false;
+
+    // the queue workers also handle events the webhook resource failed to handle synchronously; 0 disables them
+    @JsonProperty
+    @Min(0)
+    private int workerThreads = 2;
+
+    @JsonProperty
+    @Min(1)
+    private int batchSize = 50;
+
+    // events that fail this many times stay in the queue but are no longer claimed
+    @JsonProperty
+    @Min(1)
+    private int maxAttempts = 5;
+
+    @JsonProperty
+    @NotNull
+    private Duration pollInterval = Duration.seconds(1);
+
+    // how long a worker has to process a claimed batch before it is made available to other workers again
+    @JsonProperty
+    @NotNull
+    private Duration claimTimeout = Duration.minutes(5);
+
+    // the most mandates or payments whose events are handled at the same time, across all webhooks and workers; each
+    // needs its own database connection, so no more than half of the database pool is ever used
+    @JsonProperty
+    @Min(1)
+    private int maxParallelism = 4;
+
+    // with no workers, events enqueued by an asynchronous webhook resource would never be processed
+    @JsonIgnore
+    @AssertTrue(message = "workerThreads must be at least 1 when asynchronous is true")
+    public boolean isWorkerThreadsSetWhenAsynchronous() {
+        return !asynchronous || workerThreads > 0;
+    }
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public Duration getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+}
@@ -35,7 +35,7 @@ public class WebhookGoCardlessResource {
     @POST
     @Timed
     public Response handleWebhook(@HeaderParam("Webhook-Signature") String webhookSignature,
-                                  String body) {
+                                  byte[] body) {
         goCardlessWebhookVerifier.verify(body, webhookSignature);
         List<GoCardlessEvent> events = goCardlessWebhookParser.parse(body);
         LOGGER.info("Received valid webhook from GoCardless, containing {} events", events.size());
@@ -0,0 +1,120 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.commons.lang3.tuple.Triple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessResourceType;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Splits a batch of GoCardless events into partitions, one for each mandate or payment in each organisation, and
+ * handles the partitions in parallel. The events in a partition are handled together, in the order GoCardless created
+ * them, so events for the same mandate or payment are never handled out of order or at the same time as each other.
+ * Events for other resources are partitioned by organisation and resource type.
+ */
+public class GoCardlessEventPartitioner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessEventPartitioner.class);
+    private static final String METRICS_PREFIX = "gocardless-event-partitions";
+
+    private static final Comparator<GoCardlessEvent> CREATION_ORDER =
+            Comparator.comparing(GoCardlessEvent::getCreatedAt, nullsLast(naturalOrder()))
+                    .thenComparing(GoCardlessEvent::getId, nullsLast(naturalOrder()));
+
+    private final ExecutorService partitionExecutorService;
+    private final Timer partitionProcessingTimer;
+    private final Histogram partitionsPerBatchHistogram;
+
+    public GoCardlessEventPartitioner(ExecutorService partitionExecutorService, MetricRegistry metricRegistry) {
+        this.partitionExecutorService = partitionExecutorService;
+        this.partitionProcessingTimer = metricRegistry.timer(METRICS_PREFIX + ".partition-processing");
+        this.partitionsPerBatchHistogram = metricRegistry.histogram(METRICS_PREFIX + ".partitions-per-batch");
+    }
+
+    /**
+     * Passes each partition of the events to partitionHandler and waits for them all to be handled. If any partition
+     * fails, the others are still handled and the first failure is then thrown.
+     */
+    public void handleInPartitions(List<GoCardlessEvent> events, Consumer<List<GoCardlessEvent>> partitionHandler) {
+        Collection<List<GoCardlessEvent>> partitions = partition(events);
+        partitionsPerBatchHistogram.update(partitions.size());
+
+        if (partitions.size() == 1) {
+            handlePartition(partitions.iterator().next(), partitionHandler);
+            return;
+        }
+
+        List<Future<?>> handledPartitions = new ArrayList<>();
+        for (List<GoCardlessEvent> partition : partitions) {
+            handledPartitions.add(partitionExecutorService.submit(() -> handlePartition(partition, partitionHandler)));
+        }
+
+        RuntimeException failure = null;
+        for (Future<?> handledPartition : handledPartitions) {
+            try {
+                handledPartition.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Failed to handle a partition of GoCardless events", e.getCause());
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException("Handling GoCardless events failed unexpectedly", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for GoCardless events to be handled", e);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static Collection<List<GoCardlessEvent>> partition(List<GoCardlessEvent> events) {
+        return events.stream()
+                .sorted(CREATION_ORDER)
+                .collect(groupingBy(GoCardlessEventPartitioner::partitionKey, LinkedHashMap::new, toList()))
+                .values();
+    }
+
+    private static Triple<GoCardlessOrganisationId, GoCardlessResourceType, Object> partitionKey(GoCardlessEvent event) {
+        Object resourceId;
+        switch (event.getResourceType()) {
+            case MANDATES:
+                resourceId = event.getLinksMandate().orElse(null);
+                break;
+            case PAYMENTS:
+                resourceId = event.getLinksPayment().orElse(null);
+                break;
+            default:
+                resourceId = null;
+        }
+        return Triple.of(event.getLinksOrganisation(), event.getResourceType(), resourceId);
+    }
+
+    private void handlePartition(List<GoCardlessEvent> partition, Consumer<List<GoCardlessEvent>> partitionHandler) {
+        try (Timer.Context ignored = partitionProcessingTimer.time()) {
+            partitionHandler.accept(partition);
+        }
+    }
+}
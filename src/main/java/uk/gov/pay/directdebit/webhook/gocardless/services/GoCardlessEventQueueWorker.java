@@ -0,0 +1,133 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.events.dao.GoCardlessEventQueueDao;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+public class GoCardlessEventQueueWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessEventQueueWorker.class);
+    private static final String METRICS_PREFIX = "gocardless-event-queue";
+    private static final long GAUGE_CACHE_SECONDS = 5;
+
+    private final GoCardlessEventQueueDao goCardlessEventQueueDao;
+    private final GoCardlessEventService goCardlessEventService;
+    private final WebhookGoCardlessService webhookGoCardlessService;
+    private final WebhookProcessingConfig webhookProcessingConfig;
+    private final GoCardlessEventPartitioner goCardlessEventPartitioner;
+    private final Timer batchProcessingTimer;
+    private final Meter failedEventsMeter;
+
+    @Inject
+    GoCardlessEventQueueWorker(GoCardlessEventQueueDao goCardlessEventQueueDao,
+                               GoCardlessEventService goCardlessEventService,
+                               WebhookGoCardlessService webhookGoCardlessService,
+                               WebhookProcessingConfig webhookProcessingConfig,
+                               GoCardlessEventPartitioner goCardlessEventPartitioner,
+                               MetricRegistry metricRegistry) {
+        this.goCardlessEventQueueDao = goCardlessEventQueueDao;
+        this.goCardlessEventService = goCardlessEventService;
+        this.webhookGoCardlessService = webhookGoCardlessService;
+        this.webhookProcessingConfig = webhookProcessingConfig;
+        this.goCardlessEventPartitioner = goCardlessEventPartitioner;
+        this.batchProcessingTimer = metricRegistry.timer(METRICS_PREFIX + ".batch-processing");
+        this.failedEventsMeter = metricRegistry.meter(METRICS_PREFIX + ".failed-events");
+        registerQueueGauges(metricRegistry);
+    }
+
+    public void processQueuedEvents() {
+        try {
+            List<Long> claimedEventIds;
+            do {
+                claimedEventIds = goCardlessEventQueueDao.claim(
+                        webhookProcessingConfig.getBatchSize(),
+                        webhookProcessingConfig.getClaimTimeout().toSeconds(),
+                        webhookProcessingConfig.getMaxAttempts());
+                if (!claimedEventIds.isEmpty()) {
+                    processClaimedEvents(claimedEventIds);
+                }
+            } while (claimedEventIds.size() == webhookProcessingConfig.getBatchSize());
+        } catch (RuntimeException e) {
+            // an exception escaping a scheduled task would stop it being scheduled again
+            LOGGER.error("Failed to process queued GoCardless events", e);
+        }
+    }
+
+    private void processClaimedEvents(List<Long> claimedEventIds) {
+        List<GoCardlessEvent> events = goCardlessEventService.findEvents(claimedEventIds);
+        try (Timer.Context ignored = batchProcessingTimer.time()) {
+            goCardlessEventPartitioner.handleInPartitions(events, this::processClaimedPartition);
+        }
+    }
+
+    private void processClaimedPartition(List<GoCardlessEvent> events) {
+        try {
+            webhookGoCardlessService.handleStoredEvents(events);
+            goCardlessEventQueueDao.remove(events.stream().map(GoCardlessEvent::getId).collect(toList()));
+        } catch (RuntimeException e) {
+            LOGGER.warn(format("Failed to process a partition of %d queued GoCardless events, processing them one at a time", events.size()), e);
+            processClaimedEventsInOrder(events);
+        }
+    }
+
+    /**
+     * Stops at the first event that fails, leaving it and every later event for the same mandate or payment claimed, so
+     * they are retried in the order they were created once the claim expires.
+     */
+    private void processClaimedEventsInOrder(List<GoCardlessEvent> events) {
+        for (GoCardlessEvent event : events) {
+            if (!processClaimedEvent(event)) {
+                return;
+            }
+        }
+    }
+
+    private boolean processClaimedEvent(GoCardlessEvent event) {
+        try {
+            webhookGoCardlessService.handleStoredEvents(List.of(event));
+            goCardlessEventQueueDao.remove(List.of(event.getId()));
+            return true;
+        } catch (RuntimeException e) {
+            failedEventsMeter.mark();
+            LOGGER.error(format("Failed to process queued GoCardless event %s, it and any later events for the same resource " +
+                    "will be retried once their claim expires", event.getGoCardlessEventId()), e);
+            return false;
+        }
+    }
+
+    private void registerQueueGauges(MetricRegistry metricRegistry) {
+        int maxAttempts = webhookProcessingConfig.getMaxAttempts();
+        metricRegistry.register(METRICS_PREFIX + ".depth", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return goCardlessEventQueueDao.countQueuedEvents(maxAttempts);
+            }
+        });
+        metricRegistry.register(METRICS_PREFIX + ".lag-in-milliseconds", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return goCardlessEventQueueDao.findLagInMilliseconds(maxAttempts);
+            }
+        });
+        metricRegistry.register(METRICS_PREFIX + ".exhausted", new CachedGauge<Long>(GAUGE_CACHE_SECONDS, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return goCardlessEventQueueDao.countExhaustedEvents(maxAttempts);
+            }
+        });
+    }
+}
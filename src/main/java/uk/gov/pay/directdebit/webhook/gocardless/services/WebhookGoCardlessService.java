@@ -3,28 +3,36 @@ package uk.gov.pay.directdebit.webhook.gocardless.services;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.dao.Transactional;
+import uk.gov.pay.directdebit.events.dao.GoCardlessEventQueueDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
-import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
 import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
 import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.model.PaymentProviderPaymentId;
 import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
 import uk.gov.pay.directdebit.payments.services.PaymentStateUpdater;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
 import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.SendEmailsForGoCardlessEventsHandler;
 import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.UnhandledGoCardlessEventsLogger;
 
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.MANDATES;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.PAYMENTS;
 
@@ -39,15 +47,23 @@ public class WebhookGoCardlessService {
     private final PaymentQueryService paymentQueryService;
     private final SendEmailsForGoCardlessEventsHandler sendEmailsForGoCardlessEventsHandler;
     private final UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger;
+    private final WebhookProcessingConfig webhookProcessingConfig;
+    private final GoCardlessEventPartitioner goCardlessEventPartitioner;
+    private final GoCardlessEventQueueDao goCardlessEventQueueDao;
+    private final EmailOutboxConfig emailOutboxConfig;
 
     @Inject
-    WebhookGoCardlessService(GoCardlessEventService goCardlessService,
-                             MandateStateUpdater mandateStateUpdater,
-                             PaymentStateUpdater paymentStateUpdater,
-                             MandateQueryService mandateQueryService,
-                             PaymentQueryService paymentQueryService,
-                             SendEmailsForGoCardlessEventsHandler sendEmailsForGoCardlessEventsHandler,
-                             UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger) {
+    public WebhookGoCardlessService(GoCardlessEventService goCardlessService,
+                                    MandateStateUpdater mandateStateUpdater,
+                                    PaymentStateUpdater paymentStateUpdater,
+                                    MandateQueryService mandateQueryService,
+                                    PaymentQueryService paymentQueryService,
+                                    SendEmailsForGoCardlessEventsHandler sendEmailsForGoCardlessEventsHandler,
+                                    UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger,
+                                    WebhookProcessingConfig webhookProcessingConfig,
+                                    GoCardlessEventPartitioner goCardlessEventPartitioner,
+                                    GoCardlessEventQueueDao goCardlessEventQueueDao,
+                                    EmailOutboxConfig emailOutboxConfig) {
         this.goCardlessService = goCardlessService;
         this.sendEmailsForGoCardlessEventsHandler = sendEmailsForGoCardlessEventsHandler;
         this.mandateStateUpdater = mandateStateUpdater;
@@ -55,12 +71,53 @@ public class WebhookGoCardlessService {
         this.mandateQueryService = mandateQueryService;
         this.paymentQueryService = paymentQueryService;
         this.unhandledGoCardlessEventsLogger = unhandledGoCardlessEventsLogger;
+        this.webhookProcessingConfig = webhookProcessingConfig;
+        this.goCardlessEventPartitioner = goCardlessEventPartitioner;
+        this.goCardlessEventQueueDao = goCardlessEventQueueDao;
+        this.emailOutboxConfig = emailOutboxConfig;
     }
 
+    /**
+     * The events are stored and enqueued in one transaction before any of them are handled, so that they are visible to
+     * the partitions handling them on other threads. When processing synchronously they are enqueued already claimed
+     * and each partition is removed from the queue once it has been handled; a partition that fails stays in the queue
+     * and is handled by the queue workers when its claim expires, as GoCardless resending the events would only find
+     * duplicates.
+     */
     public void processEvents(List<GoCardlessEvent> events) {
-        goCardlessService.storeEvents(events);
+        if (webhookProcessingConfig.isAsynchronous()) {
+            goCardlessService.storeAndEnqueueEvents(events);
+            return;
+        }
+        List<GoCardlessEvent> storedEvents = goCardlessService.storeAndClaimEvents(events, webhookProcessingConfig.getClaimTimeout());
+        goCardlessEventPartitioner.handleInPartitions(storedEvents, this::handleAndDequeueStoredEvents);
+    }
+
+    private void handleAndDequeueStoredEvents(List<GoCardlessEvent> events) {
+        handleStoredEvents(events);
+        goCardlessEventQueueDao.remove(events.stream().map(GoCardlessEvent::getId).collect(toList()));
+    }
+
+    /**
+     * Handles events as a single unit of work, then sends any emails that are not written to the email outbox once the
+     * unit of work has committed. The emails sent for GoCardless events do not include the SUN name, so neither
+     * adminusers nor GoCardless is called while the unit of work holds a database connection. Callers
+     * with events for several mandates or payments should pass them through {@link GoCardlessEventPartitioner} so that
+     * each mandate or payment is handled separately.
+     */
+    public void handleStoredEvents(List<GoCardlessEvent> events) {
+        updateStatesAndQueueEmails(events);
+        if (!emailOutboxConfig.isAsynchronous()) {
+            sendEmailsForGoCardlessEventsHandler.sendEmails(events);
+        }
+    }
+
+    @Transactional
+    public void updateStatesAndQueueEmails(List<GoCardlessEvent> events) {
         updateStatesForEvents(events);
-        sendEmailsForGoCardlessEventsHandler.sendEmails(events);
+        if (emailOutboxConfig.isAsynchronous()) {
+            sendEmailsForGoCardlessEventsHandler.sendEmails(events);
+        }
         unhandledGoCardlessEventsLogger.logUnhandledEvents(events);
     }
 
@@ -71,13 +128,31 @@ public class WebhookGoCardlessService {
     }
 
     private void updateStateForMandateEvents(List<GoCardlessEvent> eventsThatAffectMandates) {
-        eventsThatAffectMandates.stream()
+        List<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds = eventsThatAffectMandates.stream()
                 .map(this::toGoCardlessMandateIdAndOrganisationId)
                 .flatMap(Optional::stream)
                 .distinct()
-                .map(this::getMandate)
+                .collect(toList());
+
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return;
+        }
+
+        List<Mandate> mandates = mandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(goCardlessMandateIdsAndOrganisationIds);
+
+        Set<Pair<PaymentProviderMandateId, GoCardlessOrganisationId>> found = mandates.stream()
+                .map(mandate -> mandate.getPaymentProviderMandateId().flatMap(paymentProviderMandateId ->
+                        mandate.getGatewayAccount().getOrganisation().map(organisationId -> Pair.of(paymentProviderMandateId, organisationId))))
                 .flatMap(Optional::stream)
-                .forEach(mandateStateUpdater::updateStateIfNecessary);
+                .collect(toSet());
+        goCardlessMandateIdsAndOrganisationIds.stream()
+                .filter(goCardlessMandateIdAndOrganisationId -> !found.contains(goCardlessMandateIdAndOrganisationId))
+                .forEach(goCardlessMandateIdAndOrganisationId -> LOGGER.error(format(
+                        "Could not update status of GoCardless mandate %s for organisation %s because the mandate was not found",
+                        goCardlessMandateIdAndOrganisationId.getLeft(),
+                        goCardlessMandateIdAndOrganisationId.getRight())));
+
+        mandateStateUpdater.updateStatesIfNecessary(mandates);
     }
 
     private Optional<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> toGoCardlessMandateIdAndOrganisationId(GoCardlessEvent goCardlessEvent) {
@@ -90,32 +165,32 @@ public class WebhookGoCardlessService {
         return Optional.ofNullable(goCardlessMandateIdAndOrganisationId);
     }
 
-    private Optional<Mandate> getMandate(Pair<GoCardlessMandateId, GoCardlessOrganisationId> goCardlessMandateIdAndOrganisationId) {
-        GoCardlessMandateId goCardlessMandateId = goCardlessMandateIdAndOrganisationId.getLeft();
-        GoCardlessOrganisationId goCardlessOrganisationId = goCardlessMandateIdAndOrganisationId.getRight();
-        try {
-            Mandate mandate = mandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                    goCardlessMandateId,
-                    goCardlessOrganisationId);
-
-            return Optional.of(mandate);
-        } catch (MandateNotFoundException e) {
-            LOGGER.error(format("Could not update status of GoCardless mandate %s for organisation %s because the mandate was not found",
-                    goCardlessMandateId,
-                    goCardlessOrganisationId));
-        }
-
-        return Optional.empty();
-    }
-
     private void updateStateForPaymentEvents(List<GoCardlessEvent> eventsThatAffectPayments) {
-        eventsThatAffectPayments.stream()
+        List<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds = eventsThatAffectPayments.stream()
                 .map(this::toGoCardlessPaymentIdAndOrganisationId)
                 .flatMap(Optional::stream)
                 .distinct()
-                .map(this::getPayment)
+                .collect(toList());
+
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return;
+        }
+
+        List<Payment> payments = paymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(goCardlessPaymentIdsAndOrganisationIds);
+
+        Set<Pair<PaymentProviderPaymentId, GoCardlessOrganisationId>> found = payments.stream()
+                .map(payment -> payment.getProviderId().flatMap(providerId ->
+                        payment.getMandate().getGatewayAccount().getOrganisation().map(organisationId -> Pair.of(providerId, organisationId))))
                 .flatMap(Optional::stream)
-                .forEach(paymentStateUpdater::updateStateIfNecessary);
+                .collect(toSet());
+        goCardlessPaymentIdsAndOrganisationIds.stream()
+                .filter(goCardlessPaymentIdAndOrganisationId -> !found.contains(goCardlessPaymentIdAndOrganisationId))
+                .forEach(goCardlessPaymentIdAndOrganisationId -> LOGGER.error(format(
+                        "Could not update status of GoCardless payment %s for organisation %s because the payment was not found",
+                        goCardlessPaymentIdAndOrganisationId.getLeft(),
+                        goCardlessPaymentIdAndOrganisationId.getRight())));
+
+        paymentStateUpdater.updateStatesIfNecessary(payments);
     }
 
     private Optional<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> toGoCardlessPaymentIdAndOrganisationId(GoCardlessEvent goCardlessEvent) {
@@ -127,16 +202,4 @@ public class WebhookGoCardlessService {
                 });
         return Optional.ofNullable(goCardlessPaymentIdAndOrganisationId);
     }
-
-    private Optional<Payment> getPayment(Pair<GoCardlessPaymentId, GoCardlessOrganisationId> goCardlessPaymentIdAndOrganisationId) {
-        GoCardlessPaymentId goCardlessPaymentId = goCardlessPaymentIdAndOrganisationId.getLeft();
-        GoCardlessOrganisationId goCardlessOrganisationId = goCardlessPaymentIdAndOrganisationId.getRight();
-        return paymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId, goCardlessOrganisationId)
-                .or(() -> {
-                    LOGGER.error(format("Could not update status of GoCardless payment %s for organisation %s because the payment was not found",
-                            goCardlessPaymentId,
-                            goCardlessOrganisationId));
-                    return Optional.empty();
-                });
-    }
 }
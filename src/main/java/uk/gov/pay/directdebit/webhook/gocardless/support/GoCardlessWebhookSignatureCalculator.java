@@ -18,14 +18,18 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class GoCardlessWebhookSignatureCalculator {
 
     private final SecretKeySpec hmacSha256SecretKeySpec;
+    private final ThreadLocal<Mac> hmacSha256 = ThreadLocal.withInitial(this::createHmacSha256WithSecretKey);
 
     public GoCardlessWebhookSignatureCalculator(String secretKey) {
         this.hmacSha256SecretKeySpec = new SecretKeySpec(secretKey.getBytes(UTF_8), "HmacSHA256");
     }
 
     public String calculate(String body) {
-        Mac hmacSha256 = createHmacSha256WithSecretKey();
-        byte[] sha256Signature = hmacSha256.doFinal(body.getBytes(UTF_8));
+        return calculate(body.getBytes(UTF_8));
+    }
+
+    public String calculate(byte[] body) {
+        byte[] sha256Signature = hmacSha256.get().doFinal(body);
         return base16().lowerCase().encode(sha256Signature);
     }
 
@@ -17,12 +17,14 @@ public class GoCardlessWebhookVerifier {
     }
 
     public void verify(String body, String signature) {
-        verifySignature(body, signature);
+        verifySignature(goCardlessWebhookSignatureCalculator.calculate(body), signature);
     }
 
-    private void verifySignature(String body, String expectedSignature) {
-        String computedSignature = goCardlessWebhookSignatureCalculator.calculate(body);
+    public void verify(byte[] body, String signature) {
+        verifySignature(goCardlessWebhookSignatureCalculator.calculate(body), signature);
+    }
 
+    private void verifySignature(String computedSignature, String expectedSignature) {
         if (!StringUtils.equals(expectedSignature, computedSignature)) {
             throw new InvalidWebhookException(format("Invalid GoCardless webhook signature, received %s but computed %s",
                     expectedSignature, computedSignature));
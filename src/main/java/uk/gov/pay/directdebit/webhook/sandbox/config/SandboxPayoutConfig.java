@@ -0,0 +1,42 @@
+package uk.gov.pay.directdebit.webhook.sandbox.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SandboxPayoutConfig extends Configuration {
+
+    // the number of sandbox payments paid out in each database statement
+    @JsonProperty
+    @Min(1)
+    private int chunkSize = 1000;
+
+    // sandbox payments created less than this long ago are left for a later call to the sandbox webhook, to simulate
+    // the time a real payment provider takes to pay out
+    @JsonProperty
+    @NotNull
+    private Duration payoutDelay = Duration.seconds(0);
+
+    // the proportion of sandbox payments that fail instead of being paid out
+    @JsonProperty
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double failureRate = 0.0;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public Duration getPayoutDelay() {
+        return payoutDelay;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+}
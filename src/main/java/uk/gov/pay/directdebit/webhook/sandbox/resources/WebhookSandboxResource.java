@@ -1,68 +1,39 @@
 package uk.gov.pay.directdebit.webhook.sandbox.resources;
 
 import com.codahale.metrics.annotation.Timed;
-import uk.gov.pay.directdebit.events.model.SandboxEvent;
-import uk.gov.pay.directdebit.events.services.SandboxEventService;
-import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
-import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
-import uk.gov.pay.directdebit.payments.model.Payment;
-import uk.gov.pay.directdebit.payments.model.PaymentState;
-import uk.gov.pay.directdebit.payments.model.SandboxPaymentId;
-import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
-import uk.gov.pay.directdebit.webhook.gocardless.services.WebhookSandboxService;
+import uk.gov.pay.directdebit.webhook.sandbox.services.SandboxPayoutService;
 
 import javax.inject.Inject;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.Response;
-import java.time.ZonedDateTime;
-import java.util.List;
 
 import static javax.ws.rs.core.Response.Status.OK;
 
 @Path("/v1/webhooks/sandbox")
 public class WebhookSandboxResource {
 
-    private final PaymentQueryService paymentQueryService;
-    private final SandboxEventService sandboxEventService;
-    private final WebhookSandboxService webhookSandboxService;
+    private final SandboxPayoutService sandboxPayoutService;
 
     @Inject
-    public WebhookSandboxResource(PaymentQueryService paymentQueryService, SandboxEventService sandboxEventService, WebhookSandboxService webhookSandboxService) {
-        this.paymentQueryService = paymentQueryService;
-        this.sandboxEventService = sandboxEventService;
-        this.webhookSandboxService = webhookSandboxService;
+    public WebhookSandboxResource(SandboxPayoutService sandboxPayoutService) {
+        this.sandboxPayoutService = sandboxPayoutService;
     }
 
     public enum SandboxEventAction {
-        PAID_OUT
+        PAID_OUT,
+        FAILED
     }
 
-    enum SandboxEventCause {
-        PAID_OUT_CAUSE
+    public enum SandboxEventCause {
+        PAID_OUT_CAUSE,
+        FAILED_CAUSE
     }
 
     @POST
     @Timed
     public Response handleWebhook() {
-        paymentQueryService.findAllByPaymentStateAndProvider(PaymentState.SUBMITTED_TO_PROVIDER, PaymentProvider.SANDBOX)
-                .forEach(this::processPayment);
+        sandboxPayoutService.payOutSubmittedPayments();
         return Response.status(OK).build();
     }
-
-    private void processPayment(Payment payment) {
-        var event = createSandboxEventFromPayment(payment);
-        sandboxEventService.insertEvent(event);
-        webhookSandboxService.updateStateOfPaymentsAffectedByEvents(List.of(event));
-    }
-
-    private SandboxEvent createSandboxEventFromPayment(Payment payment) {
-        return SandboxEvent.SandboxEventBuilder.aSandboxEvent()
-                .withPaymentId(SandboxPaymentId.valueOf(payment.getExternalId()))
-                .withEventAction(SandboxEventAction.PAID_OUT.toString())
-                .withEventCause(SandboxEventCause.PAID_OUT_CAUSE.toString())
-                .withCreatedAt(ZonedDateTime.now())
-                .withMandateId(SandboxMandateId.valueOf(payment.getMandate().getId().toString()))
-                .build();
-    }
 }
@@ -0,0 +1,64 @@
+package uk.gov.pay.directdebit.webhook.sandbox.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.payments.dao.SandboxPayoutDao;
+import uk.gov.pay.directdebit.webhook.sandbox.config.SandboxPayoutConfig;
+import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource.SandboxEventAction;
+import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource.SandboxEventCause;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static uk.gov.pay.directdebit.payments.model.PaymentState.FAILED;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
+
+/**
+ * Simulates a payment provider paying out every submitted sandbox payment. Payments are paid out in chunks, each
+ * given its sandbox events and new states in a single statement, so the number of payments waiting does not matter.
+ */
+public class SandboxPayoutService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SandboxPayoutService.class);
+
+    private final SandboxPayoutDao sandboxPayoutDao;
+    private final SandboxPayoutConfig sandboxPayoutConfig;
+    private final MetricRegistry metricRegistry;
+
+    public SandboxPayoutService(SandboxPayoutDao sandboxPayoutDao,
+                                SandboxPayoutConfig sandboxPayoutConfig,
+                                MetricRegistry metricRegistry) {
+        this.sandboxPayoutDao = sandboxPayoutDao;
+        this.sandboxPayoutConfig = sandboxPayoutConfig;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public int payOutSubmittedPayments() {
+        ZonedDateTime maxCreatedDate = ZonedDateTime.now(ZoneOffset.UTC)
+                .minus(sandboxPayoutConfig.getPayoutDelay().toMilliseconds(), ChronoUnit.MILLIS);
+
+        try (Timer.Context ignored = metricRegistry.timer("sandbox-payout.run").time()) {
+            int numberOfPayments = 0;
+            long afterId = 0L;
+            List<Long> paymentIds;
+            do {
+                paymentIds = sandboxPayoutDao.payOutNextChunk(maxCreatedDate, afterId, sandboxPayoutConfig.getChunkSize(),
+                        sandboxPayoutConfig.getFailureRate(),
+                        SandboxEventAction.PAID_OUT.toString(), SandboxEventCause.PAID_OUT_CAUSE.toString(), PAID_OUT,
+                        SandboxEventAction.FAILED.toString(), SandboxEventCause.FAILED_CAUSE.toString(), FAILED);
+                if (!paymentIds.isEmpty()) {
+                    afterId = paymentIds.get(paymentIds.size() - 1);
+                    numberOfPayments += paymentIds.size();
+                    metricRegistry.meter("sandbox-payout.payments").mark(paymentIds.size());
+                }
+            } while (paymentIds.size() == sandboxPayoutConfig.getChunkSize());
+
+            LOGGER.info("Paid out or failed {} sandbox payments", numberOfPayments);
+            return numberOfPayments;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table-gocardless_event_queue
+CREATE TABLE gocardless_event_queue (
+    id BIGSERIAL PRIMARY KEY,
+    gocardless_event_id BIGINT NOT NULL,
+    enqueued_at TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    claimed_until TIMESTAMP WITH TIME ZONE,
+    attempts INTEGER DEFAULT 0 NOT NULL
+);
+--rollback drop table gocardless_event_queue;
+
+--changeset uk.gov.pay:add_gocardless_event_queue_gocardless_events_fk
+ALTER TABLE gocardless_event_queue ADD CONSTRAINT gocardless_event_queue_gocardless_events_fk FOREIGN KEY (gocardless_event_id) REFERENCES gocardless_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE gocardless_event_queue DROP CONSTRAINT gocardless_event_queue_gocardless_events_fk;
+
+--changeset uk.gov.pay:add_gocardless_event_queue_gocardless_event_id_idx
+CREATE INDEX gocardless_event_queue_gocardless_event_id_idx ON gocardless_event_queue(gocardless_event_id);
+--rollback DROP INDEX gocardless_event_queue_gocardless_event_id_idx;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:delete_duplicate_gocardless_events
+DELETE FROM gocardless_events duplicate
+USING gocardless_events original
+WHERE duplicate.event_id = original.event_id
+AND duplicate.links_organisation = original.links_organisation
+AND duplicate.id > original.id;
+
+--changeset uk.gov.pay:add_gocardless_events_event_id_links_organisation_unique
+ALTER TABLE gocardless_events ADD CONSTRAINT gocardless_events_event_id_links_organisation_unique UNIQUE (event_id, links_organisation);
+--rollback ALTER TABLE gocardless_events DROP CONSTRAINT gocardless_events_event_id_links_organisation_unique;
@@ -0,0 +1,118 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table-latest_gocardless_mandate_events
+CREATE TABLE latest_gocardless_mandate_events (
+    links_mandate VARCHAR(255) NOT NULL,
+    links_organisation VARCHAR(255) NOT NULL,
+    gocardless_event_id BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (links_mandate, links_organisation)
+);
+--rollback drop table latest_gocardless_mandate_events;
+
+--changeset uk.gov.pay:add_table-latest_gocardless_payment_events
+CREATE TABLE latest_gocardless_payment_events (
+    links_payment VARCHAR(255) NOT NULL,
+    links_organisation VARCHAR(255) NOT NULL,
+    gocardless_event_id BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (links_payment, links_organisation)
+);
+--rollback drop table latest_gocardless_payment_events;
+
+--changeset uk.gov.pay:add_table-latest_govukpay_mandate_events
+CREATE TABLE latest_govukpay_mandate_events (
+    mandate_id BIGINT PRIMARY KEY,
+    govukpay_event_id BIGINT NOT NULL,
+    event_date TIMESTAMP WITH TIME ZONE NOT NULL
+);
+--rollback drop table latest_govukpay_mandate_events;
+
+--changeset uk.gov.pay:add_table-latest_govukpay_payment_events
+CREATE TABLE latest_govukpay_payment_events (
+    payment_id BIGINT PRIMARY KEY,
+    govukpay_event_id BIGINT NOT NULL,
+    event_date TIMESTAMP WITH TIME ZONE NOT NULL
+);
+--rollback drop table latest_govukpay_payment_events;
+
+--changeset uk.gov.pay:add_table-latest_sandbox_payment_events
+CREATE TABLE latest_sandbox_payment_events (
+    payment_id VARCHAR(255) PRIMARY KEY,
+    sandbox_event_id BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+--rollback drop table latest_sandbox_payment_events;
+
+--changeset uk.gov.pay:add_latest_gocardless_mandate_events_gocardless_events_fk
+ALTER TABLE latest_gocardless_mandate_events ADD CONSTRAINT latest_gocardless_mandate_events_gocardless_events_fk FOREIGN KEY (gocardless_event_id) REFERENCES gocardless_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_gocardless_mandate_events DROP CONSTRAINT latest_gocardless_mandate_events_gocardless_events_fk;
+
+--changeset uk.gov.pay:add_latest_gocardless_payment_events_gocardless_events_fk
+ALTER TABLE latest_gocardless_payment_events ADD CONSTRAINT latest_gocardless_payment_events_gocardless_events_fk FOREIGN KEY (gocardless_event_id) REFERENCES gocardless_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_gocardless_payment_events DROP CONSTRAINT latest_gocardless_payment_events_gocardless_events_fk;
+
+--changeset uk.gov.pay:add_latest_govukpay_mandate_events_mandates_fk
+ALTER TABLE latest_govukpay_mandate_events ADD CONSTRAINT latest_govukpay_mandate_events_mandates_fk FOREIGN KEY (mandate_id) REFERENCES mandates (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_govukpay_mandate_events DROP CONSTRAINT latest_govukpay_mandate_events_mandates_fk;
+
+--changeset uk.gov.pay:add_latest_govukpay_mandate_events_govukpay_events_fk
+ALTER TABLE latest_govukpay_mandate_events ADD CONSTRAINT latest_govukpay_mandate_events_govukpay_events_fk FOREIGN KEY (govukpay_event_id) REFERENCES govukpay_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_govukpay_mandate_events DROP CONSTRAINT latest_govukpay_mandate_events_govukpay_events_fk;
+
+--changeset uk.gov.pay:add_latest_govukpay_payment_events_payments_fk
+ALTER TABLE latest_govukpay_payment_events ADD CONSTRAINT latest_govukpay_payment_events_payments_fk FOREIGN KEY (payment_id) REFERENCES payments (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_govukpay_payment_events DROP CONSTRAINT latest_govukpay_payment_events_payments_fk;
+
+--changeset uk.gov.pay:add_latest_govukpay_payment_events_govukpay_events_fk
+ALTER TABLE latest_govukpay_payment_events ADD CONSTRAINT latest_govukpay_payment_events_govukpay_events_fk FOREIGN KEY (govukpay_event_id) REFERENCES govukpay_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_govukpay_payment_events DROP CONSTRAINT latest_govukpay_payment_events_govukpay_events_fk;
+
+--changeset uk.gov.pay:add_latest_sandbox_payment_events_sandbox_events_fk
+ALTER TABLE latest_sandbox_payment_events ADD CONSTRAINT latest_sandbox_payment_events_sandbox_events_fk FOREIGN KEY (sandbox_event_id) REFERENCES sandbox_events (id) ON DELETE CASCADE;
+--rollback ALTER TABLE latest_sandbox_payment_events DROP CONSTRAINT latest_sandbox_payment_events_sandbox_events_fk;
+
+--changeset uk.gov.pay:populate_latest_gocardless_mandate_events
+INSERT INTO latest_gocardless_mandate_events (links_mandate, links_organisation, gocardless_event_id, created_at)
+SELECT DISTINCT ON (links_mandate, links_organisation) links_mandate, links_organisation, id, created_at
+FROM gocardless_events
+WHERE links_mandate IS NOT NULL
+AND links_organisation IS NOT NULL
+AND action IN ('submitted', 'active', 'failed', 'cancelled', 'expired', 'reinstated')
+ORDER BY links_mandate, links_organisation, created_at DESC, id DESC;
+
+--changeset uk.gov.pay:populate_latest_gocardless_payment_events
+INSERT INTO latest_gocardless_payment_events (links_payment, links_organisation, gocardless_event_id, created_at)
+SELECT DISTINCT ON (links_payment, links_organisation) links_payment, links_organisation, id, created_at
+FROM gocardless_events
+WHERE links_payment IS NOT NULL
+AND links_organisation IS NOT NULL
+AND action IN ('submitted', 'failed', 'paid_out', 'customer_approval_denied', 'confirmed', 'cancelled', 'charged_back',
+               'chargeback_cancelled', 'late_failure_settled', 'chargeback_settled')
+ORDER BY links_payment, links_organisation, created_at DESC, id DESC;
+
+--changeset uk.gov.pay:populate_latest_govukpay_mandate_events
+INSERT INTO latest_govukpay_mandate_events (mandate_id, govukpay_event_id, event_date)
+SELECT DISTINCT ON (mandate_id) mandate_id, id, event_date
+FROM govukpay_events
+WHERE mandate_id IS NOT NULL
+AND event_type IN ('MANDATE_CREATED', 'MANDATE_TOKEN_EXCHANGED', 'MANDATE_SUBMITTED_TO_PROVIDER', 'MANDATE_USER_SETUP_EXPIRED',
+                   'MANDATE_USER_SETUP_CANCELLED', 'MANDATE_USER_SETUP_CANCELLED_NOT_ELIGIBLE', 'MANDATE_UNEXPECTED_ERROR',
+                   'MANDATE_ERROR_SUBMITTING_TO_PROVIDER')
+ORDER BY mandate_id, event_date DESC, id DESC;
+
+--changeset uk.gov.pay:populate_latest_govukpay_payment_events
+INSERT INTO latest_govukpay_payment_events (payment_id, govukpay_event_id, event_date)
+SELECT DISTINCT ON (payment_id) payment_id, id, event_date
+FROM govukpay_events
+WHERE payment_id IS NOT NULL
+AND event_type IN ('PAYMENT_CREATED', 'PAYMENT_SUBMITTED', 'PAYMENT_ERROR_SUBMITTING_TO_PROVIDER')
+ORDER BY payment_id, event_date DESC, id DESC;
+
+--changeset uk.gov.pay:populate_latest_sandbox_payment_events
+INSERT INTO latest_sandbox_payment_events (payment_id, sandbox_event_id, created_at)
+SELECT DISTINCT ON (payment_id) payment_id, id, created_at
+FROM sandbox_events
+WHERE payment_id IS NOT NULL
+AND event_action IN ('PAID_OUT')
+ORDER BY payment_id, created_at DESC, id DESC;
@@ -0,0 +1,29 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_index-gocardless_events_links_mandate_organisation_created_at_idx
+CREATE INDEX gocardless_events_links_mandate_organisation_created_at_idx ON gocardless_events(links_mandate, links_organisation, created_at DESC, id DESC) INCLUDE (action);
+--rollback drop index gocardless_events_links_mandate_organisation_created_at_idx;
+
+--changeset uk.gov.pay:add_index-gocardless_events_links_payment_organisation_created_at_idx
+CREATE INDEX gocardless_events_links_payment_organisation_created_at_idx ON gocardless_events(links_payment, links_organisation, created_at DESC, id DESC) INCLUDE (action);
+--rollback drop index gocardless_events_links_payment_organisation_created_at_idx;
+
+--changeset uk.gov.pay:drop_index-links_mandate_idx
+DROP INDEX links_mandate_idx;
+--rollback CREATE INDEX links_mandate_idx ON gocardless_events(links_mandate);
+
+--changeset uk.gov.pay:drop_index-links_payment_idx
+DROP INDEX links_payment_idx;
+--rollback CREATE INDEX links_payment_idx ON gocardless_events(links_payment);
+
+--changeset uk.gov.pay:add_index-govukpay_events_mandate_id_event_date_idx
+CREATE INDEX govukpay_events_mandate_id_event_date_idx ON govukpay_events(mandate_id, event_date DESC, id DESC) INCLUDE (event_type);
+--rollback drop index govukpay_events_mandate_id_event_date_idx;
+
+--changeset uk.gov.pay:add_index-govukpay_events_payment_id_event_date_idx
+CREATE INDEX govukpay_events_payment_id_event_date_idx ON govukpay_events(payment_id, event_date DESC, id DESC) INCLUDE (event_type);
+--rollback drop index govukpay_events_payment_id_event_date_idx;
+
+--changeset uk.gov.pay:add_index-sandbox_events_payment_id_created_at_idx
+CREATE INDEX sandbox_events_payment_id_created_at_idx ON sandbox_events(payment_id, created_at DESC, id DESC) INCLUDE (event_action);
+--rollback drop index sandbox_events_payment_id_created_at_idx;
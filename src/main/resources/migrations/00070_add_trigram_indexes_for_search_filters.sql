@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_extension-pg_trgm
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+--rollback drop extension if exists pg_trgm;
+
+--changeset uk.gov.pay:add_index-mandates_service_reference_trgm_idx
+CREATE INDEX mandates_service_reference_trgm_idx ON mandates USING GIN (service_reference gin_trgm_ops);
+--rollback drop index mandates_service_reference_trgm_idx;
+
+--changeset uk.gov.pay:add_index-mandates_mandate_reference_trgm_idx
+CREATE INDEX mandates_mandate_reference_trgm_idx ON mandates USING GIN (mandate_reference gin_trgm_ops);
+--rollback drop index mandates_mandate_reference_trgm_idx;
+
+--changeset uk.gov.pay:add_index-payers_name_trgm_idx
+CREATE INDEX payers_name_trgm_idx ON payers USING GIN (name gin_trgm_ops);
+--rollback drop index payers_name_trgm_idx;
+
+--changeset uk.gov.pay:add_index-payers_email_trgm_idx
+CREATE INDEX payers_email_trgm_idx ON payers USING GIN (email gin_trgm_ops);
+--rollback drop index payers_email_trgm_idx;
+
+--changeset uk.gov.pay:add_index-payments_reference_trgm_idx
+CREATE INDEX payments_reference_trgm_idx ON payments USING GIN (reference gin_trgm_ops);
+--rollback drop index payments_reference_trgm_idx;
@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table-email_outbox
+CREATE TABLE email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    template VARCHAR(255) NOT NULL,
+    address VARCHAR(254) NOT NULL,
+    gateway_account_external_id VARCHAR(255) NOT NULL,
+    mandate_external_id VARCHAR(255) NOT NULL,
+    personalisation JSONB NOT NULL,
+    enqueued_at TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    next_attempt_at TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    claimed_until TIMESTAMP WITH TIME ZONE,
+    attempts INTEGER DEFAULT 0 NOT NULL
+);
+--rollback drop table email_outbox;
+
+--changeset uk.gov.pay:add_email_outbox_next_attempt_at_idx
+CREATE INDEX email_outbox_next_attempt_at_idx ON email_outbox(next_attempt_at, id);
+--rollback DROP INDEX email_outbox_next_attempt_at_idx;
@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_index-mandates_awaiting_payment_provider_id_idx
+CREATE INDEX mandates_awaiting_payment_provider_id_idx ON mandates(id) WHERE state = 'SUBMITTED_TO_PROVIDER' AND payment_provider_id IS NULL;
+--rollback drop index mandates_awaiting_payment_provider_id_idx;
+
+--changeset uk.gov.pay:add_index-gocardless_customers_payer_id_idx
+CREATE INDEX gocardless_customers_payer_id_idx ON gocardless_customers(payer_id);
+--rollback drop index gocardless_customers_payer_id_idx;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_index-mandates_expirable_id_idx
+CREATE INDEX mandates_expirable_id_idx ON mandates(id) INCLUDE (created_date) WHERE state IN ('CREATED', 'AWAITING_DIRECT_DEBIT_DETAILS');
+--rollback drop index mandates_expirable_id_idx;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_index-payments_payment_provider_id_mandate_id_idx
+CREATE UNIQUE INDEX payments_payment_provider_id_mandate_id_idx ON payments(payment_provider_id, mandate_id);
+--rollback drop index payments_payment_provider_id_mandate_id_idx;
+
+--changeset uk.gov.pay:add_index-payments_mandate_id_idx
+CREATE INDEX payments_mandate_id_idx ON payments(mandate_id);
+--rollback drop index payments_mandate_id_idx;
+
+--changeset uk.gov.pay:add_index-payments_external_id_idx
+CREATE UNIQUE INDEX payments_external_id_idx ON payments(external_id);
+--rollback drop index payments_external_id_idx;
+
+--changeset uk.gov.pay:add_index-payers_mandate_id_idx
+CREATE INDEX payers_mandate_id_idx ON payers(mandate_id);
+--rollback drop index payers_mandate_id_idx;
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:backfill_latest_sandbox_payment_failed_events
+INSERT INTO latest_sandbox_payment_events (payment_id, sandbox_event_id, created_at)
+SELECT DISTINCT ON (payment_id) payment_id, id, created_at
+FROM sandbox_events
+WHERE payment_id IS NOT NULL
+AND event_action IN ('FAILED')
+ORDER BY payment_id, created_at DESC, id DESC
+ON CONFLICT (payment_id) DO UPDATE
+SET sandbox_event_id = excluded.sandbox_event_id, created_at = excluded.created_at
+WHERE (latest_sandbox_payment_events.created_at, latest_sandbox_payment_events.sandbox_event_id)
+< (excluded.created_at, excluded.sandbox_event_id);
@@ -1,6 +1,8 @@
 package uk.gov.pay.directdebit.common.clients;
 
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.GoCardlessClient;
+import io.dropwizard.util.Duration;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,24 +11,37 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessClientCacheConfig;
+import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessRequestConfig;
 
 import java.util.Optional;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GoCardlessClientFactoryTest {
 
+    private static final PaymentProviderAccessToken ACCESS_TOKEN = PaymentProviderAccessToken.of("accessToken");
+    private static final PaymentProviderAccessToken OTHER_ACCESS_TOKEN = PaymentProviderAccessToken.of("otherAccessToken");
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private DirectDebitConfig mockedDirectDebitConfig;
+    @Mock
+    private GoCardlessClientCacheConfig mockClientCacheConfig;
+    private MetricRegistry metricRegistry = new MetricRegistry();
     private GoCardlessClientFactory goCardlessClientFactory;
 
     @Before
     public void setUp() {
         when(mockedDirectDebitConfig.getGoCardless().getEnvironment()).thenReturn(GoCardlessClient.Environment.SANDBOX);
-        goCardlessClientFactory = new GoCardlessClientFactory(mockedDirectDebitConfig);
+        when(mockedDirectDebitConfig.getGoCardless().getRequestConfig()).thenReturn(new GoCardlessRequestConfig());
+        when(mockClientCacheConfig.getMaximumSize()).thenReturn(1L);
+        when(mockClientCacheConfig.getExpireAfterAccess()).thenReturn(Duration.hours(1));
+        when(mockedDirectDebitConfig.getGoCardless().getClientCacheConfig()).thenReturn(mockClientCacheConfig);
+        goCardlessClientFactory = new GoCardlessClientFactory(mockedDirectDebitConfig, metricRegistry);
     }
 
     @Test
@@ -37,4 +52,46 @@ public class GoCardlessClientFactoryTest {
                 .getClientFor(Optional.of(PaymentProviderAccessToken.of("accessToken")));
         assertThat(firstClient, is(secondClient));
     }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedClientAndUnregisterItsMetricsWhenThereAreTooMany() {
+        GoCardlessClientFacade evictedClient = goCardlessClientFactory.getClientFor(Optional.of(ACCESS_TOKEN));
+        goCardlessClientFactory.getClientFor(Optional.of(OTHER_ACCESS_TOKEN));
+
+        assertThat(metricRegistry.getGauges().get("gocardless-client.clients.live").getValue(), is(1L));
+        assertThat(metricRegistry.getTimers().containsKey(latencyMetricFor(ACCESS_TOKEN)), is(false));
+        assertThat(metricRegistry.getTimers().containsKey(latencyMetricFor(OTHER_ACCESS_TOKEN)), is(true));
+        assertThat(goCardlessClientFactory.getClientFor(Optional.of(ACCESS_TOKEN)), is(not(evictedClient)));
+    }
+
+    @Test
+    public void shouldKeepTheMetricsForAnAccessTokenWhoseExpiredClientIsReplaced() throws InterruptedException {
+        MetricRegistry otherMetricRegistry = new MetricRegistry();
+        when(mockClientCacheConfig.getExpireAfterAccess()).thenReturn(Duration.milliseconds(1));
+        var expiringClientFactory = new GoCardlessClientFactory(mockedDirectDebitConfig, otherMetricRegistry);
+        GoCardlessClientFacade expiredClient = expiringClientFactory.getClientFor(Optional.of(ACCESS_TOKEN));
+
+        Thread.sleep(10);
+
+        assertThat(expiringClientFactory.getClientFor(Optional.of(ACCESS_TOKEN)), is(not(expiredClient)));
+        assertThat(otherMetricRegistry.getTimers().containsKey(latencyMetricFor(ACCESS_TOKEN)), is(true));
+    }
+
+    @Test
+    public void shouldIdentifyAccessTokensInMetricsWithoutExposingThem() {
+        String fingerprint = GoCardlessClientFactory.fingerprintOf(ACCESS_TOKEN);
+
+        assertThat(fingerprint.length(), is(12));
+        assertThat(fingerprint.contains(ACCESS_TOKEN.toString()), is(false));
+        assertThat(GoCardlessClientFactory.fingerprintOf(OTHER_ACCESS_TOKEN), is(not(fingerprint)));
+    }
+
+    @Test
+    public void shouldReportRequestUtilisationAsAFractionOfTheConcurrentRequestLimit() {
+        assertThat(metricRegistry.getGauges().get("gocardless-client.requests.utilisation").getValue(), is(0.0));
+    }
+
+    private static String latencyMetricFor(PaymentProviderAccessToken accessToken) {
+        return "gocardless-client.access-tokens." + GoCardlessClientFactory.fingerprintOf(accessToken) + ".latency";
+    }
 }
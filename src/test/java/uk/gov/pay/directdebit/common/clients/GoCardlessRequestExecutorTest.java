@@ -0,0 +1,174 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.MetricRegistry;
+import com.gocardless.errors.GoCardlessApiException;
+import com.gocardless.http.GoCardlessNetworkException;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessRequestConfig;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GoCardlessRequestExecutorTest {
+
+    @Mock
+    private GoCardlessRequestConfig mockRequestConfig;
+
+    @Mock
+    private Supplier<String> mockRequest;
+
+    private final Semaphore concurrentRequests = new Semaphore(2);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private GoCardlessRequestExecutor requestExecutor;
+
+    @Before
+    public void setUp() {
+        given(mockRequestConfig.getRequestsPerSecondPerAccessToken()).willReturn(1000.0);
+        given(mockRequestConfig.getConcurrentRequestTimeout()).willReturn(Duration.milliseconds(10));
+        requestExecutor = new GoCardlessRequestExecutor(mockRequestConfig, concurrentRequests, metricRegistry, "fingerprint");
+    }
+
+    @Test
+    public void shouldReturnTheResponseAndRecordTheLatencyOfTheOperation() {
+        given(mockRequest.get()).willReturn("PM123");
+
+        assertThat(requestExecutor.execute("create-payment", mockRequest), is("PM123"));
+
+        assertThat(metricRegistry.timer("gocardless-client.create-payment.latency").getCount(), is(1L));
+        assertThat(metricRegistry.timer("gocardless-client.access-tokens.fingerprint.latency").getCount(), is(1L));
+        assertThat(concurrentRequests.availablePermits(), is(2));
+    }
+
+    @Test
+    public void shouldRetryRateLimitedResponses() {
+        givenRetries(3);
+        GoCardlessApiException rateLimited = anApiException(429);
+        given(mockRequest.get()).willThrow(rateLimited).willThrow(rateLimited).willReturn("PM123");
+
+        assertThat(requestExecutor.execute("create-payment", mockRequest), is("PM123"));
+
+        verify(mockRequest, times(3)).get();
+        assertThat(metricRegistry.meter("gocardless-client.create-payment.retries").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotRetryServerErrorsOrNetworkFailuresThatTheSdkHasAlreadyRetried() {
+        given(mockRequestConfig.getMaxAttempts()).willReturn(3);
+        GoCardlessApiException serverError = anApiException(503);
+        GoCardlessNetworkException networkFailure = mock(GoCardlessNetworkException.class);
+        given(mockRequest.get()).willThrow(serverError).willThrow(networkFailure);
+
+        try {
+            requestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the server error to be thrown");
+        } catch (GoCardlessApiException e) {
+            assertThat(e, is(serverError));
+        }
+        try {
+            requestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the network failure to be thrown");
+        } catch (GoCardlessNetworkException e) {
+            assertThat(e, is(networkFailure));
+        }
+
+        verify(mockRequest, times(2)).get();
+        assertThat(metricRegistry.meter("gocardless-client.create-payment.failures").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldFailWithoutSendingTheRequestWhenNoConcurrentRequestSlotIsFreedInTime() throws InterruptedException {
+        concurrentRequests.acquire(2);
+
+        try {
+            requestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the request to time out waiting for a slot");
+        } catch (InternalServerErrorException e) {
+            assertThat(e.getMessage(), is("Timed out after 10ms waiting to send a GoCardless create-payment request"));
+        }
+
+        verify(mockRequest, never()).get();
+        assertThat(metricRegistry.meter("gocardless-client.create-payment.concurrency-timeouts").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldFailWithoutSendingTheRequestWhenTheAccessTokenHasNoRequestsLeftInTime() {
+        given(mockRequestConfig.getRequestsPerSecondPerAccessToken()).willReturn(0.1);
+        var rateLimitedRequestExecutor = new GoCardlessRequestExecutor(mockRequestConfig, concurrentRequests, metricRegistry, "fingerprint");
+        given(mockRequest.get()).willReturn("PM123");
+        assertThat(rateLimitedRequestExecutor.execute("create-payment", mockRequest), is("PM123"));
+
+        try {
+            rateLimitedRequestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the request to time out waiting for the rate limiter");
+        } catch (InternalServerErrorException e) {
+            assertThat(e.getMessage(), is("Timed out after 10ms waiting to send a GoCardless create-payment request"));
+        }
+
+        verify(mockRequest, times(1)).get();
+        assertThat(metricRegistry.meter("gocardless-client.create-payment.concurrency-timeouts").getCount(), is(1L));
+        assertThat(concurrentRequests.availablePermits(), is(2));
+    }
+
+    @Test
+    public void shouldNotRetryClientErrors() {
+        given(mockRequestConfig.getMaxAttempts()).willReturn(3);
+        GoCardlessApiException invalidRequest = anApiException(422);
+        given(mockRequest.get()).willThrow(invalidRequest);
+
+        try {
+            requestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the client error to be thrown");
+        } catch (GoCardlessApiException e) {
+            assertThat(e, is(invalidRequest));
+        }
+
+        verify(mockRequest, times(1)).get();
+        assertThat(metricRegistry.meter("gocardless-client.create-payment.failures").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldGiveUpAfterTheMaximumNumberOfAttempts() {
+        givenRetries(2);
+        GoCardlessApiException rateLimited = anApiException(429);
+        given(mockRequest.get()).willThrow(rateLimited);
+
+        try {
+            requestExecutor.execute("create-payment", mockRequest);
+            fail("Expected the rate limited error to be thrown");
+        } catch (GoCardlessApiException e) {
+            assertThat(e, is(rateLimited));
+        }
+
+        verify(mockRequest, times(2)).get();
+        assertThat(concurrentRequests.availablePermits(), is(2));
+    }
+
+    private void givenRetries(int maxAttempts) {
+        given(mockRequestConfig.getMaxAttempts()).willReturn(maxAttempts);
+        given(mockRequestConfig.getInitialBackoff()).willReturn(Duration.milliseconds(1));
+        given(mockRequestConfig.getMaxBackoff()).willReturn(Duration.milliseconds(2));
+    }
+
+    private static GoCardlessApiException anApiException(int code) {
+        GoCardlessApiException exception = mock(GoCardlessApiException.class);
+        given(exception.getCode()).willReturn(code);
+        return exception;
+    }
+}
@@ -0,0 +1,95 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+import uk.gov.pay.directdebit.util.QueryPlanTestHelper;
+
+import java.util.Map;
+
+import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+/**
+ * Seeds mandates, payers and payments with a production-sized history and checks that the free-text search filters,
+ * whether matching anywhere in the value or only at its start, are answered from the trigram indexes rather than by
+ * scanning every row.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class SearchFilterIndexesIT {
+
+    private static final int NUMBER_OF_ROWS = 100_000;
+    private static final long FIRST_SEEDED_ID = 10_000_000L;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private QueryPlanTestHelper queryPlanTestHelper;
+    private GatewayAccountFixture gatewayAccountFixture;
+
+    @Before
+    public void setUp() {
+        queryPlanTestHelper = new QueryPlanTestHelper(testContext.getJdbi());
+        gatewayAccountFixture = aGatewayAccountFixture().insert(testContext.getJdbi());
+        seedMandatesPayersAndPayments();
+    }
+
+    @Test
+    public void shouldUseTrigramIndexesToSearchMandates() {
+        assertUsesIndex("mandates", "service_reference", "%SREF4242%", "mandates_service_reference_trgm_idx");
+        assertUsesIndex("mandates", "service_reference", "SREF4242%", "mandates_service_reference_trgm_idx");
+        assertUsesIndex("mandates", "mandate_reference", "%MREF4242%", "mandates_mandate_reference_trgm_idx");
+        assertUsesIndex("mandates", "mandate_reference", "MREF4242%", "mandates_mandate_reference_trgm_idx");
+    }
+
+    @Test
+    public void shouldUseTrigramIndexesToSearchPayers() {
+        assertUsesIndex("payers", "name", "%Payer 4242%", "payers_name_trgm_idx");
+        assertUsesIndex("payers", "name", "Payer 4242%", "payers_name_trgm_idx");
+        assertUsesIndex("payers", "email", "%payer4242@%", "payers_email_trgm_idx");
+        assertUsesIndex("payers", "email", "payer4242@%", "payers_email_trgm_idx");
+    }
+
+    @Test
+    public void shouldUseTrigramIndexToSearchPayments() {
+        assertUsesIndex("payments", "reference", "%PREF4242%", "payments_reference_trgm_idx");
+        assertUsesIndex("payments", "reference", "PREF4242%", "payments_reference_trgm_idx");
+    }
+
+    private void assertUsesIndex(String table, String column, String pattern, String index) {
+        String plan = queryPlanTestHelper.explain(format("SELECT id FROM %s WHERE %s ILIKE :pattern", table, column),
+                Map.of("pattern", pattern));
+
+        assertThat(plan, containsString("Bitmap Index Scan on " + index));
+    }
+
+    private void seedMandatesPayersAndPayments() {
+        queryPlanTestHelper.seed("mandates", "INSERT INTO mandates(id, gateway_account_id, external_id, mandate_reference, " +
+                        "service_reference, return_url, state, created_date, payment_provider_id) " +
+                        "SELECT :firstId + i, :gatewayAccountId, 'MANDATE' || i, 'MREF' || i, 'SREF' || i, " +
+                        "'https://example.com/return', 'CREATED', now(), 'MD' || i " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "gatewayAccountId", gatewayAccountFixture.getId(), "numberOfRows", NUMBER_OF_ROWS));
+        queryPlanTestHelper.seed("payers", "INSERT INTO payers(id, mandate_id, external_id, name, email, " +
+                        "bank_account_number_last_two_digits, bank_account_requires_authorisation, bank_account_number, " +
+                        "bank_account_sort_code, bank_name, created_date) " +
+                        "SELECT :firstId + i, :firstId + i, 'PAYER' || i, 'Payer ' || i, 'payer' || i || '@example.com', " +
+                        "'78', false, '12345678', '123456', 'A Bank', now() " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "numberOfRows", NUMBER_OF_ROWS));
+        queryPlanTestHelper.seed("payments", "INSERT INTO payments(id, mandate_id, external_id, amount, state, reference, " +
+                        "description, created_date) " +
+                        "SELECT :firstId + i, :firstId + i, 'PAYMENT' || i, 100, 'CREATED', 'PREF' || i, 'A payment', now() " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "numberOfRows", NUMBER_OF_ROWS));
+    }
+}
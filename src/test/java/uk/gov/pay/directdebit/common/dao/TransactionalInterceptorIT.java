@@ -0,0 +1,140 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import javax.inject.Inject;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.fail;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class TransactionalInterceptorIT {
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private UnitOfWork unitOfWork;
+
+    @Before
+    public void setUp() {
+        TransactionalInterceptor transactionalInterceptor = new TransactionalInterceptor(testContext.getJdbi(), metricRegistry);
+        unitOfWork = Guice.createInjector(binder -> {
+            binder.bind(Jdbi.class).toInstance(testContext.getJdbi());
+            binder.bindInterceptor(Matchers.any(), Matchers.annotatedWith(Transactional.class), transactionalInterceptor);
+        }).getInstance(UnitOfWork.class);
+    }
+
+    @Test
+    public void shouldUseOneHandleForEveryCallInTheUnitOfWork() {
+        List<Handle> handles = unitOfWork.openHandlesAndInsert(aGatewayAccountFixture(), aGatewayAccountFixture());
+
+        assertThat(handles.get(0), is(sameInstance(handles.get(1))));
+        assertThat(metricRegistry.timer("unit-of-work.UnitOfWork.openHandlesAndInsert").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRollBackEveryWriteInTheUnitOfWorkWhenItFails() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+
+        try {
+            unitOfWork.insertThenFail(gatewayAccountFixture);
+            fail("Expected the unit of work to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("failed after inserting"));
+        }
+
+        assertThat(countGatewayAccountsWithId(gatewayAccountFixture.getId()), is(0));
+        assertThat(metricRegistry.meter("unit-of-work.rollbacks").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRetryTheUnitOfWorkInAFreshTransactionAfterAConcurrentUpdate() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+
+        unitOfWork.insertThenConflict(gatewayAccountFixture, 1);
+
+        assertThat(countGatewayAccountsWithId(gatewayAccountFixture.getId()), is(1));
+        assertThat(unitOfWork.attempts, is(2));
+        assertThat(metricRegistry.meter("unit-of-work.conflicts").getCount(), is(1L));
+        assertThat(metricRegistry.meter("unit-of-work.rollbacks").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldGiveUpAfterTheMaximumNumberOfConcurrentUpdates() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+
+        try {
+            unitOfWork.insertThenConflict(gatewayAccountFixture, TransactionalInterceptor.MAX_ATTEMPTS);
+            fail("Expected the unit of work to fail");
+        } catch (ConcurrentUpdateException e) {
+            assertThat(e.getMessage(), is("conflicted after inserting"));
+        }
+
+        assertThat(countGatewayAccountsWithId(gatewayAccountFixture.getId()), is(0));
+        assertThat(unitOfWork.attempts, is(TransactionalInterceptor.MAX_ATTEMPTS));
+        assertThat(metricRegistry.meter("unit-of-work.rollbacks").getCount(), is(1L));
+    }
+
+    private int countGatewayAccountsWithId(Long id) {
+        return testContext.getJdbi().withHandle(handle ->
+                handle.createQuery("SELECT count(*) FROM gateway_accounts WHERE id = :id")
+                        .bind("id", id)
+                        .mapTo(Integer.class)
+                        .one());
+    }
+
+    public static class UnitOfWork {
+
+        private final Jdbi jdbi;
+        private int attempts;
+
+        @Inject
+        public UnitOfWork(Jdbi jdbi) {
+            this.jdbi = jdbi;
+        }
+
+        @Transactional
+        public List<Handle> openHandlesAndInsert(GatewayAccountFixture first, GatewayAccountFixture second) {
+            first.insert(jdbi);
+            Handle firstHandle = jdbi.withHandle(handle -> handle);
+            second.insert(jdbi);
+            Handle secondHandle = jdbi.withHandle(handle -> handle);
+            return List.of(firstHandle, secondHandle);
+        }
+
+        @Transactional
+        public void insertThenFail(GatewayAccountFixture gatewayAccountFixture) {
+            gatewayAccountFixture.insert(jdbi);
+            throw new IllegalStateException("failed after inserting");
+        }
+
+        @Transactional
+        public void insertThenConflict(GatewayAccountFixture gatewayAccountFixture, int numberOfConflicts) {
+            gatewayAccountFixture.insert(jdbi);
+            if (++attempts <= numberOfConflicts) {
+                throw new ConcurrentUpdateException("conflicted after inserting");
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.util.QueryPlanTestHelper;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+
+/**
+ * Seeds each event table with a production-sized history and checks that looking up the latest events for a single
+ * mandate or payment is answered from the composite indexes rather than by scanning and sorting the history.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class EventTableIndexesIT {
+
+    private static final int NUMBER_OF_EVENTS = 100_000;
+    private static final int EVENTS_PER_RESOURCE = 10;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private QueryPlanTestHelper queryPlanTestHelper;
+    private MandateFixture mandateFixture;
+    private Payment payment;
+
+    @Before
+    public void setUp() {
+        queryPlanTestHelper = new QueryPlanTestHelper(testContext.getJdbi());
+        var gatewayAccountFixture = aGatewayAccountFixture().insert(testContext.getJdbi());
+        mandateFixture = aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).insert(testContext.getJdbi());
+        payment = aPaymentFixture().withMandateFixture(mandateFixture).insert(testContext.getJdbi()).toEntity();
+    }
+
+    @Test
+    public void shouldUseIndexOnlyScanToFindLatestGoCardlessEventsForMandate() {
+        seedGoCardlessEvents();
+
+        String plan = queryPlanTestHelper.explain("SELECT id, action FROM gocardless_events " +
+                        "WHERE links_mandate = :linksMandate AND links_organisation = :linksOrganisation " +
+                        "ORDER BY created_at DESC, id DESC LIMIT 1",
+                Map.of("linksMandate", "MD42", "linksOrganisation", "OR2"));
+
+        assertThat(plan, containsString("Index Only Scan using gocardless_events_links_mandate_organisation_created_at_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexOnlyScanToFindLatestGoCardlessEventsForPayment() {
+        seedGoCardlessEvents();
+
+        String plan = queryPlanTestHelper.explain("SELECT id, action FROM gocardless_events " +
+                        "WHERE links_payment = :linksPayment AND links_organisation = :linksOrganisation " +
+                        "ORDER BY created_at DESC, id DESC LIMIT 1",
+                Map.of("linksPayment", "PM42", "linksOrganisation", "OR2"));
+
+        assertThat(plan, containsString("Index Only Scan using gocardless_events_links_payment_organisation_created_at_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexOnlyScanToFindLatestGovUkPayEventForMandate() {
+        seedGovUkPayEvents();
+
+        String plan = queryPlanTestHelper.explain("SELECT id, event_type FROM govukpay_events WHERE mandate_id = :mandateId " +
+                "ORDER BY event_date DESC, id DESC LIMIT 1", Map.of("mandateId", mandateFixture.getId()));
+
+        assertThat(plan, containsString("Index Only Scan using govukpay_events_mandate_id_event_date_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexOnlyScanToFindLatestGovUkPayEventForPayment() {
+        seedGovUkPayEvents();
+
+        String plan = queryPlanTestHelper.explain("SELECT id, event_type FROM govukpay_events WHERE payment_id = :paymentId " +
+                "ORDER BY event_date DESC, id DESC LIMIT 1", Map.of("paymentId", payment.getId()));
+
+        assertThat(plan, containsString("Index Only Scan using govukpay_events_payment_id_event_date_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexOnlyScanToFindLatestSandboxEventsForPayment() {
+        seedSandboxEvents();
+
+        String plan = queryPlanTestHelper.explain("SELECT id, event_action FROM sandbox_events WHERE payment_id = :paymentId " +
+                "ORDER BY created_at DESC, id DESC LIMIT 1", Map.of("paymentId", "SANDBOX42"));
+
+        assertThat(plan, containsString("Index Only Scan using sandbox_events_payment_id_created_at_idx"));
+    }
+
+    private void seedGoCardlessEvents() {
+        queryPlanTestHelper.seed("gocardless_events", "INSERT INTO gocardless_events(event_id, action, resource_type, " +
+                        "json, created_at, links_mandate, links_payment, links_organisation) " +
+                        "SELECT 'EV' || i, CASE WHEN i % 2 = 0 THEN 'confirmed' ELSE 'paid_out' END, 'PAYMENTS', '{}', " +
+                        "now() - i * interval '1 second', 'MD' || (i / :eventsPerResource), 'PM' || (i / :eventsPerResource), " +
+                        "'OR' || (i % 3) " +
+                        "FROM generate_series(1, :numberOfEvents) AS i",
+                Map.of("eventsPerResource", EVENTS_PER_RESOURCE, "numberOfEvents", NUMBER_OF_EVENTS));
+    }
+
+    private void seedGovUkPayEvents() {
+        queryPlanTestHelper.seed("govukpay_events", "INSERT INTO govukpay_events(mandate_id, payment_id, event_date, " +
+                        "resource_type, event_type) " +
+                        "SELECT CASE WHEN i % 2 = 0 THEN :mandateId END, CASE WHEN i % 2 = 1 THEN :paymentId END, " +
+                        "now() - i * interval '1 second', " +
+                        "CASE WHEN i % 2 = 0 THEN 'MANDATE' ELSE 'PAYMENT' END, " +
+                        "CASE WHEN i % 2 = 0 THEN 'MANDATE_CREATED' ELSE 'PAYMENT_SUBMITTED' END " +
+                        "FROM generate_series(1, :numberOfEvents) AS i",
+                Map.of("mandateId", mandateFixture.getId(), "paymentId", payment.getId(), "numberOfEvents", NUMBER_OF_EVENTS));
+    }
+
+    private void seedSandboxEvents() {
+        queryPlanTestHelper.seed("sandbox_events", "INSERT INTO sandbox_events(created_at, payment_id, event_action) " +
+                        "SELECT now() - i * interval '1 second', 'SANDBOX' || (i / :eventsPerResource), 'PAID_OUT' " +
+                        "FROM generate_series(1, :numberOfEvents) AS i",
+                Map.of("eventsPerResource", EVENTS_PER_RESOURCE, "numberOfEvents", NUMBER_OF_EVENTS));
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Set;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
 
@@ -72,6 +73,30 @@ public class GoCardlessEventDaoIT {
         assertThat(goCardlessEvent.get("created_at"), is(Timestamp.from(goCardlessEventFixture.getCreatedAt().toInstant())));
     }
 
+    @Test
+    public void shouldOnlyInsertAndReturnEventsThatHaveNotBeenReceivedBefore() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+        GoCardlessEventFixture existingEvent = aGoCardlessEventFixture()
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("EV1"))
+                .withLinksOrganisation(organisationId);
+        GoCardlessEventFixture newEvent = aGoCardlessEventFixture()
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("EV2"))
+                .withLinksOrganisation(organisationId);
+        GoCardlessEventFixture sameEventIdForDifferentOrganisation = aGoCardlessEventFixture()
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("EV1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR456"));
+
+        goCardlessEventDao.insertIfNotExists(List.of(existingEvent.toEntity()));
+        List<GoCardlessEvent> insertedEvents = goCardlessEventDao.insertIfNotExists(List.of(
+                existingEvent.toEntity(), newEvent.toEntity(), newEvent.toEntity(), sameEventIdForDifferentOrganisation.toEntity()));
+
+        assertThat(insertedEvents.size(), is(2));
+        assertThat(insertedEvents.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("EV2")));
+        assertThat(insertedEvents.get(0).getId(), is(notNullValue()));
+        assertThat(insertedEvents.get(1).getLinksOrganisation(), is(GoCardlessOrganisationId.valueOf("OR456")));
+        assertThat(testContext.getDatabaseTestHelper().getAllGoCardlessEvents().size(), is(3));
+    }
+
     @Test
     public void shouldFindLatestApplicableEventForMandate() {
         GoCardlessEventFixture latestEvent = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("Mandate ID we want"))
@@ -104,13 +129,12 @@ public class GoCardlessEventDaoIT {
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
                 .withGoCardlessEventId(GoCardlessEventId.valueOf("This is an later event with the wrong organisation ID"));
 
-        goCardlessEventDao.insert(List.of(latestEvent.toEntity(), earlierEvent.toEntity(), laterEventWrongAction.toEntity(), 
+        insertAndUpdateLatestApplicableEvents(List.of(latestEvent.toEntity(), earlierEvent.toEntity(), laterEventWrongAction.toEntity(), 
                 laterEventWrongMandateId.toEntity(), laterEventWrongOrganisationId.toEntity()));
 
         GoCardlessEvent event = goCardlessEventDao.findLatestApplicableEventForMandate(
                 GoCardlessMandateId.valueOf("Mandate ID we want"),
-                GoCardlessOrganisationId.valueOf("Organisation ID we want"),
-                Set.of("Action we want")).get();
+                GoCardlessOrganisationId.valueOf("Organisation ID we want")).get();
 
         assertThat(event.getGoCardlessEventId(), is(GoCardlessEventId.valueOf("This is the latest applicable event")));
     }
@@ -147,13 +171,115 @@ public class GoCardlessEventDaoIT {
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
                 .withGoCardlessEventId(GoCardlessEventId.valueOf("This is an later event with the wrong organisation ID"));
 
-        goCardlessEventDao.insert(List.of(latestEvent.toEntity(), earlierEvent.toEntity(), laterEventWrongAction.toEntity(), 
+        insertAndUpdateLatestApplicableEvents(List.of(latestEvent.toEntity(), earlierEvent.toEntity(), laterEventWrongAction.toEntity(), 
                 laterEventWrongPaymentId.toEntity(), laterEventWrongOrganisationId.toEntity()));
 
         GoCardlessEvent event = goCardlessEventDao.findLatestApplicableEventForPayment(
                 GoCardlessPaymentId.valueOf("Payment ID we want"),
-                GoCardlessOrganisationId.valueOf("Organisation ID we want"),
-                Set.of("Action we want")).get();
+                GoCardlessOrganisationId.valueOf("Organisation ID we want")).get();
+
+        assertThat(event.getGoCardlessEventId(), is(GoCardlessEventId.valueOf("This is the latest applicable event")));
+    }
+
+
+    @Test
+    public void shouldFindLatestApplicableEventForEachMandateAndOrganisation() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("Organisation ID we want");
+        GoCardlessEventFixture latestEventForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("First mandate ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 12, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for first mandate"));
+
+        GoCardlessEventFixture earlierEventForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("First mandate ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 11, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Earlier event for first mandate"));
+
+        GoCardlessEventFixture laterEventWrongActionForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("First mandate ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Different action")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Later event for first mandate but with the wrong action"));
+
+        GoCardlessEventFixture latestEventForSecondMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("Second mandate ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 10, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for second mandate"));
+
+        GoCardlessEventFixture eventWrongOrganisationId = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("Second mandate ID"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("Different organisation ID"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Later event for second mandate but with the wrong organisation ID"));
+
+        insertAndUpdateLatestApplicableEvents(List.of(latestEventForFirstMandate.toEntity(), earlierEventForFirstMandate.toEntity(),
+                laterEventWrongActionForFirstMandate.toEntity(), latestEventForSecondMandate.toEntity(), eventWrongOrganisationId.toEntity()));
+
+        List<GoCardlessEvent> events = goCardlessEventDao.findLatestApplicableEventsForMandates(
+                new String[]{"First mandate ID", "Second mandate ID", "Mandate ID with no events"},
+                new String[]{"Organisation ID we want", "Organisation ID we want", "Organisation ID we want"});
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for first mandate")));
+        assertThat(events.get(1).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for second mandate")));
+    }
+
+    @Test
+    public void shouldFindLatestApplicableEventForEachPaymentAndOrganisation() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("Organisation ID we want");
+        GoCardlessEventFixture latestEventForFirstPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("First payment ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 12, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for first payment"));
+
+        GoCardlessEventFixture earlierEventForFirstPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("First payment ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 11, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Earlier event for first payment"));
+
+        GoCardlessEventFixture latestEventForSecondPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("Second payment ID"))
+                .withLinksOrganisation(organisationId)
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 10, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for second payment"));
+
+        insertAndUpdateLatestApplicableEvents(List.of(latestEventForFirstPayment.toEntity(), earlierEventForFirstPayment.toEntity(),
+                latestEventForSecondPayment.toEntity()));
+
+        List<GoCardlessEvent> events = goCardlessEventDao.findLatestApplicableEventsForPayments(
+                new String[]{"First payment ID", "Second payment ID"},
+                new String[]{"Organisation ID we want", "Organisation ID we want"});
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for first payment")));
+        assertThat(events.get(1).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for second payment")));
+    }
+
+    @Test
+    public void shouldNotReplaceLatestApplicableEventWithAnEarlierEventReceivedAfterIt() {
+        GoCardlessEventFixture latestEvent = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("Mandate ID we want"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("Organisation ID we want"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 12, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("This is the latest applicable event"));
+
+        GoCardlessEventFixture earlierEventReceivedLater = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("Mandate ID we want"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("Organisation ID we want"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 11, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("This is an earlier event received later"));
+
+        insertAndUpdateLatestApplicableEvents(List.of(latestEvent.toEntity()));
+        insertAndUpdateLatestApplicableEvents(List.of(earlierEventReceivedLater.toEntity()));
+
+        GoCardlessEvent event = goCardlessEventDao.findLatestApplicableEventForMandate(
+                GoCardlessMandateId.valueOf("Mandate ID we want"),
+                GoCardlessOrganisationId.valueOf("Organisation ID we want")).get();
 
         assertThat(event.getGoCardlessEventId(), is(GoCardlessEventId.valueOf("This is the latest applicable event")));
     }
@@ -162,10 +288,12 @@ public class GoCardlessEventDaoIT {
     public void shouldNotFindAnythingIfNoApplicableEventForMandate() {
         Optional<GoCardlessEvent> event = goCardlessEventDao.findLatestApplicableEventForMandate(
                 GoCardlessMandateId.valueOf("Mandate ID we want"),
-                GoCardlessOrganisationId.valueOf("Organisation ID we want"),
-                Set.of("Action we want"));
+                GoCardlessOrganisationId.valueOf("Organisation ID we want"));
 
         assertThat(event, is(Optional.empty()));
     }
 
+    private void insertAndUpdateLatestApplicableEvents(List<GoCardlessEvent> events) {
+        goCardlessEventDao.insertIfNotExistsAndUpdateLatestApplicableEvents(events, Set.of("Action we want"), Set.of("Action we want"));
+    }
 }
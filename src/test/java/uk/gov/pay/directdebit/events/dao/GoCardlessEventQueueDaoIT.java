@@ -0,0 +1,123 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventId;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class GoCardlessEventQueueDaoIT {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private GoCardlessEventDao goCardlessEventDao;
+    private GoCardlessEventQueueDao goCardlessEventQueueDao;
+
+    @Before
+    public void setUp() {
+        goCardlessEventDao = testContext.getJdbi().onDemand(GoCardlessEventDao.class);
+        goCardlessEventQueueDao = testContext.getJdbi().onDemand(GoCardlessEventQueueDao.class);
+    }
+
+    @Test
+    public void shouldStoreAndEnqueueEvents() {
+        insertAndEnqueue(List.of(
+                aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1")).toEntity(),
+                aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2")).toEntity()));
+
+        List<Map<String, Object>> queueEntries = testContext.getDatabaseTestHelper().getAllGoCardlessEventQueueEntries();
+        assertThat(queueEntries.size(), is(2));
+        assertThat(goCardlessEventQueueDao.countQueuedEvents(MAX_ATTEMPTS), is(2L));
+    }
+
+    @Test
+    public void shouldNotClaimEventsThatAreAlreadyClaimed() {
+        insertAndEnqueue(List.of(
+                aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1")).toEntity(),
+                aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2")).toEntity(),
+                aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV3")).toEntity()));
+
+        List<Long> firstClaim = goCardlessEventQueueDao.claim(2, 60, MAX_ATTEMPTS);
+        List<Long> secondClaim = goCardlessEventQueueDao.claim(2, 60, MAX_ATTEMPTS);
+
+        assertThat(firstClaim.size(), is(2));
+        assertThat(secondClaim.size(), is(1));
+        assertThat(goCardlessEventQueueDao.claim(2, 60, MAX_ATTEMPTS), is(empty()));
+
+        List<GoCardlessEvent> claimedEvents = goCardlessEventDao.findByIds(secondClaim);
+        assertThat(claimedEvents.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("EV3")));
+    }
+
+    @Test
+    public void shouldReclaimEventsWhoseClaimHasExpiredUntilTheyRunOutOfAttempts() {
+        insertAndEnqueue(List.of(aGoCardlessEventFixture().toEntity()));
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            assertThat(goCardlessEventQueueDao.claim(1, 0, MAX_ATTEMPTS).size(), is(1));
+        }
+
+        assertThat(goCardlessEventQueueDao.claim(1, 0, MAX_ATTEMPTS), is(empty()));
+        assertThat(goCardlessEventQueueDao.countQueuedEvents(MAX_ATTEMPTS), is(0L));
+        assertThat(goCardlessEventQueueDao.countExhaustedEvents(MAX_ATTEMPTS), is(1L));
+    }
+
+    @Test
+    public void shouldOnlyClaimEventsEnqueuedAsClaimedOnceTheirClaimHasExpired() {
+        List<GoCardlessEvent> insertedEvents = goCardlessEventDao.insertIfNotExistsAndEnqueueClaimed(
+                List.of(aGoCardlessEventFixture().toEntity()),
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, 60);
+
+        assertThat(goCardlessEventQueueDao.claim(10, 60, MAX_ATTEMPTS), is(empty()));
+
+        testContext.getJdbi().useHandle(handle ->
+                handle.execute("UPDATE gocardless_event_queue SET claimed_until = now() - interval '1 second'"));
+
+        assertThat(goCardlessEventQueueDao.claim(10, 60, MAX_ATTEMPTS), is(List.of(insertedEvents.get(0).getId())));
+        assertThat(testContext.getDatabaseTestHelper().getAllGoCardlessEventQueueEntries().get(0).get("attempts"), is(2));
+    }
+
+    @Test
+    public void shouldRemoveProcessedEventsFromTheQueue() {
+        insertAndEnqueue(List.of(aGoCardlessEventFixture().toEntity()));
+        List<Long> claimed = goCardlessEventQueueDao.claim(10, 60, MAX_ATTEMPTS);
+
+        goCardlessEventQueueDao.remove(claimed);
+
+        assertThat(testContext.getDatabaseTestHelper().getAllGoCardlessEventQueueEntries(), is(empty()));
+        assertThat(goCardlessEventQueueDao.findLagInMilliseconds(MAX_ATTEMPTS), is(0L));
+    }
+
+    @Test
+    public void shouldReportLagOfOldestQueuedEvent() {
+        insertAndEnqueue(List.of(aGoCardlessEventFixture().toEntity()));
+        testContext.getJdbi().useHandle(handle ->
+                handle.execute("UPDATE gocardless_event_queue SET enqueued_at = now() - interval '1 minute'"));
+
+        assertThat(goCardlessEventQueueDao.findLagInMilliseconds(MAX_ATTEMPTS) >= 60_000L, is(true));
+    }
+
+    private void insertAndEnqueue(List<GoCardlessEvent> events) {
+        goCardlessEventDao.insertIfNotExistsAndEnqueue(events,
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
 import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
 import uk.gov.pay.directdebit.junit.DropwizardTestContext;
@@ -18,6 +19,7 @@ import java.time.ZonedDateTime;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.nullValue;
@@ -147,85 +149,87 @@ public class GovUkPayEventDaoIT {
 
     @Test
     public void shouldFindLatestApplicableEventForMandate() {
-        aGovUkPayEventFixture()
-                .withMandateId(mandate.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
-                .withEventType(MANDATE_USER_SETUP_EXPIRED)
-                .insert(testContext.getJdbi())
-                .toEntity();
-        var latestApplicableEvent = aGovUkPayEventFixture()
-                .withMandateId(mandate.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T13:30:40Z"))
-                .withEventType(MANDATE_CREATED)
-                .insert(testContext.getJdbi())
-                .toEntity();
-        aGovUkPayEventFixture()
-                .withMandateId(mandate.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T11:30:40Z"))
-                .withEventType(MANDATE_USER_SETUP_CANCELLED)
-                .insert(testContext.getJdbi())
-                .toEntity();
-
         var applicableEvents = Set.of(MANDATE_CREATED, MANDATE_USER_SETUP_CANCELLED);
-        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), applicableEvents);
+        insertMandateEvent(mandate, "2019-01-01T14:30:40Z", MANDATE_USER_SETUP_EXPIRED, applicableEvents);
+        var latestApplicableEvent = insertMandateEvent(mandate, "2019-01-01T13:30:40Z", MANDATE_CREATED, applicableEvents);
+        insertMandateEvent(mandate, "2019-01-01T11:30:40Z", MANDATE_USER_SETUP_CANCELLED, applicableEvents);
+
+        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId());
 
         assertThat(govUkPayEvent.get(), is(latestApplicableEvent));
     }
 
     @Test
     public void shouldReturnEmptyOptionalWhenNoApplicableEventForMandate() {
-        aGovUkPayEventFixture()
-                .withMandateId(mandate.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
-                .withEventType(MANDATE_USER_SETUP_EXPIRED)
-                .insert(testContext.getJdbi())
-                .toEntity();
-
         var applicableEvents = Set.of(MANDATE_CREATED, MANDATE_USER_SETUP_CANCELLED);
-        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), applicableEvents);
+        insertMandateEvent(mandate, "2019-01-01T14:30:40Z", MANDATE_USER_SETUP_EXPIRED, applicableEvents);
+
+        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId());
 
         assertThat(govUkPayEvent, is(Optional.empty()));
     }
 
     @Test
-    public void shouldFindLatestApplicableEventForPayment() {
-        aGovUkPayEventFixture()
-                .withPaymentId(payment.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
-                .withEventType(MANDATE_SUBMITTED_TO_PROVIDER)
-                .insert(testContext.getJdbi())
-                .toEntity();
-        var latestApplicableEvent = aGovUkPayEventFixture()
-                .withPaymentId(payment.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T13:30:40Z"))
-                .withEventType(PAYMENT_SUBMITTED)
-                .insert(testContext.getJdbi())
-                .toEntity();
-        aGovUkPayEventFixture()
-                .withPaymentId(payment.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T11:30:40Z"))
-                .withEventType(PAYMENT_SUBMITTED)
+    public void shouldFindLatestApplicableEventForEachMandate() {
+        var otherMandate = aMandateFixture()
+                .withGatewayAccountFixture(GatewayAccountFixture.aGatewayAccountFixture().insert(testContext.getJdbi()))
                 .insert(testContext.getJdbi())
                 .toEntity();
+        var applicableEvents = Set.of(MANDATE_CREATED, MANDATE_USER_SETUP_CANCELLED);
+        insertMandateEvent(mandate, "2019-01-01T14:30:40Z", MANDATE_USER_SETUP_EXPIRED, applicableEvents);
+        var latestApplicableEvent = insertMandateEvent(mandate, "2019-01-01T13:30:40Z", MANDATE_CREATED, applicableEvents);
+        insertMandateEvent(mandate, "2019-01-01T11:30:40Z", MANDATE_USER_SETUP_CANCELLED, applicableEvents);
+        var otherLatestApplicableEvent = insertMandateEvent(otherMandate, "2019-01-01T12:30:40Z", MANDATE_USER_SETUP_CANCELLED, applicableEvents);
 
+        List<GovUkPayEvent> govUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForMandates(
+                List.of(mandate.getId(), otherMandate.getId()));
+
+        assertThat(govUkPayEvents, is(List.of(latestApplicableEvent, otherLatestApplicableEvent)));
+    }
+
+    @Test
+    public void shouldFindLatestApplicableEventForPayment() {
         var applicableEvents = Set.of(PAYMENT_SUBMITTED);
-        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), applicableEvents);
+        insertPaymentEvent("2019-01-01T14:30:40Z", MANDATE_SUBMITTED_TO_PROVIDER, applicableEvents);
+        var latestApplicableEvent = insertPaymentEvent("2019-01-01T13:30:40Z", PAYMENT_SUBMITTED, applicableEvents);
+        insertPaymentEvent("2019-01-01T11:30:40Z", PAYMENT_SUBMITTED, applicableEvents);
+
+        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId());
 
         assertThat(govUkPayEvent.get(), is(latestApplicableEvent));
     }
 
     @Test
     public void shouldReturnEmptyOptionalWhenNoApplicableEventForPayment() {
-        aGovUkPayEventFixture()
-                .withPaymentId(payment.getId())
-                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
-                .withEventType(MANDATE_SUBMITTED_TO_PROVIDER)
-                .insert(testContext.getJdbi())
-                .toEntity();
-
         var applicableEvents = Set.of(PAYMENT_SUBMITTED);
-        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), applicableEvents);
+        insertPaymentEvent("2019-01-01T14:30:40Z", MANDATE_SUBMITTED_TO_PROVIDER, applicableEvents);
+
+        Optional<GovUkPayEvent> govUkPayEvent = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId());
 
         assertThat(govUkPayEvent, is(Optional.empty()));
     }
+
+    private GovUkPayEvent insertMandateEvent(Mandate eventMandate, String eventDate, GovUkPayEventType eventType,
+                                             Set<GovUkPayEventType> applicableEvents) {
+        var event = aGovUkPayEventFixture()
+                .withMandateId(eventMandate.getId())
+                .withEventDate(ZonedDateTime.parse(eventDate))
+                .withEventType(eventType)
+                .insert(testContext.getJdbi())
+                .toEntity();
+        govUkPayEventDao.updateLatestApplicableEventForMandate(event.getId(), applicableEvents);
+        return event;
+    }
+
+    private GovUkPayEvent insertPaymentEvent(String eventDate, GovUkPayEventType eventType,
+                                             Set<GovUkPayEventType> applicableEvents) {
+        var event = aGovUkPayEventFixture()
+                .withPaymentId(payment.getId())
+                .withEventDate(ZonedDateTime.parse(eventDate))
+                .withEventType(eventType)
+                .insert(testContext.getJdbi())
+                .toEntity();
+        govUkPayEventDao.updateLatestApplicableEventForPayment(event.getId(), applicableEvents);
+        return event;
+    }
 }
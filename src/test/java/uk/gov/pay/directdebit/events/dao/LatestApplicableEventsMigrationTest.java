@@ -0,0 +1,92 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+import static uk.gov.pay.directdebit.payments.services.sandbox.SandboxEventToPaymentStateMapper.SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+
+/**
+ * The migrations that backfill the latest applicable event tables list the event actions or types to copy in the SQL;
+ * between them these must be the ones the state mappers apply, or the backfilled rows would disagree with the rows
+ * recorded as events arrive. An action or type added to a mapper needs a new migration backfilling it.
+ */
+public class LatestApplicableEventsMigrationTest {
+
+    private static final List<String> BACKFILL_MIGRATIONS = List.of(
+            "migrations/00068_create_tables_latest_applicable_events.sql",
+            "migrations/00075_backfill_latest_sandbox_payment_failed_events.sql");
+    private static final Pattern IN_LIST = Pattern.compile("\\b(?:action|event_type|event_action) IN \\(([^)]*)\\)");
+    private static final Pattern QUOTED_VALUE = Pattern.compile("'([^']*)'");
+
+    private static final List<String> changesets = new ArrayList<>();
+
+    @BeforeClass
+    public static void readMigrations() throws IOException {
+        for (String migration : BACKFILL_MIGRATIONS) {
+            try (InputStream inputStream = LatestApplicableEventsMigrationTest.class.getClassLoader().getResourceAsStream(migration)) {
+                changesets.addAll(Arrays.asList(new String(inputStream.readAllBytes(), UTF_8).split("--changeset ")));
+            }
+        }
+    }
+
+    @Test
+    public void shouldBackfillLatestGoCardlessMandateEventsWithTheActionsThatChangeMandateState() {
+        assertThat(valuesBackfilledInto("latest_gocardless_mandate_events"), is(GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE));
+    }
+
+    @Test
+    public void shouldBackfillLatestGoCardlessPaymentEventsWithTheActionsThatChangePaymentState() {
+        assertThat(valuesBackfilledInto("latest_gocardless_payment_events"), is(GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE));
+    }
+
+    @Test
+    public void shouldBackfillLatestGovUkPayMandateEventsWithTheEventTypesThatChangeMandateState() {
+        assertThat(valuesBackfilledInto("latest_govukpay_mandate_events"), is(namesOf(GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE)));
+    }
+
+    @Test
+    public void shouldBackfillLatestGovUkPayPaymentEventsWithTheEventTypesThatChangePaymentState() {
+        assertThat(valuesBackfilledInto("latest_govukpay_payment_events"), is(namesOf(GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE)));
+    }
+
+    @Test
+    public void shouldBackfillLatestSandboxPaymentEventsWithTheActionsThatChangePaymentState() {
+        assertThat(valuesBackfilledInto("latest_sandbox_payment_events"), is(SANDBOX_ACTIONS_THAT_CHANGE_PAYMENT_STATE));
+    }
+
+    private static Set<String> valuesBackfilledInto(String table) {
+        Set<String> values = new HashSet<>();
+        changesets.stream()
+                .filter(changeset -> changeset.contains("INSERT INTO " + table + " "))
+                .forEach(changeset -> {
+                    Matcher inList = IN_LIST.matcher(changeset);
+                    while (inList.find()) {
+                        QUOTED_VALUE.matcher(inList.group(1)).results().forEach(result -> values.add(result.group(1)));
+                    }
+                });
+        return values;
+    }
+
+    private static Set<String> namesOf(Set<GovUkPayEventType> eventTypes) {
+        return eventTypes.stream().map(Enum::name).collect(toSet());
+    }
+}
@@ -85,12 +85,13 @@ public class SandboxEventDaoIT {
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 12, 16, 0, 0, 0, UTC))
                 .build();
 
-        sandboxEventDao.insert(earlierEvent);
-        sandboxEventDao.insert(latestEvent);
-        sandboxEventDao.insert(laterEventWrongAction);
-        sandboxEventDao.insert(laterEventWrongPayment);
+        Set<String> applicableActions = Set.of("Action we want");
+        sandboxEventDao.insertAndUpdateLatestApplicableEventForPayment(latestEvent, applicableActions);
+        sandboxEventDao.insertAndUpdateLatestApplicableEventForPayment(earlierEvent, applicableActions);
+        sandboxEventDao.insertAndUpdateLatestApplicableEventForPayment(laterEventWrongAction, applicableActions);
+        sandboxEventDao.insertAndUpdateLatestApplicableEventForPayment(laterEventWrongPayment, applicableActions);
 
-        SandboxEvent event = sandboxEventDao.findLatestApplicableEventForPayment(SandboxPaymentId.valueOf("Payment ID we want"), Set.of("Action we want")).get();
+        SandboxEvent event = sandboxEventDao.findLatestApplicableEventForPayment(SandboxPaymentId.valueOf("Payment ID we want")).get();
 
         assertThat(event.getPaymentId(), is(Optional.of(SandboxPaymentId.valueOf("Payment ID we want"))));
         assertThat(event.getEventAction(), is("Action we want"));
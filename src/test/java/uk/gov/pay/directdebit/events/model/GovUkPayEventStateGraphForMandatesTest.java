@@ -3,10 +3,15 @@ package uk.gov.pay.directdebit.events.model;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_CANCELLED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_ERROR_SUBMITTING_TO_PROVIDER;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_SUBMITTED_TO_PROVIDER;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED;
 
 public class GovUkPayEventStateGraphForMandatesTest {
@@ -24,6 +29,12 @@ public class GovUkPayEventStateGraphForMandatesTest {
         assertThat(validTransition, is(true));
     }
 
+    @Test
+    public void isValidTransition_shouldAllowAnErrorAfterBeingSubmittedToProvider() {
+        boolean validTransition = govUkPayEventStateGraph.isValidTransition(MANDATE_SUBMITTED_TO_PROVIDER, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+        assertThat(validTransition, is(true));
+    }
+
     @Test
     public void isValidTransition_shouldReturnFalseForInvalidTransition() {
         boolean validTransition = govUkPayEventStateGraph.isValidTransition(MANDATE_USER_SETUP_EXPIRED, MANDATE_CREATED);
@@ -47,4 +58,10 @@ public class GovUkPayEventStateGraphForMandatesTest {
         boolean validStartValue = govUkPayEventStateGraph.isValidStartValue(MANDATE_USER_SETUP_CANCELLED);
         assertThat(validStartValue, is(false));
     }
+
+    @Test
+    public void getEventTypesThatCanBeFollowedBy_shouldReturnTheEventTypesThatCanBeExpired() {
+        assertThat(govUkPayEventStateGraph.getEventTypesThatCanBeFollowedBy(MANDATE_USER_SETUP_EXPIRED),
+                is(Set.of(MANDATE_CREATED, MANDATE_TOKEN_EXCHANGED)));
+    }
 }
@@ -0,0 +1,102 @@
+package uk.gov.pay.directdebit.gatewayaccounts.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.gatewayaccounts.config.GatewayAccountCacheConfig;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingGatewayAccountDaoTest {
+
+    @Mock
+    private GatewayAccountDao mockGatewayAccountDao;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private GatewayAccount gatewayAccount = aGatewayAccountFixture().toEntity();
+    private CachingGatewayAccountDao cachingGatewayAccountDao;
+
+    @Before
+    public void setUp() {
+        cachingGatewayAccountDao = new CachingGatewayAccountDao(mockGatewayAccountDao, new GatewayAccountCacheConfig(), metricRegistry);
+    }
+
+    @Test
+    public void shouldOnlyQueryOnceForRepeatedLookupsByExternalId() {
+        given(mockGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId())).willReturn(Optional.of(gatewayAccount));
+
+        cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+        Optional<GatewayAccount> result = cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+
+        assertThat(result, is(Optional.of(gatewayAccount)));
+        verify(mockGatewayAccountDao, times(1)).findByExternalId(gatewayAccount.getExternalId());
+        assertThat(metricRegistry.counter("gateway-account-cache.hits").getCount(), is(1L));
+        assertThat(metricRegistry.counter("gateway-account-cache.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldFindAccountByIdOnceItHasBeenLoadedByExternalId() {
+        given(mockGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId())).willReturn(Optional.of(gatewayAccount));
+
+        cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+        Optional<GatewayAccount> result = cachingGatewayAccountDao.findById(gatewayAccount.getId());
+
+        assertThat(result, is(Optional.of(gatewayAccount)));
+        verify(mockGatewayAccountDao).findByExternalId(gatewayAccount.getExternalId());
+        verifyNoMoreInteractions(mockGatewayAccountDao);
+    }
+
+    @Test
+    public void shouldNotCacheAccountsThatAreNotFound() {
+        given(mockGatewayAccountDao.findByExternalId("not-yet-created"))
+                .willReturn(Optional.empty())
+                .willReturn(Optional.of(gatewayAccount));
+
+        assertThat(cachingGatewayAccountDao.findByExternalId("not-yet-created"), is(Optional.empty()));
+        assertThat(cachingGatewayAccountDao.findByExternalId("not-yet-created"), is(Optional.of(gatewayAccount)));
+    }
+
+    @Test
+    public void shouldReloadAccountAfterAccessTokenAndOrganisationAreUpdated() {
+        given(mockGatewayAccountDao.findById(gatewayAccount.getId())).willReturn(Optional.of(gatewayAccount));
+
+        cachingGatewayAccountDao.findById(gatewayAccount.getId());
+        cachingGatewayAccountDao.updateAccessTokenAndOrganisation(gatewayAccount.getExternalId(),
+                PaymentProviderAccessToken.of("new-token"), GoCardlessOrganisationId.valueOf("new-organisation"));
+        cachingGatewayAccountDao.findById(gatewayAccount.getId());
+        cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+
+        verify(mockGatewayAccountDao, times(2)).findById(gatewayAccount.getId());
+        verify(mockGatewayAccountDao, never()).findByExternalId(gatewayAccount.getExternalId());
+    }
+
+    @Test
+    public void shouldNotCacheAnAccountLoadedWhileItWasBeingUpdated() {
+        given(mockGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId())).willAnswer(invocation -> {
+            cachingGatewayAccountDao.updateAccessTokenAndOrganisation(gatewayAccount.getExternalId(),
+                    PaymentProviderAccessToken.of("new-token"), GoCardlessOrganisationId.valueOf("new-organisation"));
+            return Optional.of(gatewayAccount);
+        });
+
+        cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+        cachingGatewayAccountDao.findByExternalId(gatewayAccount.getExternalId());
+
+        verify(mockGatewayAccountDao, times(2)).findByExternalId(gatewayAccount.getExternalId());
+    }
+}
@@ -27,7 +27,11 @@ public class DropwizardAppWithPostgresRule implements TestRule {
     private DatabaseTestHelper databaseTestHelper;
 
     public DropwizardAppWithPostgresRule() {
-        configFilePath = resourceFilePath("config/test-it-config.yaml");
+        this("config/test-it-config.yaml");
+    }
+
+    public DropwizardAppWithPostgresRule(String configResource) {
+        configFilePath = resourceFilePath(configResource);
         getOrCreate();
         ConfigOverride[] configOverride = {config("database.url", getDbUri()), config("database.user", getDbUsername()), config("database.password", getDbPassword())};
         app = new DropwizardAppRule<>(
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Arrays;
 
 import static java.time.ZonedDateTime.now;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -35,11 +36,13 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_SUBMITTED_TO_PROVIDER;
 import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.aMandate;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.ACTIVE;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.AWAITING_DIRECT_DEBIT_DETAILS;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.CREATED;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.SUBMITTED_TO_PROVIDER;
+import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
 import static uk.gov.pay.directdebit.tokens.fixtures.TokenFixture.aTokenFixture;
 import static uk.gov.pay.directdebit.util.ZonedDateTimeTimestampMatcher.isDate;
 
@@ -257,6 +260,42 @@ public class MandateDaoIT {
         assertThat(mandate, is(Optional.empty()));
     }
 
+
+    @Test
+    public void shouldFindMandatesByPaymentProviderIdsAndOrganisationIds() {
+        GatewayAccountFixture gatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(GoCardlessOrganisationId.valueOf("Organisation ID we want"))
+                .insert(testContext.getJdbi());
+
+        GatewayAccountFixture gatewayAccountFixtureWithWrongOrganisation = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(GoCardlessOrganisationId.valueOf("Different organisation"))
+                .insert(testContext.getJdbi());
+
+        MandateFixture firstMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("First mandate ID"))
+                .insert(testContext.getJdbi());
+
+        MandateFixture secondMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("Second mandate ID"))
+                .insert(testContext.getJdbi());
+
+        MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixtureWithWrongOrganisation)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("Second mandate ID"))
+                .insert(testContext.getJdbi());
+
+        List<Mandate> mandates = mandateDao.findByPaymentProviderMandateIdsAndOrganisations(GOCARDLESS,
+                new String[]{"First mandate ID", "Second mandate ID", "Unknown mandate ID"},
+                new String[]{"Organisation ID we want", "Organisation ID we want", "Organisation ID we want"});
+
+        assertThat(mandates.size(), is(2));
+        assertThat(Set.of(mandates.get(0).getId(), mandates.get(1).getId()), is(Set.of(firstMandateFixture.getId(), secondMandateFixture.getId())));
+    }
+
     @Test
     public void shouldFindAMandateByPaymentProviderIdAndNoOrganisationId() {
         var mandateExternalId = MandateExternalId.valueOf("expectedExternalId");
@@ -392,7 +431,7 @@ public class MandateDaoIT {
                 .withPaymentProviderId(GoCardlessMandateId.valueOf("Mandate ID we want"))
                 .insert(testContext.getJdbi());
 
-        int numOfUpdatedMandates = mandateDao.updateStateAndDetails(mandateFixture.getId(), SUBMITTED_TO_PROVIDER,
+        int numOfUpdatedMandates = mandateDao.updateStateAndDetails(mandateFixture.getId(), 0, SUBMITTED_TO_PROVIDER,
                 "state details","state details description");
 
         assertThat(numOfUpdatedMandates, is(1));
@@ -403,6 +442,41 @@ public class MandateDaoIT {
         assertThat(mandate.getStateDetailsDescription(), is(Optional.of("state details description")));
     }
 
+
+    @Test
+    public void shouldUpdateStatesWithDetailsInABatch() {
+        GatewayAccountFixture goCardlessGatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .insert(testContext.getJdbi());
+
+        MandateFixture firstMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(goCardlessGatewayAccountFixture)
+                .insert(testContext.getJdbi());
+
+        MandateFixture secondMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(goCardlessGatewayAccountFixture)
+                .withStateDetails("state details before update")
+                .insert(testContext.getJdbi());
+
+        int[] numOfUpdatedMandates = mandateDao.updateStatesAndDetails(
+                List.of(firstMandateFixture.getId(), secondMandateFixture.getId()),
+                List.of(0, 0),
+                List.of(SUBMITTED_TO_PROVIDER, ACTIVE),
+                Arrays.asList("state details", null),
+                Arrays.asList("state details description", null));
+
+        assertThat(numOfUpdatedMandates.length, is(2));
+
+        Mandate firstMandate = mandateDao.findById(firstMandateFixture.getId()).get();
+        assertThat(firstMandate.getState(), is(SUBMITTED_TO_PROVIDER));
+        assertThat(firstMandate.getStateDetails(), is(Optional.of("state details")));
+        assertThat(firstMandate.getStateDetailsDescription(), is(Optional.of("state details description")));
+
+        Mandate secondMandate = mandateDao.findById(secondMandateFixture.getId()).get();
+        assertThat(secondMandate.getState(), is(ACTIVE));
+        assertThat(secondMandate.getStateDetails(), is(Optional.empty()));
+    }
+
     @Test
     public void shouldUpdateStateWithNoDetailsAndDescriptionAndReturnNumberOfAffectedRows() {
         GatewayAccountFixture goCardlessGatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture()
@@ -418,7 +492,7 @@ public class MandateDaoIT {
                 .withStateDetailsDescription("state details description before update")
                 .insert(testContext.getJdbi());
 
-        int numOfUpdatedMandates = mandateDao.updateStateAndDetails(mandateFixture.getId(), SUBMITTED_TO_PROVIDER,
+        int numOfUpdatedMandates = mandateDao.updateStateAndDetails(mandateFixture.getId(), 0, SUBMITTED_TO_PROVIDER,
                 null, null);
 
         assertThat(numOfUpdatedMandates, is(1));
@@ -459,6 +533,7 @@ public class MandateDaoIT {
 
         int numOfUpdatedMandates = mandateDao.updateStateAndDetails(
                 mandateFixture.getId(),
+                0,
                 SUBMITTED_TO_PROVIDER,
                 "state details",
                 "state details description");
@@ -487,7 +562,7 @@ public class MandateDaoIT {
                 .insert(testContext.getJdbi());
 
         int numOfUpdatedMandates = mandateDao.updateStateAndDetails(
-                mandateFixture.getId(), SUBMITTED_TO_PROVIDER, null, null);
+                mandateFixture.getId(), 0, SUBMITTED_TO_PROVIDER, null, null);
 
         assertThat(numOfUpdatedMandates, is(1));
 
@@ -497,6 +572,56 @@ public class MandateDaoIT {
         assertThat(mandate.getStateDetailsDescription(), is(Optional.empty()));
     }
 
+    @Test
+    public void shouldIncrementVersionWhenUpdatingState() {
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+
+        mandateDao.updateStateAndDetails(mandateFixture.getId(), 0, SUBMITTED_TO_PROVIDER, null, null);
+
+        assertThat(mandateDao.findById(mandateFixture.getId()).get().getVersion(), is(1));
+    }
+
+    @Test
+    public void shouldNotUpdateStateWhenVersionIsStale() {
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withState(CREATED)
+                .insert(testContext.getJdbi());
+        mandateDao.updateStateAndDetails(mandateFixture.getId(), 0, AWAITING_DIRECT_DEBIT_DETAILS, null, null);
+
+        int numOfUpdatedMandates = mandateDao.updateStateAndDetails(mandateFixture.getId(), 0, SUBMITTED_TO_PROVIDER,
+                null, null);
+
+        assertThat(numOfUpdatedMandates, is(0));
+        Mandate mandate = mandateDao.findById(mandateFixture.getId()).get();
+        assertThat(mandate.getState(), is(AWAITING_DIRECT_DEBIT_DETAILS));
+        assertThat(mandate.getVersion(), is(1));
+    }
+
+    @Test
+    public void shouldOnlyUpdateStatesWithCurrentVersionsInABatch() {
+        MandateFixture currentMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        MandateFixture staleMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        mandateDao.updateStateAndDetails(staleMandateFixture.getId(), 0, AWAITING_DIRECT_DEBIT_DETAILS, null, null);
+
+        int[] numOfUpdatedMandates = mandateDao.updateStatesAndDetails(
+                List.of(currentMandateFixture.getId(), staleMandateFixture.getId()),
+                List.of(0, 0),
+                List.of(ACTIVE, ACTIVE),
+                Arrays.asList(null, null),
+                Arrays.asList(null, null));
+
+        assertThat(numOfUpdatedMandates, is(new int[]{1, 0}));
+        assertThat(mandateDao.findById(currentMandateFixture.getId()).get().getState(), is(ACTIVE));
+        assertThat(mandateDao.findById(staleMandateFixture.getId()).get().getState(), is(AWAITING_DIRECT_DEBIT_DETAILS));
+    }
+
     @Test
     public void shouldUpdateReferenceAndPaymentProviderId() {
         var bankStatementReference = MandateBankStatementReference.valueOf("newReference");
@@ -574,4 +699,54 @@ public class MandateDaoIT {
         List<Mandate> transactions = mandateDao.findAllMandatesBySetOfStatesAndMaxCreationTime(states, now().minusMinutes(90L));
         assertThat(transactions.size(), is(3));
     }
+
+    @Test
+    public void shouldFindMandatesSubmittedToProviderBeforeTheCutOffThatHaveNoPaymentProviderId() {
+        MandateFixture stalledMandate = aMandateSubmittedToProvider(now().minusMinutes(10L), null);
+        aMandateSubmittedToProvider(now().minusMinutes(1L), null);
+        aMandateSubmittedToProvider(now().minusMinutes(10L), SandboxMandateId.valueOf("aSandboxMandateId"));
+
+        List<Mandate> mandates = mandateDao.findMandatesAwaitingPaymentProviderId(now().minusMinutes(5L), 10);
+
+        assertThat(mandates.size(), is(1));
+        assertThat(mandates.get(0).getId(), is(stalledMandate.getId()));
+    }
+
+    @Test
+    public void shouldOnlySetReferenceAndPaymentProviderIdIfNotAlreadySet() {
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withState(SUBMITTED_TO_PROVIDER)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        Mandate mandate = mandateFixture.toEntity();
+        Mandate created = Mandate.MandateBuilder.fromMandate(mandate)
+                .withPaymentProviderId(SandboxMandateId.valueOf("firstSandboxMandateId"))
+                .withMandateBankStatementReference(MandateBankStatementReference.valueOf("first-reference"))
+                .build();
+        Mandate createdAgain = Mandate.MandateBuilder.fromMandate(mandate)
+                .withPaymentProviderId(SandboxMandateId.valueOf("secondSandboxMandateId"))
+                .withMandateBankStatementReference(MandateBankStatementReference.valueOf("second-reference"))
+                .build();
+
+        assertThat(mandateDao.updateReferenceAndPaymentProviderIdIfNotSet(created), is(1));
+        assertThat(mandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdAgain), is(0));
+
+        Map<String, Object> updatedMandate = testContext.getDatabaseTestHelper().getMandateById(mandateFixture.getId());
+        assertThat(updatedMandate.get("payment_provider_id"), is("firstSandboxMandateId"));
+        assertThat(updatedMandate.get("mandate_reference"), is("first-reference"));
+    }
+
+    private MandateFixture aMandateSubmittedToProvider(ZonedDateTime submittedDate, PaymentProviderMandateId paymentProviderMandateId) {
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withState(SUBMITTED_TO_PROVIDER)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPaymentProviderId(paymentProviderMandateId)
+                .insert(testContext.getJdbi());
+        aGovUkPayEventFixture()
+                .withMandateId(mandateFixture.getId())
+                .withEventType(MANDATE_SUBMITTED_TO_PROVIDER)
+                .withEventDate(submittedDate)
+                .insert(testContext.getJdbi());
+        return mandateFixture;
+    }
 }
@@ -0,0 +1,110 @@
+package uk.gov.pay.directdebit.mandate.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.mandate.model.MandateIdAndExternalId;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static java.time.ZonedDateTime.now;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_SUBMITTED_TO_PROVIDER;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.AWAITING_DIRECT_DEBIT_DETAILS;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.CREATED;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.USER_SETUP_EXPIRED;
+import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class MandateExpiryDaoIT {
+
+    private static final Set<MandateState> EXPIRABLE_STATES = Set.of(CREATED, AWAITING_DIRECT_DEBIT_DETAILS);
+    private static final Set<GovUkPayEventType> EVENT_TYPES_THAT_CAN_BE_EXPIRED = Set.of(MANDATE_CREATED, MANDATE_TOKEN_EXCHANGED);
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private MandateExpiryDao mandateExpiryDao;
+    private MandateDao mandateDao;
+    private GovUkPayEventDao govUkPayEventDao;
+    private GatewayAccountFixture gatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture();
+
+    @Before
+    public void setUp() {
+        gatewayAccountFixture.insert(testContext.getJdbi());
+        mandateExpiryDao = new MandateExpiryDao(testContext.getJdbi());
+        mandateDao = testContext.getJdbi().onDemand(MandateDao.class);
+        govUkPayEventDao = testContext.getJdbi().onDemand(GovUkPayEventDao.class);
+    }
+
+    @Test
+    public void shouldExpireTheNextChunkOfExpirableMandatesInOneStatement() {
+        MandateFixture firstMandate = aMandate(CREATED, now().minusMinutes(91L), MANDATE_CREATED);
+        MandateFixture secondMandate = aMandate(AWAITING_DIRECT_DEBIT_DETAILS, now().minusMinutes(91L), MANDATE_TOKEN_EXCHANGED);
+        MandateFixture mandateInNextChunk = aMandate(CREATED, now().minusMinutes(91L), MANDATE_CREATED);
+
+        List<MandateIdAndExternalId> expiredMandates = expireNextChunk(firstMandate.getId() - 1, 2);
+
+        assertThat(expiredMandates.stream().map(MandateIdAndExternalId::getId).collect(toList()),
+                is(List.of(firstMandate.getId(), secondMandate.getId())));
+        assertThat(expiredMandates.get(0).getExternalId(), is(firstMandate.getExternalId()));
+        assertExpired(firstMandate);
+        assertExpired(secondMandate);
+        assertThat(mandateDao.findById(mandateInNextChunk.getId()).get().getState(), is(CREATED));
+    }
+
+    @Test
+    public void shouldNotExpireRecentMandatesOrMandatesWhoseLatestEventCannotBeFollowedByExpiry() {
+        MandateFixture recentMandate = aMandate(CREATED, now().minusMinutes(10L), MANDATE_CREATED);
+        MandateFixture submittedMandate = aMandate(AWAITING_DIRECT_DEBIT_DETAILS, now().minusMinutes(91L), MANDATE_SUBMITTED_TO_PROVIDER);
+
+        List<MandateIdAndExternalId> expiredMandates = expireNextChunk(recentMandate.getId() - 1, 10);
+
+        assertThat(expiredMandates.isEmpty(), is(true));
+        assertThat(mandateDao.findById(recentMandate.getId()).get().getState(), is(CREATED));
+        assertThat(mandateDao.findById(submittedMandate.getId()).get().getState(), is(AWAITING_DIRECT_DEBIT_DETAILS));
+    }
+
+    private List<MandateIdAndExternalId> expireNextChunk(long afterId, int chunkSize) {
+        return mandateExpiryDao.expireNextChunk(EXPIRABLE_STATES, EVENT_TYPES_THAT_CAN_BE_EXPIRED, now().minusMinutes(90L),
+                afterId, chunkSize, MANDATE_USER_SETUP_EXPIRED, USER_SETUP_EXPIRED);
+    }
+
+    private void assertExpired(MandateFixture mandateFixture) {
+        assertThat(mandateDao.findById(mandateFixture.getId()).get().getState(), is(USER_SETUP_EXPIRED));
+        assertThat(govUkPayEventDao.findLatestEventForMandate(mandateFixture.getId()).get().getEventType(), is(MANDATE_USER_SETUP_EXPIRED));
+        assertThat(govUkPayEventDao.findLatestApplicableEventForMandate(mandateFixture.getId()).get().getEventType(), is(MANDATE_USER_SETUP_EXPIRED));
+    }
+
+    private MandateFixture aMandate(MandateState state, ZonedDateTime createdDate, GovUkPayEventType latestEventType) {
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withState(state)
+                .withCreatedDate(createdDate)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        aGovUkPayEventFixture()
+                .withMandateId(mandateFixture.getId())
+                .withEventType(latestEventType)
+                .withEventDate(now().minusMinutes(1L))
+                .insert(testContext.getJdbi());
+        return mandateFixture;
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.TextMatch;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
 import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
 import uk.gov.pay.directdebit.junit.DropwizardTestContext;
@@ -19,6 +21,7 @@ import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
@@ -73,6 +76,22 @@ public class MandateSearchDaoIT {
         assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
     }
     
+    @Test
+    @Parameters({"REF", "ref12"})
+    public void searchByReferencePrefix(String searchString) {
+        var searchParams = aMandateSearchParams().withServiceReference(searchString).withMatch(TextMatch.PREFIX).build();
+        var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
+        assertThat(total).isEqualTo(1);
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+    }
+
+    @Test
+    public void searchByPrefixDoesNotMatchInsideValues() {
+        var searchParams = aMandateSearchParams().withName("bloggs").withMatch(TextMatch.PREFIX).build();
+        var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
+        assertThat(total).isEqualTo(0);
+    }
+
     @Test
     @Parameters({"STATEMENT123", "statement123", "ment"})
     public void searchByBankStatementReference(String searchString) {
@@ -204,4 +223,52 @@ public class MandateSearchDaoIT {
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(2);
     }
+
+    @Test
+    public void searchPageAfterCursor() {
+        LongStream.rangeClosed(101, 105).forEach(n -> {
+            aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withId(n).insert(testContext.getJdbi());
+        });
+        var searchParams = aMandateSearchParams()
+                .withFromDate(String.valueOf(now().minusHours(1)))
+                .withAfter(SearchCursor.of(104))
+                .withDisplaySize(2)
+                .build();
+
+        var searchPage = mandateSearchDao.searchPage(searchParams, gatewayAccountFixture.getExternalId());
+
+        assertThat(searchPage.getResults()).extracting(Mandate::getId).containsExactly(103L, 102L);
+        assertThat(searchPage.getPreviousCursor()).isEqualTo(Optional.of(SearchCursor.of(103)));
+        assertThat(searchPage.getNextCursor()).isEqualTo(Optional.of(SearchCursor.of(102)));
+    }
+
+    @Test
+    public void searchPageBeforeCursor() {
+        LongStream.rangeClosed(101, 105).forEach(n -> {
+            aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withId(n).insert(testContext.getJdbi());
+        });
+        var searchParams = aMandateSearchParams()
+                .withFromDate(String.valueOf(now().minusHours(1)))
+                .withBefore(SearchCursor.of(102))
+                .withDisplaySize(2)
+                .build();
+
+        var searchPage = mandateSearchDao.searchPage(searchParams, gatewayAccountFixture.getExternalId());
+
+        assertThat(searchPage.getResults()).extracting(Mandate::getId).containsExactly(104L, 103L);
+        assertThat(searchPage.getPreviousCursor()).isEqualTo(Optional.of(SearchCursor.of(104)));
+        assertThat(searchPage.getNextCursor()).isEqualTo(Optional.of(SearchCursor.of(103)));
+    }
+
+    @Test
+    public void estimateTotalMatchingMandates() {
+        testContext.getJdbi().useHandle(handle -> handle.execute("ANALYZE mandates"));
+        var searchParams = aMandateSearchParams()
+                .withServiceReference("REF1234")
+                .build();
+
+        var estimate = mandateSearchDao.estimateTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
+
+        assertThat(estimate).isGreaterThanOrEqualTo(1);
+    }
 }
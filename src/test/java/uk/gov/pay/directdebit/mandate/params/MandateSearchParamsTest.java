@@ -2,6 +2,9 @@ package uk.gov.pay.directdebit.mandate.params;
 
 
 import org.junit.Test;
+import uk.gov.pay.directdebit.common.model.SearchCountMode;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.TextMatch;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 
 import java.time.LocalDate;
@@ -61,4 +64,28 @@ public class MandateSearchParamsTest {
         assertThat(mandateSearchParams.buildQueryParamString(), is(expectedQuery));
     }
 
+    @Test
+    public void shouldCreateQueryWithCursorAndCountMode() {
+        var mandateSearchParams = aMandateSearchParams()
+                .withDisplaySize(10)
+                .withAfter(SearchCursor.of(42))
+                .withCount(SearchCountMode.ESTIMATED)
+                .withServiceReference("REF")
+                .withMatch(TextMatch.PREFIX)
+                .build();
+
+        String expectedQuery = "page=1&display_size=10&reference=REF&match=prefix&after=" + SearchCursor.of(42).encode() +
+                "&count=estimated";
+
+        assertThat(mandateSearchParams.buildQueryParamString(), is(expectedQuery));
+    }
+
+    @Test
+    public void shouldUseCursorPaginationUnlessCountingExactly() {
+        assertThat(aMandateSearchParams().build().isCursorPaginated(), is(false));
+        assertThat(aMandateSearchParams().withCount(SearchCountMode.EXACT).build().isCursorPaginated(), is(false));
+        assertThat(aMandateSearchParams().withCount(SearchCountMode.ESTIMATED).build().isCursorPaginated(), is(true));
+        assertThat(aMandateSearchParams().withCount(SearchCountMode.NONE).build().isCursorPaginated(), is(true));
+        assertThat(aMandateSearchParams().withIncludeTotal(false).build().getCountMode(), is(SearchCountMode.NONE));
+    }
 }
@@ -0,0 +1,175 @@
+package uk.gov.pay.directdebit.mandate.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.restassured.response.ValidatableResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.payers.fixtures.GoCardlessCustomerFixture;
+import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import javax.ws.rs.core.Response;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static java.lang.String.format;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
+import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.AWAITING_DIRECT_DEBIT_DETAILS;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.SUBMITTED_TO_PROVIDER;
+import static uk.gov.pay.directdebit.payers.fixtures.GoCardlessCustomerFixture.aGoCardlessCustomerFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
+import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubCreateCustomer;
+import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubCreateCustomerBankAccount;
+import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubCreateMandate;
+import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubCreatePayment;
+import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubGetCreditor;
+
+public class MandateAsynchronousConfirmationIT {
+
+    private static final String GOCARDLESS_MANDATE_ID = "MD123";
+    private static final String MANDATE_REFERENCE = "REF-123";
+    private static final long AMOUNT = 6234L;
+    private static final int CREATE_MANDATE_DELAY_IN_MILLIS = 2000;
+    private static final long MAX_WAIT_FOR_MANDATE_IN_MILLIS = 10000;
+
+    @Rule
+    public WireMockRule wireMockRuleGoCardless = new WireMockRule(10107);
+
+    @Rule
+    public DropwizardAppWithPostgresRule app = new DropwizardAppWithPostgresRule("config/test-it-async-mandate-confirmation-config.yaml");
+
+    private WireMockServer wireMockAdminUsers = new WireMockServer(options().port(10110));
+
+    private TestContext testContext;
+    private GatewayAccountFixture gatewayAccountFixture;
+    private PayerFixture payerFixture = PayerFixture.aPayerFixture();
+    private MandateFixture mandateFixture;
+
+    @Before
+    public void setUp() {
+        testContext = app.getTestContext();
+        wireMockAdminUsers.start();
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo("/v1/emails/send")).willReturn(aResponse().withStatus(200)));
+
+        gatewayAccountFixture = aGatewayAccountFixture().withPaymentProvider(GOCARDLESS).insert(testContext.getJdbi());
+        mandateFixture = aMandateFixture()
+                .withState(AWAITING_DIRECT_DEBIT_DETAILS)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPayerFixture(payerFixture)
+                .insert(testContext.getJdbi());
+        aGovUkPayEventFixture()
+                .withMandateId(mandateFixture.getId())
+                .withEventType(MANDATE_TOKEN_EXCHANGED)
+                .insert(testContext.getJdbi());
+
+        String accessToken = gatewayAccountFixture.getAccessToken().toString();
+        String customerId = "CU000358S3A2FP";
+        String customerBankAccountId = "BA0002WR3Z193A";
+        GoCardlessCustomerFixture goCardlessCustomerFixture = aGoCardlessCustomerFixture()
+                .withCustomerId(customerId)
+                .withCustomerBankAccountId(customerBankAccountId)
+                .withPayerId(payerFixture.getId());
+        stubCreateCustomer(accessToken, mandateFixture.getExternalId().toString(), payerFixture, customerId);
+        stubCreateCustomerBankAccount(accessToken, mandateFixture.getExternalId().toString(), payerFixture, customerId, customerBankAccountId);
+        stubCreateMandate(accessToken, mandateFixture.getExternalId().toString(), goCardlessCustomerFixture,
+                GOCARDLESS_MANDATE_ID, MANDATE_REFERENCE, CREATE_MANDATE_DELAY_IN_MILLIS);
+        stubCreatePayment(accessToken, AMOUNT, GoCardlessMandateId.valueOf(GOCARDLESS_MANDATE_ID), null);
+        stubGetCreditor(accessToken, "Test SUN Name");
+    }
+
+    @After
+    public void tearDown() {
+        wireMockAdminUsers.shutdown();
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void confirm_shouldReturnBeforeTheMandateIsCreatedWithTheProviderAndThenCreateIt() throws Exception {
+        confirm();
+
+        Map<String, Object> submittedMandate = testContext.getDatabaseTestHelper().getMandateById(mandateFixture.getId());
+        assertThat(submittedMandate.get("state"), is(SUBMITTED_TO_PROVIDER.toString()));
+        assertThat(submittedMandate.get("payment_provider_id"), is(nullValue()));
+
+        Map<String, Object> createdMandate = waitForPaymentProviderId();
+        assertThat(createdMandate.get("payment_provider_id"), is(GOCARDLESS_MANDATE_ID));
+        assertThat(createdMandate.get("mandate_reference"), is(MANDATE_REFERENCE));
+    }
+
+    @Test
+    public void collect_shouldBeRejectedUntilTheMandateHasBeenCreatedWithTheProvider() throws Exception {
+        confirm();
+
+        collect()
+                .statusCode(Response.Status.CONFLICT.getStatusCode())
+                .body("message", containsString("is still being created with the payment provider"));
+        assertThat(testContext.getDatabaseTestHelper().getPaymentsForMandate(mandateFixture.getExternalId()).isEmpty(), is(true));
+
+        waitForPaymentProviderId();
+
+        collect()
+                .statusCode(Response.Status.CREATED.getStatusCode())
+                .body("payment_id", is(notNullValue()))
+                .body("state.status", is("pending"));
+        assertThat(testContext.getDatabaseTestHelper().getPaymentsForMandate(mandateFixture.getExternalId()).size(), is(1));
+    }
+
+    private void confirm() {
+        String confirmDetails = "{\n" +
+                "  \"sort_code\": \"" + payerFixture.getSortCode() + "\",\n" +
+                "  \"account_number\": \"" + payerFixture.getAccountNumber() + "\"\n" +
+                "}\n";
+        given().port(testContext.getPort())
+                .contentType(JSON)
+                .body(confirmDetails)
+                .post(format("/v1/api/accounts/%s/mandates/%s/confirm",
+                        gatewayAccountFixture.getExternalId(), mandateFixture.getExternalId()))
+                .then()
+                .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+    }
+
+    private ValidatableResponse collect() throws Exception {
+        String postBody = new ObjectMapper().writeValueAsString(Map.of(
+                "amount", AMOUNT,
+                "reference", "Test reference",
+                "description", "Test description",
+                "mandate_id", mandateFixture.getExternalId().toString()));
+        return given().port(testContext.getPort())
+                .contentType(JSON)
+                .body(postBody)
+                .post(format("/v1/api/accounts/%s/charges/collect", gatewayAccountFixture.getExternalId()))
+                .then();
+    }
+
+    private Map<String, Object> waitForPaymentProviderId() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_FOR_MANDATE_IN_MILLIS;
+        while (true) {
+            Map<String, Object> mandate = testContext.getDatabaseTestHelper().getMandateById(mandateFixture.getId());
+            if (mandate.get("payment_provider_id") != null || System.currentTimeMillis() > deadline) {
+                return mandate;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
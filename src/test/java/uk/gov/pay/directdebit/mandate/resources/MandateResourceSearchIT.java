@@ -9,6 +9,7 @@ import org.junit.After;
 import org.junit.Test;
 import org.junit.Rule;
 import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
@@ -26,7 +27,9 @@ import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static java.lang.String.format;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
 
@@ -58,7 +61,10 @@ public class MandateResourceSearchIT {
             "page, -1, Invalid attribute value: page. Must be greater than or equal to 1", 
             "display_size, 0, Invalid attribute value: display_size. Must be greater than or equal to 1", 
             "display_size, 501, Invalid attribute value: display_size. Must be less than or equal to 500",
-            "state, INVALID, Invalid attribute value: state. Must be a valid mandate external state"
+            "state, INVALID, Invalid attribute value: state. Must be a valid mandate external state",
+            "count, approximate, Invalid attribute value: count. Must be one of exact\\, estimated or none",
+            "match, suffix, Invalid attribute value: match. Must be contains or prefix",
+            "after, not-a-cursor, Invalid attribute value: after. Must be a cursor from a previous search response"
     })
     public void searchWithInvalidParams(String param, String value, String expectedErrorMessage) {
         givenSetup()
@@ -158,6 +164,48 @@ public class MandateResourceSearchIT {
                 .statusCode(HttpStatus.SC_OK);
     }
 
+    @Test
+    public void shouldReturnPageAfterCursorWithoutCounting() {
+        for (long id = 1; id <= 5; id++) {
+            MandateFixture.aMandateFixture()
+                    .withGatewayAccountFixture(gatewayAccountFixture)
+                    .withId(id)
+                    .withServiceReference("mandate" + id)
+                    .insert(testContext.getJdbi());
+        }
+
+        givenSetup()
+                .queryParams(Map.of("display_size", "2", "count", "none", "after", SearchCursor.of(4L).encode()))
+                .get(format("/v1/api/accounts/%s/mandates", gatewayAccountFixture.getExternalId()))
+                .then()
+                .body("total", is(nullValue()))
+                .body("total_is_estimate", is(nullValue()))
+                .body("count", is(2))
+                .body("page", is(nullValue()))
+                .body("results[0].service_reference", is("mandate3"))
+                .body("results[1].service_reference", is("mandate2"))
+                .body("_links.prev_page.href", containsString("before=" + SearchCursor.of(3L).encode()))
+                .body("_links.next_page.href", containsString("after=" + SearchCursor.of(2L).encode()))
+                .body("_links.last_page", is(nullValue()))
+                .statusCode(HttpStatus.SC_OK);
+    }
+
+    @Test
+    public void shouldReturnEstimatedTotalWhenAskedFor() {
+        MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+
+        givenSetup()
+                .queryParams(Map.of("count", "estimated"))
+                .get(format("/v1/api/accounts/%s/mandates", gatewayAccountFixture.getExternalId()))
+                .then()
+                .body("total_is_estimate", is(true))
+                .body("count", is(1))
+                .body("page", is(1))
+                .statusCode(HttpStatus.SC_OK);
+    }
+
     private RequestSpecification givenSetup() {
         return given().port(testContext.getPort()).contentType(JSON);
     }
@@ -5,13 +5,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.model.SearchCountMode;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
 
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 import static uk.gov.pay.directdebit.mandate.params.MandateSearchParams.MandateSearchParamsBuilder.aMandateSearchParams;
 
@@ -67,4 +78,50 @@ public class MandateSearchServiceTest {
         assertThat(searchResults.getMandatesForRequestedPage().size(), is(0));
     }
 
+    @Test
+    public void shouldReturnPageWithoutCountingWhenCountIsNone() {
+        var params = aMandateSearchParams()
+                .withDisplaySize(1)
+                .withCount(SearchCountMode.NONE)
+                .build();
+
+        String gatewayAccountExternalId = "expectedGatewayId";
+
+        given(mockMandateSearchDao.searchPage(params, gatewayAccountExternalId))
+                .willReturn(aSearchPageOfMandatesWithIds(params, 3L, 2L));
+
+        var searchResults = mandateSearchService.search(params, gatewayAccountExternalId);
+
+        assertThat(searchResults.getTotalMatchingMandates(), is(nullValue()));
+        assertThat(searchResults.getMandatesForRequestedPage().size(), is(1));
+        assertThat(searchResults.getSearchPage().get().getNextCursor().get().getId(), is(3L));
+        verify(mockMandateSearchDao, never()).countTotalMatchingMandates(any(), anyString());
+        verify(mockMandateSearchDao, never()).estimateTotalMatchingMandates(any(), anyString());
+    }
+
+    @Test
+    public void shouldReturnPageWithEstimatedTotalWhenCountIsEstimated() {
+        var params = aMandateSearchParams()
+                .withCount(SearchCountMode.ESTIMATED)
+                .build();
+
+        String gatewayAccountExternalId = "expectedGatewayId";
+
+        given(mockMandateSearchDao.searchPage(params, gatewayAccountExternalId))
+                .willReturn(aSearchPageOfMandatesWithIds(params, 3L));
+        given(mockMandateSearchDao.estimateTotalMatchingMandates(params, gatewayAccountExternalId)).willReturn(1000);
+
+        var searchResults = mandateSearchService.search(params, gatewayAccountExternalId);
+
+        assertThat(searchResults.getTotalMatchingMandates(), is(1000));
+        assertThat(searchResults.isTotalEstimated(), is(true));
+        verify(mockMandateSearchDao, never()).countTotalMatchingMandates(any(), anyString());
+    }
+
+    private static SearchPage<Mandate> aSearchPageOfMandatesWithIds(MandateSearchParams params, Long... ids) {
+        List<Mandate> mandates = List.of(ids).stream()
+                .map(id -> aMandateFixture().withId(id).toEntity())
+                .collect(Collectors.toList());
+        return SearchPage.fromRows(mandates, Mandate::getId, Function.identity(), params);
+    }
 }
@@ -1,24 +1,30 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.LinksConfig;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
 import uk.gov.pay.directdebit.mandate.api.ConfirmMandateRequest;
 import uk.gov.pay.directdebit.mandate.api.CreateMandateRequest;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankReference;
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
 import uk.gov.pay.directdebit.payers.model.BankAccountDetails;
 import uk.gov.pay.directdebit.payments.exception.CreateCustomerBankAccountFailedException;
@@ -40,6 +46,8 @@ import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,6 +58,7 @@ import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_UNEX
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
 import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.fromMandate;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.CREATED;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.SUBMITTED_TO_PROVIDER;
 import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -91,6 +100,20 @@ public class MandateServiceConfirmTest {
     @Mock
     private SandboxService mockSandboxService;
 
+    @Mock
+    private MandateSubmissionService mockMandateSubmissionService;
+
+    @Mock
+    private MandateConfirmationConfig mockMandateConfirmationConfig;
+
+    @Mock
+    private EmailOutboxConfig mockEmailOutboxConfig;
+
+    @Mock
+    private SunService mockSunService;
+
+    private final Optional<SunName> sunName = Optional.of(SunName.of("Test SUN Name"));
+
     private final GatewayAccount gatewayAccount = aGatewayAccountFixture().withPaymentProvider(SANDBOX).toEntity();
     private final Map<String, String> confirmMandateRequest = Map.of("sort_code", "123456", "account_number", "12345678");
     private final ConfirmMandateRequest mandateConfirmationRequest = ConfirmMandateRequest.of(confirmMandateRequest);
@@ -102,6 +125,8 @@ public class MandateServiceConfirmTest {
     public void setUp() {
         when(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).thenReturn(mockSandboxService);
         when(mockDirectDebitConfig.getLinks()).thenReturn(mockLinksConfig);
+        when(mockDirectDebitConfig.getMandateConfirmationConfig()).thenReturn(mockMandateConfirmationConfig);
+        when(mockDirectDebitConfig.getEmailOutboxConfig()).thenReturn(mockEmailOutboxConfig);
 
         service = new MandateService(
                 mockDirectDebitConfig,
@@ -110,12 +135,16 @@ public class MandateServiceConfirmTest {
                 mockTokenService,
                 mockPaymentProviderFactory,
                 mockUserNotificationService,
+                mockSunService,
                 mockGovUkPayEventService,
-                mockPaymentQueryService);
+                mockPaymentQueryService,
+                mockMandateSubmissionService,
+                new MetricRegistry());
     }
 
     @Test
     public void confirmRecordsSubmittedToProviderEvent() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
         Mandate mandate = getMandateForProvider(gatewayAccount);
 
         var confirmMandateResponse = new PaymentProviderMandateIdAndBankReference(
@@ -123,6 +152,7 @@ public class MandateServiceConfirmTest {
                 MandateBankStatementReference.valueOf(RandomStringUtils.randomAlphanumeric(5)));
 
         when(mockSandboxService.confirmMandate(mandate, bankAccountDetails)).thenReturn(confirmMandateResponse);
+        when(mockSunService.getSunNameFor(any(Mandate.class))).thenReturn(sunName);
 
         service.confirm(gatewayAccount, mandate, mandateConfirmationRequest);
 
@@ -132,13 +162,44 @@ public class MandateServiceConfirmTest {
                 .withMandateBankStatementReference(confirmMandateResponse.getMandateBankStatementReference())
                 .build();
 
-        verify(mockUserNotificationService).sendMandateCreatedEmailFor(expectedUpdatedMandate);
-        verify(mockMandateDao).updateReferenceAndPaymentProviderId(expectedUpdatedMandate);
-        verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_SUBMITTED_TO_PROVIDER);
+        InOrder inOrder = inOrder(mockSunService, mockMandateDao, mockGovUkPayEventService, mockUserNotificationService);
+        inOrder.verify(mockSunService).getSunNameFor(expectedUpdatedMandate);
+        inOrder.verify(mockMandateDao).updateReferenceAndPaymentProviderId(expectedUpdatedMandate);
+        inOrder.verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_SUBMITTED_TO_PROVIDER);
+        inOrder.verify(mockUserNotificationService).sendMandateCreatedEmailFor(expectedUpdatedMandate, sunName);
+    }
+
+    @Test
+    public void confirmWritesTheEmailToTheOutboxBeforeRecordingTheSubmittedToProviderEvent() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
+        when(mockEmailOutboxConfig.isAsynchronous()).thenReturn(true);
+        Mandate mandate = getMandateForProvider(gatewayAccount);
+
+        var confirmMandateResponse = new PaymentProviderMandateIdAndBankReference(
+                SandboxMandateId.valueOf(mandate.getExternalId().toString()),
+                MandateBankStatementReference.valueOf(RandomStringUtils.randomAlphanumeric(5)));
+
+        when(mockSandboxService.confirmMandate(mandate, bankAccountDetails)).thenReturn(confirmMandateResponse);
+        when(mockSunService.getSunNameFor(any(Mandate.class))).thenReturn(sunName);
+
+        service.confirm(gatewayAccount, mandate, mandateConfirmationRequest);
+
+        var expectedUpdatedMandate = fromMandate(mandate)
+                .withState(CREATED)
+                .withPaymentProviderId(confirmMandateResponse.getPaymentProviderMandateId())
+                .withMandateBankStatementReference(confirmMandateResponse.getMandateBankStatementReference())
+                .build();
+
+        InOrder inOrder = inOrder(mockSunService, mockMandateDao, mockGovUkPayEventService, mockUserNotificationService);
+        inOrder.verify(mockSunService).getSunNameFor(expectedUpdatedMandate);
+        inOrder.verify(mockMandateDao).updateReferenceAndPaymentProviderId(expectedUpdatedMandate);
+        inOrder.verify(mockUserNotificationService).sendMandateCreatedEmailFor(expectedUpdatedMandate, sunName);
+        inOrder.verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_SUBMITTED_TO_PROVIDER);
     }
 
     @Test
     public void confirmRecordsUnexpectedErrorWhenPayerNotFoundException() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
         Mandate mandate = getMandateForProvider(gatewayAccount);
 
         when(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).thenReturn(mockSandboxService);
@@ -149,13 +210,14 @@ public class MandateServiceConfirmTest {
             fail();
         } catch (PayerNotFoundException e) {
             var expectedUpdatedMandate = fromMandate(mandate).withState(CREATED).build();
-            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class));
+            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
             verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_UNEXPECTED_ERROR);
         }
     }
 
     @Test
     public void confirmRecordsErrorSubmittingToProviderWhenCreateCustomerFailedException() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
         Mandate mandate = getMandateForProvider(gatewayAccount);
 
         when(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).thenReturn(mockSandboxService);
@@ -166,13 +228,14 @@ public class MandateServiceConfirmTest {
             fail();
         } catch (CreateCustomerFailedException e) {
             var expectedUpdatedMandate = fromMandate(mandate).withState(CREATED).build();
-            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class));
+            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
             verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
         }
     }
 
     @Test
     public void confirmRecordsErrorSubmittingToProviderWhenCreateCustomerBankAccountFailedException() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
         Mandate mandate = getMandateForProvider(gatewayAccount);
 
         when(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).thenReturn(mockSandboxService);
@@ -183,13 +246,14 @@ public class MandateServiceConfirmTest {
             fail();
         } catch (CreateCustomerBankAccountFailedException e) {
             var expectedUpdatedMandate = fromMandate(mandate).withState(CREATED).build();
-            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class));
+            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
             verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
         }
     }
 
     @Test
     public void confirmRecordsErrorSubmittingToProviderWhenCreateMandateFailedException() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(false);
         Mandate mandate = getMandateForProvider(gatewayAccount);
 
         when(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).thenReturn(mockSandboxService);
@@ -200,11 +264,44 @@ public class MandateServiceConfirmTest {
             fail();
         } catch (CreateMandateFailedException e) {
             var expectedUpdatedMandate = fromMandate(mandate).withState(CREATED).build();
-            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class));
+            verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
             verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(expectedUpdatedMandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
         }
     }
 
+    @Test
+    public void confirmAsynchronouslySubmitsBankAccountDetailsAndLeavesCreatingTheMandateToTheSubmissionService() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(true);
+        Mandate mandate = getMandateForProvider(gatewayAccount);
+        Mandate submittedMandate = fromMandate(mandate).withState(SUBMITTED_TO_PROVIDER).build();
+        when(mockGovUkPayEventService.storeEventAndUpdateStateForMandate(mandate, MANDATE_SUBMITTED_TO_PROVIDER))
+                .thenReturn(submittedMandate);
+
+        service.confirm(gatewayAccount, mandate, mandateConfirmationRequest);
+
+        verify(mockSandboxService).submitBankAccountDetails(mandate, bankAccountDetails);
+        verify(mockSandboxService, never()).confirmMandate(any(Mandate.class), any(BankAccountDetails.class));
+        verify(mockMandateSubmissionService).submitAsynchronously(submittedMandate);
+        verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
+        verify(mockMandateDao, never()).updateReferenceAndPaymentProviderId(any(Mandate.class));
+    }
+
+    @Test
+    public void confirmAsynchronouslyRecordsErrorSubmittingToProviderWhenCreateCustomerBankAccountFailedException() {
+        when(mockMandateConfirmationConfig.isAsynchronous()).thenReturn(true);
+        Mandate mandate = getMandateForProvider(gatewayAccount);
+        doThrow(CreateCustomerBankAccountFailedException.class).when(mockSandboxService)
+                .submitBankAccountDetails(mandate, bankAccountDetails);
+
+        try {
+            service.confirm(gatewayAccount, mandate, mandateConfirmationRequest);
+            fail();
+        } catch (CreateCustomerBankAccountFailedException e) {
+            verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(mandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+            verify(mockMandateSubmissionService, never()).submitAsynchronously(any(Mandate.class));
+        }
+    }
+
     private Mandate getMandateForProvider(GatewayAccount gatewayAccount) {
         when(mockGatewayAccountDao.findByExternalId(anyString())).thenReturn(Optional.of(gatewayAccount));
         when(mockMandateDao.insert(any(Mandate.class))).thenReturn(1L);
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,6 +11,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.LinksConfig;
 import uk.gov.pay.directdebit.common.exception.UnlinkedGCMerchantAccountException;
+import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.GatewayAccountNotFoundException;
@@ -96,6 +98,12 @@ public class MandateServiceTest {
     @Mock
     private PaymentProviderFactory mockPaymentProviderFactory;
 
+    @Mock
+    private MandateSubmissionService mockMandateSubmissionService;
+
+    @Mock
+    private SunService mockSunService;
+
     private MandateService service;
 
     @Before
@@ -109,8 +117,11 @@ public class MandateServiceTest {
                 mockTokenService,
                 mockPaymentProviderFactory,
                 mockUserNotificationService,
+                mockSunService,
                 mockGovUkPayEventService,
-                mockPaymentQueryService);
+                mockPaymentQueryService,
+                mockMandateSubmissionService,
+                new MetricRegistry());
 
         when(mockUriInfo.getBaseUriBuilder()).thenReturn(mockUriBuilder);
         when(mockUriBuilder.path(anyString())).thenReturn(mockUriBuilder);
@@ -13,6 +13,8 @@ import uk.gov.pay.directdebit.mandate.services.sandbox.SandboxMandateStateCalcul
 import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
@@ -78,4 +80,22 @@ public class MandateStateUpdaterTest {
         verify(mockMandateUpdateService, never()).updateState(any(), any());
     }
 
+    @Test
+    public void updatesMandatesWithStatesCalculatedInBatchesPerPaymentProvider() {
+        Mandate goCardlessMandate = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS)).toEntity();
+        Mandate sandboxMandate = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(SANDBOX)).toEntity();
+        Mandate mandateWithNoNewState = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS)).toEntity();
+
+        given(mockGoCardlessMandateStateCalculator.calculate(List.of(goCardlessMandate, mandateWithNoNewState)))
+                .willReturn(Map.of(goCardlessMandate.getId(), mockMandateStateWithDetails));
+        given(mockSandboxStateCalculator.calculate(List.of(sandboxMandate)))
+                .willReturn(Map.of(sandboxMandate.getId(), mockMandateStateWithDetails));
+
+        List<Mandate> mandates = List.of(goCardlessMandate, sandboxMandate, mandateWithNoNewState);
+        mockMandateStateUpdater.updateStatesIfNecessary(mandates);
+
+        verify(mockMandateUpdateService).updateStates(mandates, Map.of(
+                goCardlessMandate.getId(), mockMandateStateWithDetails,
+                sandboxMandate.getId(), mockMandateStateWithDetails));
+    }
 }
@@ -0,0 +1,164 @@
+package uk.gov.pay.directdebit.mandate.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
+import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
+import uk.gov.pay.directdebit.mandate.config.MandateConfirmationConfig;
+import uk.gov.pay.directdebit.mandate.dao.MandateDao;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankReference;
+import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
+import uk.gov.pay.directdebit.payments.exception.CreateMandateFailedException;
+import uk.gov.pay.directdebit.payments.model.PaymentProviderFactory;
+import uk.gov.pay.directdebit.payments.services.SandboxService;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_ERROR_SUBMITTING_TO_PROVIDER;
+import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.fromMandate;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MandateSubmissionServiceTest {
+
+    private static final PaymentProviderMandateIdAndBankReference PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE =
+            new PaymentProviderMandateIdAndBankReference(SandboxMandateId.valueOf("sandbox-mandate-id"),
+                    MandateBankStatementReference.valueOf("bank-reference"));
+    private static final Optional<SunName> SUN_NAME = Optional.of(SunName.of("Test SUN Name"));
+
+    @Mock
+    private PaymentProviderFactory mockPaymentProviderFactory;
+
+    @Mock
+    private SandboxService mockSandboxService;
+
+    @Mock
+    private MandateDao mockMandateDao;
+
+    @Mock
+    private UserNotificationService mockUserNotificationService;
+
+    @Mock
+    private SunService mockSunService;
+
+    @Mock
+    private GovUkPayEventService mockGovUkPayEventService;
+
+    @Mock
+    private MandateConfirmationConfig mockMandateConfirmationConfig;
+
+    @Mock
+    private EmailOutboxConfig mockEmailOutboxConfig;
+
+    @Mock
+    private DirectDebitConfig mockDirectDebitConfig;
+
+    private final Mandate mandate = aMandateFixture()
+            .withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(SANDBOX))
+            .withState(MandateState.SUBMITTED_TO_PROVIDER)
+            .toEntity();
+
+    private final Mandate createdMandate = fromMandate(mandate)
+            .withPaymentProviderId(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE.getPaymentProviderMandateId())
+            .withMandateBankStatementReference(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE.getMandateBankStatementReference())
+            .build();
+
+    private MandateSubmissionService mandateSubmissionService;
+
+    @Before
+    public void setUp() {
+        given(mockPaymentProviderFactory.getCommandServiceFor(SANDBOX)).willReturn(mockSandboxService);
+        given(mockDirectDebitConfig.getMandateConfirmationConfig()).willReturn(mockMandateConfirmationConfig);
+        given(mockDirectDebitConfig.getEmailOutboxConfig()).willReturn(mockEmailOutboxConfig);
+        mandateSubmissionService = new MandateSubmissionService(mockPaymentProviderFactory, mockMandateDao,
+                mockUserNotificationService, mockSunService, mockGovUkPayEventService, mockDirectDebitConfig,
+                MoreExecutors.newDirectExecutorService(), new MetricRegistry());
+    }
+
+    @Test
+    public void shouldCreateTheMandateWithTheProviderAndSendTheConfirmationEmail() {
+        given(mockSandboxService.createMandate(mandate)).willReturn(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE);
+        given(mockMandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdMandate)).willReturn(1);
+        given(mockSunService.getSunNameFor(createdMandate)).willReturn(SUN_NAME);
+
+        mandateSubmissionService.submitAsynchronously(mandate);
+
+        verify(mockMandateDao).updateReferenceAndPaymentProviderIdIfNotSet(createdMandate);
+        verify(mockUserNotificationService).sendMandateCreatedEmailFor(createdMandate, SUN_NAME);
+    }
+
+    @Test
+    public void shouldQueueTheConfirmationEmailWhileRecordingTheMandateWhenEmailsGoThroughTheOutbox() {
+        given(mockEmailOutboxConfig.isAsynchronous()).willReturn(true);
+        given(mockSandboxService.createMandate(mandate)).willReturn(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE);
+        given(mockMandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdMandate)).willReturn(1);
+        given(mockSunService.getSunNameFor(createdMandate)).willReturn(SUN_NAME);
+
+        mandateSubmissionService.submitAsynchronously(mandate);
+
+        InOrder inOrder = inOrder(mockSunService, mockMandateDao, mockUserNotificationService);
+        inOrder.verify(mockSunService).getSunNameFor(createdMandate);
+        inOrder.verify(mockMandateDao).updateReferenceAndPaymentProviderIdIfNotSet(createdMandate);
+        inOrder.verify(mockUserNotificationService).sendMandateCreatedEmailFor(createdMandate, SUN_NAME);
+        verify(mockUserNotificationService).sendMandateCreatedEmailFor(createdMandate, SUN_NAME);
+    }
+
+    @Test
+    public void shouldNotSendTheConfirmationEmailAgainIfTheMandateHasAlreadyBeenCreated() {
+        given(mockSandboxService.createMandate(mandate)).willReturn(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE);
+        given(mockMandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdMandate)).willReturn(0);
+
+        mandateSubmissionService.submitAsynchronously(mandate);
+
+        verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
+    }
+
+    @Test
+    public void shouldRecordAnErrorIfTheProviderFailsToCreateTheMandate() {
+        given(mockSandboxService.createMandate(mandate)).willThrow(new CreateMandateFailedException(mandate.getExternalId().toString()));
+
+        mandateSubmissionService.submitAsynchronously(mandate);
+
+        verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(mandate, MANDATE_ERROR_SUBMITTING_TO_PROVIDER);
+        verify(mockMandateDao, never()).updateReferenceAndPaymentProviderIdIfNotSet(any(Mandate.class));
+        verify(mockUserNotificationService, never()).sendMandateCreatedEmailFor(any(Mandate.class), any());
+    }
+
+    @Test
+    public void shouldResubmitMandatesThatAreStillWaitingForAPaymentProviderId() {
+        given(mockMandateConfirmationConfig.getResubmitAfter()).willReturn(Duration.minutes(5));
+        given(mockMandateConfirmationConfig.getResubmitBatchSize()).willReturn(10);
+        given(mockMandateDao.findMandatesAwaitingPaymentProviderId(any(ZonedDateTime.class), eq(10))).willReturn(List.of(mandate));
+        given(mockSandboxService.createMandate(mandate)).willReturn(PAYMENT_PROVIDER_MANDATE_ID_AND_BANK_REFERENCE);
+        given(mockMandateDao.updateReferenceAndPaymentProviderIdIfNotSet(createdMandate)).willReturn(1);
+        given(mockSunService.getSunNameFor(createdMandate)).willReturn(SUN_NAME);
+
+        mandateSubmissionService.resubmitStalledMandates();
+
+        verify(mockUserNotificationService).sendMandateCreatedEmailFor(createdMandate, SUN_NAME);
+    }
+}
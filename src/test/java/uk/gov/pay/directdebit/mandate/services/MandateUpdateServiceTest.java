@@ -5,17 +5,23 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MandateUpdateServiceTest {
@@ -33,9 +39,11 @@ public class MandateUpdateServiceTest {
         MandateState state = MandateState.SUBMITTED_TO_PROVIDER;
         DirectDebitStateWithDetails<MandateState> stateWithDetails = new DirectDebitStateWithDetails<>(state);
 
+        given(mockMandateDao.updateStateAndDetails(mandate.getId(), 0, state, null, null)).willReturn(1);
+
         Mandate updatedMandate = mandateUpdateService.updateState(mandate, stateWithDetails);
 
-        verify(mockMandateDao).updateStateAndDetails(mandate.getId(), state, null, null);
+        verify(mockMandateDao).updateStateAndDetails(mandate.getId(), 0, state, null, null);
         
         assertThat(updatedMandate.getExternalId(), is(mandate.getExternalId()));
         assertThat(updatedMandate.getState(), is(state));
@@ -50,13 +58,72 @@ public class MandateUpdateServiceTest {
         String description = "a-description";
         DirectDebitStateWithDetails<MandateState> stateWithDetails = new DirectDebitStateWithDetails<>(state, details, description);
 
+        given(mockMandateDao.updateStateAndDetails(mandate.getId(), 0, state, details, description)).willReturn(1);
+
         Mandate updatedMandate = mandateUpdateService.updateState(mandate, stateWithDetails);
 
-        verify(mockMandateDao).updateStateAndDetails(mandate.getId(), state, details, description);
+        verify(mockMandateDao).updateStateAndDetails(mandate.getId(), 0, state, details, description);
 
         assertThat(updatedMandate.getExternalId(), is(mandate.getExternalId()));
         assertThat(updatedMandate.getState(), is(state));
         assertThat(updatedMandate.getStateDetails(), is(Optional.of(details)));
         assertThat(updatedMandate.getStateDetailsDescription(), is(Optional.of(description)));
     }
+
+    @Test
+    public void updatesStatesOfMandatesWithNewStatesInOneBatchAndReturnsAllMandates() {
+        Mandate mandateWithNoNewState = aMandateFixture().toEntity();
+        DirectDebitStateWithDetails<MandateState> stateWithDetails =
+                new DirectDebitStateWithDetails<>(MandateState.FAILED, "a-details", "a-description");
+
+        given(mockMandateDao.updateStatesAndDetails(List.of(mandate.getId()), List.of(0), List.of(MandateState.FAILED),
+                List.of("a-details"), List.of("a-description"))).willReturn(new int[]{1});
+
+        List<Mandate> updatedMandates = mandateUpdateService.updateStates(List.of(mandate, mandateWithNoNewState),
+                Map.of(mandate.getId(), stateWithDetails));
+
+        verify(mockMandateDao).updateStatesAndDetails(List.of(mandate.getId()), List.of(0), List.of(MandateState.FAILED),
+                List.of("a-details"), List.of("a-description"));
+
+        assertThat(updatedMandates.size(), is(2));
+        assertThat(updatedMandates.get(0).getState(), is(MandateState.FAILED));
+        assertThat(updatedMandates.get(0).getStateDetails(), is(Optional.of("a-details")));
+        assertThat(updatedMandates.get(1), is(mandateWithNoNewState));
+    }
+
+    @Test
+    public void updatesNothingWhenThereAreNoNewStates() {
+        List<Mandate> updatedMandates = mandateUpdateService.updateStates(List.of(mandate), Map.of());
+
+        verifyZeroInteractions(mockMandateDao);
+        assertThat(updatedMandates, is(List.of(mandate)));
+    }
+
+    @Test
+    public void incrementsVersionOfUpdatedMandate() {
+        given(mockMandateDao.updateStateAndDetails(mandate.getId(), 0, MandateState.FAILED, null, null)).willReturn(1);
+
+        Mandate updatedMandate = mandateUpdateService.updateState(mandate, new DirectDebitStateWithDetails<>(MandateState.FAILED));
+
+        assertThat(updatedMandate.getVersion(), is(1));
+    }
+
+    @Test(expected = ConcurrentUpdateException.class)
+    public void throwsWhenMandateWasUpdatedConcurrently() {
+        given(mockMandateDao.updateStateAndDetails(mandate.getId(), 0, MandateState.FAILED, null, null)).willReturn(0);
+
+        mandateUpdateService.updateState(mandate, new DirectDebitStateWithDetails<>(MandateState.FAILED));
+    }
+
+    @Test(expected = ConcurrentUpdateException.class)
+    public void throwsWhenAnyMandateInABatchWasUpdatedConcurrently() {
+        Mandate otherMandate = aMandateFixture().withId(mandate.getId() + 1).toEntity();
+        given(mockMandateDao.updateStatesAndDetails(List.of(mandate.getId(), otherMandate.getId()), List.of(0, 0),
+                List.of(MandateState.FAILED, MandateState.FAILED), Arrays.asList(null, null), Arrays.asList(null, null)))
+                .willReturn(new int[]{1, 0});
+
+        mandateUpdateService.updateStates(List.of(mandate, otherMandate), Map.of(
+                mandate.getId(), new DirectDebitStateWithDetails<>(MandateState.FAILED),
+                otherMandate.getId(), new DirectDebitStateWithDetails<>(MandateState.FAILED)));
+    }
 }
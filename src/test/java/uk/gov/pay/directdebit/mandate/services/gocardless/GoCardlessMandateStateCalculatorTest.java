@@ -26,6 +26,8 @@ import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.core.Is.is;
@@ -34,8 +36,6 @@ import static org.mockito.BDDMockito.given;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_CANCELLED;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
-import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
-import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
 import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
@@ -87,8 +87,7 @@ public class GoCardlessMandateStateCalculatorTest {
     })
     public void goCardlessEventActionMapsToState(String action, String expectedState) {
         GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withAction(action).toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -110,7 +109,7 @@ public class GoCardlessMandateStateCalculatorTest {
     public void govUkPayEventTypeMapsToState(String eventType, String expectedState) {
         GovUkPayEventType govUkPayEventType = GovUkPayEventType.valueOf(eventType);
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture().withEventType(govUkPayEventType).toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -124,8 +123,7 @@ public class GoCardlessMandateStateCalculatorTest {
                 .withDetailsCause("details_cause")
                 .withDetailsDescription("This is a description")
                 .toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -140,15 +138,14 @@ public class GoCardlessMandateStateCalculatorTest {
                 .withAction("active")
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
                 .withEventType(MANDATE_USER_SETUP_CANCELLED)
                 .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -162,15 +159,14 @@ public class GoCardlessMandateStateCalculatorTest {
                 .withAction("active")
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
                 .withEventType(MANDATE_USER_SETUP_CANCELLED)
                 .withEventDate(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -180,8 +176,7 @@ public class GoCardlessMandateStateCalculatorTest {
 
     @Test
     public void noApplicableEventsMapsToNothing() {
-        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForMandate(goCardlessMandateId, goCardlessOrganisationId))
                 .willReturn(Optional.empty());
 
         Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
@@ -204,4 +199,50 @@ public class GoCardlessMandateStateCalculatorTest {
 
         goCardlessMandateStateCalculator.calculate(mandate);
     }
+
+    @Test
+    public void calculatesStatesForMultipleMandatesFromLatestEventsFetchedTogether() {
+        GoCardlessMandateId otherGoCardlessMandateId = GoCardlessMandateId.valueOf("another-mandate-id");
+        Mandate otherMandate = aMandateFixture()
+                .withPaymentProviderId(otherGoCardlessMandateId)
+                .withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS).withOrganisation(goCardlessOrganisationId))
+                .toEntity();
+        Mandate mandateWithNoEvents = aMandateFixture()
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("a-mandate-with-no-events"))
+                .withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS).withOrganisation(goCardlessOrganisationId))
+                .toEntity();
+
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withAction("active")
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        GoCardlessEvent otherGoCardlessEvent = aGoCardlessEventFixture()
+                .withAction("active")
+                .withLinksMandate(otherGoCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGoCardlessEventDao.findLatestApplicableEventsForMandates(
+                new String[]{"a-mandate-id", "another-mandate-id", "a-mandate-with-no-events"},
+                new String[]{"an-organisation-id", "an-organisation-id", "an-organisation-id"}))
+                .willReturn(List.of(goCardlessEvent, otherGoCardlessEvent));
+
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withMandateId(otherMandate.getId())
+                .withEventType(MANDATE_USER_SETUP_CANCELLED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForMandates(
+                List.of(mandate.getId(), otherMandate.getId(), mandateWithNoEvents.getId())))
+                .willReturn(List.of(govUkPayEvent));
+
+        Map<Long, DirectDebitStateWithDetails<MandateState>> result =
+                goCardlessMandateStateCalculator.calculate(List.of(mandate, otherMandate, mandateWithNoEvents));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(mandate.getId()).getState(), is(MandateState.ACTIVE));
+        assertThat(result.get(otherMandate.getId()).getState(), is(MandateState.USER_SETUP_CANCELLED));
+    }
 }
@@ -0,0 +1,114 @@
+package uk.gov.pay.directdebit.mandate.services.gocardless;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.app.config.SunNameCacheConfig;
+import uk.gov.pay.directdebit.common.clients.GoCardlessClientFacade;
+import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
+
+import java.util.Optional;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GoCardlessSunNameCacheTest {
+
+    private static final PaymentProviderAccessToken ACCESS_TOKEN = PaymentProviderAccessToken.of("an-access-token");
+    private static final SunName SUN_NAME = SunName.of("A SUN name");
+
+    @Mock
+    private GoCardlessClientFactory mockGoCardlessClientFactory;
+
+    @Mock
+    private GoCardlessClientFacade mockGoCardlessClientFacade;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private GoCardlessSunNameCache goCardlessSunNameCache;
+
+    @Before
+    public void setUp() {
+        given(mockGoCardlessClientFactory.getClientFor(Optional.of(ACCESS_TOKEN))).willReturn(mockGoCardlessClientFacade);
+        goCardlessSunNameCache = new GoCardlessSunNameCache(mockGoCardlessClientFactory, new SunNameCacheConfig(), metricRegistry, directExecutor());
+    }
+
+    @Test
+    public void shouldOnlyCallGoCardlessOnceForRepeatedLookups() {
+        given(mockGoCardlessClientFacade.getSunName()).willReturn(Optional.of(SUN_NAME));
+
+        goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+        Optional<SunName> sunName = goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+
+        assertThat(sunName, is(Optional.of(SUN_NAME)));
+        verify(mockGoCardlessClientFacade, times(1)).getSunName();
+        assertThat(gaugeValue("sun-name-cache.hits"), is(1L));
+        assertThat(gaugeValue("sun-name-cache.misses"), is(1L));
+        assertThat(metricRegistry.timer("sun-name-cache.load").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRememberThatCreditorHasNoSunName() {
+        given(mockGoCardlessClientFacade.getSunName()).willReturn(Optional.empty());
+
+        goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+        Optional<SunName> sunName = goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+
+        assertThat(sunName, is(Optional.empty()));
+        verify(mockGoCardlessClientFacade, times(1)).getSunName();
+    }
+
+    @Test
+    public void shouldNotCallGoCardlessAgainDuringTheBackoffAfterALookupFails() {
+        given(mockGoCardlessClientFacade.getSunName()).willThrow(new RuntimeException("GoCardless is unavailable"));
+
+        for (int lookup = 0; lookup < 2; lookup++) {
+            try {
+                goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+                fail("Expected the failed lookup to be rethrown");
+            } catch (RuntimeException e) {
+                assertThat(e.getMessage(), is("GoCardless is unavailable"));
+            }
+        }
+
+        verify(mockGoCardlessClientFacade, times(1)).getSunName();
+        assertThat(metricRegistry.meter("sun-name-cache.skipped-loads").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldTryAgainAfterTheBackoffAfterALookupFails() throws Exception {
+        SunNameCacheConfig sunNameCacheConfig = new ObjectMapper().readValue("{\"failureBackoff\": \"0s\"}", SunNameCacheConfig.class);
+        goCardlessSunNameCache = new GoCardlessSunNameCache(mockGoCardlessClientFactory, sunNameCacheConfig, new MetricRegistry(), directExecutor());
+        given(mockGoCardlessClientFacade.getSunName())
+                .willThrow(new RuntimeException("GoCardless is unavailable"))
+                .willReturn(Optional.of(SUN_NAME));
+
+        try {
+            goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+            fail("Expected the failed lookup to be rethrown");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("GoCardless is unavailable"));
+        }
+        Optional<SunName> sunName = goCardlessSunNameCache.getSunNameFor(ACCESS_TOKEN);
+
+        assertThat(sunName, is(Optional.of(SUN_NAME)));
+        verify(mockGoCardlessClientFacade, times(2)).getSunName();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Long gaugeValue(String name) {
+        return ((Gauge<Long>) metricRegistry.getGauges().get(name)).getValue();
+    }
+}
@@ -0,0 +1,121 @@
+package uk.gov.pay.directdebit.notifications.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class EmailOutboxDaoIT {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Map<String, String> PERSONALISATION = Map.of("mandate reference", "ABC123",
+            "dd guarantee link", "https://frontend.url.test/direct-debit-guarantee");
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private EmailOutboxDao emailOutboxDao;
+
+    @Before
+    public void setUp() {
+        emailOutboxDao = testContext.getJdbi().onDemand(EmailOutboxDao.class);
+    }
+
+    @Test
+    public void shouldEnqueueAndClaimEmailWithItsPersonalisation() {
+        emailOutboxDao.enqueue(aQueuedEmail("one@example.test"));
+
+        List<QueuedEmail> claimed = emailOutboxDao.claim(10, 60, MAX_ATTEMPTS);
+
+        assertThat(claimed.size(), is(1));
+        QueuedEmail queuedEmail = claimed.get(0);
+        assertThat(queuedEmail.getTemplate(), is(EmailTemplate.MANDATE_CANCELLED));
+        assertThat(queuedEmail.getAddress(), is("one@example.test"));
+        assertThat(queuedEmail.getGatewayAccountExternalId(), is("gateway-account-external-id"));
+        assertThat(queuedEmail.getMandateExternalId(), is("mandate-external-id"));
+        assertThat(queuedEmail.getPersonalisation(), is(PERSONALISATION));
+    }
+
+    @Test
+    public void shouldNotClaimEmailsThatAreAlreadyClaimed() {
+        emailOutboxDao.enqueue(aQueuedEmail("one@example.test"));
+        emailOutboxDao.enqueue(aQueuedEmail("two@example.test"));
+        emailOutboxDao.enqueue(aQueuedEmail("three@example.test"));
+
+        List<QueuedEmail> firstClaim = emailOutboxDao.claim(2, 60, MAX_ATTEMPTS);
+        List<QueuedEmail> secondClaim = emailOutboxDao.claim(2, 60, MAX_ATTEMPTS);
+
+        assertThat(addressesOf(firstClaim), is(List.of("one@example.test", "two@example.test")));
+        assertThat(addressesOf(secondClaim), is(List.of("three@example.test")));
+        assertThat(emailOutboxDao.claim(2, 60, MAX_ATTEMPTS), is(empty()));
+    }
+
+    @Test
+    public void shouldRemoveSentEmails() {
+        emailOutboxDao.enqueue(aQueuedEmail("one@example.test"));
+        emailOutboxDao.enqueue(aQueuedEmail("two@example.test"));
+        List<QueuedEmail> claimed = emailOutboxDao.claim(10, 60, MAX_ATTEMPTS);
+
+        emailOutboxDao.remove(List.of(claimed.get(0).getId()));
+
+        assertThat(emailOutboxDao.countQueuedEmails(MAX_ATTEMPTS), is(1L));
+    }
+
+    @Test
+    public void shouldNotClaimEmailAgainUntilItsBackoffHasPassed() {
+        emailOutboxDao.enqueue(aQueuedEmail("one@example.test"));
+        List<Long> claimedIds = idsOf(emailOutboxDao.claim(10, 60, MAX_ATTEMPTS));
+
+        emailOutboxDao.scheduleRetry(claimedIds, 60_000, 3_600_000);
+
+        assertThat(emailOutboxDao.claim(10, 60, MAX_ATTEMPTS), is(empty()));
+
+        emailOutboxDao.scheduleRetry(claimedIds, 0, 0);
+
+        assertThat(idsOf(emailOutboxDao.claim(10, 60, MAX_ATTEMPTS)), is(claimedIds));
+    }
+
+    @Test
+    public void shouldStopClaimingEmailsThatHaveExhaustedTheirAttempts() {
+        emailOutboxDao.enqueue(aQueuedEmail("one@example.test"));
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            List<Long> claimedIds = idsOf(emailOutboxDao.claim(10, 60, MAX_ATTEMPTS));
+            assertThat(claimedIds.size(), is(1));
+            emailOutboxDao.scheduleRetry(claimedIds, 0, 0);
+        }
+
+        assertThat(emailOutboxDao.claim(10, 60, MAX_ATTEMPTS), is(empty()));
+        assertThat(emailOutboxDao.countQueuedEmails(MAX_ATTEMPTS), is(0L));
+        assertThat(emailOutboxDao.countExhaustedEmails(MAX_ATTEMPTS), is(1L));
+    }
+
+    private static QueuedEmail aQueuedEmail(String address) {
+        return new QueuedEmail(null, EmailTemplate.MANDATE_CANCELLED, address, "gateway-account-external-id",
+                "mandate-external-id", PERSONALISATION);
+    }
+
+    private static List<String> addressesOf(List<QueuedEmail> queuedEmails) {
+        return queuedEmails.stream().map(QueuedEmail::getAddress).collect(toList());
+    }
+
+    private static List<Long> idsOf(List<QueuedEmail> queuedEmails) {
+        return queuedEmails.stream().map(QueuedEmail::getId).collect(toList());
+    }
+}
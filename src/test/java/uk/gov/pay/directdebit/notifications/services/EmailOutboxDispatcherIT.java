@@ -0,0 +1,139 @@
+package uk.gov.pay.directdebit.notifications.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
+import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.moreThanOrExactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static java.lang.String.format;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payers.fixtures.PayerFixture.aPayerFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+public class EmailOutboxDispatcherIT {
+
+    private static final String SEND_EMAIL_PATH = "/v1/emails/send";
+    private static final long MAX_WAIT_FOR_OUTBOX_IN_MILLIS = 10000;
+
+    @Rule
+    public DropwizardAppWithPostgresRule app = new DropwizardAppWithPostgresRule("config/test-it-email-outbox-config.yaml");
+
+    private WireMockServer wireMockAdminUsers = new WireMockServer(options().port(10110));
+
+    private TestContext testContext;
+
+    @Before
+    public void setUp() {
+        testContext = app.getTestContext();
+        wireMockAdminUsers.start();
+    }
+
+    @After
+    public void tearDown() {
+        wireMockAdminUsers.shutdown();
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void shouldSendTheEmailQueuedByACollectAndRemoveItFromTheOutbox() throws Exception {
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse().withStatus(200)));
+        PayerFixture payerFixture = aPayerFixture();
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture().insert(testContext.getJdbi());
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPayerFixture(payerFixture)
+                .withPaymentProviderId(SandboxMandateId.valueOf("sandbox-mandate-id"))
+                .withState(MandateState.ACTIVE)
+                .insert(testContext.getJdbi());
+        String postBody = new ObjectMapper().writeValueAsString(Map.of(
+                "amount", 6234L,
+                "reference", "Test reference",
+                "mandate_id", mandateFixture.getExternalId().toString()));
+
+        given().port(testContext.getPort())
+                .contentType(JSON)
+                .body(postBody)
+                .post(format("/v1/api/accounts/%s/charges/collect", gatewayAccountFixture.getExternalId()))
+                .then()
+                .statusCode(Response.Status.CREATED.getStatusCode());
+
+        waitUntil(() -> testContext.getDatabaseTestHelper().getQueuedEmails().isEmpty());
+
+        assertThat(testContext.getDatabaseTestHelper().getQueuedEmails(), is(empty()));
+        wireMockAdminUsers.verify(exactly(1), postRequestedFor(urlPathEqualTo(SEND_EMAIL_PATH))
+                .withRequestBody(matchingJsonPath("$.template", equalTo("ON_DEMAND_PAYMENT_CONFIRMED")))
+                .withRequestBody(matchingJsonPath("$.address", equalTo(payerFixture.getEmail())))
+                .withRequestBody(matchingJsonPath("$.personalisation['statement name']", equalTo("Sandbox SUN Name"))));
+    }
+
+    @Test
+    public void shouldKeepAnEmailAdminusersFailedToSendAndRetryIt() {
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse().withStatus(500)));
+        EmailOutboxDao emailOutboxDao = testContext.getJdbi().onDemand(EmailOutboxDao.class);
+        emailOutboxDao.enqueue(new QueuedEmail(null, EmailTemplate.MANDATE_CANCELLED, "payer@example.test",
+                "gateway-account-external-id", "mandate-external-id",
+                Map.of("mandate reference", "ABC123", "dd guarantee link", "http://Frontend/direct-debit-guarantee")));
+
+        waitUntil(() -> {
+            List<Map<String, Object>> queuedEmails = testContext.getDatabaseTestHelper().getQueuedEmails();
+            return queuedEmails.size() == 1
+                    && (Integer) queuedEmails.get(0).get("attempts") >= 1
+                    && queuedEmails.get(0).get("claimed_until") == null;
+        });
+
+        List<Map<String, Object>> failedEmails = testContext.getDatabaseTestHelper().getQueuedEmails();
+        assertThat(failedEmails.size(), is(1));
+        assertThat(failedEmails.get(0).get("address"), is("payer@example.test"));
+
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse().withStatus(200)));
+
+        waitUntil(() -> testContext.getDatabaseTestHelper().getQueuedEmails().isEmpty());
+
+        assertThat(testContext.getDatabaseTestHelper().getQueuedEmails(), is(empty()));
+        wireMockAdminUsers.verify(moreThanOrExactly(2), postRequestedFor(urlPathEqualTo(SEND_EMAIL_PATH))
+                .withRequestBody(matchingJsonPath("$.template", equalTo("MANDATE_CANCELLED"))));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_FOR_OUTBOX_IN_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
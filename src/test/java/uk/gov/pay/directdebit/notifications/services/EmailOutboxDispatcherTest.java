@@ -0,0 +1,138 @@
+package uk.gov.pay.directdebit.notifications.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
+import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmailOutboxDispatcherTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Mock
+    private EmailOutboxDao mockEmailOutboxDao;
+
+    @Mock
+    private AdminUsersClient mockAdminUsersClient;
+
+    @Mock
+    private EmailOutboxConfig mockEmailOutboxConfig;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private EmailOutboxDispatcher dispatcher;
+
+    private QueuedEmail email1 = aQueuedEmail(1L, "one@example.test");
+    private QueuedEmail email2 = aQueuedEmail(2L, "two@example.test");
+    private QueuedEmail email3 = aQueuedEmail(3L, "three@example.test");
+
+    @Before
+    public void setUp() {
+        given(mockEmailOutboxConfig.getBatchSize()).willReturn(BATCH_SIZE);
+        given(mockEmailOutboxConfig.getMaxAttempts()).willReturn(MAX_ATTEMPTS);
+        given(mockEmailOutboxConfig.getClaimTimeout()).willReturn(Duration.minutes(1));
+        dispatcher = new EmailOutboxDispatcher(mockEmailOutboxDao, mockAdminUsersClient, mockEmailOutboxConfig,
+                MoreExecutors.newDirectExecutorService(), metricRegistry);
+    }
+
+    @Test
+    public void shouldKeepClaimingBatchesUntilTheOutboxIsDrained() {
+        given(mockEmailOutboxDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS))
+                .willReturn(List.of(email1, email2))
+                .willReturn(List.of(email3));
+        given(mockAdminUsersClient.sendEmail(any())).willReturn(true);
+
+        dispatcher.dispatchQueuedEmails();
+
+        verify(mockEmailOutboxDao).remove(List.of(1L, 2L));
+        verify(mockEmailOutboxDao).remove(List.of(3L));
+        verify(mockEmailOutboxDao, never()).scheduleRetry(anyList(), anyLong(), anyLong());
+        assertThat(metricRegistry.timer("email-outbox.send").getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldScheduleARetryOnlyForEmailsThatFailedToSend() {
+        given(mockEmailOutboxConfig.getInitialBackoff()).willReturn(Duration.seconds(30));
+        given(mockEmailOutboxConfig.getMaxBackoff()).willReturn(Duration.hours(1));
+        given(mockEmailOutboxDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willReturn(List.of(email1, email2)).willReturn(List.of());
+        given(mockAdminUsersClient.sendEmail(any())).willReturn(true).willReturn(false);
+
+        dispatcher.dispatchQueuedEmails();
+
+        verify(mockEmailOutboxDao).remove(List.of(1L));
+        verify(mockEmailOutboxDao).scheduleRetry(List.of(2L), 30_000L, 3_600_000L);
+        assertThat(metricRegistry.meter("email-outbox.failed-emails").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldScheduleARetryWhenSendingThrows() {
+        given(mockEmailOutboxConfig.getInitialBackoff()).willReturn(Duration.seconds(30));
+        given(mockEmailOutboxConfig.getMaxBackoff()).willReturn(Duration.hours(1));
+        given(mockEmailOutboxDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willReturn(List.of(email1));
+        given(mockAdminUsersClient.sendEmail(any())).willThrow(new RuntimeException("adminusers is down"));
+
+        dispatcher.dispatchQueuedEmails();
+
+        verify(mockEmailOutboxDao, never()).remove(anyList());
+        verify(mockEmailOutboxDao).scheduleRetry(List.of(1L), 30_000L, 3_600_000L);
+    }
+
+    @Test
+    public void shouldNotLetAnExceptionEscapeTheScheduledTask() {
+        given(mockEmailOutboxDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willThrow(new RuntimeException("database is down"));
+
+        dispatcher.dispatchQueuedEmails();
+
+        verify(mockAdminUsersClient, never()).sendEmail(any());
+    }
+
+    @Test
+    public void shouldReportQueuedEmailsUntilTheOutboxIsEmpty() {
+        given(mockEmailOutboxDao.countQueuedEmails(MAX_ATTEMPTS)).willReturn(1L).willReturn(0L);
+
+        assertThat(dispatcher.hasQueuedEmails(), is(true));
+        assertThat(dispatcher.hasQueuedEmails(), is(false));
+    }
+
+    @Test
+    public void shouldReportQueuedEmailsWhenTheOutboxCannotBeRead() {
+        given(mockEmailOutboxDao.countQueuedEmails(MAX_ATTEMPTS)).willThrow(new RuntimeException("database is down"));
+
+        assertThat(dispatcher.hasQueuedEmails(), is(true));
+    }
+
+    @Test
+    public void shouldExposeOutboxDepthAsAGauge() {
+        given(mockEmailOutboxDao.countQueuedEmails(MAX_ATTEMPTS)).willReturn(7L);
+
+        assertThat(metricRegistry.getGauges().get("email-outbox.depth").getValue(), is(7L));
+    }
+
+    private static QueuedEmail aQueuedEmail(Long id, String address) {
+        return new QueuedEmail(id, EmailTemplate.PAYMENT_FAILED, address, "gateway-account-external-id",
+                "mandate-external-id", Map.of("dd guarantee link", "https://frontend.url.test/direct-debit-guarantee"));
+    }
+}
@@ -3,16 +3,19 @@ package uk.gov.pay.directdebit.notifications.services;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.LinksConfig;
 import uk.gov.pay.directdebit.common.model.subtype.SunName;
-import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
+import uk.gov.pay.directdebit.notifications.dao.EmailOutboxDao;
 import uk.gov.pay.directdebit.notifications.model.EmailPayload.EmailTemplate;
+import uk.gov.pay.directdebit.notifications.model.QueuedEmail;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
@@ -21,6 +24,10 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Optional;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -40,7 +47,9 @@ public class UserNotificationServiceTest {
     @Mock
     private UserNotificationService userNotificationService;
     @Mock
-    private SunService mockSunService;
+    private EmailOutboxDao mockEmailOutboxDao;
+    @Mock
+    private EmailOutboxConfig mockEmailOutboxConfig;
 
     private static final String EMAIL = "ksdfhkjsdh@sdjkfh.test";
     private PayerFixture payerFixture = aPayerFixture().withEmail(EMAIL);
@@ -56,7 +65,8 @@ public class UserNotificationServiceTest {
     public void setUp() {
         when(mockDirectDebitConfig.getLinks()).thenReturn(mockLinksConfig);
         when(mockLinksConfig.getDirectDebitGuaranteeUrl()).thenReturn("https://frontend.url.test/direct-debit-guarantee");
-        userNotificationService = new UserNotificationService(mockAdminUsersClient, mockDirectDebitConfig, mockSunService);
+        userNotificationService = new UserNotificationService(mockAdminUsersClient, mockDirectDebitConfig,
+                mockEmailOutboxDao, mockEmailOutboxConfig);
     }
 
     @Test
@@ -74,22 +84,20 @@ public class UserNotificationServiceTest {
     public void shouldSendMandateCreatedEmail() {
         Mandate mandate = MandateFixture.aMandateFixture().withPayerFixture(payerFixture).toEntity();
         SunName sunName = SunName.of("test sun Name");
-        when(mockSunService.getSunNameFor(mandate)).thenReturn(Optional.of(sunName));
         HashMap<String, String> emailPersonalisation = new HashMap<>();
         emailPersonalisation.put("mandate reference", mandate.getMandateBankStatementReference().get().toString());
         emailPersonalisation.put("bank account last 2 digits", mandate.getPayer().get().getAccountNumberLastTwoDigits());
         emailPersonalisation.put("statement name", sunName.toString());
         emailPersonalisation.put("dd guarantee link", "https://frontend.url.test/direct-debit-guarantee");
 
-        userNotificationService.sendMandateCreatedEmailFor(mandate);
+        userNotificationService.sendMandateCreatedEmailFor(mandate, Optional.of(sunName));
 
         verify(mockAdminUsersClient).sendEmail(EmailTemplate.ON_DEMAND_MANDATE_CREATED, mandate, emailPersonalisation);
     }
 
     public void shouldNotSendMandateCreatedEmail_whenSunNameUnavailable() {
         Mandate mandate = MandateFixture.aMandateFixture().withPayerFixture(payerFixture).toEntity();
-        when(mockSunService.getSunNameFor(mandate)).thenReturn(Optional.empty());
-        userNotificationService.sendMandateCreatedEmailFor(mandate);
+        userNotificationService.sendMandateCreatedEmailFor(mandate, Optional.empty());
         verifyZeroInteractions(mockAdminUsersClient);
     }
 
@@ -111,7 +119,6 @@ public class UserNotificationServiceTest {
         Payment paymentWithMandate = fromPayment(payment).withMandate(mandate).build();
 
         SunName sunName = SunName.of("test sun Name");
-        when(mockSunService.getSunNameFor(mandate)).thenReturn(Optional.of(sunName));
         HashMap<String, String> emailPersonalisation = new HashMap<>();
         emailPersonalisation.put("amount", "123.45");
         emailPersonalisation.put("mandate reference", mandate.getMandateBankStatementReference().get().toString());
@@ -121,7 +128,7 @@ public class UserNotificationServiceTest {
         emailPersonalisation.put("statement name", sunName.toString());
         emailPersonalisation.put("dd guarantee link", "https://frontend.url.test/direct-debit-guarantee");
 
-        userNotificationService.sendPaymentConfirmedEmailFor(paymentWithMandate);
+        userNotificationService.sendPaymentConfirmedEmailFor(paymentWithMandate, Optional.of(sunName));
 
         verify(mockAdminUsersClient).sendEmail(EmailTemplate.ON_DEMAND_PAYMENT_CONFIRMED, mandate, emailPersonalisation);
     }
@@ -136,4 +143,22 @@ public class UserNotificationServiceTest {
         verify(mockAdminUsersClient).sendEmail(EmailTemplate.PAYMENT_FAILED, mandateFixture.toEntity(), emailPersonalisation);
     }
 
+    @Test
+    public void shouldWriteEmailToOutboxInsteadOfSendingItWhenAsynchronous() {
+        when(mockEmailOutboxConfig.isAsynchronous()).thenReturn(true);
+        Mandate mandate = mandateFixture.toEntity();
+
+        userNotificationService.sendMandateCancelledEmailFor(mandate);
+
+        ArgumentCaptor<QueuedEmail> queuedEmailCaptor = ArgumentCaptor.forClass(QueuedEmail.class);
+        verify(mockEmailOutboxDao).enqueue(queuedEmailCaptor.capture());
+        verify(mockAdminUsersClient, never()).sendEmail(any(EmailTemplate.class), any(Mandate.class), any());
+        QueuedEmail queuedEmail = queuedEmailCaptor.getValue();
+        assertThat(queuedEmail.getTemplate(), is(EmailTemplate.MANDATE_CANCELLED));
+        assertThat(queuedEmail.getAddress(), is(EMAIL));
+        assertThat(queuedEmail.getMandateExternalId(), is(mandate.getExternalId().toString()));
+        assertThat(queuedEmail.getGatewayAccountExternalId(), is(mandate.getGatewayAccount().getExternalId()));
+        assertThat(queuedEmail.getPersonalisation().get("mandate reference"), is(mandateFixture.getMandateReference().toString()));
+    }
+
 }
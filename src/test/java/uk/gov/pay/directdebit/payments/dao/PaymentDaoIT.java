@@ -167,6 +167,38 @@ public class PaymentDaoIT {
         assertThat(payment.getCreatedDate(), is(testPayment.getCreatedDate()));
     }
 
+
+    @Test
+    public void shouldGetPaymentsByProviderIdsAndOrganisationIds() {
+        var goCardlessOrganisationId = GoCardlessOrganisationId.valueOf("orgId");
+
+        testGatewayAccount = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId)
+                .insert(testContext.getJdbi());
+
+        testMandate = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi());
+
+        testPayment
+                .withMandateFixture(testMandate)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("aProviderId"))
+                .insert(testContext.getJdbi());
+
+        PaymentFixture otherPayment = aPaymentFixture()
+                .withMandateFixture(testMandate)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("anotherProviderId"))
+                .insert(testContext.getJdbi());
+
+        List<Payment> payments = paymentDao.findPaymentsByProviderIdsAndOrganisationIds(GOCARDLESS,
+                new String[]{"aProviderId", "anotherProviderId", "aProviderId"},
+                new String[]{"orgId", "orgId", "differentOrgId"});
+
+        assertThat(payments.size(), is(2));
+        assertThat(Set.of(payments.get(0).getId(), payments.get(1).getId()), is(Set.of(testPayment.getId(), otherPayment.getId())));
+    }
+
     @Test
     public void shouldReturnEmptyWhenProviderIdMatchesButPaymentProviderServiceIdDoesNotMatch() {
         var goCardlessOrganisationId = GoCardlessOrganisationId.valueOf("orgId");
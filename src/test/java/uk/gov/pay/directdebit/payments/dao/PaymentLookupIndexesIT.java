@@ -0,0 +1,116 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+import uk.gov.pay.directdebit.util.QueryPlanTestHelper;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+/**
+ * Seeds mandates, payers and payments with a production-sized history and checks that the lookups made while
+ * processing webhooks find payments and their payers from indexes rather than by scanning every row.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class PaymentLookupIndexesIT {
+
+    private static final int NUMBER_OF_ROWS = 100_000;
+    private static final long FIRST_SEEDED_ID = 20_000_000L;
+    private static final String ORGANISATION = "OR-LOOKUP";
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private QueryPlanTestHelper queryPlanTestHelper;
+    private GatewayAccountFixture gatewayAccountFixture;
+
+    @Before
+    public void setUp() {
+        queryPlanTestHelper = new QueryPlanTestHelper(testContext.getJdbi());
+        gatewayAccountFixture = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(GoCardlessOrganisationId.valueOf(ORGANISATION))
+                .insert(testContext.getJdbi());
+        seedMandatesPayersAndPayments();
+    }
+
+    @Test
+    public void shouldUseIndexesToFindPaymentByProviderIdAndOrganisation() {
+        String plan = queryPlanTestHelper.explain(PaymentDao.joinQuery + " WHERE p.payment_provider_id = :providerId " +
+                        "AND g.organisation = :goCardlessOrganisationId AND g.payment_provider = :provider",
+                Map.of("providerId", "LOOKUP-PM4242", "goCardlessOrganisationId", ORGANISATION, "provider", "GOCARDLESS"));
+
+        assertDoesNotScanPaymentsOrPayers(plan);
+        assertThat(plan, containsString("payments_payment_provider_id_mandate_id_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexToUpdateStateByProviderIdAndOrganisation() {
+        String plan = queryPlanTestHelper.explain(PaymentDao.updateStateByProviderIdAndOrganisationIdQuery,
+                Map.of("state", "PAID_OUT", "stateDetails", "paid_out", "stateDetailsDescription", "Paid out",
+                        "providerPaymentId", "LOOKUP-PM4242", "goCardlessOrganisationId", ORGANISATION, "provider", "GOCARDLESS"));
+
+        assertDoesNotScanPaymentsOrPayers(plan);
+        assertThat(plan, containsString("payments_payment_provider_id_mandate_id_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexesToFindPaymentByExternalId() {
+        String plan = queryPlanTestHelper.explain(PaymentDao.joinQuery + " WHERE p.external_id = :externalId",
+                Map.of("externalId", "LOOKUP-PAYMENT4242"));
+
+        assertDoesNotScanPaymentsOrPayers(plan);
+        assertThat(plan, containsString("payments_external_id_idx"));
+        assertThat(plan, containsString("payers_mandate_id_idx"));
+    }
+
+    @Test
+    public void shouldUseIndexesToFindPaymentsByMandateExternalId() {
+        String plan = queryPlanTestHelper.explain(PaymentDao.joinQuery + " WHERE m.external_id = :mandateExternalId",
+                Map.of("mandateExternalId", "LOOKUP-MANDATE4242"));
+
+        assertDoesNotScanPaymentsOrPayers(plan);
+        assertThat(plan, containsString("payments_mandate_id_idx"));
+    }
+
+    private static void assertDoesNotScanPaymentsOrPayers(String plan) {
+        assertThat(plan, not(containsString("Seq Scan on payments")));
+        assertThat(plan, not(containsString("Seq Scan on payers")));
+    }
+
+    private void seedMandatesPayersAndPayments() {
+        queryPlanTestHelper.seed("mandates", "INSERT INTO mandates(id, gateway_account_id, external_id, mandate_reference, " +
+                        "service_reference, return_url, state, created_date, payment_provider_id) " +
+                        "SELECT :firstId + i, :gatewayAccountId, 'LOOKUP-MANDATE' || i, 'MREF' || i, 'SREF' || i, " +
+                        "'https://example.com/return', 'ACTIVE', now(), 'LOOKUP-MD' || i " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "gatewayAccountId", gatewayAccountFixture.getId(), "numberOfRows", NUMBER_OF_ROWS));
+        queryPlanTestHelper.seed("payers", "INSERT INTO payers(id, mandate_id, external_id, name, email, " +
+                        "bank_account_number_last_two_digits, bank_account_requires_authorisation, bank_account_number, " +
+                        "bank_account_sort_code, bank_name, created_date) " +
+                        "SELECT :firstId + i, :firstId + i, 'LOOKUP-PAYER' || i, 'Payer ' || i, 'payer' || i || '@example.com', " +
+                        "'78', false, '12345678', '123456', 'A Bank', now() " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "numberOfRows", NUMBER_OF_ROWS));
+        queryPlanTestHelper.seed("payments", "INSERT INTO payments(id, mandate_id, external_id, amount, state, reference, " +
+                        "description, created_date, payment_provider_id) " +
+                        "SELECT :firstId + i, :firstId + i, 'LOOKUP-PAYMENT' || i, 100, 'SUBMITTED_TO_PROVIDER', 'PREF' || i, " +
+                        "'A payment', now(), 'LOOKUP-PM' || i " +
+                        "FROM generate_series(1, :numberOfRows) AS i",
+                Map.of("firstId", FIRST_SEEDED_ID, "numberOfRows", NUMBER_OF_ROWS));
+    }
+}
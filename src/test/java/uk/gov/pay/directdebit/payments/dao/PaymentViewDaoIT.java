@@ -4,6 +4,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.common.model.TextMatch;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
 import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
 import uk.gov.pay.directdebit.junit.DropwizardTestContext;
@@ -18,6 +21,7 @@ import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.Matchers.hasSize;
@@ -186,6 +190,30 @@ public class PaymentViewDaoIT {
         assertThat(payments.get(1).getReference(), is(mandate1Payment1.getReference()));
     }
 
+    @Test
+    public void searchByReferencePrefix() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withReference("re")
+                .withMatch(TextMatch.PREFIX)
+                .build();
+
+        List<PaymentResponse> payments = paymentViewDao.searchPaymentView(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(payments.size(), is(2));
+        assertThat(payments.get(0).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(payments.get(1).getReference(), is(mandate1Payment1.getReference()));
+    }
+
+    @Test
+    public void searchByReferencePrefixDoesNotMatchInsideReference() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withReference("1234")
+                .withMatch(TextMatch.PREFIX)
+                .build();
+
+        List<PaymentResponse> payments = paymentViewDao.searchPaymentView(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(payments.size(), is(0));
+    }
+
     @Test
     public void searchByAmount() {
         PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
@@ -262,4 +290,61 @@ public class PaymentViewDaoIT {
         assertThat(payments.size(), is(1));
         assertThat(payments.get(0).getReference(), is(mandate1Payment2.getReference()));
     }
+
+    @Test
+    public void searchPageWithoutCursor_shouldReturnFirstPageAndNextCursor() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withIncludeTotal(false)
+                .build();
+
+        SearchPage<PaymentResponse> searchPage = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(searchPage.getResults(), hasSize(2));
+        assertThat(searchPage.getResults().get(0).getReference(), is(mandate2Payment1.getReference()));
+        assertThat(searchPage.getResults().get(1).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(searchPage.getPreviousCursor(), is(Optional.empty()));
+        assertThat(searchPage.getNextCursor(), is(Optional.of(SearchCursor.of(mandate1Payment2.getId()))));
+    }
+
+    @Test
+    public void searchPageAfterCursor_shouldReturnPaymentsWithLowerIds() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withAfter(SearchCursor.of(mandate1Payment2.getId()))
+                .build();
+
+        SearchPage<PaymentResponse> searchPage = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(searchPage.getResults(), hasSize(1));
+        assertThat(searchPage.getResults().get(0).getReference(), is(mandate1Payment1.getReference()));
+        assertThat(searchPage.getPreviousCursor(), is(Optional.of(SearchCursor.of(mandate1Payment1.getId()))));
+        assertThat(searchPage.getNextCursor(), is(Optional.empty()));
+    }
+
+    @Test
+    public void searchPageBeforeCursor_shouldReturnPaymentsWithHigherIdsInDescendingOrder() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withBefore(SearchCursor.of(mandate1Payment1.getId()))
+                .build();
+
+        SearchPage<PaymentResponse> searchPage = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(searchPage.getResults(), hasSize(2));
+        assertThat(searchPage.getResults().get(0).getReference(), is(mandate2Payment1.getReference()));
+        assertThat(searchPage.getResults().get(1).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(searchPage.getPreviousCursor(), is(Optional.empty()));
+        assertThat(searchPage.getNextCursor(), is(Optional.of(SearchCursor.of(mandate1Payment2.getId()))));
+    }
+
+    @Test
+    public void searchPageAfterCursor_shouldApplyFilters() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withMandateId(MANDATE_ID_1)
+                .withAfter(SearchCursor.of(mandate2Payment1.getId()))
+                .build();
+
+        SearchPage<PaymentResponse> searchPage = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(searchPage.getResults(), hasSize(2));
+        assertThat(searchPage.getResults().get(0).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(searchPage.getResults().get(1).getReference(), is(mandate1Payment1.getReference()));
+    }
 }
@@ -0,0 +1,123 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.payments.fixtures.PaymentFixture;
+import uk.gov.pay.directdebit.util.DatabaseTestHelper;
+import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource.SandboxEventAction;
+import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource.SandboxEventCause;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.FAILED;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.SUBMITTED_TO_PROVIDER;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class SandboxPayoutDaoIT {
+
+    // each test pays out payments with ids above its own starting id, so payments left by other tests are not picked up
+    private static final long FAILURE_RATE_TEST_IDS = 30_000_000L;
+    private static final long MAX_CREATED_DATE_TEST_IDS = 30_000_010L;
+    private static final long AFTER_ID_TEST_IDS = 30_000_020L;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private SandboxPayoutDao sandboxPayoutDao;
+    private DatabaseTestHelper databaseTestHelper;
+    private MandateFixture mandateFixture;
+    private final ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    @Before
+    public void setUp() {
+        sandboxPayoutDao = new SandboxPayoutDao(testContext.getJdbi());
+        databaseTestHelper = testContext.getDatabaseTestHelper();
+        var gatewayAccountFixture = aGatewayAccountFixture()
+                .withPaymentProvider(SANDBOX)
+                .withOrganisation(null)
+                .insert(testContext.getJdbi());
+        mandateFixture = aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).insert(testContext.getJdbi());
+    }
+
+    @Test
+    public void shouldFailEveryPaymentAndRecordFailedEventsWhenTheFailureRateIsOne() {
+        PaymentFixture firstPayment = insertSubmittedPayment(FAILURE_RATE_TEST_IDS + 1, now);
+        PaymentFixture secondPayment = insertSubmittedPayment(FAILURE_RATE_TEST_IDS + 2, now);
+
+        List<Long> paymentIds = payOutNextChunk(now.plusMinutes(1), FAILURE_RATE_TEST_IDS, 2, 1.0);
+
+        assertThat(paymentIds, is(List.of(firstPayment.getId(), secondPayment.getId())));
+        for (PaymentFixture payment : List.of(firstPayment, secondPayment)) {
+            assertThat(databaseTestHelper.getPaymentById(payment.getId()).get("state"), is(FAILED.toString()));
+
+            List<Map<String, Object>> sandboxEvents = databaseTestHelper.getSandboxEventsByPaymentId(payment.getExternalId());
+            assertThat(sandboxEvents.size(), is(1));
+            assertThat(sandboxEvents.get(0).get("event_action"), is(SandboxEventAction.FAILED.toString()));
+            assertThat(sandboxEvents.get(0).get("event_cause"), is(SandboxEventCause.FAILED_CAUSE.toString()));
+
+            Map<String, Object> latestEvent = databaseTestHelper.getLatestSandboxPaymentEventByPaymentId(payment.getExternalId()).get();
+            assertThat(latestEvent.get("sandbox_event_id"), is(sandboxEvents.get(0).get("id")));
+        }
+    }
+
+    @Test
+    public void shouldLeavePaymentsCreatedAfterTheMaxCreatedDate() {
+        PaymentFixture olderPayment = insertSubmittedPayment(MAX_CREATED_DATE_TEST_IDS + 1, now.minusHours(2));
+        PaymentFixture newerPayment = insertSubmittedPayment(MAX_CREATED_DATE_TEST_IDS + 2, now);
+
+        List<Long> paymentIds = payOutNextChunk(now.minusHours(1), MAX_CREATED_DATE_TEST_IDS, 10, 0.0);
+
+        assertThat(paymentIds, is(List.of(olderPayment.getId())));
+        assertThat(databaseTestHelper.getPaymentById(olderPayment.getId()).get("state"), is(PAID_OUT.toString()));
+        assertThat(databaseTestHelper.getPaymentById(newerPayment.getId()).get("state"), is(SUBMITTED_TO_PROVIDER.toString()));
+        assertThat(databaseTestHelper.getSandboxEventsByPaymentId(newerPayment.getExternalId()), is(empty()));
+    }
+
+    @Test
+    public void shouldOnlyPayOutPaymentsWithIdsAfterTheGivenId() {
+        PaymentFixture alreadyProcessedPayment = insertSubmittedPayment(AFTER_ID_TEST_IDS + 1, now);
+        PaymentFixture secondPayment = insertSubmittedPayment(AFTER_ID_TEST_IDS + 2, now);
+        PaymentFixture thirdPayment = insertSubmittedPayment(AFTER_ID_TEST_IDS + 3, now);
+
+        List<Long> paymentIds = payOutNextChunk(now.plusMinutes(1), alreadyProcessedPayment.getId(), 10, 0.0);
+
+        assertThat(paymentIds, is(List.of(secondPayment.getId(), thirdPayment.getId())));
+        assertThat(databaseTestHelper.getPaymentById(alreadyProcessedPayment.getId()).get("state"),
+                is(SUBMITTED_TO_PROVIDER.toString()));
+        assertThat(databaseTestHelper.getSandboxEventsByPaymentId(alreadyProcessedPayment.getExternalId()), is(empty()));
+    }
+
+    private PaymentFixture insertSubmittedPayment(long id, ZonedDateTime createdDate) {
+        return aPaymentFixture()
+                .withId(id)
+                .withMandateFixture(mandateFixture)
+                .withState(SUBMITTED_TO_PROVIDER)
+                .withCreatedDate(createdDate)
+                .insert(testContext.getJdbi());
+    }
+
+    private List<Long> payOutNextChunk(ZonedDateTime maxCreatedDate, long afterId, int chunkSize, double failureRate) {
+        return sandboxPayoutDao.payOutNextChunk(maxCreatedDate, afterId, chunkSize, failureRate,
+                SandboxEventAction.PAID_OUT.toString(), SandboxEventCause.PAID_OUT_CAUSE.toString(), PAID_OUT,
+                SandboxEventAction.FAILED.toString(), SandboxEventCause.FAILED_CAUSE.toString(), FAILED);
+    }
+}
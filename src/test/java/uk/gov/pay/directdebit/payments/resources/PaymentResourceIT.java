@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.resources;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
@@ -24,11 +25,16 @@ import uk.gov.pay.directdebit.payments.fixtures.PaymentFixture;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
@@ -43,6 +49,8 @@ import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDB
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 import static uk.gov.pay.directdebit.payers.fixtures.PayerFixture.aPayerFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+import static uk.gov.pay.directdebit.payments.resources.PaymentResource.APPLICATION_NDJSON;
+import static uk.gov.pay.directdebit.payments.resources.PaymentResource.BULK_COLLECT_API_PATH;
 import static uk.gov.pay.directdebit.payments.resources.PaymentResource.CHARGE_API_PATH;
 import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubCreatePayment;
 import static uk.gov.pay.directdebit.util.GoCardlessStubs.stubGetCreditor;
@@ -358,6 +366,101 @@ public class PaymentResourceIT {
                 .statusCode(404);
     }
     
+    @Test
+    public void shouldCollectPaymentsInBulkAndStreamBackAResultForEachRequest() throws Exception {
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .withPayerFixture(aPayerFixture())
+                .withPaymentProviderId(SandboxMandateId.valueOf("sandbox-mandate-id"))
+                .withState(MandateState.ACTIVE)
+                .insert(testContext.getJdbi());
+        String accountExternalId = testGatewayAccount.getExternalId();
+        String postBody = new ObjectMapper().writeValueAsString(List.of(
+                Map.of(JSON_AMOUNT_KEY, AMOUNT, JSON_REFERENCE_KEY, "First reference",
+                        JSON_MANDATE_ID_KEY, mandateFixture.getExternalId().toString()),
+                Map.of(JSON_AMOUNT_KEY, AMOUNT, JSON_REFERENCE_KEY, "Second reference", JSON_MANDATE_ID_KEY, "FAKEMANDATE"),
+                Map.of(JSON_AMOUNT_KEY, AMOUNT, JSON_REFERENCE_KEY, "Third reference",
+                        JSON_MANDATE_ID_KEY, mandateFixture.getExternalId().toString())));
+
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo("/v1/emails/send")).willReturn(aResponse().withStatus(200)));
+
+        String responseBody = givenSetup()
+                .body(postBody)
+                .post(BULK_COLLECT_API_PATH.replace("{accountId}", accountExternalId))
+                .then()
+                .statusCode(OK.getStatusCode())
+                .contentType(APPLICATION_NDJSON)
+                .extract().asString();
+
+        Map<Integer, Map<String, Object>> resultsByIndex = parseResultsByIndex(responseBody);
+        assertThat(resultsByIndex.size(), is(3));
+        assertThat(resultsByIndex.get(0).get("status"), is(201));
+        assertThat(resultsByIndex.get(1).get("status"), is(404));
+        assertThat(resultsByIndex.get(2).get("status"), is(201));
+
+        Map<String, Object> error = (Map<String, Object>) resultsByIndex.get(1).get("error");
+        assertThat(error.get("error_identifier"), is("MANDATE_ID_INVALID"));
+
+        Map<String, Object> payment = (Map<String, Object>) resultsByIndex.get(2).get("payment");
+        assertThat(payment.get(JSON_REFERENCE_KEY), is("Third reference"));
+        Map<String, Object> createdPayment = testContext.getDatabaseTestHelper()
+                .getPaymentByExternalId(payment.get(JSON_PAYMENT_ID_KEY).toString());
+        assertThat(createdPayment.get("amount"), is(AMOUNT));
+        assertThat(createdPayment.get("state"), is("SUBMITTED_TO_PROVIDER"));
+    }
+
+    @Test
+    public void shouldCollectPaymentsInBulkFromAnNdjsonStream() throws Exception {
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .withPayerFixture(aPayerFixture())
+                .withPaymentProviderId(SandboxMandateId.valueOf("sandbox-mandate-id"))
+                .withState(MandateState.ACTIVE)
+                .insert(testContext.getJdbi());
+        ObjectMapper objectMapper = new ObjectMapper();
+        String requestLine = objectMapper.writeValueAsString(Map.of(JSON_AMOUNT_KEY, AMOUNT,
+                JSON_REFERENCE_KEY, "Test reference", JSON_MANDATE_ID_KEY, mandateFixture.getExternalId().toString()));
+
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo("/v1/emails/send")).willReturn(aResponse().withStatus(200)));
+
+        String responseBody = given().port(testContext.getPort())
+                .contentType(APPLICATION_NDJSON)
+                .body(requestLine + "\n\n" + requestLine + "\n")
+                .post(BULK_COLLECT_API_PATH.replace("{accountId}", testGatewayAccount.getExternalId()))
+                .then()
+                .statusCode(OK.getStatusCode())
+                .extract().asString();
+
+        Map<Integer, Map<String, Object>> resultsByIndex = parseResultsByIndex(responseBody);
+        assertThat(resultsByIndex.keySet(), is(Set.of(0, 1)));
+        assertThat(resultsByIndex.get(0).get("status"), is(201));
+        assertThat(resultsByIndex.get(1).get("status"), is(201));
+    }
+
+    @Test
+    public void shouldRejectABulkCollectionWithTooManyRequests() throws Exception {
+        Map<String, Object> collectRequest = Map.of(JSON_AMOUNT_KEY, AMOUNT, JSON_REFERENCE_KEY, "Test reference",
+                JSON_MANDATE_ID_KEY, "FAKEMANDATE");
+        String postBody = new ObjectMapper().writeValueAsString(Collections.nCopies(11, collectRequest));
+
+        givenSetup()
+                .body(postBody)
+                .post(BULK_COLLECT_API_PATH.replace("{accountId}", testGatewayAccount.getExternalId()))
+                .then()
+                .statusCode(400)
+                .body("error_identifier", is("GENERIC"));
+    }
+
+    private static Map<Integer, Map<String, Object>> parseResultsByIndex(String ndjson) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<Integer, Map<String, Object>> resultsByIndex = new HashMap<>();
+        for (String line : ndjson.split("\n")) {
+            Map<String, Object> result = objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {});
+            resultsByIndex.put((Integer) result.get("index"), result);
+        }
+        return resultsByIndex;
+    }
+
     private PaymentFixture createTransactionFixtureWith(MandateFixture mandateFixture, PaymentState paymentState,
                                                         String paymentStateDetails) {
         return aPaymentFixture()
@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.Rule;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
 import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
@@ -20,7 +21,9 @@ import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
@@ -171,6 +174,55 @@ public class PaymentSearchResourceIT {
                 .body("page", is(2));
     }
 
+    @Test
+    public void shouldReturnPageAfterCursorWithoutTotal() {
+        for (int i = 1; i <= 15; i++) {
+            MandateFixture mandateFixture = aMandateFixture()
+                    .withGatewayAccountFixture(testGatewayAccount)
+                    .insert(testContext.getJdbi());
+
+            aPaymentFixture()
+                    .withId((long) i)
+                    .withReference("REF" + i)
+                    .withMandateFixture(mandateFixture)
+                    .insert(testContext.getJdbi());
+        }
+
+        String requestPath = "/v1/api/accounts/{accountId}/payments?display_size=:display_size&include_total=false&after=:after"
+                .replace("{accountId}", testGatewayAccount.getExternalId())
+                .replace(":display_size", "10")
+                .replace(":after", SearchCursor.of(11L).encode());
+
+        givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(JSON)
+                .body("results", hasSize(10))
+                .body("results[0].reference", is("REF10"))
+                .body("results[9].reference", is("REF1"))
+                .body("total", is(nullValue()))
+                .body("page", is(nullValue()))
+                .body("_links.prev_page.href", containsString("before=" + SearchCursor.of(10L).encode()))
+                .body("_links.next_page", is(nullValue()))
+                .body("_links.last_page", is(nullValue()));
+    }
+
+    @Test
+    public void shouldReturn422_whenCursorIsInvalid() {
+        String requestPath = "/v1/api/accounts/{accountId}/payments?after=:after"
+                .replace("{accountId}", testGatewayAccount.getExternalId())
+                .replace(":after", "not-a-cursor");
+
+        givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(422)
+                .contentType(JSON)
+                .body("message", contains("Invalid attribute value: after. Must be a cursor from a previous search response"))
+                .body("error_identifier", is(ErrorIdentifier.GENERIC.toString()));
+    }
+
     @Test
     public void shouldReturn400_whenMalformedDate() {
         String fromDate = "2018-05-05T15:00Z";
@@ -0,0 +1,223 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.payments.api.BulkCollectResult;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
+import uk.gov.pay.directdebit.payments.config.BulkCollectConfig;
+import uk.gov.pay.directdebit.payments.exception.CreatePaymentFailedException;
+import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.service.payments.commons.model.ErrorIdentifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkCollectServiceTest {
+
+    private static final String GATEWAY_ACCOUNT_EXTERNAL_ID = "xyzzy";
+    private static final PaymentProviderMandateId PAYMENT_PROVIDER_MANDATE_ID = SandboxMandateId.valueOf("provider-mandate-id");
+
+    @Mock
+    private MandateQueryService mockMandateQueryService;
+
+    @Mock
+    private PaymentService mockPaymentService;
+
+    @Mock
+    private BulkCollectConfig mockBulkCollectConfig;
+
+    private GatewayAccount gatewayAccount = aGatewayAccountFixture().withExternalId(GATEWAY_ACCOUNT_EXTERNAL_ID).toEntity();
+
+    private List<BulkCollectResult> results = new ArrayList<>();
+
+    private BulkCollectService bulkCollectService;
+
+    @Before
+    public void setUp() {
+        bulkCollectService = new BulkCollectService(mockMandateQueryService, mockPaymentService, mockBulkCollectConfig,
+                MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    public void shouldCreatePaymentsInBatchesAndSubmitEachOneToTheProvider() {
+        givenBatchSize(2);
+        Mandate mandate1 = aCollectableMandate("mandate-1");
+        Mandate mandate2 = aCollectableMandate("mandate-2");
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(mandate1.getExternalId(), mandate2.getExternalId()), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(List.of(mandate1, mandate2));
+        givenPaymentsAreCreated();
+        given(mockPaymentService.submitPaymentToProvider(any(Payment.class), any(PaymentProviderMandateId.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        bulkCollectService.collect(gatewayAccount, List.of(
+                aCollectRequest("mandate-1", "1000"),
+                aCollectRequest("mandate-2", "2000"),
+                aCollectRequest("mandate-1", "3000")), results::add);
+
+        verify(mockPaymentService, times(2)).createPayments(anyList());
+        verify(mockPaymentService, times(3)).submitPaymentToProvider(any(Payment.class), any(PaymentProviderMandateId.class));
+        List<BulkCollectResult> sortedResults = sortedResults();
+        assertThat(sortedResults.size(), is(3));
+        for (int index = 0; index < 3; index++) {
+            assertThat(sortedResults.get(index).getIndex(), is(index));
+            assertThat(sortedResults.get(index).getStatus(), is(201));
+        }
+        assertThat(sortedResults.get(2).getPayment().getAmount(), is(3000L));
+    }
+
+    @Test
+    public void shouldReportInvalidRequestsAndUnknownMandatesWithoutCreatingPaymentsForThem() {
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(MandateExternalId.valueOf("unknown-mandate")), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(List.of());
+
+        bulkCollectService.collect(gatewayAccount, List.of(
+                Map.of("mandate_id", "mandate-1", "reference", "ref"),
+                aCollectRequest("unknown-mandate", "1000")), results::add);
+
+        verify(mockPaymentService, never()).createPayments(anyList());
+        List<BulkCollectResult> sortedResults = sortedResults();
+        assertThat(sortedResults.get(0).getStatus(), is(400));
+        assertThat(sortedResults.get(1).getStatus(), is(404));
+        assertThat(sortedResults.get(1).getError().getIdentifier(), is(ErrorIdentifier.MANDATE_ID_INVALID));
+    }
+
+    @Test
+    public void shouldReportMandatesThatPaymentsCannotBeCollectedFrom() {
+        Mandate cancelledMandate = aMandateFixture()
+                .withExternalId(MandateExternalId.valueOf("cancelled-mandate"))
+                .withPaymentProviderId(PAYMENT_PROVIDER_MANDATE_ID)
+                .withState(MandateState.CANCELLED)
+                .toEntity();
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(cancelledMandate.getExternalId()), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(List.of(cancelledMandate));
+
+        bulkCollectService.collect(gatewayAccount, List.of(aCollectRequest("cancelled-mandate", "1000")), results::add);
+
+        verify(mockPaymentService, never()).createPayments(anyList());
+        assertThat(results.get(0).getStatus(), is(500));
+        assertThat(results.get(0).getError().getIdentifier(), is(ErrorIdentifier.MANDATE_STATE_INVALID));
+    }
+
+    @Test
+    public void shouldOnlyReportAFailureForThePaymentThatTheProviderRejected() {
+        givenBatchSize(10);
+        Mandate mandate = aCollectableMandate("mandate-1");
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(Set.of(mandate.getExternalId()), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(List.of(mandate));
+        givenPaymentsAreCreated();
+        given(mockPaymentService.submitPaymentToProvider(any(Payment.class), any(PaymentProviderMandateId.class)))
+                .willAnswer(invocation -> invocation.getArgument(0))
+                .willThrow(new CreatePaymentFailedException("mandate-1", "payment-2"));
+
+        bulkCollectService.collect(gatewayAccount, List.of(
+                aCollectRequest("mandate-1", "1000"),
+                aCollectRequest("mandate-1", "2000")), results::add);
+
+        List<BulkCollectResult> sortedResults = sortedResults();
+        assertThat(sortedResults.get(0).getStatus(), is(201));
+        assertThat(sortedResults.get(1).getStatus(), is(500));
+        assertThat(sortedResults.get(1).getError().getIdentifier(), is(ErrorIdentifier.GENERIC));
+    }
+
+    @Test
+    public void shouldStopCreatingBatchesButStillSubmitCreatedPaymentsWhenResultsCannotBePassedOn() {
+        givenBatchSize(2);
+        Mandate mandate = aCollectableMandate("mandate-1");
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(Set.of(mandate.getExternalId()), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(List.of(mandate));
+        givenPaymentsAreCreated();
+        given(mockPaymentService.submitPaymentToProvider(any(Payment.class), any(PaymentProviderMandateId.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        bulkCollectService.collect(gatewayAccount, List.of(
+                aCollectRequest("mandate-1", "1000"),
+                aCollectRequest("mandate-1", "2000"),
+                aCollectRequest("mandate-1", "3000")), result -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        });
+
+        verify(mockPaymentService, times(1)).createPayments(anyList());
+        verify(mockPaymentService, times(2)).submitPaymentToProvider(any(Payment.class), any(PaymentProviderMandateId.class));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectAnEmptyBulkCollection() {
+        given(mockBulkCollectConfig.getMaxRequests()).willReturn(10);
+
+        bulkCollectService.checkNumberOfRequests(0);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectABulkCollectionWithTooManyRequests() {
+        given(mockBulkCollectConfig.getMaxRequests()).willReturn(10);
+
+        bulkCollectService.checkNumberOfRequests(11);
+    }
+
+    private void givenBatchSize(int batchSize) {
+        given(mockBulkCollectConfig.getBatchSize()).willReturn(batchSize);
+        given(mockBulkCollectConfig.getSubmissionsPerSecondPerOrganisation()).willReturn(1000.0);
+    }
+
+    private void givenPaymentsAreCreated() {
+        given(mockPaymentService.createPayments(anyList())).willAnswer(invocation -> {
+            List<Pair<CollectPaymentRequest, Mandate>> requestsAndMandates = invocation.getArgument(0);
+            return requestsAndMandates.stream()
+                    .map(requestAndMandate -> aPaymentFixture()
+                            .withAmount(requestAndMandate.getLeft().getAmount())
+                            .toEntity())
+                    .collect(toList());
+        });
+    }
+
+    private static Mandate aCollectableMandate(String externalId) {
+        return aMandateFixture()
+                .withExternalId(MandateExternalId.valueOf(externalId))
+                .withPaymentProviderId(PAYMENT_PROVIDER_MANDATE_ID)
+                .withState(MandateState.ACTIVE)
+                .toEntity();
+    }
+
+    private static Map<String, String> aCollectRequest(String mandateExternalId, String amount) {
+        return Map.of("mandate_id", mandateExternalId, "amount", amount, "reference", "ref");
+    }
+
+    private List<BulkCollectResult> sortedResults() {
+        return results.stream().sorted(Comparator.comparing(BulkCollectResult::getIndex)).collect(toList());
+    }
+}
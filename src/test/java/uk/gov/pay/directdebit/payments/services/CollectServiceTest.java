@@ -19,6 +19,7 @@ import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
+import uk.gov.pay.directdebit.payments.exception.MandateAwaitingPaymentProviderIdException;
 import uk.gov.pay.directdebit.payments.exception.MandateNotSubmittedToProviderException;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
@@ -103,7 +104,17 @@ public class CollectServiceTest {
     }
 
     @Test(expected = MandateNotSubmittedToProviderException.class)
-    public void collectThrowsExceptionIfMandateHasNoProviderId() {
+    @Parameters({"SUBMITTED_TO_BANK", "ACTIVE"})
+    public void collectThrowsExceptionIfMandateHasNoProviderId(String mandateState) {
+        var mandate = mandateFixture.withState(MandateState.valueOf(mandateState)).toEntity();
+
+        given(mockMandateQueryService.findByExternalIdAndGatewayAccountExternalId(MANDATE_EXTERNAL_ID, GATEWAY_ACCOUNT_EXTERNAL_ID)).willReturn(mandate);
+
+        collectService.collect(gatewayAccount, collectPaymentRequest);
+    }
+
+    @Test(expected = MandateAwaitingPaymentProviderIdException.class)
+    public void collectThrowsExceptionIfMandateIsStillBeingCreatedWithProvider() {
         var mandate = mandateFixture.withState(MandateState.SUBMITTED_TO_PROVIDER).toEntity();
 
         given(mockMandateQueryService.findByExternalIdAndGatewayAccountExternalId(MANDATE_EXTERNAL_ID, GATEWAY_ACCOUNT_EXTERNAL_ID)).willReturn(mandate);
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import io.dropwizard.util.Duration;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,11 +11,17 @@ import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventId;
 
 import java.util.List;
 
-import static org.mockito.Mockito.verify;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GoCardlessEventServiceTest {
@@ -34,7 +41,44 @@ public class GoCardlessEventServiceTest {
     @Test
     public void storeEvent_shouldStoreAGoCardlessEvent() {
         List<GoCardlessEvent> goCardlessEvents = List.of(aGoCardlessEventFixture().toEntity());
-        service.storeEvents(goCardlessEvents);
-        verify(mockedGoCardlessEventDao).insert(goCardlessEvents);
+        given(mockedGoCardlessEventDao.insertIfNotExistsAndUpdateLatestApplicableEvents(goCardlessEvents,
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE)).willReturn(goCardlessEvents);
+
+        assertThat(service.storeEvents(goCardlessEvents), is(goCardlessEvents));
+    }
+
+    @Test
+    public void storeEvents_shouldOnlyReturnEventsThatHaveNotBeenReceivedBefore() {
+        GoCardlessEvent newEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV_NEW")).toEntity();
+        GoCardlessEvent redeliveredEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV_OLD")).toEntity();
+        List<GoCardlessEvent> goCardlessEvents = List.of(newEvent, redeliveredEvent);
+        given(mockedGoCardlessEventDao.insertIfNotExistsAndUpdateLatestApplicableEvents(goCardlessEvents,
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE)).willReturn(List.of(newEvent));
+
+        assertThat(service.storeEvents(goCardlessEvents), is(List.of(newEvent)));
+    }
+
+    @Test
+    public void storeAndEnqueueEvents_shouldStoreAndEnqueueGoCardlessEvents() {
+        List<GoCardlessEvent> goCardlessEvents = List.of(aGoCardlessEventFixture().toEntity());
+        given(mockedGoCardlessEventDao.insertIfNotExistsAndEnqueue(goCardlessEvents,
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE)).willReturn(goCardlessEvents);
+
+        assertThat(service.storeAndEnqueueEvents(goCardlessEvents), is(goCardlessEvents));
+    }
+
+    @Test
+    public void storeAndClaimEvents_shouldStoreAndEnqueueGoCardlessEventsClaimedForTheClaimTimeout() {
+        List<GoCardlessEvent> goCardlessEvents = List.of(aGoCardlessEventFixture().toEntity());
+        given(mockedGoCardlessEventDao.insertIfNotExistsAndEnqueueClaimed(goCardlessEvents,
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, 300L)).willReturn(goCardlessEvents);
+
+        assertThat(service.storeAndClaimEvents(goCardlessEvents, Duration.minutes(5)), is(goCardlessEvents));
+    }
+
+    @Test
+    public void findEvents_shouldNotQueryWhenThereAreNoIds() {
+        assertThat(service.findEvents(List.of()), is(List.of()));
+        verifyZeroInteractions(mockedGoCardlessEventDao);
     }
 }
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.errors.GoCardlessApiException;
 import com.gocardless.errors.ValidationFailedException;
 import org.hamcrest.core.Is;
@@ -9,9 +10,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.app.config.SunNameCacheConfig;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFacade;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
 import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
@@ -25,6 +26,7 @@ import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankRefer
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessService;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
 import uk.gov.pay.directdebit.payers.api.BankAccountValidationResponse;
 import uk.gov.pay.directdebit.payers.dao.GoCardlessCustomerDao;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
@@ -32,6 +34,7 @@ import uk.gov.pay.directdebit.payers.model.AccountNumber;
 import uk.gov.pay.directdebit.payers.model.BankAccountDetails;
 import uk.gov.pay.directdebit.payers.model.GoCardlessBankAccountLookup;
 import uk.gov.pay.directdebit.payers.model.GoCardlessCustomer;
+import uk.gov.pay.directdebit.payers.model.Payer;
 import uk.gov.pay.directdebit.payers.model.SortCode;
 import uk.gov.pay.directdebit.payments.exception.CreateCustomerBankAccountFailedException;
 import uk.gov.pay.directdebit.payments.exception.CreateCustomerFailedException;
@@ -45,13 +48,16 @@ import uk.gov.pay.directdebit.payments.model.PaymentProviderPaymentIdAndChargeDa
 import java.time.LocalDate;
 import java.util.Optional;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.lang.String.format;
 import static java.time.Month.JULY;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
@@ -86,7 +92,6 @@ public class GoCardlessServiceTest {
     @Mock
     protected ValidationFailedException mockedGoCardlessValidationFailedException;
 
-    @InjectMocks
     private GoCardlessService service;
 
     private GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
@@ -114,6 +119,8 @@ public class GoCardlessServiceTest {
 
     @Before
     public void setUp() {
+        service = new GoCardlessService(mockedGoCardlessClientFactory, mockedGoCardlessCustomerDao,
+                new GoCardlessSunNameCache(mockedGoCardlessClientFactory, new SunNameCacheConfig(), new MetricRegistry(), directExecutor()));
         when(mockedGoCardlessClientFactory.getClientFor(Optional.of(gatewayAccountFixture.getAccessToken()))).thenReturn(mockedGoCardlessClientFacade);
         when(mockedGoCardlessClientFacade.createCustomer(MANDATE_ID, payerFixture.toEntity())).thenReturn(goCardlessCustomer);
         when(mockedGoCardlessClientFacade.createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER)).thenReturn(goCardlessCustomer);
@@ -249,6 +256,43 @@ public class GoCardlessServiceTest {
         service.confirmMandate(mandateFixture.toEntity(), bankAccountDetails);
     }
 
+    @Test
+    public void submitBankAccountDetails_shouldCreateAGoCardlessCustomerAndBankAccountButNotAMandate() {
+        Mandate mandate = mandateFixture.toEntity();
+
+        service.submitBankAccountDetails(mandate, bankAccountDetails);
+
+        verify(mockedGoCardlessCustomerDao).insert(goCardlessCustomer);
+        InOrder orderedCalls = inOrder(mockedGoCardlessClientFacade);
+        orderedCalls.verify(mockedGoCardlessClientFacade).createCustomer(MANDATE_ID, payerFixture.toEntity());
+        orderedCalls.verify(mockedGoCardlessClientFacade).createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER);
+        verify(mockedGoCardlessClientFacade, never()).createMandate(any(Mandate.class), any(GoCardlessCustomer.class));
+    }
+
+    @Test
+    public void createMandate_shouldCreateAGoCardlessMandateForTheStoredCustomer() {
+        Mandate mandate = mandateFixture.toEntity();
+        when(mockedGoCardlessCustomerDao.findByPayerId(payerFixture.getId())).thenReturn(Optional.of(goCardlessCustomer));
+        when(mockedGoCardlessClientFacade.createMandate(mandate, goCardlessCustomer))
+                .thenReturn(new PaymentProviderMandateIdAndBankReference(
+                        GoCardlessMandateId.valueOf("aPaymentProviderId"),
+                        MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
+
+        var paymentProviderMandateIdAndBankReference = service.createMandate(mandate);
+
+        assertThat(paymentProviderMandateIdAndBankReference.getPaymentProviderMandateId(), is(GoCardlessMandateId.valueOf("aPaymentProviderId")));
+        verify(mockedGoCardlessClientFacade, never()).createCustomer(any(MandateExternalId.class), any(Payer.class));
+    }
+
+    @Test
+    public void createMandate_shouldThrow_ifNoGoCardlessCustomerHasBeenStored() {
+        when(mockedGoCardlessCustomerDao.findByPayerId(payerFixture.getId())).thenReturn(Optional.empty());
+
+        thrown.expect(CreateMandateFailedException.class);
+
+        service.createMandate(mandateFixture.toEntity());
+    }
+
     @Test
     public void collect_shouldCreateAndStoreAPaymentForAValidGoCardlessMandate() {
         GoCardlessPaymentId goCardlessPaymentId = GoCardlessPaymentId.valueOf("expectedGoCardlessPaymentId");
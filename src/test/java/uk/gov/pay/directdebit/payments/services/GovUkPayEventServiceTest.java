@@ -16,8 +16,10 @@ import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventStateGraph;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
+import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
+import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
 import java.util.Optional;
@@ -25,6 +27,8 @@ import java.util.Optional;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.MANDATE;
@@ -34,9 +38,11 @@ import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_SUBMITTED_TO_PROVIDER;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_CREATED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_SUBMITTED;
+import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GovUkPayEventServiceTest {
@@ -53,6 +59,12 @@ public class GovUkPayEventServiceTest {
     @Mock
     private PaymentStateUpdater mockPaymentStateUpdater;
 
+    @Mock
+    private MandateDao mockMandateDao;
+
+    @Mock
+    private PaymentDao mockPaymentDao;
+
     @InjectMocks
     private GovUkPayEventService govUkPayEventService;
 
@@ -83,12 +95,13 @@ public class GovUkPayEventServiceTest {
                 .toEntity();
         GovUkPayEventType newEventType = MANDATE_USER_SETUP_EXPIRED;
 
+        when(mockMandateDao.findById(mandateId)).thenReturn(Optional.of(mandate));
         when(mockGovUkPayEventDao.findLatestEventForMandate(mandateId)).thenReturn(Optional.of(previousEvent));
         when(mockGovUkPayEventStateGraph.isValidTransition(previousEvent.getEventType(), newEventType)).thenReturn(true);
 
         govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, newEventType);
 
-        verify(mockGovUkPayEventDao).insert(eventCaptor.capture());
+        verify(mockGovUkPayEventDao).insertAndUpdateLatestApplicableEventForMandate(eventCaptor.capture(), eq(GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE));
         verify(mockMandateStateUpdater).updateStateIfNecessary(mandate);
 
         GovUkPayEvent insertedEvent = eventCaptor.getValue();
@@ -103,12 +116,13 @@ public class GovUkPayEventServiceTest {
     public void insertMandateEvent_insertedForValidInitialEvent() {
         GovUkPayEventType eventType = MANDATE_CREATED;
 
+        when(mockMandateDao.findById(mandateId)).thenReturn(Optional.of(mandate));
         when(mockGovUkPayEventDao.findLatestEventForMandate(mandateId)).thenReturn(Optional.empty());
         when(mockGovUkPayEventStateGraph.isValidStartValue(eventType)).thenReturn(true);
 
         govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, eventType);
 
-        verify(mockGovUkPayEventDao).insert(eventCaptor.capture());
+        verify(mockGovUkPayEventDao).insertAndUpdateLatestApplicableEventForMandate(eventCaptor.capture(), eq(GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE));
         verify(mockMandateStateUpdater).updateStateIfNecessary(mandate);
 
         GovUkPayEvent insertedEvent = eventCaptor.getValue();
@@ -128,6 +142,7 @@ public class GovUkPayEventServiceTest {
                 .toEntity();
         GovUkPayEventType newEventType = MANDATE_CREATED;
 
+        when(mockMandateDao.findById(mandateId)).thenReturn(Optional.of(mandate));
         when(mockGovUkPayEventDao.findLatestEventForMandate(mandateId)).thenReturn(Optional.of(previousEvent));
         when(mockGovUkPayEventStateGraph.isValidTransition(previousEvent.getEventType(), newEventType)).thenReturn(false);
 
@@ -141,6 +156,7 @@ public class GovUkPayEventServiceTest {
     public void insertMandateEvent_shouldThrowForInvalidInitialEvent() {
         GovUkPayEventType eventType = MANDATE_SUBMITTED_TO_PROVIDER;
 
+        when(mockMandateDao.findById(mandateId)).thenReturn(Optional.of(mandate));
         when(mockGovUkPayEventDao.findLatestEventForMandate(mandateId)).thenReturn(Optional.empty());
         when(mockGovUkPayEventStateGraph.isValidStartValue(eventType)).thenReturn(false);
 
@@ -154,12 +170,13 @@ public class GovUkPayEventServiceTest {
     public void insertPaymentEvent_insertedForValidInitialEvent() {
         GovUkPayEventType eventType = PAYMENT_CREATED;
 
+        when(mockPaymentDao.findById(paymentId)).thenReturn(Optional.of(payment));
         when(mockGovUkPayEventDao.findLatestEventForPayment(paymentId)).thenReturn(Optional.empty());
         when(mockGovUkPayEventStateGraph.isValidStartValue(eventType)).thenReturn(true);
 
         govUkPayEventService.storeEventAndUpdateStateForPayment(payment, eventType);
 
-        verify(mockGovUkPayEventDao).insert(eventCaptor.capture());
+        verify(mockGovUkPayEventDao).insertAndUpdateLatestApplicableEventForPayment(eventCaptor.capture(), eq(GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE));
         verify(mockPaymentStateUpdater).updateStateIfNecessary(payment);
 
         GovUkPayEvent insertedEvent = eventCaptor.getValue();
@@ -179,6 +196,7 @@ public class GovUkPayEventServiceTest {
                 .toEntity();
         GovUkPayEventType newEventType = PAYMENT_SUBMITTED;
 
+        when(mockPaymentDao.findById(paymentId)).thenReturn(Optional.of(payment));
         when(mockGovUkPayEventDao.findLatestEventForPayment(paymentId)).thenReturn(Optional.of(previousEvent));
         when(mockGovUkPayEventStateGraph.isValidTransition(previousEvent.getEventType(), newEventType)).thenReturn(false);
 
@@ -187,4 +205,18 @@ public class GovUkPayEventServiceTest {
 
         govUkPayEventService.storeEventAndUpdateStateForPayment(payment, newEventType);
     }
+
+    @Test
+    public void insertMandateEvent_updatesStateOfMandateAsReadInTheUnitOfWork() {
+        Mandate currentMandate = Mandate.MandateBuilder.fromMandate(mandate).withVersion(3).build();
+        GovUkPayEventType eventType = MANDATE_CREATED;
+
+        when(mockMandateDao.findById(mandateId)).thenReturn(Optional.of(currentMandate));
+        when(mockGovUkPayEventDao.findLatestEventForMandate(mandateId)).thenReturn(Optional.empty());
+        when(mockGovUkPayEventStateGraph.isValidStartValue(eventType)).thenReturn(true);
+
+        govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, eventType);
+
+        verify(mockMandateStateUpdater).updateStateIfNecessary(argThat(updatedMandate -> updatedMandate.getVersion() == 3));
+    }
 }
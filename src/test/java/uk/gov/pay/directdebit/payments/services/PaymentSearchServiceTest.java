@@ -8,6 +8,8 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
 import uk.gov.pay.directdebit.common.util.RandomIdGenerator;
 import uk.gov.pay.directdebit.payments.api.ExternalPaymentState;
@@ -22,10 +24,14 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.payments.api.PaymentResponse.PaymentResponseBuilder.aPaymentResponse;
 import static uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams.PaymentViewSearchParamsBuilder.aPaymentViewSearchParams;
@@ -129,6 +135,58 @@ public class PaymentSearchServiceTest {
     }
 
 
+    @Test
+    public void shouldNotCountPaymentsAndShouldLinkToNextPageByCursor_whenTotalIsNotIncluded() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withIncludeTotal(false)
+                .build();
+
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(aSearchPageOfPaymentsWithIds(searchParams, 30L, 20L, 10L));
+
+        SearchResponse<PaymentResponse> paymentViewResponse = paymentSearchService.getPaymentSearchResponse(searchParams,
+                gatewayAccountExternalId);
+
+        verify(mockPaymentViewDao, never()).getPaymentViewCount(searchParams, gatewayAccountExternalId);
+        assertThat(paymentViewResponse.getCount(), is(2));
+        assertThat(paymentViewResponse.getTotal(), is(nullValue()));
+        assertThat(paymentViewResponse.getPage(), is(1));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getLastLink(), is(nullValue()));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getPrevLink(), is(nullValue()));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getNextLink().getHref()
+                .contains("display_size=2&include_total=false&after=" + SearchCursor.of(20L).encode()), is(true));
+    }
+
+    @Test
+    public void shouldCountPaymentsAndLinkToPreviousPageByCursor_whenSeekingAfterCursor() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withAfter(SearchCursor.of(40L))
+                .build();
+
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(aSearchPageOfPaymentsWithIds(searchParams, 30L, 20L));
+        when(mockPaymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)).thenReturn(4);
+
+        SearchResponse<PaymentResponse> paymentViewResponse = paymentSearchService.getPaymentSearchResponse(searchParams,
+                gatewayAccountExternalId);
+
+        assertThat(paymentViewResponse.getCount(), is(2));
+        assertThat(paymentViewResponse.getTotal(), is(4));
+        assertThat(paymentViewResponse.getPage(), is(nullValue()));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getPrevLink().getHref()
+                .contains("before=" + SearchCursor.of(30L).encode()), is(true));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getNextLink(), is(nullValue()));
+    }
+
+    private SearchPage<PaymentResponse> aSearchPageOfPaymentsWithIds(PaymentViewSearchParams searchParams, Long... ids) {
+        List<PaymentResponse> paymentResponses = createPaymentResponses(ids.length);
+        List<Integer> rows = IntStream.range(0, ids.length).boxed().collect(Collectors.toList());
+        return SearchPage.fromRows(rows, row -> ids[row], paymentResponses::get, searchParams);
+    }
+
+
     @NotNull
     private List<PaymentResponse> createPaymentResponses(int numberOfPayments) {
         List<PaymentResponse> paymentViewList = new ArrayList<>();
@@ -4,13 +4,17 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.common.services.SunService;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
@@ -30,6 +34,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -44,6 +49,7 @@ import static uk.gov.pay.directdebit.payments.model.PaymentState.SUBMITTED_TO_PR
 public class PaymentServiceTest {
 
     private static final SandboxMandateId SANDBOX_MANDATE_ID = SandboxMandateId.valueOf("sandbox-mandate-id");
+    private static final Optional<SunName> SUN_NAME = Optional.of(SunName.of("Test SUN Name"));
     
     @Rule
     public ExpectedException thrown = ExpectedException.none();
@@ -63,6 +69,12 @@ public class PaymentServiceTest {
     @Mock
     private GovUkPayEventService mockedGovUkPayEventService;
 
+    @Mock
+    private EmailOutboxConfig mockedEmailOutboxConfig;
+
+    @Mock
+    private SunService mockedSunService;
+
     @InjectMocks
     private PaymentService service;
 
@@ -135,6 +147,7 @@ public class PaymentServiceTest {
 
         when(mockedPaymentProviderFactory.getCommandServiceFor(mandate.getGatewayAccount().getPaymentProvider())).thenReturn(mockedSandboxService);
         when(mockedSandboxService.collect(payment, SANDBOX_MANDATE_ID)).thenReturn(new PaymentProviderPaymentIdAndChargeDate(sandboxPaymentId, chargeDate));
+        when(mockedSunService.getSunNameFor(payment.getMandate())).thenReturn(SUN_NAME);
 
         when(mockedGovUkPayEventService.storeEventAndUpdateStateForPayment(paymentWithProviderIdAndChargeDate, PAYMENT_SUBMITTED))
                 .thenAnswer(invocationOnMock -> {
@@ -144,8 +157,10 @@ public class PaymentServiceTest {
 
         Payment returnedPayment = service.submitPaymentToProvider(payment, SANDBOX_MANDATE_ID);
 
-        verify(mockedPaymentDao).updateProviderIdAndChargeDate(paymentWithProviderIdAndChargeDate);
-        verify(mockedUserNotificationService).sendPaymentConfirmedEmailFor(paymentWithProviderIdAndChargeDate);
+        InOrder inOrder = inOrder(mockedPaymentDao, mockedGovUkPayEventService, mockedUserNotificationService);
+        inOrder.verify(mockedPaymentDao).updateProviderIdAndChargeDate(paymentWithProviderIdAndChargeDate);
+        inOrder.verify(mockedGovUkPayEventService).storeEventAndUpdateStateForPayment(paymentWithProviderIdAndChargeDate, PAYMENT_SUBMITTED);
+        inOrder.verify(mockedUserNotificationService).sendPaymentConfirmedEmailFor(paymentWithProviderIdAndChargeDate, SUN_NAME);
 
         Payment paymentWithUpdatedState = fromPayment(paymentWithProviderIdAndChargeDate)
                 .withState(SUBMITTED_TO_PROVIDER)
@@ -154,6 +169,31 @@ public class PaymentServiceTest {
         assertThat(returnedPayment, is(paymentWithUpdatedState));
     }
 
+    @Test
+    public void submitPaymentToProvider_shouldWriteTheEmailToTheOutboxBeforeRegisteringThePaymentSubmittedEvent() {
+        Mandate mandate = mandateFixture.withPaymentProviderId(SANDBOX_MANDATE_ID).toEntity();
+        Payment payment = PaymentFixture.aPaymentFixture().withMandateFixture(mandateFixture).withState(CREATED).toEntity();
+        SandboxPaymentId sandboxPaymentId = SandboxPaymentId.valueOf("123");
+        LocalDate chargeDate = LocalDate.now().plusDays(2);
+        Payment paymentWithProviderIdAndChargeDate = fromPayment(payment)
+                .withProviderId(sandboxPaymentId)
+                .withChargeDate(chargeDate)
+                .build();
+
+        when(mockedEmailOutboxConfig.isAsynchronous()).thenReturn(true);
+        when(mockedPaymentProviderFactory.getCommandServiceFor(mandate.getGatewayAccount().getPaymentProvider())).thenReturn(mockedSandboxService);
+        when(mockedSandboxService.collect(payment, SANDBOX_MANDATE_ID)).thenReturn(new PaymentProviderPaymentIdAndChargeDate(sandboxPaymentId, chargeDate));
+        when(mockedSunService.getSunNameFor(payment.getMandate())).thenReturn(SUN_NAME);
+
+        service.submitPaymentToProvider(payment, SANDBOX_MANDATE_ID);
+
+        InOrder inOrder = inOrder(mockedSunService, mockedPaymentDao, mockedGovUkPayEventService, mockedUserNotificationService);
+        inOrder.verify(mockedSunService).getSunNameFor(payment.getMandate());
+        inOrder.verify(mockedPaymentDao).updateProviderIdAndChargeDate(paymentWithProviderIdAndChargeDate);
+        inOrder.verify(mockedUserNotificationService).sendPaymentConfirmedEmailFor(paymentWithProviderIdAndChargeDate, SUN_NAME);
+        inOrder.verify(mockedGovUkPayEventService).storeEventAndUpdateStateForPayment(paymentWithProviderIdAndChargeDate, PAYMENT_SUBMITTED);
+    }
+
     @Test
     public void submitPaymentToProvider_shouldRegisterErrorSubmittingToProviderWhenCreatePaymentFailedException() {
         Mandate mandate = mandateFixture.withPaymentProviderId(SANDBOX_MANDATE_ID).toEntity();
@@ -173,7 +213,7 @@ public class PaymentServiceTest {
         try {
             service.submitPaymentToProvider(payment, SANDBOX_MANDATE_ID);
         } catch (CreatePaymentFailedException e) {
-            verify(mockedUserNotificationService, never()).sendPaymentConfirmedEmailFor(any(Payment.class));
+            verify(mockedUserNotificationService, never()).sendPaymentConfirmedEmailFor(any(Payment.class), any());
             verify(mockedGovUkPayEventService).storeEventAndUpdateStateForPayment(payment, PAYMENT_ERROR_SUBMITTING_TO_PROVIDER);
         }
     }
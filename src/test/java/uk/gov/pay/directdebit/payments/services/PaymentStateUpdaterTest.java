@@ -15,6 +15,8 @@ import uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessPaymentStat
 import uk.gov.pay.directdebit.payments.services.sandbox.SandboxPaymentStateCalculator;
 
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
@@ -77,10 +79,25 @@ public class PaymentStateUpdaterTest {
         verify(mockPaymentUpdateService, never()).updateState(any(), any());
     }
 
+    @Test
+    public void updatesPaymentsWithStatesCalculatedInBatchesPerPaymentProvider() {
+        Payment goCardlessPayment = createPayment(GOCARDLESS);
+        Payment sandboxPayment = createPayment(SANDBOX);
+
+        given(mockGoCardlessPaymentStateCalculator.calculate(List.of(goCardlessPayment)))
+                .willReturn(Map.of(goCardlessPayment.getId(), mockPaymentStateWithDetails));
+        given(mockSandboxPaymentStateCalculator.calculate(List.of(sandboxPayment)))
+                .willReturn(Map.of());
+
+        List<Payment> payments = List.of(goCardlessPayment, sandboxPayment);
+        paymentStateUpdater.updateStatesIfNecessary(payments);
+
+        verify(mockPaymentUpdateService).updateStates(payments, Map.of(goCardlessPayment.getId(), mockPaymentStateWithDetails));
+    }
+
     private Payment createPayment(PaymentProvider paymentProvider) {
         GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture().withPaymentProvider(paymentProvider);
         MandateFixture mandateFixture = aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture);
         return aPaymentFixture().withMandateFixture(mandateFixture).toEntity();
     }
-
 }
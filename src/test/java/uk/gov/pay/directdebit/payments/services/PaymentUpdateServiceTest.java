@@ -5,18 +5,24 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.exception.ConcurrentUpdateException;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
 import static uk.gov.pay.directdebit.payments.model.PaymentState.SUBMITTED_TO_PROVIDER;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PaymentUpdateServiceTest {
@@ -37,9 +43,11 @@ public class PaymentUpdateServiceTest {
         PaymentState state = SUBMITTED_TO_PROVIDER;
         DirectDebitStateWithDetails<PaymentState> stateWithDetails = new DirectDebitStateWithDetails<>(state);
 
+        given(mockPaymentDao.updateStateAndDetails(payment.getId(), 0, state, null, null)).willReturn(1);
+
         Payment updatedPayment = paymentUpdateService.updateState(payment, stateWithDetails);
 
-        verify(mockPaymentDao).updateStateAndDetails(payment.getId(), state, null, null);
+        verify(mockPaymentDao).updateStateAndDetails(payment.getId(), 0, state, null, null);
 
         assertThat(updatedPayment.getExternalId(), is(payment.getExternalId()));
         assertThat(updatedPayment.getState(), is(state));
@@ -54,9 +62,11 @@ public class PaymentUpdateServiceTest {
         String description = "new-description";
         DirectDebitStateWithDetails<PaymentState> stateWithDetails = new DirectDebitStateWithDetails<>(state, details, description);
 
+        given(mockPaymentDao.updateStateAndDetails(payment.getId(), 0, state, details, description)).willReturn(1);
+
         Payment updatedPayment = paymentUpdateService.updateState(payment, stateWithDetails);
 
-        verify(mockPaymentDao).updateStateAndDetails(payment.getId(), state, details, description);
+        verify(mockPaymentDao).updateStateAndDetails(payment.getId(), 0, state, details, description);
 
         assertThat(updatedPayment.getExternalId(), is(payment.getExternalId()));
         assertThat(updatedPayment.getState(), is(state));
@@ -64,4 +74,60 @@ public class PaymentUpdateServiceTest {
         assertThat(updatedPayment.getStateDetailsDescription(), is(Optional.of(description)));
     }
 
+    @Test
+    public void updatesStatesOfPaymentsWithNewStatesInOneBatchAndReturnsAllPayments() {
+        Payment paymentWithNoNewState = aPaymentFixture().toEntity();
+        DirectDebitStateWithDetails<PaymentState> stateWithDetails =
+                new DirectDebitStateWithDetails<>(SUBMITTED_TO_PROVIDER, "a-details", "a-description");
+
+        given(mockPaymentDao.updateStatesAndDetails(List.of(payment.getId()), List.of(0), List.of(SUBMITTED_TO_PROVIDER),
+                List.of("a-details"), List.of("a-description"))).willReturn(new int[]{1});
+
+        List<Payment> updatedPayments = paymentUpdateService.updateStates(List.of(payment, paymentWithNoNewState),
+                Map.of(payment.getId(), stateWithDetails));
+
+        verify(mockPaymentDao).updateStatesAndDetails(List.of(payment.getId()), List.of(0), List.of(SUBMITTED_TO_PROVIDER),
+                List.of("a-details"), List.of("a-description"));
+
+        assertThat(updatedPayments.size(), is(2));
+        assertThat(updatedPayments.get(0).getState(), is(SUBMITTED_TO_PROVIDER));
+        assertThat(updatedPayments.get(0).getStateDetails(), is(Optional.of("a-details")));
+        assertThat(updatedPayments.get(1), is(paymentWithNoNewState));
+    }
+
+    @Test
+    public void updatesNothingWhenThereAreNoNewStates() {
+        List<Payment> updatedPayments = paymentUpdateService.updateStates(List.of(payment), Map.of());
+
+        verifyZeroInteractions(mockPaymentDao);
+        assertThat(updatedPayments, is(List.of(payment)));
+    }
+
+    @Test
+    public void incrementsVersionOfUpdatedPayment() {
+        given(mockPaymentDao.updateStateAndDetails(payment.getId(), 0, SUBMITTED_TO_PROVIDER, null, null)).willReturn(1);
+
+        Payment updatedPayment = paymentUpdateService.updateState(payment, new DirectDebitStateWithDetails<>(SUBMITTED_TO_PROVIDER));
+
+        assertThat(updatedPayment.getVersion(), is(1));
+    }
+
+    @Test(expected = ConcurrentUpdateException.class)
+    public void throwsWhenPaymentWasUpdatedConcurrently() {
+        given(mockPaymentDao.updateStateAndDetails(payment.getId(), 0, SUBMITTED_TO_PROVIDER, null, null)).willReturn(0);
+
+        paymentUpdateService.updateState(payment, new DirectDebitStateWithDetails<>(SUBMITTED_TO_PROVIDER));
+    }
+
+    @Test(expected = ConcurrentUpdateException.class)
+    public void throwsWhenAnyPaymentInABatchWasUpdatedConcurrently() {
+        Payment otherPayment = aPaymentFixture().withId(payment.getId() + 1).toEntity();
+        given(mockPaymentDao.updateStatesAndDetails(List.of(payment.getId(), otherPayment.getId()), List.of(0, 0),
+                List.of(SUBMITTED_TO_PROVIDER, SUBMITTED_TO_PROVIDER), Arrays.asList(null, null), Arrays.asList(null, null)))
+                .willReturn(new int[]{1, 0});
+
+        paymentUpdateService.updateStates(List.of(payment, otherPayment), Map.of(
+                payment.getId(), new DirectDebitStateWithDetails<>(SUBMITTED_TO_PROVIDER),
+                otherPayment.getId(), new DirectDebitStateWithDetails<>(SUBMITTED_TO_PROVIDER)));
+    }
 }
@@ -28,6 +28,8 @@ import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.core.Is.is;
@@ -40,8 +42,6 @@ import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGa
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
-import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
-import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
 
 @RunWith(JUnitParamsRunner.class)
 public class GoCardlessPaymentStateCalculatorTest {
@@ -96,8 +96,7 @@ public class GoCardlessPaymentStateCalculatorTest {
     })
     public void goCardlessEventActionMapsToState(String action, String expectedState) {
         GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withAction(action).toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -114,7 +113,7 @@ public class GoCardlessPaymentStateCalculatorTest {
     public void govUkPayEventTypeMapsToState(String eventType, String expectedState) {
         GovUkPayEventType govUkPayEventType = GovUkPayEventType.valueOf(eventType);
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture().withEventType(govUkPayEventType).toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -129,8 +128,7 @@ public class GoCardlessPaymentStateCalculatorTest {
                 .withDetailsDescription("This is a description")
                 .toEntity();
 
-        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -145,15 +143,14 @@ public class GoCardlessPaymentStateCalculatorTest {
                 .withAction("failed")
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
                 .withEventType(PAYMENT_SUBMITTED)
                 .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -167,15 +164,14 @@ public class GoCardlessPaymentStateCalculatorTest {
                 .withAction("failed")
                 .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId))
                 .willReturn(Optional.of(goCardlessEvent));
 
         GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
                 .withEventType(PAYMENT_SUBMITTED)
                 .withEventDate(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
                 .toEntity();
-        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGovUkPayEventDao.findLatestApplicableEventForPayment(payment.getId()))
                 .willReturn(Optional.of(govUkPayEvent));
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -185,8 +181,7 @@ public class GoCardlessPaymentStateCalculatorTest {
 
     @Test
     public void noApplicableEventsMapsToNothing() {
-        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId,
-                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+        given(mockGoCardlessEventDao.findLatestApplicableEventForPayment(goCardlessPaymentId, goCardlessOrganisationId))
                 .willReturn(Optional.empty());
 
         Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
@@ -214,4 +209,38 @@ public class GoCardlessPaymentStateCalculatorTest {
         goCardlessPaymentStateCalculator.calculate(payment);
     }
 
+    @Test
+    public void calculatesStatesForMultiplePaymentsFromLatestEventsFetchedTogether() {
+        GoCardlessPaymentId otherGoCardlessPaymentId = GoCardlessPaymentId.valueOf("another-payment-id");
+        Payment otherPayment = aPaymentFixture()
+                .withMandateFixture(aMandateFixture().withGatewayAccountFixture(
+                        aGatewayAccountFixture().withPaymentProvider(GOCARDLESS).withOrganisation(goCardlessOrganisationId)))
+                .withPaymentProviderId(otherGoCardlessPaymentId)
+                .toEntity();
+
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withAction("paid_out")
+                .withLinksPayment(goCardlessPaymentId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGoCardlessEventDao.findLatestApplicableEventsForPayments(
+                new String[]{"a-payment-id", "another-payment-id"},
+                new String[]{"an-organisation-id", "an-organisation-id"}))
+                .willReturn(List.of(goCardlessEvent));
+
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withPaymentId(otherPayment.getId())
+                .withEventType(PAYMENT_SUBMITTED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForPayments(List.of(payment.getId(), otherPayment.getId())))
+                .willReturn(List.of(govUkPayEvent));
+
+        Map<Long, DirectDebitStateWithDetails<PaymentState>> result =
+                goCardlessPaymentStateCalculator.calculate(List.of(payment, otherPayment));
+
+        assertThat(result.get(payment.getId()).getState(), is(PaymentState.PAID_OUT));
+        assertThat(result.get(otherPayment.getId()).getState(), is(PaymentState.SUBMITTED_TO_PROVIDER));
+    }
 }
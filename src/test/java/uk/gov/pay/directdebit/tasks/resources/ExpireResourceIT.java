@@ -4,6 +4,8 @@ import org.junit.Before;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.Rule;
+import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
 import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
@@ -14,12 +16,15 @@ import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
 import javax.ws.rs.core.Response;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED;
 import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
 
 public class ExpireResourceIT {
@@ -68,4 +73,52 @@ public class ExpireResourceIT {
         MandateDao mandateDao = testContext.getJdbi().onDemand(MandateDao.class);
         assertEquals(MandateState.USER_SETUP_EXPIRED, mandateDao.findById(mandate.getId()).get().getState());
     }
+
+    @Test
+    public void shouldExpireMandatesInChunksAndLeaveMandatesThatCannotBeExpired() {
+        List<Mandate> expirableMandates = List.of(
+                anExpirableMandate(MandateState.CREATED, MANDATE_CREATED),
+                anExpirableMandate(MandateState.AWAITING_DIRECT_DEBIT_DETAILS, MANDATE_TOKEN_EXCHANGED),
+                anExpirableMandate(MandateState.CREATED, MANDATE_CREATED),
+                anExpirableMandate(MandateState.CREATED, MANDATE_CREATED),
+                anExpirableMandate(MandateState.AWAITING_DIRECT_DEBIT_DETAILS, MANDATE_TOKEN_EXCHANGED));
+        Mandate recentMandate = MandateFixture.aMandateFixture()
+                .withState(MandateState.CREATED)
+                .withCreatedDate(ZonedDateTime.now().minusMinutes(10L))
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi()).toEntity();
+        aGovUkPayEventFixture()
+                .withMandateId(recentMandate.getId())
+                .withEventType(MANDATE_CREATED)
+                .insert(testContext.getJdbi());
+
+        given()
+            .port(testContext.getPort())
+            .contentType(JSON)
+            .post("/v1/api/tasks/expire-payments-and-mandates")
+            .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("numberOfExpiredMandates", is(expirableMandates.size()));
+
+        MandateDao mandateDao = testContext.getJdbi().onDemand(MandateDao.class);
+        GovUkPayEventDao govUkPayEventDao = testContext.getJdbi().onDemand(GovUkPayEventDao.class);
+        for (Mandate mandate : expirableMandates) {
+            assertEquals(MandateState.USER_SETUP_EXPIRED, mandateDao.findById(mandate.getId()).get().getState());
+            assertEquals(MANDATE_USER_SETUP_EXPIRED, govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId()).get().getEventType());
+        }
+        assertEquals(MandateState.CREATED, mandateDao.findById(recentMandate.getId()).get().getState());
+    }
+
+    private Mandate anExpirableMandate(MandateState state, GovUkPayEventType latestEventType) {
+        Mandate mandate = MandateFixture.aMandateFixture()
+                .withState(state)
+                .withCreatedDate(ZonedDateTime.now().minusMinutes(91L))
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi()).toEntity();
+        aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventType(latestEventType)
+                .insert(testContext.getJdbi());
+        return mandate;
+    }
 }
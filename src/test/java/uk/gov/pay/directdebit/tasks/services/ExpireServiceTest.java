@@ -1,51 +1,123 @@
 package uk.gov.pay.directdebit.tasks.services;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventStateGraph;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
-import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
-import uk.gov.pay.directdebit.junit.DropwizardTestContext;
-import uk.gov.pay.directdebit.junit.TestContext;
-import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
-import uk.gov.pay.directdebit.mandate.model.Mandate;
-import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.mandate.dao.MandateExpiryDao;
+import uk.gov.pay.directdebit.mandate.model.MandateIdAndExternalId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.tasks.config.MandateExpiryConfig;
 
-import java.util.Collections;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED;
+import static uk.gov.pay.directdebit.mandate.model.MandateState.AWAITING_DIRECT_DEBIT_DETAILS;
 import static uk.gov.pay.directdebit.mandate.model.MandateState.CREATED;
-
+import static uk.gov.pay.directdebit.mandate.model.MandateState.USER_SETUP_EXPIRED;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ExpireServiceTest {
 
-    @DropwizardTestContext
-    private TestContext testContext;
+    private static final Set<GovUkPayEventType> EVENT_TYPES_THAT_CAN_BE_EXPIRED = Set.of(MANDATE_CREATED, MANDATE_TOKEN_EXCHANGED);
+
+    @Mock
+    private MandateExpiryDao mockMandateExpiryDao;
 
     @Mock
-    private MandateQueryService mockMandateQueryService;
+    private GovUkPayEventStateGraph mockGovUkPayEventStateGraph;
 
     @Mock
-    private GovUkPayEventService mockGovUkPayEventService;
+    private MandateExpiryConfig mockMandateExpiryConfig;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
-    @InjectMocks
     private ExpireService expireService;
 
+    @Before
+    public void setUp() {
+        given(mockGovUkPayEventStateGraph.getEventTypesThatCanBeFollowedBy(MANDATE_USER_SETUP_EXPIRED)).willReturn(EVENT_TYPES_THAT_CAN_BE_EXPIRED);
+        given(mockMandateExpiryConfig.getChunkSize()).willReturn(2);
+        expireService = new ExpireService(mockMandateExpiryDao, mockGovUkPayEventStateGraph, mockMandateExpiryConfig,
+                MoreExecutors.newDirectExecutorService(), metricRegistry);
+    }
+
+    @Test
+    public void expireMandates_shouldExpireChunksUntilAChunkIsNotFull() {
+        given(mockMandateExpiryConfig.getThreads()).willReturn(1);
+        givenChunkAfter(0L, expiredMandates(1L, 2L));
+        givenChunkAfter(2L, expiredMandates(5L));
+
+        int numberOfExpiredMandates = expireService.expireMandates();
+
+        assertEquals(3, numberOfExpiredMandates);
+        verify(mockMandateExpiryDao, never()).expireNextChunk(any(), any(), any(ZonedDateTime.class), eq(5L), eq(2),
+                any(), any());
+        assertThat(metricRegistry.meter("mandate-expiry.expired").getCount(), is(3L));
+        assertThat(metricRegistry.histogram("mandate-expiry.expired-per-run").getCount(), is(1L));
+    }
+
     @Test
-    public void expireMandates_shouldCallMandateServiceWithPriorStatesToPending() {
-        Mandate mandate = MandateFixture.aMandateFixture().withState(CREATED).toEntity();
-        when(mockMandateQueryService
-                .findAllMandatesBySetOfStatesAndMaxCreationTime(any(), any()))
-                .thenReturn(Collections.singletonList(mandate));
+    public void expireMandates_shouldAddUpTheMandatesExpiredByEachWorker() {
+        given(mockMandateExpiryConfig.getThreads()).willReturn(2);
+        given(mockMandateExpiryDao.expireNextChunk(eq(Set.of(CREATED, AWAITING_DIRECT_DEBIT_DETAILS)), eq(EVENT_TYPES_THAT_CAN_BE_EXPIRED),
+                any(ZonedDateTime.class), eq(0L), eq(2), eq(MANDATE_USER_SETUP_EXPIRED), eq(USER_SETUP_EXPIRED)))
+                .willReturn(expiredMandates(1L, 2L))
+                .willReturn(expiredMandates(3L));
+        givenChunkAfter(2L, List.of());
+
         int numberOfExpiredMandates = expireService.expireMandates();
 
-        verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(mandate, GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
-        assertEquals(1, numberOfExpiredMandates);
+        assertEquals(3, numberOfExpiredMandates);
+    }
+
+    @Test
+    public void expireMandates_shouldThrowWhenAChunkFailsToBeExpired() {
+        given(mockMandateExpiryConfig.getThreads()).willReturn(1);
+        RuntimeException failure = new RuntimeException("database unavailable");
+        given(mockMandateExpiryDao.expireNextChunk(any(), any(), any(ZonedDateTime.class), anyLong(), eq(2), any(), any()))
+                .willThrow(failure);
+
+        try {
+            expireService.expireMandates();
+            fail("Expected the failure to be thrown");
+        } catch (RuntimeException e) {
+            assertThat(e, is(failure));
+        }
+
+        assertThat(metricRegistry.meter("mandate-expiry.failures").getCount(), is(1L));
+    }
+
+    private void givenChunkAfter(long afterId, List<MandateIdAndExternalId> expiredMandates) {
+        given(mockMandateExpiryDao.expireNextChunk(eq(Set.of(CREATED, AWAITING_DIRECT_DEBIT_DETAILS)), eq(EVENT_TYPES_THAT_CAN_BE_EXPIRED),
+                any(ZonedDateTime.class), eq(afterId), eq(2), eq(MANDATE_USER_SETUP_EXPIRED), eq(USER_SETUP_EXPIRED)))
+                .willReturn(expiredMandates);
+    }
+
+    private static List<MandateIdAndExternalId> expiredMandates(Long... ids) {
+        return Arrays.stream(ids)
+                .map(id -> new MandateIdAndExternalId(id, MandateExternalId.valueOf("mandate-" + id)))
+                .collect(toList());
     }
 }
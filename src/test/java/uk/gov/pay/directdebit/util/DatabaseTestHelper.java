@@ -5,6 +5,7 @@ import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class DatabaseTestHelper {
 
@@ -188,6 +189,15 @@ public class DatabaseTestHelper {
         );
     }
 
+    public List<Map<String, Object>> getAllGoCardlessEventQueueEntries() {
+        return jdbi.withHandle(handle ->
+                handle
+                        .createQuery("SELECT * from gocardless_event_queue q ORDER BY q.id")
+                        .mapToMap()
+                        .list()
+        );
+    }
+
     public Map<String, Object> getSandboxEventById(Long id) {
         return jdbi.withHandle(handle ->
                 handle
@@ -199,6 +209,26 @@ public class DatabaseTestHelper {
         );
     }
 
+    public List<Map<String, Object>> getSandboxEventsByPaymentId(String paymentId) {
+        return jdbi.withHandle(handle ->
+                handle
+                        .createQuery("SELECT * from sandbox_events s WHERE s.payment_id = :payment_id ORDER BY s.id")
+                        .bind("payment_id", paymentId)
+                        .mapToMap()
+                        .list()
+        );
+    }
+
+    public Optional<Map<String, Object>> getLatestSandboxPaymentEventByPaymentId(String paymentId) {
+        return jdbi.withHandle(handle ->
+                handle
+                        .createQuery("SELECT * from latest_sandbox_payment_events l WHERE l.payment_id = :payment_id")
+                        .bind("payment_id", paymentId)
+                        .mapToMap()
+                        .findFirst()
+        );
+    }
+
     public Map<String, Object> getGoCardlessPartnerAppTokenById(Long id) {
         return jdbi.withHandle(handle ->
                 handle.createQuery("SELECT * FROM gocardless_partner_app_account_connect_tokens g WHERE g.id= :id")
@@ -219,10 +249,19 @@ public class DatabaseTestHelper {
         );
     }
 
+    public List<Map<String, Object>> getQueuedEmails() {
+        return jdbi.withHandle(handle ->
+                handle
+                        .createQuery("SELECT * from email_outbox e ORDER BY e.id")
+                        .mapToMap()
+                        .list()
+        );
+    }
+
     public void truncateAllData() {
         jdbi.withHandle(h -> h.createScript(
         "TRUNCATE TABLE gateway_accounts, gocardless_customers, gocardless_events, gocardless_partner_app_account_connect_tokens, " +
-        "gocardless_payments, govukpay_events, mandates, payers, payments, sandbox_events, tokens CASCADE"
+        "gocardless_payments, govukpay_events, mandates, payers, payments, sandbox_events, tokens, email_outbox CASCADE"
         ).execute());
     }
 }
@@ -69,6 +69,15 @@ public class GoCardlessStubs {
                                          GoCardlessCustomerFixture goCardlessCustomerFixture, 
                                          String providerId, 
                                          String reference) {
+        stubCreateMandate(accessToken, idempotencyKey, goCardlessCustomerFixture, providerId, reference, 0);
+    }
+
+    public static void stubCreateMandate(String accessToken,
+                                         String idempotencyKey,
+                                         GoCardlessCustomerFixture goCardlessCustomerFixture,
+                                         String providerId,
+                                         String reference,
+                                         int delayInMillis) {
         String mandateRequestExpectedBody = load(GOCARDLESS_CREATE_MANDATE_REQUEST)
                 .replace("{{customer_bank_account_id}}", goCardlessCustomerFixture.getCustomerBankAccountId());
 
@@ -78,7 +87,7 @@ public class GoCardlessStubs {
                 .replace("{{customer_bank_account_id}}", goCardlessCustomerFixture.getCustomerBankAccountId())
                 .replace("{{customer_id}}", goCardlessCustomerFixture.getCustomerId())
                 .replace("{{gocardless_customer_bank_account_id}}", goCardlessCustomerFixture.getCustomerBankAccountId());
-        stubPostCallsFor("/mandates", accessToken, 200, idempotencyKey, mandateRequestExpectedBody, mandateResponseBody);
+        stubPostCallsFor("/mandates", accessToken, 200, idempotencyKey, mandateRequestExpectedBody, mandateResponseBody, delayInMillis);
     }
 
     public static void stubCreatePayment(String accessToken, Long amount, GoCardlessMandateId goCardlessMandateId, String idempotencyKey) {
@@ -106,6 +115,11 @@ public class GoCardlessStubs {
     }
 
     private static void stubPostCallsFor(String url, String accessToken, int statusCode, String idempotencyKey, String requestBody, String responseBody) {
+        stubPostCallsFor(url, accessToken, statusCode, idempotencyKey, requestBody, responseBody, 0);
+    }
+
+    private static void stubPostCallsFor(String url, String accessToken, int statusCode, String idempotencyKey, String requestBody, String responseBody,
+                                         int delayInMillis) {
         MappingBuilder postRequest = post(urlPathEqualTo(url));
         if (idempotencyKey != null) {
             postRequest.withHeader("Idempotency-Key", equalTo(idempotencyKey));
@@ -118,6 +132,7 @@ public class GoCardlessStubs {
                                 .withHeader(CONTENT_TYPE, APPLICATION_JSON)
                                 .withStatus(statusCode)
                                 .withBody(responseBody)
+                                .withFixedDelay(delayInMillis)
                 );
         stubFor(postRequest);
     }
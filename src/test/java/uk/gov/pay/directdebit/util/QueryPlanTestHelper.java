@@ -0,0 +1,40 @@
+package uk.gov.pay.directdebit.util;
+
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.join;
+
+/**
+ * Seeds tables with generated rows and explains queries against them, for tests that check a query is
+ * answered from an index rather than by scanning the table.
+ */
+public class QueryPlanTestHelper {
+
+    private final Jdbi jdbi;
+
+    public QueryPlanTestHelper(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Runs an insert into the table, usually selecting from generate_series, then refreshes the table's statistics so
+     * the planner sees the seeded rows.
+     */
+    public void seed(String table, String insert, Map<String, Object> bindings) {
+        jdbi.useHandle(handle -> {
+            handle.createUpdate(insert).bindMap(bindings).execute();
+            handle.execute("VACUUM ANALYZE " + table);
+        });
+    }
+
+    public String explain(String query, Map<String, Object> bindings) {
+        List<String> plan = jdbi.withHandle(handle -> handle.createQuery("EXPLAIN " + query)
+                .bindMap(bindings)
+                .mapTo(String.class)
+                .list());
+        return join("\n", plan);
+    }
+}
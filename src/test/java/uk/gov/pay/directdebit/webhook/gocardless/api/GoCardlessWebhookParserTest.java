@@ -20,7 +20,9 @@ import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -147,6 +149,59 @@ public class GoCardlessWebhookParserTest {
         parser.parse("");
     }
     
+    @Test
+    public void shouldParseEventsAfterOtherFieldsKeepingTheRawJsonOfEachEvent() throws IOException {
+        GoCardlessOrganisationId organisationIdentifier = GoCardlessOrganisationId.valueOf("test_organisation_identifier");
+        String firstEventPayload = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(
+                buildValidEvent(EVENT_ID, ACTION, RESOURCE_TYPE, "payment", CREATED_AT, organisationIdentifier)));
+        String secondEventPayload = buildValidEvent("BBB345", ACTION, MANDATES, "mandate", CREATED_AT, organisationIdentifier);
+        String payload = "{\"meta\": {\"webhook_id\": \"WB123\"}, \"events\": [ " + firstEventPayload + " ,\n" + secondEventPayload + "]}";
+
+        List<GoCardlessEvent> parsedEvents = parser.parse(payload.getBytes(UTF_8));
+
+        assertThat(parsedEvents.size(), is(2));
+        assertThat(parsedEvents.get(0).getJson(), is(firstEventPayload));
+        assertThat(parsedEvents.get(0).getLinksPayment().get().toString(), is("payment"));
+        assertThat(parsedEvents.get(1).getJson(), is(secondEventPayload));
+        assertThat(parsedEvents.get(1).getLinksMandate().get().toString(), is("mandate"));
+    }
+
+    @Test
+    public void shouldParseManyEventsFromBytes() throws IOException {
+        GoCardlessOrganisationId organisationIdentifier = GoCardlessOrganisationId.valueOf("test_organisation_identifier");
+        String[] eventPayloads = IntStream.range(0, 500)
+                .mapToObj(i -> buildValidEvent("EV" + i, ACTION, RESOURCE_TYPE, "payment" + i, CREATED_AT, organisationIdentifier))
+                .toArray(String[]::new);
+        String payload = buildEvents(eventPayloads);
+
+        List<GoCardlessEvent> parsedEvents = parser.parse(payload.getBytes(UTF_8));
+
+        assertThat(parsedEvents.size(), is(500));
+        assertThat(parsedEvents.get(499).getJson(), is(eventPayloads[499]));
+        assertThat(parsedEvents.get(499).getLinksPayment().get().toString(), is("payment499"));
+    }
+
+    @Test
+    public void shouldParseEventsFromBytesKeepingTheRawJsonOfEachEvent() throws IOException {
+        GoCardlessOrganisationId organisationIdentifier = GoCardlessOrganisationId.valueOf("test_organisation_identifier");
+        String eventPayload = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(
+                buildValidEvent(EVENT_ID, ACTION, RESOURCE_TYPE, "payment", CREATED_AT, organisationIdentifier)));
+        String payload = "{\"events\": [" + eventPayload + "], \"meta\": {\"webhook_id\": \"WB123\"}}";
+
+        List<GoCardlessEvent> parsedEvents = parser.parse(payload.getBytes(UTF_8));
+
+        assertThat(parsedEvents.size(), is(1));
+        assertThat(parsedEvents.get(0).getJson(), is(eventPayload));
+        assertThat(parsedEvents.get(0).getLinksOrganisation(), is(organisationIdentifier));
+    }
+
+    @Test
+    public void shouldThrow_ifWebhookPayloadHasNoEvents() {
+        thrown.expect(WebhookParserException.class);
+        thrown.expectMessage("Failed to parse webhooks");
+        parser.parse("{\"meta\": {}}".getBytes(UTF_8));
+    }
+
     private String buildValidEvent(String eventId, String action, GoCardlessResourceType resourceType, String resourceId,
                                    ZonedDateTime createdAt, GoCardlessOrganisationId organisationIdentifier) {
         return Json.createObjectBuilder()
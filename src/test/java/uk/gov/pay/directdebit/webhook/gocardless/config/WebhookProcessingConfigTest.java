@@ -0,0 +1,42 @@
+package uk.gov.pay.directdebit.webhook.gocardless.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import org.junit.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class WebhookProcessingConfigTest {
+
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final Validator validator = Validators.newValidator();
+
+    @Test
+    public void shouldRejectAsynchronousProcessingWithNoWorkerThreads() throws Exception {
+        Set<ConstraintViolation<WebhookProcessingConfig>> violations = validate("{\"asynchronous\": true, \"workerThreads\": 0}");
+
+        assertThat(violations.size(), is(1));
+        assertThat(violations.iterator().next().getMessage(), is("workerThreads must be at least 1 when asynchronous is true"));
+    }
+
+    @Test
+    public void shouldAllowSynchronousProcessingWithNoWorkerThreads() throws Exception {
+        assertThat(validate("{\"asynchronous\": false, \"workerThreads\": 0}"), is(empty()));
+    }
+
+    @Test
+    public void shouldAllowAsynchronousProcessingWithWorkerThreads() throws Exception {
+        assertThat(validate("{\"asynchronous\": true, \"workerThreads\": 2}"), is(empty()));
+    }
+
+    private Set<ConstraintViolation<WebhookProcessingConfig>> validate(String json) throws Exception {
+        return validator.validate(objectMapper.readValue(json, WebhookProcessingConfig.class));
+    }
+}
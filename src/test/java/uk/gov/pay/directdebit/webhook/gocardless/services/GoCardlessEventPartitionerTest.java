@@ -0,0 +1,112 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.MANDATES;
+import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.PAYMENTS;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+
+public class GoCardlessEventPartitionerTest {
+
+    private static final GoCardlessOrganisationId ORGANISATION_ID = GoCardlessOrganisationId.valueOf("OR1");
+    private static final GoCardlessOrganisationId OTHER_ORGANISATION_ID = GoCardlessOrganisationId.valueOf("OR2");
+    private static final GoCardlessMandateId MANDATE_ID = GoCardlessMandateId.valueOf("MD1");
+    private static final GoCardlessPaymentId PAYMENT_ID = GoCardlessPaymentId.valueOf("PM1");
+
+    private final ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final GoCardlessEventPartitioner goCardlessEventPartitioner = new GoCardlessEventPartitioner(executorService, metricRegistry);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldPartitionEventsByOrganisationAndMandateOrPaymentInTheOrderTheyWereCreated() {
+        GoCardlessEvent laterMandateEvent = mandateEvent(ORGANISATION_ID, MANDATE_ID, now);
+        GoCardlessEvent paymentEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withLinksOrganisation(ORGANISATION_ID)
+                .withLinksPayment(PAYMENT_ID).withCreatedAt(now).toEntity();
+        GoCardlessEvent otherOrganisationMandateEvent = mandateEvent(OTHER_ORGANISATION_ID, MANDATE_ID, now);
+        GoCardlessEvent earlierMandateEvent = mandateEvent(ORGANISATION_ID, MANDATE_ID, now.minusSeconds(1));
+
+        List<List<GoCardlessEvent>> partitions = List.copyOf(GoCardlessEventPartitioner.partition(
+                List.of(laterMandateEvent, paymentEvent, otherOrganisationMandateEvent, earlierMandateEvent)));
+
+        assertThat(partitions, containsInAnyOrder(
+                List.of(earlierMandateEvent, laterMandateEvent),
+                List.of(paymentEvent),
+                List.of(otherOrganisationMandateEvent)));
+    }
+
+    @Test
+    public void shouldHandleEachPartitionOnceAndTimeIt() {
+        List<GoCardlessEvent> events = List.of(
+                mandateEvent(ORGANISATION_ID, MANDATE_ID, now),
+                mandateEvent(ORGANISATION_ID, GoCardlessMandateId.valueOf("MD2"), now),
+                mandateEvent(OTHER_ORGANISATION_ID, MANDATE_ID, now));
+        List<List<GoCardlessEvent>> handledPartitions = new CopyOnWriteArrayList<>();
+        Set<String> handlingThreads = ConcurrentHashMap.newKeySet();
+
+        goCardlessEventPartitioner.handleInPartitions(events, partition -> {
+            handledPartitions.add(partition);
+            handlingThreads.add(Thread.currentThread().getName());
+        });
+
+        assertThat(handledPartitions.size(), is(3));
+        assertThat(handlingThreads.contains(Thread.currentThread().getName()), is(false));
+        assertThat(metricRegistry.timer("gocardless-event-partitions.partition-processing").getCount(), is(3L));
+        assertThat(metricRegistry.histogram("gocardless-event-partitions.partitions-per-batch").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldHandleEveryPartitionBeforeThrowingTheFailureOfOne() {
+        GoCardlessEvent failingEvent = mandateEvent(ORGANISATION_ID, MANDATE_ID, now);
+        GoCardlessEvent otherEvent = mandateEvent(OTHER_ORGANISATION_ID, MANDATE_ID, now);
+        List<List<GoCardlessEvent>> handledPartitions = new CopyOnWriteArrayList<>();
+        RuntimeException failure = new RuntimeException("boom");
+
+        try {
+            goCardlessEventPartitioner.handleInPartitions(List.of(failingEvent, otherEvent), partition -> {
+                if (partition.contains(failingEvent)) {
+                    throw failure;
+                }
+                handledPartitions.add(partition);
+            });
+            fail("Expected the failure to be thrown");
+        } catch (RuntimeException e) {
+            assertThat(e, is(failure));
+        }
+
+        assertThat(handledPartitions, is(List.of(List.of(otherEvent))));
+    }
+
+    private static GoCardlessEvent mandateEvent(GoCardlessOrganisationId organisationId, GoCardlessMandateId mandateId, ZonedDateTime createdAt) {
+        return aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withLinksOrganisation(organisationId)
+                .withLinksMandate(mandateId)
+                .withCreatedAt(createdAt)
+                .toEntity();
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.dao.GoCardlessEventQueueDao;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GoCardlessEventQueueWorkerTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Mock
+    private GoCardlessEventQueueDao mockGoCardlessEventQueueDao;
+
+    @Mock
+    private GoCardlessEventService mockGoCardlessEventService;
+
+    @Mock
+    private WebhookGoCardlessService mockWebhookGoCardlessService;
+
+    @Mock
+    private WebhookProcessingConfig mockWebhookProcessingConfig;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private GoCardlessEventQueueWorker worker;
+
+    private GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+    private GoCardlessPaymentId paymentId = GoCardlessPaymentId.valueOf("PM123");
+    private GoCardlessEvent event1 = aGoCardlessEventFixture().withId(1L).withLinksOrganisation(organisationId).withLinksPayment(paymentId).toEntity();
+    private GoCardlessEvent event2 = aGoCardlessEventFixture().withId(2L).withLinksOrganisation(organisationId).withLinksPayment(paymentId).toEntity();
+    private GoCardlessEvent event3 = aGoCardlessEventFixture().withId(3L).toEntity();
+
+    @Before
+    public void setUp() {
+        given(mockWebhookProcessingConfig.getBatchSize()).willReturn(BATCH_SIZE);
+        given(mockWebhookProcessingConfig.getMaxAttempts()).willReturn(MAX_ATTEMPTS);
+        given(mockWebhookProcessingConfig.getClaimTimeout()).willReturn(Duration.minutes(1));
+        worker = new GoCardlessEventQueueWorker(mockGoCardlessEventQueueDao, mockGoCardlessEventService,
+                mockWebhookGoCardlessService, mockWebhookProcessingConfig,
+                new GoCardlessEventPartitioner(MoreExecutors.newDirectExecutorService(), metricRegistry), metricRegistry);
+    }
+
+    @Test
+    public void shouldKeepClaimingBatchesUntilTheQueueIsDrained() {
+        given(mockGoCardlessEventQueueDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS))
+                .willReturn(List.of(1L, 2L))
+                .willReturn(List.of(3L));
+        given(mockGoCardlessEventService.findEvents(List.of(1L, 2L))).willReturn(List.of(event1, event2));
+        given(mockGoCardlessEventService.findEvents(List.of(3L))).willReturn(List.of(event3));
+
+        worker.processQueuedEvents();
+
+        verify(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1, event2));
+        verify(mockWebhookGoCardlessService).handleStoredEvents(List.of(event3));
+        verify(mockGoCardlessEventQueueDao).remove(List.of(1L, 2L));
+        verify(mockGoCardlessEventQueueDao).remove(List.of(3L));
+        assertThat(metricRegistry.timer("gocardless-event-queue.batch-processing").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldLeaveTheFailingEventAndLaterEventsForTheSamePaymentInTheQueueWhenAPartitionFails() {
+        given(mockGoCardlessEventQueueDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willReturn(List.of(1L, 2L)).willReturn(List.of());
+        given(mockGoCardlessEventService.findEvents(List.of(1L, 2L))).willReturn(List.of(event1, event2));
+        doThrow(new RuntimeException("boom")).when(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1, event2));
+        doThrow(new RuntimeException("boom")).when(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1));
+
+        worker.processQueuedEvents();
+
+        verify(mockWebhookGoCardlessService, never()).handleStoredEvents(List.of(event2));
+        verify(mockGoCardlessEventQueueDao, never()).remove(any());
+        assertThat(metricRegistry.meter("gocardless-event-queue.failed-events").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRemoveTheEventsBeforeTheFailingEventWhenAPartitionFails() {
+        given(mockGoCardlessEventQueueDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willReturn(List.of(1L, 2L)).willReturn(List.of());
+        given(mockGoCardlessEventService.findEvents(List.of(1L, 2L))).willReturn(List.of(event1, event2));
+        doThrow(new RuntimeException("boom")).when(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1, event2));
+        doThrow(new RuntimeException("boom")).when(mockWebhookGoCardlessService).handleStoredEvents(List.of(event2));
+
+        worker.processQueuedEvents();
+
+        verify(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1));
+        verify(mockGoCardlessEventQueueDao).remove(List.of(1L));
+        verify(mockGoCardlessEventQueueDao, never()).remove(List.of(2L));
+        assertThat(metricRegistry.meter("gocardless-event-queue.failed-events").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldHandleAndRemoveTheEventsForEachPaymentSeparately() {
+        given(mockGoCardlessEventQueueDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willReturn(List.of(1L, 3L)).willReturn(List.of());
+        given(mockGoCardlessEventService.findEvents(List.of(1L, 3L))).willReturn(List.of(event1, event3));
+        doThrow(new RuntimeException("boom")).when(mockWebhookGoCardlessService).handleStoredEvents(List.of(event3));
+
+        worker.processQueuedEvents();
+
+        verify(mockWebhookGoCardlessService).handleStoredEvents(List.of(event1));
+        verify(mockGoCardlessEventQueueDao).remove(List.of(1L));
+        verify(mockGoCardlessEventQueueDao, never()).remove(List.of(3L));
+        assertThat(metricRegistry.timer("gocardless-event-partitions.partition-processing").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotLetAnExceptionEscapeTheScheduledTask() {
+        given(mockGoCardlessEventQueueDao.claim(BATCH_SIZE, 60, MAX_ATTEMPTS)).willThrow(new RuntimeException("database down"));
+
+        worker.processQueuedEvents();
+
+        verify(mockWebhookGoCardlessService, never()).handleStoredEvents(any());
+    }
+
+    @Test
+    public void shouldExposeQueueDepthAndLagAsGauges() {
+        given(mockGoCardlessEventQueueDao.countQueuedEvents(MAX_ATTEMPTS)).willReturn(42L);
+        given(mockGoCardlessEventQueueDao.findLagInMilliseconds(MAX_ATTEMPTS)).willReturn(1500L);
+
+        assertThat(metricRegistry.getGauges().get("gocardless-event-queue.depth").getValue(), is(42L));
+        assertThat(metricRegistry.getGauges().get("gocardless-event-queue.lag-in-milliseconds").getValue(), is(1500L));
+    }
+}
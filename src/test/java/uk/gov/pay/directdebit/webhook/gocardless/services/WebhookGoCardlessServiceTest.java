@@ -1,10 +1,17 @@
 package uk.gov.pay.directdebit.webhook.gocardless.services;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.util.Duration;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.dao.GoCardlessEventQueueDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GoCardlessResourceType;
 import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
@@ -13,24 +20,32 @@ import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
 import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
+import uk.gov.pay.directdebit.notifications.config.EmailOutboxConfig;
 import uk.gov.pay.directdebit.payments.exception.GoCardlessMandateNotFoundException;
 import uk.gov.pay.directdebit.payments.exception.GoCardlessPaymentNotFoundException;
 import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
 import uk.gov.pay.directdebit.payments.services.PaymentStateUpdater;
+import uk.gov.pay.directdebit.webhook.gocardless.config.WebhookProcessingConfig;
 import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.SendEmailsForGoCardlessEventsHandler;
 import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.UnhandledGoCardlessEventsLogger;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.MANDATES;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.PAYMENTS;
@@ -38,6 +53,9 @@ import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aG
 
 @RunWith(MockitoJUnitRunner.class)
 public class WebhookGoCardlessServiceTest {
+
+    private static final Duration CLAIM_TIMEOUT = Duration.minutes(5);
+
     @Mock
     private GoCardlessEventService mockedGoCardlessEventService;
 
@@ -59,6 +77,19 @@ public class WebhookGoCardlessServiceTest {
     @Mock
     private UnhandledGoCardlessEventsLogger mockedUnhandledGoCardlessEventsLogger;
 
+    @Mock
+    private WebhookProcessingConfig mockedWebhookProcessingConfig;
+
+    @Mock
+    private GoCardlessEventQueueDao mockedGoCardlessEventQueueDao;
+
+    @Mock
+    private EmailOutboxConfig mockedEmailOutboxConfig;
+
+    @Spy
+    private GoCardlessEventPartitioner goCardlessEventPartitioner =
+            new GoCardlessEventPartitioner(MoreExecutors.newDirectExecutorService(), new MetricRegistry());
+
     @InjectMocks
     private WebhookGoCardlessService webhookGoCardlessService;
 
@@ -67,22 +98,122 @@ public class WebhookGoCardlessServiceTest {
         Arrays.stream(GoCardlessResourceType.values()).forEach(t -> {
                     GoCardlessEvent event = aGoCardlessEventFixture().withResourceType(t).toEntity();
 
-                    when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                            event.getLinksMandate().get(), event.getLinksOrganisation()))
-                            .thenReturn(mock(Mandate.class));
-
                     List<GoCardlessEvent> events = List.of(event);
+                    givenStoredEvents(events, events);
                     webhookGoCardlessService.processEvents(events);
-                    verify(mockedGoCardlessEventService).storeEvents(events);
+                    verify(mockedGoCardlessEventService).storeAndClaimEvents(events, CLAIM_TIMEOUT);
                 }
         );
     }
 
+    @Test
+    public void shouldOnlyStoreAndEnqueueEventsWhenProcessingAsynchronously() {
+        when(mockedWebhookProcessingConfig.isAsynchronous()).thenReturn(true);
+        List<GoCardlessEvent> events = List.of(aGoCardlessEventFixture().withResourceType(MANDATES).withAction("cancelled").toEntity());
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedGoCardlessEventService).storeAndEnqueueEvents(events);
+        verifyZeroInteractions(mockedMandateQueryService, mockedMandateStateUpdater, mockedPaymentStateUpdater,
+                mockedSendEmailsForGoCardlessEventsHandler, mockedUnhandledGoCardlessEventsLogger);
+    }
+
+    @Test
+    public void shouldOnlyHandleEventsThatHaveNotBeenReceivedBefore() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+        GoCardlessMandateId newMandateId = GoCardlessMandateId.valueOf("MD_NEW");
+        GoCardlessEvent newEvent = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("active")
+                .withLinksMandate(newMandateId)
+                .withLinksOrganisation(organisationId)
+                .toEntity();
+        GoCardlessEvent redeliveredEvent = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("cancelled")
+                .withLinksMandate(GoCardlessMandateId.valueOf("MD_OLD"))
+                .withLinksOrganisation(organisationId)
+                .toEntity();
+        List<GoCardlessEvent> events = List.of(newEvent, redeliveredEvent);
+        givenStoredEvents(events, List.of(newEvent));
+        Mandate mandate = mock(Mandate.class);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(newMandateId, organisationId))))
+                .thenReturn(List.of(mandate));
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate));
+        verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(List.of(newEvent));
+        verify(mockedUnhandledGoCardlessEventsLogger).logUnhandledEvents(List.of(newEvent));
+        verify(mockedGoCardlessEventQueueDao).remove(List.of(newEvent.getId()));
+    }
+
+    @Test
+    public void shouldSendEmailsOnlyOnceTheUnitOfWorkHandlingTheEventsHasFinished() {
+        List<GoCardlessEvent> events = List.of(aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("failed").toEntity());
+
+        webhookGoCardlessService.handleStoredEvents(events);
+
+        InOrder inOrder = inOrder(mockedUnhandledGoCardlessEventsLogger, mockedSendEmailsForGoCardlessEventsHandler);
+        inOrder.verify(mockedUnhandledGoCardlessEventsLogger).logUnhandledEvents(events);
+        inOrder.verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
+    }
+
+    @Test
+    public void shouldWriteEmailsToTheOutboxInTheUnitOfWorkHandlingTheEventsWhenTheOutboxIsAsynchronous() {
+        when(mockedEmailOutboxConfig.isAsynchronous()).thenReturn(true);
+        List<GoCardlessEvent> events = List.of(aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("failed").toEntity());
+
+        webhookGoCardlessService.handleStoredEvents(events);
+
+        InOrder inOrder = inOrder(mockedUnhandledGoCardlessEventsLogger, mockedSendEmailsForGoCardlessEventsHandler);
+        inOrder.verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
+        inOrder.verify(mockedUnhandledGoCardlessEventsLogger).logUnhandledEvents(events);
+    }
+
+    @Test
+    public void shouldLeaveAPartitionThatFailedQueuedAndNotHandleItAgainWhenGoCardlessResendsTheEvents() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+        GoCardlessMandateId mandateId = GoCardlessMandateId.valueOf("MD123");
+        GoCardlessEvent mandateEvent = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("active")
+                .withLinksMandate(mandateId)
+                .withLinksOrganisation(organisationId)
+                .toEntity();
+        GoCardlessEvent paymentEvent = aGoCardlessEventFixture()
+                .withId(mandateEvent.getId() + 1)
+                .withResourceType(PAYMENTS)
+                .withAction("confirmed")
+                .withLinksPayment(GoCardlessPaymentId.valueOf("PM123"))
+                .withLinksOrganisation(organisationId)
+                .toEntity();
+        List<GoCardlessEvent> events = List.of(mandateEvent, paymentEvent);
+        when(mockedWebhookProcessingConfig.getClaimTimeout()).thenReturn(CLAIM_TIMEOUT);
+        when(mockedGoCardlessEventService.storeAndClaimEvents(events, CLAIM_TIMEOUT)).thenReturn(events).thenReturn(List.of());
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId, organisationId))))
+                .thenReturn(List.of(mock(Mandate.class)));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(any()))
+                .thenThrow(new GoCardlessPaymentNotFoundException("OOPSIE"));
+
+        try {
+            webhookGoCardlessService.processEvents(events);
+            fail("Expected GoCardlessPaymentNotFoundException.");
+        } catch (GoCardlessPaymentNotFoundException expected) {
+        }
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedGoCardlessEventQueueDao).remove(List.of(mandateEvent.getId()));
+        verify(mockedGoCardlessEventQueueDao, never()).remove(List.of(paymentEvent.getId()));
+        verify(mockedPaymentQueryService, times(1)).findByGoCardlessPaymentIdsAndOrganisationIds(any());
+    }
+
     @Test
     public void shouldStorePaymentEventsWhenHandlingThemThrowsAnException() {
         GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("created").toEntity();
 
         List<GoCardlessEvent> events = Collections.singletonList(goCardlessEvent);
+        givenStoredEvents(events, events);
 
         doThrow(new GoCardlessPaymentNotFoundException("OOPSIE"))
                 .when(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
@@ -91,17 +222,18 @@ public class WebhookGoCardlessServiceTest {
             fail("Expected GoCardlessPaymentNotFoundException.");
         } catch (GoCardlessPaymentNotFoundException expected) {
         }
-        verify(mockedGoCardlessEventService).storeEvents(events);
+        verify(mockedGoCardlessEventService).storeAndClaimEvents(events, CLAIM_TIMEOUT);
     }
 
     @Test
     public void shouldStoreMandateEventsWhenHandlingThemThrowsAnException() {
         GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(MANDATES).withAction("created").toEntity();
         List<GoCardlessEvent> events = Collections.singletonList(goCardlessEvent);
+        givenStoredEvents(events, events);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                goCardlessEvent.getLinksMandate().get(), goCardlessEvent.getLinksOrganisation()))
-                .thenReturn(mock(Mandate.class));
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(
+                List.of(Pair.of(goCardlessEvent.getLinksMandate().get(), goCardlessEvent.getLinksOrganisation()))))
+                .thenReturn(List.of(mock(Mandate.class)));
 
         doThrow(new GoCardlessMandateNotFoundException("error", "OOPSIE"))
                 .when(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
@@ -110,7 +242,7 @@ public class WebhookGoCardlessServiceTest {
             fail("Expected GoCardlessMandateNotFoundException.");
         } catch (GoCardlessMandateNotFoundException expected) {
         }
-        verify(mockedGoCardlessEventService).storeEvents(events);
+        verify(mockedGoCardlessEventService).storeAndClaimEvents(events, CLAIM_TIMEOUT);
     }
 
     @Test
@@ -170,37 +302,53 @@ public class WebhookGoCardlessServiceTest {
         Mandate mandate2 = mock(Mandate.class);
         Mandate mandate3 = mock(Mandate.class);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId1, goCardlessOrganisationId1))
-                .thenReturn(mandate1);
-
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId2, goCardlessOrganisationId1))
-                .thenReturn(mandate2);
-
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId1, goCardlessOrganisationId2))
-                .thenReturn(mandate3);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(
+                Pair.of(goCardlessMandateId1, goCardlessOrganisationId1),
+                Pair.of(goCardlessMandateId2, goCardlessOrganisationId1),
+                Pair.of(goCardlessMandateId1, goCardlessOrganisationId2))))
+                .thenReturn(List.of(mandate1, mandate2, mandate3));
 
         Payment payment1 = mock(Payment.class);
         Payment payment2 = mock(Payment.class);
 
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId1, goCardlessOrganisationId1))
-                .thenReturn(Optional.of(payment1));
-
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId2, goCardlessOrganisationId1))
-                .thenReturn(Optional.of(payment2));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(
+                Pair.of(goCardlessPaymentId1, goCardlessOrganisationId1),
+                Pair.of(goCardlessPaymentId2, goCardlessOrganisationId1))))
+                .thenReturn(List.of(payment1, payment2));
 
-        webhookGoCardlessService.processEvents(List.of(
+        List<GoCardlessEvent> events = List.of(
                 goCardlessOrganisation1Mandate1Event,
                 goCardlessOrganisation1Mandate2Event,
                 anotherGoCardlessOrganisation1Mandate1Event,
                 goCardlessOrganisation1Payment1Event,
                 goCardlessOrganisation1Payment2Event,
-                goCardlessOrganisation2Mandate1Event));
+                goCardlessOrganisation2Mandate1Event);
 
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate1);
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate2);
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate3);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment1);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment2);
+        webhookGoCardlessService.handleStoredEvents(events);
+
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate1, mandate2, mandate3));
+        verify(mockedPaymentStateUpdater).updateStatesIfNecessary(List.of(payment1, payment2));
+    }
+
+    @Test
+    public void shouldNotUpdateStatesForMandatesThatWereNotFound() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+        GoCardlessMandateId mandateId = GoCardlessMandateId.valueOf("MD123");
+        GoCardlessEvent event = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("active")
+                .withLinksMandate(mandateId)
+                .withLinksOrganisation(organisationId)
+                .toEntity();
+        List<GoCardlessEvent> events = List.of(event);
+        givenStoredEvents(events, events);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId, organisationId))))
+                .thenReturn(List.of());
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of());
+        verifyZeroInteractions(mockedPaymentQueryService, mockedPaymentStateUpdater);
     }
 
     @Test
@@ -239,22 +387,66 @@ public class WebhookGoCardlessServiceTest {
 
         Mandate mandate = mock(Mandate.class);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(mandateId, organisationId))
-                .thenReturn(mandate);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId, organisationId))))
+                .thenReturn(List.of(mandate));
 
         Payment payment = mock(Payment.class);
 
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(paymentId, organisationId))
-                .thenReturn(Optional.of(payment));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(Pair.of(paymentId, organisationId))))
+                .thenReturn(List.of(payment));
 
-        webhookGoCardlessService.processEvents(List.of(
+        List<GoCardlessEvent> events = List.of(
                 legitimateMandateEvent,
                 legitimatePaymentEvent,
                 cursedMandateEventNotLinkedToMandate,
-                cursedPaymentEventNotLinkedToPayment));
+                cursedPaymentEventNotLinkedToPayment);
+
+        webhookGoCardlessService.handleStoredEvents(events);
 
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment);
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate));
+        verify(mockedPaymentStateUpdater).updateStatesIfNecessary(List.of(payment));
     }
 
+    @Test
+    public void shouldHandleTheEventsForEachMandateSeparatelyInTheOrderTheyWereCreated() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR123");
+        GoCardlessMandateId mandateId1 = GoCardlessMandateId.valueOf("MD1");
+        GoCardlessMandateId mandateId2 = GoCardlessMandateId.valueOf("MD2");
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        GoCardlessEvent laterMandate1Event = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("active")
+                .withLinksMandate(mandateId1)
+                .withLinksOrganisation(organisationId)
+                .withCreatedAt(now)
+                .toEntity();
+        GoCardlessEvent mandate2Event = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("active")
+                .withLinksMandate(mandateId2)
+                .withLinksOrganisation(organisationId)
+                .withCreatedAt(now)
+                .toEntity();
+        GoCardlessEvent earlierMandate1Event = aGoCardlessEventFixture()
+                .withResourceType(MANDATES)
+                .withAction("submitted")
+                .withLinksMandate(mandateId1)
+                .withLinksOrganisation(organisationId)
+                .withCreatedAt(now.minusMinutes(1))
+                .toEntity();
+        List<GoCardlessEvent> events = List.of(laterMandate1Event, mandate2Event, earlierMandate1Event);
+        givenStoredEvents(events, events);
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(List.of(earlierMandate1Event, laterMandate1Event));
+        verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(List.of(mandate2Event));
+        verify(mockedMandateQueryService).findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId1, organisationId)));
+        verify(mockedMandateQueryService).findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId2, organisationId)));
+    }
+
+    private void givenStoredEvents(List<GoCardlessEvent> receivedEvents, List<GoCardlessEvent> newEvents) {
+        when(mockedWebhookProcessingConfig.getClaimTimeout()).thenReturn(CLAIM_TIMEOUT);
+        when(mockedGoCardlessEventService.storeAndClaimEvents(receivedEvents, CLAIM_TIMEOUT)).thenReturn(newEvents);
+    }
 }
@@ -32,4 +32,20 @@ public class GoCardlessGoCardlessWebhookVerifierTest {
         verifier.verify(body, signature);
     }
 
+    @Test
+    public void shouldVerifyWebhookBytesWithCorrectSignature() throws Exception {
+        String signature = "4d48a688e8bd6c313e3eecc78fa55b3e4ae23c65e70cf35038010f47742fb670";
+        byte[] body = Resources.toByteArray(Resources.getResource("gocardless-webhook.json"));
+
+        verifier.verify(body, signature);
+    }
+
+    @Test(expected = InvalidWebhookException.class)
+    public void shouldThrowForWebhookBytesWithIncorrectSignature() throws Exception {
+        String signature = "4d48a688e8bd6c313e3eecc78fa55b3e4ae23c65e70cf35038010f47742fb671";
+        byte[] body = Resources.toByteArray(Resources.getResource("gocardless-webhook.json"));
+
+        verifier.verify(body, signature);
+    }
+
 }
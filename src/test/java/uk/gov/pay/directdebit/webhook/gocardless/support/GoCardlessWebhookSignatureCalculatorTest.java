@@ -28,4 +28,15 @@ public class GoCardlessWebhookSignatureCalculatorTest {
         assertThat(signature, is("b0344c61d8db38535ca8afceaf0bf12b881dc200c9833da726e9376c2e32cff7"));
     }
 
+    @Test
+    public void calculateGivesTheSameDigestForBytesAndForRepeatedCalls() {
+        goCardlessWebhookSignatureCalculator = new GoCardlessWebhookSignatureCalculator("Jefe");
+
+        String firstSignature = goCardlessWebhookSignatureCalculator.calculate("what do ya want for nothing?".getBytes(UTF_8));
+        String secondSignature = goCardlessWebhookSignatureCalculator.calculate("what do ya want for nothing?");
+
+        assertThat(firstSignature, is("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843"));
+        assertThat(secondSignature, is(firstSignature));
+    }
+
 }
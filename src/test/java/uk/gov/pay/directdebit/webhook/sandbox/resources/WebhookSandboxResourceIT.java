@@ -12,9 +12,12 @@ import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.model.SandboxPaymentId;
 
 import javax.ws.rs.core.Response;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static io.restassured.RestAssured.given;
+import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -68,4 +71,36 @@ public class WebhookSandboxResourceIT {
         assertThat(payment.get("state"), is("PAID_OUT"));
     }
 
+    @Test
+    public void handleWebhook_shouldPayOutEverySubmittedPaymentAcrossSeveralChunks() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
+                .withPaymentProvider(SANDBOX)
+                .withOrganisation(null)
+                .insert(app.getTestContext().getJdbi());
+        MandateFixture mandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(app.getTestContext().getJdbi());
+
+        List<Long> paymentIds = IntStream.range(0, 5)
+                .mapToObj(i -> aPaymentFixture()
+                        .withMandateFixture(mandateFixture)
+                        .withState(PaymentState.SUBMITTED_TO_PROVIDER)
+                        .insert(app.getTestContext().getJdbi()).getId())
+                .collect(toList());
+        Long createdPaymentId = aPaymentFixture()
+                .withMandateFixture(mandateFixture)
+                .withState(PaymentState.CREATED)
+                .insert(app.getTestContext().getJdbi()).getId();
+
+        given().port(app.getTestContext().getPort())
+                .accept(APPLICATION_JSON)
+                .post("/v1/webhooks/sandbox")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        DatabaseTestHelper databaseTestHelper = app.getTestContext().getDatabaseTestHelper();
+        paymentIds.forEach(paymentId -> assertThat(databaseTestHelper.getPaymentById(paymentId).get("state"), is("PAID_OUT")));
+        assertThat(databaseTestHelper.getPaymentById(createdPaymentId).get("state"), is("CREATED"));
+    }
+
 }
@@ -0,0 +1,85 @@
+package uk.gov.pay.directdebit.webhook.sandbox.services;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.payments.dao.SandboxPayoutDao;
+import uk.gov.pay.directdebit.webhook.sandbox.config.SandboxPayoutConfig;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.FAILED;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SandboxPayoutServiceTest {
+
+    @Mock
+    private SandboxPayoutDao mockSandboxPayoutDao;
+
+    @Mock
+    private SandboxPayoutConfig mockSandboxPayoutConfig;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private SandboxPayoutService sandboxPayoutService;
+
+    @Before
+    public void setUp() {
+        given(mockSandboxPayoutConfig.getChunkSize()).willReturn(2);
+        given(mockSandboxPayoutConfig.getPayoutDelay()).willReturn(Duration.seconds(0));
+        sandboxPayoutService = new SandboxPayoutService(mockSandboxPayoutDao, mockSandboxPayoutConfig, metricRegistry);
+    }
+
+    @Test
+    public void payOutSubmittedPayments_shouldPayOutChunksUntilAChunkIsNotFull() {
+        givenChunkAfter(0L, List.of(1L, 2L));
+        givenChunkAfter(2L, List.of(5L));
+
+        int numberOfPayments = sandboxPayoutService.payOutSubmittedPayments();
+
+        assertEquals(3, numberOfPayments);
+        verify(mockSandboxPayoutDao, never()).payOutNextChunk(any(ZonedDateTime.class), eq(5L), eq(2), eq(0.0),
+                any(), any(), any(), any(), any(), any());
+        assertThat(metricRegistry.meter("sandbox-payout.payments").getCount(), is(3L));
+    }
+
+    @Test
+    public void payOutSubmittedPayments_shouldLeavePaymentsCreatedWithinThePayoutDelay() {
+        given(mockSandboxPayoutConfig.getPayoutDelay()).willReturn(Duration.minutes(10));
+        given(mockSandboxPayoutConfig.getFailureRate()).willReturn(0.25);
+        given(mockSandboxPayoutDao.payOutNextChunk(any(ZonedDateTime.class), anyLong(), eq(2), eq(0.25),
+                eq("PAID_OUT"), eq("PAID_OUT_CAUSE"), eq(PAID_OUT), eq("FAILED"), eq("FAILED_CAUSE"), eq(FAILED)))
+                .willReturn(List.of());
+
+        int numberOfPayments = sandboxPayoutService.payOutSubmittedPayments();
+
+        assertEquals(0, numberOfPayments);
+        ArgumentCaptor<ZonedDateTime> maxCreatedDate = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(mockSandboxPayoutDao).payOutNextChunk(maxCreatedDate.capture(), eq(0L), eq(2), eq(0.25),
+                any(), any(), any(), any(), any(), any());
+        assertThat(maxCreatedDate.getValue().toInstant(), is(lessThan(ZonedDateTime.now().minusMinutes(9L).toInstant())));
+    }
+
+    private void givenChunkAfter(long afterId, List<Long> paymentIds) {
+        given(mockSandboxPayoutDao.payOutNextChunk(any(ZonedDateTime.class), eq(afterId), eq(2), eq(0.0),
+                eq("PAID_OUT"), eq("PAID_OUT_CAUSE"), eq(PAID_OUT), eq("FAILED"), eq("FAILED_CAUSE"), eq(FAILED)))
+                .willReturn(paymentIds);
+    }
+}